@@ -0,0 +1,21 @@
+package org.angularjs.lang.lexer;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import org.angularjs.AngularTestUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Throughput of _AngularJSLexer over the lexer test data.
+ */
+public class AngularJSLexerPerformanceTest extends UsefulTestCase {
+  private static final int CORPUS_SIZE = 2 * 1024 * 1024;
+
+  public void testLexer() throws IOException {
+    final File dir = new File(AngularTestUtil.getBaseTestDataPath(AngularJSLexerPerformanceTest.class));
+    final String text = ThroughputTestUtil.loadCorpus(dir, ".js", "\n", CORPUS_SIZE);
+    ThroughputTestUtil.assertLexerTiming("AngularJS lexer", new AngularJSLexer(), text, 1000);
+  }
+}
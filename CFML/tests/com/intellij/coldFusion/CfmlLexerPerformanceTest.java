@@ -0,0 +1,48 @@
+/*
+ * Copyright 2000-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.coldFusion;
+
+import com.intellij.coldFusion.model.lexer.CfmlLexer;
+import com.intellij.coldFusion.model.lexer.CfscriptLexer;
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.lexer.Lexer;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+
+/**
+ * Throughput of _CfmlLexer and _CfscriptLexer over the lexer test data.
+ */
+public class CfmlLexerPerformanceTest extends UsefulTestCase {
+  private static final int CORPUS_SIZE = 2 * 1024 * 1024;
+
+  public void testCfmlLexer() throws Throwable {
+    doTest(new CfmlLexer(true, null), "/lexer/", 1500);
+  }
+
+  public void testCfmlLexerWithScript() throws Throwable {
+    doTest(new CfmlLexer(true, null), "/cfscript/lexer/", 1500);
+  }
+
+  public void testCfscriptLexer() throws Throwable {
+    doTest(new CfscriptLexer(null), "/cfscript/lexer/", 1000);
+  }
+
+  private void doTest(final Lexer lexer, final String subPath, final int expectedMs) throws Throwable {
+    final String text = ThroughputTestUtil.loadCorpus(new File(CfmlTestUtil.BASE_TEST_DATA_PATH + subPath), ".cfml", "\n", CORPUS_SIZE);
+    ThroughputTestUtil.assertLexerTiming(getTestName(false), lexer, text, expectedMs);
+  }
+}
@@ -32,6 +32,8 @@ import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.project.ProjectManagerAdapter;
 import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.roots.libraries.Library;
@@ -121,6 +123,7 @@ public class DartAnalysisServerService {
   @NotNull private final Queue<SearchResultsSet> mySearchResultSets = new LinkedList<>();
 
   @NotNull private final DartServerData myServerData = new DartServerData(myRootsHandler);
+  @NotNull private final DartServerDataSnapshot myServerDataSnapshot = new DartServerDataSnapshot();
 
   @NotNull private final AtomicBoolean myServerBusy = new AtomicBoolean(false);
   @NotNull private final Alarm myShowServerProgressAlarm = new Alarm();
@@ -439,10 +442,22 @@ public class DartAnalysisServerService {
   public DartAnalysisServerService() {
     Disposer.register(ApplicationManager.getApplication(), new Disposable() {
       public void dispose() {
+        myServerDataSnapshot.save();
         stopServer();
       }
     });
 
+    ApplicationManager.getApplication().getMessageBus().connect().subscribe(ProjectManager.TOPIC, new ProjectManagerAdapter() {
+      @Override
+      public void projectClosing(@NotNull final Project project) {
+        if (!myRootsHandler.getTrackedProjects().contains(project)) return;
+
+        for (VirtualFile file : FileEditorManager.getInstance(project).getOpenFiles()) {
+          saveToSnapshot(file);
+        }
+      }
+    });
+
     Logging.setLogger(new com.google.dart.server.utilities.logging.Logger() {
       @Override
       public void logError(String message) {
@@ -475,6 +490,11 @@ public class DartAnalysisServerService {
           }
 
           if (isLocalAnalyzableFile(file)) {
+            final Document document = FileDocumentManager.getInstance().getDocument(file);
+            if (document != null) {
+              myServerData.loadFromSnapshot(myServerDataSnapshot, file, document.getImmutableCharSequence());
+            }
+
             updateVisibleFiles();
           }
         }
@@ -492,6 +512,7 @@ public class DartAnalysisServerService {
             // file could be opened in more than one editor, so this check is needed
             for (Project project : myRootsHandler.getTrackedProjects()) {
               if (FileEditorManager.getInstance(project).getSelectedEditor(file) == null) {
+                saveToSnapshot(file);
                 myServerData.onFileClosed(file);
                 break;
               }
@@ -505,6 +526,15 @@ public class DartAnalysisServerService {
     registerQuickAssistIntentions();
   }
 
+  private void saveToSnapshot(@NotNull final VirtualFile file) {
+    if (!isLocalAnalyzableFile(file)) return;
+
+    final Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    if (document != null) {
+      myServerData.saveToSnapshot(myServerDataSnapshot, file, document.getImmutableCharSequence());
+    }
+  }
+
   @NotNull
   public static DartAnalysisServerService getInstance() {
     return ServiceManager.getService(DartAnalysisServerService.class);
@@ -540,6 +570,11 @@ public class DartAnalysisServerService {
     return myServerData.getImplementedMembers(file);
   }
 
+  @NotNull
+  public DartGutterModel getGutterModel(@NotNull final VirtualFile file) {
+    return myServerData.getGutterModel(file);
+  }
+
   void updateVisibleFiles() {
     UIUtil.invokeLaterIfNeeded(() -> {
       for (Project project : myRootsHandler.getTrackedProjects()) {
@@ -1013,20 +1048,49 @@ public class DartAnalysisServerService {
                                   final int _selectionOffset,
                                   final int _selectionLength,
                                   final int lineLength) {
-    final String filePath = FileUtil.toSystemDependentName(file.getPath());
     final Ref<FormatResult> resultRef = new Ref<>();
 
     final AnalysisServer server = myServer;
     if (server == null) return null;
 
     final CountDownLatch latch = new CountDownLatch(1);
+    final boolean sent = edit_format(file, _selectionOffset, _selectionLength, lineLength, formatResult -> {
+      resultRef.set(formatResult);
+      latch.countDown();
+    });
+    if (!sent) return null;
+
+    awaitForLatchCheckingCanceled(server, latch, EDIT_FORMAT_TIMEOUT);
+
+    if (latch.getCount() > 0) {
+      LOG.info("edit_format() took too long for file " + FileUtil.toSystemDependentName(file.getPath()));
+    }
+
+    return resultRef.get();
+  }
+
+  /**
+   * Asynchronous version of {@link #edit_format(VirtualFile, int, int, int)}, doesn't wait for the response.
+   * {@code consumer} is called on the server response thread, with {@code null} if the server has failed to format the file.
+   *
+   * @return {@code false} if the request has not been sent and the consumer will never be called
+   */
+  public boolean edit_format(@NotNull final VirtualFile file,
+                             final int _selectionOffset,
+                             final int _selectionLength,
+                             final int lineLength,
+                             @NotNull final Consumer<FormatResult> consumer) {
+    final String filePath = FileUtil.toSystemDependentName(file.getPath());
+
+    final AnalysisServer server = myServer;
+    if (server == null) return false;
+
     final int selectionOffset = getOriginalOffset(file, _selectionOffset);
     final int selectionLength = getOriginalOffset(file, _selectionOffset + _selectionLength) - selectionOffset;
     server.edit_format(filePath, selectionOffset, selectionLength, lineLength, new FormatConsumer() {
       @Override
       public void computedFormat(final List<SourceEdit> edits, final int selectionOffset, final int selectionLength) {
-        resultRef.set(new FormatResult(edits, selectionOffset, selectionLength));
-        latch.countDown();
+        consumer.consume(new FormatResult(edits, selectionOffset, selectionLength));
       }
 
       @Override
@@ -1038,17 +1102,10 @@ public class DartAnalysisServerService {
           logError("edit_format()", filePath, error);
         }
 
-        latch.countDown();
+        consumer.consume(null);
       }
     });
-
-    awaitForLatchCheckingCanceled(server, latch, EDIT_FORMAT_TIMEOUT);
-
-    if (latch.getCount() > 0) {
-      LOG.info("edit_format() took too long for file " + filePath);
-    }
-
-    return resultRef.get();
+    return true;
   }
 
   public boolean edit_getRefactoring(String kind,
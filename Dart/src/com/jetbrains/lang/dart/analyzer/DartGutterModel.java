@@ -0,0 +1,71 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.diagnostic.Logger;
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TIntObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Override and implementation gutter data of a single file indexed by offset, so that line marker providers do a hash lookup per
+ * component name instead of scanning all regions of the file. Built on the analysis server thread when overrides or implemented
+ * notifications arrive; immutable once built.
+ */
+public class DartGutterModel {
+  private static final Logger LOG = Logger.getInstance(DartGutterModel.class.getName());
+
+  public static final DartGutterModel EMPTY = new DartGutterModel();
+
+  private final TIntObjectHashMap<DartServerData.DartOverrideMember> myOverrides = new TIntObjectHashMap<>();
+  private final TIntIntHashMap myImplementedClasses = new TIntIntHashMap();
+  private final TIntIntHashMap myImplementedMembers = new TIntIntHashMap();
+
+  private DartGutterModel() {
+  }
+
+  @NotNull
+  static DartGutterModel build(@NotNull final String filePath,
+                               @Nullable final List<DartServerData.DartOverrideMember> overrides,
+                               @Nullable final List<DartServerData.DartRegion> implementedClasses,
+                               @Nullable final List<DartServerData.DartRegion> implementedMembers) {
+    final long start = System.currentTimeMillis();
+    final DartGutterModel model = new DartGutterModel();
+
+    if (overrides != null) {
+      for (DartServerData.DartOverrideMember override : overrides) {
+        model.myOverrides.put(override.getOffset(), override);
+      }
+    }
+    fill(model.myImplementedClasses, implementedClasses);
+    fill(model.myImplementedMembers, implementedMembers);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Gutter model for " + filePath + " (" + model.myOverrides.size() + " overrides, " + model.myImplementedClasses.size() +
+                " implemented classes, " + model.myImplementedMembers.size() + " implemented members) built in " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+    return model;
+  }
+
+  private static void fill(@NotNull final TIntIntHashMap map, @Nullable final List<DartServerData.DartRegion> regions) {
+    if (regions == null) return;
+    for (DartServerData.DartRegion region : regions) {
+      map.put(region.getOffset(), region.getLength());
+    }
+  }
+
+  @Nullable
+  public DartServerData.DartOverrideMember getOverrideMember(final int offset) {
+    return myOverrides.get(offset);
+  }
+
+  public boolean isImplementedClass(final int offset, final int length) {
+    return myImplementedClasses.containsKey(offset) && myImplementedClasses.get(offset) == length;
+  }
+
+  public boolean isImplementedMember(final int offset, final int length) {
+    return myImplementedMembers.containsKey(offset) && myImplementedMembers.get(offset) == length;
+  }
+}
@@ -33,6 +33,8 @@ public class DartServerData {
     Collections.synchronizedMap(new THashMap<String, List<DartRegion>>());
   private final Map<String, List<DartRegion>> myImplementedMemberData =
     Collections.synchronizedMap(new THashMap<String, List<DartRegion>>());
+  private final Map<String, DartGutterModel> myGutterModels =
+    Collections.synchronizedMap(new THashMap<String, DartGutterModel>());
 
   private final Set<String> myFilePathsWithUnsentChanges = Sets.newConcurrentHashSet();
 
@@ -126,6 +128,7 @@ public class DartServerData {
     }
 
     myOverrideData.put(filePath, newOverrides);
+    rebuildGutterModel(filePath);
     forceFileAnnotation(file, false);
   }
 
@@ -165,6 +168,7 @@ public class DartServerData {
     }
 
     if (hasChanges) {
+      rebuildGutterModel(filePath);
       forceFileAnnotation(file, false);
     }
   }
@@ -205,6 +209,28 @@ public class DartServerData {
     return classes != null ? classes : Collections.<DartRegion>emptyList();
   }
 
+  /**
+   * Normally the model is already built on the server thread when the overrides or implemented notification arrives.
+   * It is built here lazily only after a document change has shifted the regions.
+   */
+  @NotNull
+  DartGutterModel getGutterModel(@NotNull final VirtualFile file) {
+    final String filePath = file.getPath();
+    if (!myOverrideData.containsKey(filePath) && !myImplementedClassData.containsKey(filePath)) return DartGutterModel.EMPTY;
+
+    return myGutterModels.computeIfAbsent(filePath, path -> DartGutterModel.build(path,
+                                                                                   myOverrideData.get(path),
+                                                                                   myImplementedClassData.get(path),
+                                                                                   myImplementedMemberData.get(path)));
+  }
+
+  private void rebuildGutterModel(@NotNull final String filePath) {
+    myGutterModels.put(filePath, DartGutterModel.build(filePath,
+                                                       myOverrideData.get(filePath),
+                                                       myImplementedClassData.get(filePath),
+                                                       myImplementedMemberData.get(filePath)));
+  }
+
   private void forceFileAnnotation(@Nullable final VirtualFile file, final boolean clearCache) {
     if (file != null) {
       Set<Project> projects = myRootsHandler.getTrackedProjects();
@@ -219,6 +245,55 @@ public class DartServerData {
     }
   }
 
+  /**
+   * Remembers current data for the file in the snapshot, so that it can be shown right after IDE restart.
+   * Must be called before the data for the file is removed in {@link #onFileClosed(VirtualFile)}.
+   */
+  void saveToSnapshot(@NotNull final DartServerDataSnapshot snapshot, @NotNull final VirtualFile file, @NotNull final CharSequence text) {
+    final String filePath = file.getPath();
+    if (myFilePathsWithUnsentChanges.contains(filePath)) return;
+
+    final List<DartHighlightRegion> highlights = myHighlightData.get(filePath);
+    if (highlights == null) return; // server hasn't sent anything for this file yet
+
+    snapshot.put(filePath, new DartServerDataSnapshot.Entry(DartServerDataSnapshot.computeContentHash(text),
+                                                            copyOf(myErrorData.get(filePath)),
+                                                            copyOf(highlights),
+                                                            copyOf(myNavigationData.get(filePath)),
+                                                            copyOf(myOverrideData.get(filePath)),
+                                                            copyOf(myImplementedClassData.get(filePath)),
+                                                            copyOf(myImplementedMemberData.get(filePath))));
+  }
+
+  /**
+   * Shows data from the snapshot as provisional highlighting of the just opened file if the server hasn't sent anything for it yet.
+   * Live notifications from the server replace this data as usual.
+   */
+  void loadFromSnapshot(@NotNull final DartServerDataSnapshot snapshot, @NotNull final VirtualFile file, @NotNull final CharSequence text) {
+    final String filePath = file.getPath();
+    if (myHighlightData.containsKey(filePath)) return;
+
+    final DartServerDataSnapshot.Entry entry = snapshot.take(filePath, text);
+    if (entry == null) return;
+
+    if (!myErrorData.containsKey(filePath)) {
+      myErrorData.put(filePath, new ArrayList<>(entry.myErrors));
+    }
+    myHighlightData.put(filePath, new ArrayList<>(entry.myHighlights));
+    myNavigationData.put(filePath, new ArrayList<>(entry.myNavigation));
+    myOverrideData.put(filePath, new ArrayList<>(entry.myOverrides));
+    myImplementedClassData.put(filePath, new ArrayList<>(entry.myImplementedClasses));
+    myImplementedMemberData.put(filePath, new ArrayList<>(entry.myImplementedMembers));
+    rebuildGutterModel(filePath);
+
+    forceFileAnnotation(file, true);
+  }
+
+  @NotNull
+  private static <T> List<T> copyOf(@Nullable final List<T> list) {
+    return list == null ? new ArrayList<>() : new ArrayList<>(list);
+  }
+
   void onFilesContentUpdated() {
     myFilePathsWithUnsentChanges.clear();
   }
@@ -230,6 +305,7 @@ public class DartServerData {
     myOverrideData.remove(file.getPath());
     myImplementedClassData.remove(file.getPath());
     myImplementedMemberData.remove(file.getPath());
+    myGutterModels.remove(file.getPath());
   }
 
   void onFlushedResults(@NotNull final List<String> filePaths) {
@@ -263,6 +339,11 @@ public class DartServerData {
         myImplementedMemberData.remove(path);
       }
     }
+    if (!myGutterModels.isEmpty()) {
+      for (String path : filePaths) {
+        myGutterModels.remove(path);
+      }
+    }
   }
 
   void clearData() {
@@ -272,6 +353,7 @@ public class DartServerData {
     myOverrideData.clear();
     myImplementedClassData.clear();
     myImplementedMemberData.clear();
+    myGutterModels.clear();
   }
 
   void onDocumentChanged(@NotNull final DocumentEvent e) {
@@ -287,6 +369,7 @@ public class DartServerData {
     updateRegionsDeletingTouched(filePath, myOverrideData.get(filePath), e);
     updateRegionsDeletingTouched(filePath, myImplementedClassData.get(filePath), e);
     updateRegionsDeletingTouched(filePath, myImplementedMemberData.get(filePath), e);
+    myGutterModels.remove(filePath); // offsets have changed, rebuilt lazily
   }
 
   private static void updateRegionsDeletingTouched(@NotNull final String filePath,
@@ -404,7 +487,7 @@ public class DartServerData {
   public static class DartHighlightRegion extends DartRegion {
     private final String type;
 
-    private DartHighlightRegion(final int offset, final int length, @NotNull final String type) {
+    DartHighlightRegion(final int offset, final int length, @NotNull final String type) {
       super(offset, length);
       this.type = type.intern();
     }
@@ -422,12 +505,23 @@ public class DartServerData {
     private final String myMessage;
 
     private DartError(@NotNull final AnalysisError error, final int correctedOffset, final int correctedLength) {
-      super(correctedOffset, correctedLength);
-      myAnalysisErrorFileSD = error.getLocation().getFile().intern();
-      mySeverity = error.getSeverity().intern();
-      myType = error.getType().intern();
-      myCode = error.getCode() == null ? null : error.getCode().intern();
-      myMessage = error.getMessage();
+      this(correctedOffset, correctedLength, error.getLocation().getFile(), error.getSeverity(), error.getType(), error.getCode(),
+           error.getMessage());
+    }
+
+    DartError(final int offset,
+              final int length,
+              @NotNull final String analysisErrorFileSD,
+              @NotNull final String severity,
+              @NotNull final String type,
+              @Nullable final String code,
+              @NotNull final String message) {
+      super(offset, length);
+      myAnalysisErrorFileSD = analysisErrorFileSD.intern();
+      mySeverity = severity.intern();
+      myType = type.intern();
+      myCode = code == null ? null : code.intern();
+      myMessage = message;
     }
 
     public String getAnalysisErrorFileSD() {
@@ -478,15 +572,23 @@ public class DartServerData {
     private int myConvertedOffset = -1;
 
     private DartNavigationTarget(@NotNull final NavigationTarget target) {
-      myFile = FileUtil.toSystemIndependentName(target.getFile()).intern();
-      myOriginalOffset = target.getOffset();
-      myKind = target.getKind().intern();
+      this(FileUtil.toSystemIndependentName(target.getFile()), target.getOffset(), target.getKind());
+    }
+
+    DartNavigationTarget(@NotNull final String file, final int originalOffset, @NotNull final String kind) {
+      myFile = file.intern();
+      myOriginalOffset = originalOffset;
+      myKind = kind.intern();
     }
 
     public String getFile() {
       return myFile;
     }
 
+    int getOriginalOffset() {
+      return myOriginalOffset;
+    }
+
     public int getOffset(@Nullable final VirtualFile file) {
       if (myConvertedOffset == -1) {
         myConvertedOffset = DartAnalysisServerService.getInstance().getConvertedOffset(file, myOriginalOffset);
@@ -503,7 +605,7 @@ public class DartServerData {
     @Nullable private final OverriddenMember mySuperclassMember;
     @Nullable private final List<OverriddenMember> myInterfaceMembers;
 
-    private DartOverrideMember(final int offset,
+    DartOverrideMember(final int offset,
                                final int length,
                                @Nullable final OverriddenMember superclassMember,
                                @Nullable final List<OverriddenMember> interfaceMembers) {
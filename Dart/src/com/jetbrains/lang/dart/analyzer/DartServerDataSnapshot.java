@@ -0,0 +1,297 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.google.gson.JsonParser;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.IOUtil;
+import org.dartlang.analysis.server.protocol.OverriddenMember;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Last known analysis server data for the files that were open in editors when the IDE was closed.
+ * It is shown as provisional highlighting right after restart, until the server sends fresh notifications for the file.
+ * Each entry is valid only for the file content it was computed for, this is checked using {@link #computeContentHash(CharSequence)}.
+ */
+class DartServerDataSnapshot {
+
+  private static final Logger LOG = Logger.getInstance(DartServerDataSnapshot.class.getName());
+
+  private static final int VERSION = 1;
+  static final int MAX_ENTRIES = 500;
+
+  @NotNull private final File mySnapshotFile;
+  private boolean myLoaded;
+
+  // access order; the eldest entries are dropped when there are more than MAX_ENTRIES
+  private final Map<String, Entry> myEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  DartServerDataSnapshot() {
+    this(new File(PathManager.getSystemPath(), "dart/analysisServerData.snapshot"));
+  }
+
+  DartServerDataSnapshot(@NotNull final File snapshotFile) {
+    mySnapshotFile = snapshotFile;
+  }
+
+  static class Entry {
+    final long myContentHash;
+    @NotNull final List<DartServerData.DartError> myErrors;
+    @NotNull final List<DartServerData.DartHighlightRegion> myHighlights;
+    @NotNull final List<DartServerData.DartNavigationRegion> myNavigation;
+    @NotNull final List<DartServerData.DartOverrideMember> myOverrides;
+    @NotNull final List<DartServerData.DartRegion> myImplementedClasses;
+    @NotNull final List<DartServerData.DartRegion> myImplementedMembers;
+
+    Entry(final long contentHash,
+          @NotNull final List<DartServerData.DartError> errors,
+          @NotNull final List<DartServerData.DartHighlightRegion> highlights,
+          @NotNull final List<DartServerData.DartNavigationRegion> navigation,
+          @NotNull final List<DartServerData.DartOverrideMember> overrides,
+          @NotNull final List<DartServerData.DartRegion> implementedClasses,
+          @NotNull final List<DartServerData.DartRegion> implementedMembers) {
+      myContentHash = contentHash;
+      myErrors = errors;
+      myHighlights = highlights;
+      myNavigation = navigation;
+      myOverrides = overrides;
+      myImplementedClasses = implementedClasses;
+      myImplementedMembers = implementedMembers;
+    }
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the document text. Offsets of all regions in the snapshot are document offsets, so the hash is computed
+   * over the same text the regions refer to.
+   */
+  static long computeContentHash(@NotNull final CharSequence text) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < text.length(); i++) {
+      hash ^= text.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash ^ text.length();
+  }
+
+  synchronized void put(@NotNull final String filePath, @NotNull final Entry entry) {
+    ensureLoaded();
+    myEntries.put(filePath, entry);
+  }
+
+  /**
+   * Removes the entry from the snapshot: regions are mutable and will be shifted on editing, so the entry can be used only once.
+   * The file gets back to the snapshot when it is closed.
+   *
+   * @return entry for the file if it was computed for exactly this content, <code>null</code> otherwise
+   */
+  @Nullable
+  synchronized Entry take(@NotNull final String filePath, @NotNull final CharSequence text) {
+    ensureLoaded();
+    final Entry entry = myEntries.remove(filePath);
+    return entry != null && entry.myContentHash == computeContentHash(text) ? entry : null;
+  }
+
+  synchronized int size() {
+    ensureLoaded();
+    return myEntries.size();
+  }
+
+  synchronized void save() {
+    if (!myLoaded) return; // nothing changed since startup
+
+    try {
+      FileUtil.createParentDirs(mySnapshotFile);
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mySnapshotFile)));
+      try {
+        write(out, myEntries);
+      }
+      finally {
+        out.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to save Dart analysis server data snapshot: " + e.getMessage());
+      FileUtil.delete(mySnapshotFile);
+    }
+  }
+
+  private void ensureLoaded() {
+    if (myLoaded) return;
+    myLoaded = true;
+
+    if (!mySnapshotFile.isFile()) return;
+
+    try {
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mySnapshotFile)));
+      try {
+        read(in, myEntries);
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Ignoring Dart analysis server data snapshot: " + e.getMessage());
+      myEntries.clear();
+    }
+  }
+
+  static void write(@NotNull final DataOutput out, @NotNull final Map<String, Entry> entries) throws IOException {
+    out.writeInt(VERSION);
+    DataInputOutputUtil.writeINT(out, entries.size());
+
+    for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+      final Entry entry = mapEntry.getValue();
+      IOUtil.writeUTF(out, mapEntry.getKey());
+      out.writeLong(entry.myContentHash);
+
+      DataInputOutputUtil.writeINT(out, entry.myErrors.size());
+      for (DartServerData.DartError error : entry.myErrors) {
+        writeRegion(out, error);
+        IOUtil.writeUTF(out, error.getAnalysisErrorFileSD());
+        IOUtil.writeUTF(out, error.getSeverity());
+        IOUtil.writeUTF(out, error.getType());
+        IOUtil.writeUTF(out, error.getCode() == null ? "" : error.getCode());
+        IOUtil.writeUTF(out, error.getMessage());
+      }
+
+      DataInputOutputUtil.writeINT(out, entry.myHighlights.size());
+      for (DartServerData.DartHighlightRegion region : entry.myHighlights) {
+        writeRegion(out, region);
+        IOUtil.writeUTF(out, region.getType());
+      }
+
+      DataInputOutputUtil.writeINT(out, entry.myNavigation.size());
+      for (DartServerData.DartNavigationRegion region : entry.myNavigation) {
+        writeRegion(out, region);
+        DataInputOutputUtil.writeINT(out, region.getTargets().size());
+        for (DartServerData.DartNavigationTarget target : region.getTargets()) {
+          IOUtil.writeUTF(out, target.getFile());
+          DataInputOutputUtil.writeINT(out, target.getOriginalOffset());
+          IOUtil.writeUTF(out, target.getKind());
+        }
+      }
+
+      DataInputOutputUtil.writeINT(out, entry.myOverrides.size());
+      for (DartServerData.DartOverrideMember override : entry.myOverrides) {
+        writeRegion(out, override);
+        final OverriddenMember superclassMember = override.getSuperclassMember();
+        IOUtil.writeUTF(out, superclassMember == null ? "" : superclassMember.toJson().toString());
+        final List<OverriddenMember> interfaceMembers = override.getInterfaceMembers();
+        DataInputOutputUtil.writeINT(out, interfaceMembers == null ? 0 : interfaceMembers.size());
+        if (interfaceMembers != null) {
+          for (OverriddenMember member : interfaceMembers) {
+            IOUtil.writeUTF(out, member.toJson().toString());
+          }
+        }
+      }
+
+      writeRegions(out, entry.myImplementedClasses);
+      writeRegions(out, entry.myImplementedMembers);
+    }
+  }
+
+  static void read(@NotNull final DataInput in, @NotNull final Map<String, Entry> entries) throws IOException {
+    if (in.readInt() != VERSION) return;
+
+    final JsonParser jsonParser = new JsonParser();
+    final int entryCount = DataInputOutputUtil.readINT(in);
+
+    for (int i = 0; i < entryCount; i++) {
+      final String filePath = IOUtil.readUTF(in);
+      final long contentHash = in.readLong();
+
+      final int errorCount = DataInputOutputUtil.readINT(in);
+      final List<DartServerData.DartError> errors = new ArrayList<>(errorCount);
+      for (int j = 0; j < errorCount; j++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        final int length = DataInputOutputUtil.readINT(in);
+        final String fileSD = IOUtil.readUTF(in);
+        final String severity = IOUtil.readUTF(in);
+        final String type = IOUtil.readUTF(in);
+        final String code = IOUtil.readUTF(in);
+        final String message = IOUtil.readUTF(in);
+        errors.add(new DartServerData.DartError(offset, length, fileSD, severity, type, code.isEmpty() ? null : code, message));
+      }
+
+      final int highlightCount = DataInputOutputUtil.readINT(in);
+      final List<DartServerData.DartHighlightRegion> highlights = new ArrayList<>(highlightCount);
+      for (int j = 0; j < highlightCount; j++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        final int length = DataInputOutputUtil.readINT(in);
+        highlights.add(new DartServerData.DartHighlightRegion(offset, length, IOUtil.readUTF(in)));
+      }
+
+      final int navigationCount = DataInputOutputUtil.readINT(in);
+      final List<DartServerData.DartNavigationRegion> navigation = new ArrayList<>(navigationCount);
+      for (int j = 0; j < navigationCount; j++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        final int length = DataInputOutputUtil.readINT(in);
+        final int targetCount = DataInputOutputUtil.readINT(in);
+        final List<DartServerData.DartNavigationTarget> targets = new ArrayList<>(targetCount);
+        for (int k = 0; k < targetCount; k++) {
+          final String file = IOUtil.readUTF(in);
+          final int originalOffset = DataInputOutputUtil.readINT(in);
+          targets.add(new DartServerData.DartNavigationTarget(file, originalOffset, IOUtil.readUTF(in)));
+        }
+        navigation.add(new DartServerData.DartNavigationRegion(offset, length, targets));
+      }
+
+      final int overrideCount = DataInputOutputUtil.readINT(in);
+      final List<DartServerData.DartOverrideMember> overrides = new ArrayList<>(overrideCount);
+      for (int j = 0; j < overrideCount; j++) {
+        final int offset = DataInputOutputUtil.readINT(in);
+        final int length = DataInputOutputUtil.readINT(in);
+        final String superclassJson = IOUtil.readUTF(in);
+        final OverriddenMember superclassMember =
+          superclassJson.isEmpty() ? null : OverriddenMember.fromJson(jsonParser.parse(superclassJson).getAsJsonObject());
+        final int interfaceCount = DataInputOutputUtil.readINT(in);
+        final List<OverriddenMember> interfaceMembers = interfaceCount == 0 ? null : new ArrayList<>(interfaceCount);
+        for (int k = 0; k < interfaceCount; k++) {
+          interfaceMembers.add(OverriddenMember.fromJson(jsonParser.parse(IOUtil.readUTF(in)).getAsJsonObject()));
+        }
+        overrides.add(new DartServerData.DartOverrideMember(offset, length, superclassMember, interfaceMembers));
+      }
+
+      final List<DartServerData.DartRegion> implementedClasses = readRegions(in);
+      final List<DartServerData.DartRegion> implementedMembers = readRegions(in);
+
+      entries.put(filePath, new Entry(contentHash, errors, highlights, navigation, overrides, implementedClasses, implementedMembers));
+    }
+  }
+
+  private static void writeRegion(@NotNull final DataOutput out, @NotNull final DartServerData.DartRegion region) throws IOException {
+    DataInputOutputUtil.writeINT(out, region.getOffset());
+    DataInputOutputUtil.writeINT(out, region.getLength());
+  }
+
+  private static void writeRegions(@NotNull final DataOutput out, @NotNull final List<DartServerData.DartRegion> regions)
+    throws IOException {
+    DataInputOutputUtil.writeINT(out, regions.size());
+    for (DartServerData.DartRegion region : regions) {
+      writeRegion(out, region);
+    }
+  }
+
+  @NotNull
+  private static List<DartServerData.DartRegion> readRegions(@NotNull final DataInput in) throws IOException {
+    final int count = DataInputOutputUtil.readINT(in);
+    final List<DartServerData.DartRegion> regions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final int offset = DataInputOutputUtil.readINT(in);
+      final int length = DataInputOutputUtil.readINT(in);
+      regions.add(new DartServerData.DartRegion(offset, length));
+    }
+    return regions;
+  }
+}
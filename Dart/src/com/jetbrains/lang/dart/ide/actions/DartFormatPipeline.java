@@ -0,0 +1,185 @@
+package com.jetbrains.lang.dart.ide.actions;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Consumer;
+import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import gnu.trove.THashMap;
+import org.dartlang.analysis.server.protocol.SourceEdit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formats many files with the analysis server keeping up to {@code windowSize} edit_format requests in flight,
+ * so that the server formats the next file while the response for the previous one is still on its way back.
+ * All bookkeeping happens in the thread that calls {@link #run(List, ProgressIndicator)}; server callbacks only enqueue responses.
+ * <p/>
+ * The server formats requests one by one, so a request waits in the server queue while the previous ones are formatted.
+ * Timeout of a request is counted from the moment the previous request is done (or from sending, if that was later),
+ * so big files in the beginning of the window don't cause timeouts of the files queued after them.
+ */
+class DartFormatPipeline {
+  private static final Logger LOG = Logger.getInstance(DartFormatPipeline.class.getName());
+
+  static final int DEFAULT_WINDOW_SIZE = 16;
+  static final long DEFAULT_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(3);
+  private static final long CHECK_CANCELED_PERIOD = 10;
+
+  interface FormatRequestSender {
+    /**
+     * @return {@code false} if the request has not been sent and {@code consumer} will never be called
+     */
+    boolean send(@NotNull VirtualFile file, @NotNull Consumer<DartAnalysisServerService.FormatResult> consumer);
+  }
+
+  private static class Request {
+    @NotNull private final VirtualFile myFile;
+    private final int myIndex;
+    private final long mySendTime;
+
+    private Request(@NotNull final VirtualFile file, final int index, final long sendTime) {
+      myFile = file;
+      myIndex = index;
+      mySendTime = sendTime;
+    }
+  }
+
+  private static class Response {
+    @NotNull private final VirtualFile myFile;
+    @Nullable private final DartAnalysisServerService.FormatResult myResult;
+
+    private Response(@NotNull final VirtualFile file, @Nullable final DartAnalysisServerService.FormatResult result) {
+      myFile = file;
+      myResult = result;
+    }
+  }
+
+  @NotNull private final FormatRequestSender mySender;
+  private final int myWindowSize;
+  private final long myRequestTimeout;
+  private final List<VirtualFile> myTimedOutFiles = new ArrayList<>();
+
+  DartFormatPipeline(@NotNull final FormatRequestSender sender, final int windowSize, final long requestTimeout) {
+    mySender = sender;
+    myWindowSize = Math.max(windowSize, 1);
+    myRequestTimeout = requestTimeout;
+  }
+
+  /**
+   * @return new content of the files that the server has successfully formatted
+   * @throws ProcessCanceledException if the indicator is canceled
+   */
+  @NotNull
+  Map<VirtualFile, String> run(@NotNull final List<VirtualFile> files, @Nullable final ProgressIndicator indicator) {
+    final long start = System.currentTimeMillis();
+    final Map<VirtualFile, String> fileToNewContentMap = new THashMap<>();
+    final BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+    final Map<VirtualFile, Request> inFlight = new LinkedHashMap<>(); // oldest request first
+    final long[] doneTimes = new long[files.size()]; // 0 while the request is not done
+    int sentCount = 0;
+    int doneCount = 0;
+    myTimedOutFiles.clear();
+
+    while (doneCount < files.size()) {
+      while (sentCount < files.size() && inFlight.size() < myWindowSize) {
+        final VirtualFile file = files.get(sentCount);
+        final Request request = new Request(file, sentCount++, System.currentTimeMillis());
+        inFlight.put(file, request);
+        if (!mySender.send(file, result -> responses.add(new Response(file, result)))) {
+          inFlight.remove(file);
+          doneTimes[request.myIndex] = System.currentTimeMillis();
+          reportProgress(indicator, ++doneCount, files.size(), file, -1);
+        }
+      }
+
+      if (inFlight.isEmpty()) continue;
+
+      if (indicator != null) {
+        indicator.checkCanceled();
+      }
+
+      final Response response;
+      try {
+        response = responses.poll(CHECK_CANCELED_PERIOD, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+        throw new ProcessCanceledException(e);
+      }
+
+      if (response != null) {
+        final Request request = inFlight.remove(response.myFile);
+        if (request == null) continue; // too late, already reported as timed out
+
+        doneTimes[request.myIndex] = System.currentTimeMillis();
+        final String newContent = getNewContent(response.myResult);
+        if (newContent != null) {
+          fileToNewContentMap.put(response.myFile, newContent);
+        }
+        reportProgress(indicator, ++doneCount, files.size(), response.myFile, doneTimes[request.myIndex] - request.mySendTime);
+      }
+      else {
+        final long now = System.currentTimeMillis();
+        final Iterator<Request> iterator = inFlight.values().iterator();
+        while (iterator.hasNext()) {
+          final Request request = iterator.next();
+          final long previousDoneTime = request.myIndex == 0 ? request.mySendTime : doneTimes[request.myIndex - 1];
+          if (previousDoneTime == 0) continue; // waits in the server queue for the previous request
+          if (now - Math.max(request.mySendTime, previousDoneTime) < myRequestTimeout) continue;
+
+          iterator.remove();
+          doneTimes[request.myIndex] = now;
+          myTimedOutFiles.add(request.myFile);
+          LOG.info("edit_format() took too long for file " + FileUtil.toSystemDependentName(request.myFile.getPath()));
+          reportProgress(indicator, ++doneCount, files.size(), request.myFile, -1);
+        }
+      }
+    }
+
+    LOG.info("Formatted " + fileToNewContentMap.size() + " of " + files.size() + " files in " + (System.currentTimeMillis() - start) +
+             " ms, up to " + myWindowSize + " requests in flight, " + myTimedOutFiles.size() + " timed out");
+    return fileToNewContentMap;
+  }
+
+  /**
+   * @return files for which the server has not responded in time during the last {@link #run(List, ProgressIndicator)}
+   */
+  @NotNull
+  List<VirtualFile> getTimedOutFiles() {
+    return myTimedOutFiles;
+  }
+
+  @Nullable
+  private static String getNewContent(@Nullable final DartAnalysisServerService.FormatResult formatResult) {
+    if (formatResult == null) return null;
+
+    final List<SourceEdit> edits = formatResult.getEdits();
+    if (edits == null || edits.size() != 1) return null;
+
+    return StringUtil.convertLineSeparators(edits.get(0).getReplacement());
+  }
+
+  private static void reportProgress(@Nullable final ProgressIndicator indicator,
+                                     final int doneCount,
+                                     final int totalCount,
+                                     @NotNull final VirtualFile file,
+                                     final long millis) {
+    final String path = FileUtil.toSystemDependentName(file.getPath());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(millis < 0 ? "edit_format() failed for " + path : "edit_format() for " + path + " took " + millis + " ms");
+    }
+
+    if (indicator != null) {
+      indicator.setFraction((double)doneCount / totalCount);
+      indicator.setText2(millis < 0 ? path : path + " (" + millis + " ms)");
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package com.jetbrains.lang.dart.ide.actions;
 
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ex.ApplicationManagerEx;
 import com.intellij.openapi.command.CommandProcessor;
@@ -7,7 +10,6 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
-import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
@@ -31,6 +33,7 @@ import java.util.Map;
 public class DartStyleAction extends AbstractDartFileProcessingAction {
 
   private static final Logger LOG = Logger.getInstance(DartStyleAction.class.getName());
+  private static final String GROUP_DISPLAY_ID = "Dart Style";
 
   public DartStyleAction() {
     super(DartBundle.message("dart.style.action.name"), DartBundle.message("dart.style.action.description"), DartIcons.Dart_16);
@@ -101,25 +104,12 @@ public class DartStyleAction extends AbstractDartFileProcessingAction {
     final Map<VirtualFile, String> fileToNewContentMap = new THashMap<>();
     final int lineLength = getRightMargin(project);
 
-    final Runnable runnable = () -> {
-      double fraction = 0.0;
-      for (final VirtualFile virtualFile : dartFiles) {
-        fraction += 1.0;
-        final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
-        if (indicator != null) {
-          indicator.checkCanceled();
-          indicator.setFraction(fraction / dartFiles.size());
-          indicator.setText2(FileUtil.toSystemDependentName(virtualFile.getPath()));
-        }
+    final DartFormatPipeline pipeline = new DartFormatPipeline(
+      (file, consumer) -> DartAnalysisServerService.getInstance().edit_format(file, 0, 0, lineLength, consumer),
+      DartFormatPipeline.DEFAULT_WINDOW_SIZE, DartFormatPipeline.DEFAULT_REQUEST_TIMEOUT);
 
-        final DartAnalysisServerService.FormatResult formatResult =
-          DartAnalysisServerService.getInstance().edit_format(virtualFile, 0, 0, lineLength);
-        if (formatResult != null && formatResult.getEdits() != null && formatResult.getEdits().size() == 1) {
-          final String replacement = StringUtil.convertLineSeparators(formatResult.getEdits().get(0).getReplacement());
-          fileToNewContentMap.put(virtualFile, replacement);
-        }
-      }
-    };
+    final Runnable runnable =
+      () -> fileToNewContentMap.putAll(pipeline.run(dartFiles, ProgressManager.getInstance().getProgressIndicator()));
 
     DartAnalysisServerService.getInstance().updateFilesContent();
 
@@ -143,7 +133,27 @@ public class DartStyleAction extends AbstractDartFileProcessingAction {
 
       ApplicationManager.getApplication().runWriteAction(() -> CommandProcessor.getInstance()
         .executeCommand(project, onSuccessRunnable, DartBundle.message("dart.style.action.name"), null));
+
+      final List<VirtualFile> timedOutFiles = pipeline.getTimedOutFiles();
+      if (!timedOutFiles.isEmpty()) {
+        notifyTimedOut(project, timedOutFiles);
+      }
+    }
+  }
+
+  private static void notifyTimedOut(@NotNull final Project project, @NotNull final List<VirtualFile> timedOutFiles) {
+    final int maxFilesToShow = 10;
+    final StringBuilder paths = new StringBuilder();
+    for (VirtualFile file : timedOutFiles.subList(0, Math.min(timedOutFiles.size(), maxFilesToShow))) {
+      paths.append("<br>").append(FileUtil.toSystemDependentName(file.getPath()));
+    }
+    if (timedOutFiles.size() > maxFilesToShow) {
+      paths.append("<br>...");
     }
+
+    Notifications.Bus.notify(new Notification(GROUP_DISPLAY_ID, DartBundle.message("dart.style.action.name"),
+                                              DartBundle.message("dart.style.files.timed.out", timedOutFiles.size(), paths),
+                                              NotificationType.WARNING), project);
   }
 
   private static int getRightMargin(@NotNull Project project) {
@@ -33,16 +33,18 @@ public class DartBlock extends AbstractBlock implements BlockWithParent {
   private final DartWrappingProcessor myWrappingProcessor;
   private final DartAlignmentProcessor myAlignmentProcessor;
   private final CodeStyleSettings mySettings;
+  private final DartSpacingRules mySpacingRules;
   private Wrap myChildWrap = null;
   private final Indent myIndent;
   private BlockWithParent myParent;
   private List<DartBlock> mySubDartBlocks;
 
-  protected DartBlock(ASTNode node, Wrap wrap, Alignment alignment, CodeStyleSettings settings) {
+  protected DartBlock(ASTNode node, Wrap wrap, Alignment alignment, CodeStyleSettings settings, DartSpacingRules spacingRules) {
     super(node, wrap, alignment);
     mySettings = settings;
+    mySpacingRules = spacingRules;
     myIndentProcessor = new DartIndentProcessor(mySettings.getCommonSettings(DartLanguage.INSTANCE));
-    mySpacingProcessor = new DartSpacingProcessor(node, mySettings.getCommonSettings(DartLanguage.INSTANCE));
+    mySpacingProcessor = new DartSpacingProcessor(node, mySettings.getCommonSettings(DartLanguage.INSTANCE), spacingRules);
     myWrappingProcessor = new DartWrappingProcessor(node, mySettings.getCommonSettings(DartLanguage.INSTANCE));
     myAlignmentProcessor = new DartAlignmentProcessor(node, mySettings.getCommonSettings(DartLanguage.INSTANCE));
     myIndent = myIndentProcessor.getChildIndent(myNode);
@@ -66,7 +68,8 @@ public class DartBlock extends AbstractBlock implements BlockWithParent {
     final ArrayList<Block> tlChildren = new ArrayList<>();
     for (ASTNode childNode = getNode().getFirstChildNode(); childNode != null; childNode = childNode.getTreeNext()) {
       if (FormatterUtil.containsWhiteSpacesOnly(childNode)) continue;
-      final DartBlock childBlock = new DartBlock(childNode, createChildWrap(childNode), createChildAlignment(childNode), mySettings);
+      final DartBlock childBlock =
+        new DartBlock(childNode, createChildWrap(childNode), createChildAlignment(childNode), mySettings, mySpacingRules);
       childBlock.setParent(this);
       tlChildren.add(childBlock);
     }
@@ -19,7 +19,7 @@ public class DartFormattingModelBuilder implements FormattingModelBuilder {
     // element can be DartFile, DartEmbeddedContent, DartExpressionCodeFragment
     final PsiFile psiFile = element.getContainingFile();
     final ASTNode rootNode = psiFile instanceof DartFile ? psiFile.getNode() : element.getNode();
-    final DartBlock rootBlock = new DartBlock(rootNode, null, null, settings);
+    final DartBlock rootBlock = new DartBlock(rootNode, null, null, settings, new DartSpacingRules());
     return new DocumentBasedFormattingModel(rootBlock, element.getProject(), settings, psiFile.getFileType(), psiFile);
   }
 
@@ -37,10 +37,13 @@ public class DartSpacingProcessor {
 
   private final ASTNode myNode;
   private final CommonCodeStyleSettings mySettings;
+  private final DartSpacingRules myRules;
+  private boolean myContextDependent;
 
-  public DartSpacingProcessor(ASTNode node, CommonCodeStyleSettings settings) {
+  public DartSpacingProcessor(ASTNode node, CommonCodeStyleSettings settings, DartSpacingRules rules) {
     myNode = node;
     mySettings = settings;
+    myRules = rules;
   }
 
   public Spacing getSpacing(final Block child1, final Block child2) {
@@ -55,7 +58,31 @@ public class DartSpacingProcessor {
     final ASTNode node2 = ((AbstractBlock)child2).getNode();
     final IElementType type2 = node2.getElementType();
 
-    if (type2 == SINGLE_LINE_COMMENT && !isDirectlyPrecededByNewline(node2)) {
+    final Spacing cached = myRules.get(parentType, elementType, type1, type2);
+    if (cached != null) return cached;
+
+    myContextDependent = false;
+    final Spacing spacing = computeSpacing(elementType, parentType, child1, node1, type1, child2, node2, type2);
+    if (!myContextDependent) {
+      myRules.put(parentType, elementType, type1, type2, spacing);
+    }
+    return spacing;
+  }
+
+  /**
+   * All nodes and blocks except their element types must be accessed via {@code contextual()} in this method: spacing computed
+   * without looking at them depends only on element types and settings and is shared via {@link DartSpacingRules}.
+   */
+  private Spacing computeSpacing(final IElementType elementType,
+                                 final IElementType parentType,
+                                 final Block child1,
+                                 final ASTNode node1,
+                                 final IElementType type1,
+                                 final Block child2,
+                                 final ASTNode node2,
+                                 final IElementType type2) {
+
+    if (type2 == SINGLE_LINE_COMMENT && !isDirectlyPrecededByNewline(contextual(node2))) {
       // line comment after code on the same line: do not add line break here, it may be used to ignore warning
       // but after '{' in class or function definition Dart Style inserts line break, so let's do the same
       if (type1 != LBRACE || (elementType != CLASS_BODY && (!BLOCKS.contains(elementType) || parentType != FUNCTION_BODY))) {
@@ -67,8 +94,8 @@ public class DartSpacingProcessor {
       int spaces = 0;
       int lines = 1;
       if (elementType == DART_FILE &&
-          !isScriptTag(child1) &&
-          !isDirectlyPrecededByNewline(child1)) {
+          !isScriptTag(contextual(child1)) &&
+          !isDirectlyPrecededByNewline(contextual(child1))) {
         lines = 2;
       }
       return Spacing.createSpacing(spaces, spaces, lines, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
@@ -81,7 +108,7 @@ public class DartSpacingProcessor {
 
     if (DIRECTIVE_GROUPS.contains(type1)) {
       if (type2 == MULTI_LINE_COMMENT) {
-        ASTNode next = FormatterUtil.getNextNonWhitespaceSibling(node2);
+        ASTNode next = FormatterUtil.getNextNonWhitespaceSibling(contextual(node2));
         if (next != null &&
             next.getElementType() == type1) {
           boolean needsNewline = isEmbeddedComment(type2, child2) && !isDirectlyPrecededByNewline(next);
@@ -91,12 +118,12 @@ public class DartSpacingProcessor {
         }
       }
       if (type2 != IMPORT_STATEMENT && type2 != EXPORT_STATEMENT && !isEmbeddedComment(type2, child2)) {
-        int numNewlines = COMMENTS.contains(type2) && isBlankLineAfterComment(node2) ? 1 : 2;
+        int numNewlines = COMMENTS.contains(type2) && isBlankLineAfterComment(contextual(node2)) ? 1 : 2;
         return Spacing.createSpacing(0, 0, numNewlines, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
       }
     }
     if (type1 == LIBRARY_STATEMENT) {
-      int newlines = COMMENTS.contains(type2) && isBlankLineAfterComment(node2) ? 1 : 2;
+      int newlines = COMMENTS.contains(type2) && isBlankLineAfterComment(contextual(node2)) ? 1 : 2;
       return Spacing.createSpacing(0, 0, newlines, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
     }
 
@@ -134,7 +161,7 @@ public class DartSpacingProcessor {
         return Spacing.createSpacing(0, 0, 1, false, 0); //false here
       }
       if (parentType == CLASS_MEMBERS || FUNCTION_DEFINITION.contains(parentType)) {
-        if (type2 == METADATA || FormatterUtil.isPrecededBy(node1, METADATA, WHITE_SPACE)) {
+        if (type2 == METADATA || FormatterUtil.isPrecededBy(contextual(node1), METADATA, WHITE_SPACE)) {
           // Multiple metadata each goes on its own line.
           return Spacing.createSpacing(0, 0, 1, false, 0);
         }
@@ -142,11 +169,11 @@ public class DartSpacingProcessor {
         return Spacing.createSpacing(1, 1, 0, true, 0);
       }
       if (parentType == VAR_DECLARATION_LIST) {
-        if (myNode.getTreeParent().getTreeParent().getElementType() == STATEMENTS) {
+        if (contextual(myNode).getTreeParent().getTreeParent().getElementType() == STATEMENTS) {
           // Metadata on local variables must be on its own line.
           return Spacing.createSpacing(0, 0, 1, false, 0);
         }
-        if (type2 == METADATA || FormatterUtil.isPrecededBy(node1, METADATA, WHITE_SPACE)) {
+        if (type2 == METADATA || FormatterUtil.isPrecededBy(contextual(node1), METADATA, WHITE_SPACE)) {
           // Multiple metadata each goes on its own line.
           return Spacing.createSpacing(0, 0, 1, false, 0);
         }
@@ -165,7 +192,7 @@ public class DartSpacingProcessor {
       boolean needsBlank = needsBlankLineBeforeFunction(elementType);
       if (needsBlank && !mySettings.KEEP_LINE_BREAKS) {
         if (parentType == CLASS_BODY || elementType == DART_FILE) {
-          if (type1 == SEMICOLON || hasEmptyBlock(node1)) {
+          if (type1 == SEMICOLON || hasEmptyBlock(contextual(node1))) {
             needsBlank = false;
           }
         }
@@ -184,13 +211,13 @@ public class DartSpacingProcessor {
       boolean keepBreaks = false;
       if (!COMMENTS.contains(type1) && (elementType == CLASS_MEMBERS || topLevel && DECLARATIONS.contains(type2))) {
         if (type1 == SEMICOLON && type2 == VAR_DECLARATION_LIST) {
-          final ASTNode node1TreePrev = node1.getTreePrev();
+          final ASTNode node1TreePrev = contextual(node1).getTreePrev();
           if (node1TreePrev == null || node1TreePrev.getElementType() != VAR_DECLARATION_LIST) {
             lineFeeds = 2;
           }
         }
         else {
-          if (type2 == VAR_DECLARATION_LIST && hasEmptyBlock(node1)) {
+          if (type2 == VAR_DECLARATION_LIST && hasEmptyBlock(contextual(node1))) {
             lineFeeds = 1;
           }
           else {
@@ -203,8 +230,8 @@ public class DartSpacingProcessor {
           lineFeeds = 0;
         }
         else if (parentType == FUNCTION_BODY) {
-          if ((myNode.getTreeParent().getTreeParent() != null) &&
-              (myNode.getTreeParent().getTreeParent().getElementType() == METHOD_DECLARATION) &&
+          if ((contextual(myNode).getTreeParent().getTreeParent() != null) &&
+              (contextual(myNode).getTreeParent().getTreeParent().getElementType() == METHOD_DECLARATION) &&
               mySettings.KEEP_SIMPLE_METHODS_IN_ONE_LINE) {
             lineFeeds = 0; // Empty method.
             keepBreaks = mySettings.KEEP_LINE_BREAKS;
@@ -321,7 +348,7 @@ public class DartSpacingProcessor {
         int nsp = mySettings.SPACE_BEFORE_IF_LBRACE ? 1 : 0;
         int lf = 0;
         if (!BLOCKS.contains(type2) && mySettings.SPECIAL_ELSE_IF_TREATMENT) {
-          if (FormatterUtil.isFollowedBy(node2, ELSE, SEMICOLON)) lf = 1;
+          if (FormatterUtil.isFollowedBy(contextual(node2), ELSE, SEMICOLON)) lf = 1;
         }
         return Spacing.createSpacing(nsp, nsp, lf, !BLOCKS.contains(type2) && mySettings.KEEP_LINE_BREAKS, 0);
       }
@@ -352,50 +379,50 @@ public class DartSpacingProcessor {
     //
     if (BLOCKS.contains(type2)) {
       if (elementType == IF_STATEMENT && type1 != ELSE) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_IF_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_IF_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       else if (elementType == IF_STATEMENT && type1 == ELSE) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_ELSE_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_ELSE_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       else if (elementType == WHILE_STATEMENT || elementType == DO_WHILE_STATEMENT) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_WHILE_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_WHILE_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       else if (elementType == FOR_STATEMENT) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_FOR_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_FOR_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       else if (elementType == TRY_STATEMENT) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_TRY_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_TRY_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       else if (elementType == ON_PART) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_CATCH_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_CATCH_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       else if (elementType == FINALLY_PART) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_FINALLY_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_FINALLY_LBRACE, mySettings.BRACE_STYLE, child1);
       }
     }
 
     if (type2 == LBRACE && elementType == SWITCH_STATEMENT) {
-      return setBraceSpace(mySettings.SPACE_BEFORE_SWITCH_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+      return setBraceSpace(mySettings.SPACE_BEFORE_SWITCH_LBRACE, mySettings.BRACE_STYLE, child1);
     }
 
     if (FUNCTION_DEFINITION.contains(elementType) && type2 == FUNCTION_BODY) {
-      return setBraceSpace(mySettings.SPACE_BEFORE_METHOD_LBRACE, mySettings.METHOD_BRACE_STYLE, child1.getTextRange());
+      return setBraceSpace(mySettings.SPACE_BEFORE_METHOD_LBRACE, mySettings.METHOD_BRACE_STYLE, child1);
     }
 
     if (elementType == FUNCTION_EXPRESSION && type2 == FUNCTION_EXPRESSION_BODY) {
-      return setBraceSpace(mySettings.SPACE_BEFORE_METHOD_LBRACE, mySettings.METHOD_BRACE_STYLE, child1.getTextRange());
+      return setBraceSpace(mySettings.SPACE_BEFORE_METHOD_LBRACE, mySettings.METHOD_BRACE_STYLE, child1);
     }
 
     if (elementType == CLASS_DEFINITION) {
       if (type2 == CLASS_BODY) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_CLASS_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_CLASS_LBRACE, mySettings.BRACE_STYLE, child1);
       }
       if (type2 == TYPE_PARAMETERS) {
         return noSpace();
       }
       if (type2 == INTERFACES || type2 == MIXINS) {
-        ASTNode typeNameNode = FormatterUtil.getNextNonWhitespaceSibling(myNode.getFirstChildNode());
-        ASTNode bodyNode = myNode.getLastChildNode();
+        ASTNode typeNameNode = FormatterUtil.getNextNonWhitespaceSibling(contextual(myNode).getFirstChildNode());
+        ASTNode bodyNode = contextual(myNode).getLastChildNode();
         if (typeNameNode != null && bodyNode != null) {
           // For some reason we need to start at the beginning of the type name, not the end.
           TextRange range = TextRange.create(typeNameNode.getTextRange().getStartOffset(), bodyNode.getStartOffset());
@@ -421,7 +448,7 @@ public class DartSpacingProcessor {
         }
       }
       if (type2 == LBRACE) {
-        return setBraceSpace(mySettings.SPACE_BEFORE_CLASS_LBRACE, mySettings.BRACE_STYLE, child1.getTextRange());
+        return setBraceSpace(mySettings.SPACE_BEFORE_CLASS_LBRACE, mySettings.BRACE_STYLE, child1);
       }
     }
 
@@ -532,9 +559,9 @@ public class DartSpacingProcessor {
     // Spacing between successive unary operators ( -, + )
     //
     if (type1 == PREFIX_OPERATOR && type2 == PREFIX_EXPRESSION) {
-      ASTNode[] childs = node2.getChildren(PREFIX_OPERATOR_SET);
+      ASTNode[] childs = contextual(node2).getChildren(PREFIX_OPERATOR_SET);
       if (childs.length > 0) {
-        return addSingleSpaceIf(isSpaceNeededBetweenPrefixOps(node1, childs[0]));
+        return addSingleSpaceIf(isSpaceNeededBetweenPrefixOps(contextual(node1), childs[0]));
       }
     }
     //
@@ -607,7 +634,7 @@ public class DartSpacingProcessor {
       }
       if (type2 == ARGUMENT_LIST || type2 == COMPONENT_NAME) {
         if (type1 == MULTI_LINE_COMMENT && isEmbeddedComment(type1, child1)) {
-          if (!hasNewlineInText(node1)) {
+          if (!hasNewlineInText(contextual(node1))) {
             return addSingleSpaceIf(true);
           }
         }
@@ -616,11 +643,11 @@ public class DartSpacingProcessor {
     }
 
     if ((elementType == INTERFACES || elementType == MIXINS) && type2 == TYPE_LIST) {
-      return Spacing
-        .createDependentLFSpacing(1, 1, myNode.getTextRange(), mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
+      final TextRange range = contextual(myNode).getTextRange();
+      return Spacing.createDependentLFSpacing(1, 1, range, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
     }
     if (elementType == TYPE_LIST && type2 == TYPE) {
-      return Spacing.createDependentLFSpacing(1, 1, myNode.getTreeParent().getTextRange(), mySettings.KEEP_LINE_BREAKS,
+      return Spacing.createDependentLFSpacing(1, 1, contextual(myNode).getTreeParent().getTextRange(), mySettings.KEEP_LINE_BREAKS,
                                               mySettings.KEEP_BLANK_LINES_IN_CODE);
     }
 
@@ -633,7 +660,7 @@ public class DartSpacingProcessor {
 
     if (type1 == COMMA) {
       if (type2 == RBRACKET) {
-        TextRange range = myNode.getTextRange();
+        TextRange range = contextual(myNode).getTextRange();
         return Spacing.createDependentLFSpacing(0, 0, range, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
       }
       return addSingleSpaceIf(mySettings.SPACE_AFTER_COMMA && type2 != RBRACE && type2 != RBRACKET);
@@ -650,7 +677,7 @@ public class DartSpacingProcessor {
         // We might want to add a check that the string contains a newline as in regression/0000/0036.unit
         return addSingleSpaceIf(true);
       }
-      TextRange range = node2.getTextRange();
+      TextRange range = contextual(node2).getTextRange();
       return Spacing.createDependentLFSpacing(1, 1, range, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
     }
     if (type2 == EXPRESSION_BODY_DEF) {
@@ -690,28 +717,28 @@ public class DartSpacingProcessor {
 
     if (elementType == VALUE_EXPRESSION && type2 == CASCADE_REFERENCE_EXPRESSION) {
       if (type1 == CASCADE_REFERENCE_EXPRESSION) {
-        if (cascadesAreSameMethod(((AbstractBlock)child1).getNode(), ((AbstractBlock)child2).getNode())) {
+        if (cascadesAreSameMethod(((AbstractBlock)contextual(child1)).getNode(), ((AbstractBlock)contextual(child2)).getNode())) {
           return Spacing.createSpacing(0, 0, 0, false, 0);
         }
       }
       else if (type1 == REFERENCE_EXPRESSION || isSimpleLiteral(type1)) {
-        CompositeElement elem = (CompositeElement)myNode;
+        CompositeElement elem = (CompositeElement)contextual(myNode);
         ASTNode[] childs = elem.getChildren(CASCADE_REFERENCE_EXPRESSION_SET);
         if (childs.length == 1) {
-          return Spacing.createDependentLFSpacing(0, 0, myNode.getTextRange(), true, 0);
+          return Spacing.createDependentLFSpacing(0, 0, contextual(myNode).getTextRange(), true, 0);
         }
         if (allCascadesAreSameMethod(childs)) {
           return Spacing.createSpacing(0, 0, 0, false, 0);
         }
       }
       else if (type1 == NEW_EXPRESSION && parentType == ARGUMENT_LIST) {
-        return Spacing.createDependentLFSpacing(0, 0, myNode.getTextRange(), true, 0);
+        return Spacing.createDependentLFSpacing(0, 0, contextual(myNode).getTextRange(), true, 0);
       }
       return addLineBreak();
     }
 
     if (type1 == CLOSING_QUOTE && type2 == OPEN_QUOTE && elementType == STRING_LITERAL_EXPRESSION) {
-      ASTNode sib = node1;
+      ASTNode sib = contextual(node1);
       int preserveNewline = 0;
       // Adjacent strings on the same line should not be split.
       while ((sib = sib.getTreeNext()) != null) {
@@ -733,7 +760,7 @@ public class DartSpacingProcessor {
 
     // Put the constructor colon on the next line unless only one initializer.
     if (type2 == INITIALIZERS) {
-      if (hasMultipleInitializers(node2)) {
+      if (hasMultipleInitializers(contextual(node2))) {
         return addSingleSpaceIf(false, true);
       }
       else {
@@ -742,7 +769,8 @@ public class DartSpacingProcessor {
     }
 
     if (elementType == LIST_LITERAL_EXPRESSION && type2 == RBRACKET) {
-      return Spacing.createDependentLFSpacing(0, 0, node1.getTextRange(), mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
+      final TextRange range = contextual(node1).getTextRange();
+      return Spacing.createDependentLFSpacing(0, 0, range, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
     }
 
     if (elementType == NAMED_ARGUMENT || elementType == DEFAULT_FORMAL_NAMED_PARAMETER) {
@@ -792,7 +820,7 @@ public class DartSpacingProcessor {
     }
 
     if (elementType == REFERENCE_EXPRESSION && (type2 == DOT || type2 == QUEST_DOT)) {
-      return createSpacingForCallChain(collectSurroundingMessageSends(), node2);
+      return createSpacingForCallChain(collectSurroundingMessageSends(), contextual(node2));
     }
     if (type1 == DOT || type1 == QUEST_DOT || type1 == HASH) {
       return noSpace(); // Seems odd that no plugin has a setting for spaces around DOT -- need a Lisp mode!
@@ -808,6 +836,16 @@ public class DartSpacingProcessor {
     return Spacing.createSpacing(0, 1, 0, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
   }
 
+  private ASTNode contextual(ASTNode node) {
+    myContextDependent = true;
+    return node;
+  }
+
+  private Block contextual(Block block) {
+    myContextDependent = true;
+    return block;
+  }
+
   private Spacing addLineBreak() {
     return Spacing.createSpacing(0, 0, 1, false, mySettings.KEEP_BLANK_LINES_IN_CODE);
   }
@@ -828,9 +866,10 @@ public class DartSpacingProcessor {
 
   private Spacing setBraceSpace(boolean needSpaceSetting,
                                 @CommonCodeStyleSettings.BraceStyleConstant int braceStyleSetting,
-                                TextRange textRange) {
+                                Block leftBlock) {
     final int spaces = needSpaceSetting ? 1 : 0;
-    if (braceStyleSetting == CommonCodeStyleSettings.NEXT_LINE_IF_WRAPPED && textRange != null) {
+    if (braceStyleSetting == CommonCodeStyleSettings.NEXT_LINE_IF_WRAPPED) {
+      final TextRange textRange = contextual(leftBlock).getTextRange();
       return Spacing.createDependentLFSpacing(spaces, spaces, textRange, mySettings.KEEP_LINE_BREAKS, mySettings.KEEP_BLANK_LINES_IN_CODE);
     }
     else {
@@ -857,6 +896,7 @@ public class DartSpacingProcessor {
   }
 
   private CallChain collectSurroundingMessageSends() {
+    myContextDependent = true;
     CallChain calls = new CallChain();
     collectPredecessorMessageSends(calls);
     collectSuccessorMessageSends(calls);
@@ -982,7 +1022,7 @@ public class DartSpacingProcessor {
   }
 
   private TextRange textRangeFollowingMetadata() {
-    TextRange range = myNode.getTextRange();
+    TextRange range = contextual(myNode).getTextRange();
     ASTNode child = myNode.getFirstChildNode();
     if (child == null || child.getElementType() != METADATA) return range;
     while (child != null && (child.getElementType() == METADATA || child.getElementType() == WHITE_SPACE)) {
@@ -1045,8 +1085,8 @@ public class DartSpacingProcessor {
            elementType instanceof DartEmbeddedContentElementType;
   }
 
-  private static boolean isEmbeddedComment(IElementType type, Block block) {
-    return COMMENTS.contains(type) && (!isDirectlyPrecededByNewline(block) || isDirectlyPrecededByBlockComment(block));
+  private boolean isEmbeddedComment(IElementType type, Block block) {
+    return COMMENTS.contains(type) && (!isDirectlyPrecededByNewline(contextual(block)) || isDirectlyPrecededByBlockComment(block));
   }
 
   private static boolean isDirectlyPrecededByNewline(Block child) {
@@ -0,0 +1,51 @@
+package com.jetbrains.lang.dart.ide.formatter;
+
+import com.intellij.formatting.Spacing;
+import com.intellij.psi.tree.IElementType;
+import gnu.trove.TLongObjectHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Spacing rules that depend only on element types of the parent, the current node and the two adjacent children.
+ * {@link DartSpacingProcessor} fills the table while formatting; each combination of types is evaluated once.
+ * One instance is created per formatting model, i.e. per code style settings snapshot, and shared by all blocks of the model.
+ */
+public class DartSpacingRules {
+  private static final int NO_TYPE = 0xFFFF;
+
+  private final TLongObjectHashMap<Spacing> myRules = new TLongObjectHashMap<>();
+
+  @Nullable
+  public Spacing get(@Nullable final IElementType parentType,
+                     @NotNull final IElementType elementType,
+                     @NotNull final IElementType type1,
+                     @NotNull final IElementType type2) {
+    return myRules.get(key(parentType, elementType, type1, type2));
+  }
+
+  public void put(@Nullable final IElementType parentType,
+                  @NotNull final IElementType elementType,
+                  @NotNull final IElementType type1,
+                  @NotNull final IElementType type2,
+                  @Nullable final Spacing spacing) {
+    if (spacing != null) {
+      myRules.put(key(parentType, elementType, type1, type2), spacing);
+    }
+  }
+
+  public int size() {
+    return myRules.size();
+  }
+
+  private static long key(@Nullable final IElementType parentType,
+                          @NotNull final IElementType elementType,
+                          @NotNull final IElementType type1,
+                          @NotNull final IElementType type2) {
+    final long parentIndex = parentType == null ? NO_TYPE : parentType.getIndex() & 0xFFFF;
+    return parentIndex << 48 |
+           (long)(elementType.getIndex() & 0xFFFF) << 32 |
+           (long)(type1.getIndex() & 0xFFFF) << 16 |
+           (long)(type2.getIndex() & 0xFFFF);
+  }
+}
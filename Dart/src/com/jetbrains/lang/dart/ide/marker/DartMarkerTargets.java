@@ -0,0 +1,46 @@
+package com.jetbrains.lang.dart.ide.marker;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Ref;
+import com.jetbrains.lang.dart.DartBundle;
+import com.jetbrains.lang.dart.psi.DartComponent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Gutter icons created by the server-driven marker providers don't resolve their targets in advance.
+ * Targets are resolved here when the icon is clicked, on a pooled thread under a cancellable progress.
+ */
+class DartMarkerTargets {
+  private static final Logger LOG = Logger.getInstance(DartMarkerTargets.class.getName());
+
+  private DartMarkerTargets() {
+  }
+
+  /**
+   * @param resolver is not wrapped in a read action, so that it can wait for the analysis server without blocking write actions;
+   *                 it must take read actions itself when accessing PSI
+   * @return resolved targets or {@code null} if the user has canceled the progress
+   */
+  @Nullable
+  static List<DartComponent> resolve(@NotNull final Project project,
+                                     @NotNull final String name,
+                                     @NotNull final Computable<List<DartComponent>> resolver) {
+    final long start = System.currentTimeMillis();
+    final Ref<List<DartComponent>> result = Ref.create();
+
+    final boolean completed = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+      () -> result.set(resolver.compute()), DartBundle.message("searching.for.related.declarations"), true, project);
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Gutter targets for " + name + " resolved in " + (System.currentTimeMillis() - start) + " ms" +
+                (completed ? ", " + result.get().size() + " found" : ", canceled"));
+    }
+    return completed ? result.get() : null;
+  }
+}
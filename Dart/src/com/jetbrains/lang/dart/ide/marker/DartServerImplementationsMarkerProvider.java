@@ -23,12 +23,14 @@ import com.intellij.codeInsight.daemon.LineMarkerProvider;
 import com.intellij.codeInsight.daemon.impl.PsiElementListNavigator;
 import com.intellij.icons.AllIcons;
 import com.intellij.ide.util.DefaultPsiElementCellRenderer;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
-import com.jetbrains.lang.dart.analyzer.DartServerData;
+import com.jetbrains.lang.dart.analyzer.DartGutterModel;
 import com.jetbrains.lang.dart.ide.actions.DartInheritorsSearcher;
 import com.jetbrains.lang.dart.psi.DartComponent;
 import com.jetbrains.lang.dart.psi.DartComponentName;
@@ -39,6 +41,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.awt.event.MouseEvent;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class DartServerImplementationsMarkerProvider implements LineMarkerProvider {
@@ -69,17 +72,14 @@ public class DartServerImplementationsMarkerProvider implements LineMarkerProvid
     if ("Object".equals(name.getName())) {
       return null;
     }
+    final DartGutterModel gutterModel = service.getGutterModel(file);
     // classes
-    for (DartServerData.DartRegion implementedClassRegion : service.getImplementedClasses(file)) {
-      if (implementedClassRegion.getOffset() == nameOffset && implementedClassRegion.getLength() == nameLength) {
-        return createMarkerClass(name);
-      }
+    if (gutterModel.isImplementedClass(nameOffset, nameLength)) {
+      return createMarkerClass(name);
     }
     // members
-    for (DartServerData.DartRegion implementedMemberRegion : service.getImplementedMembers(file)) {
-      if (implementedMemberRegion.getOffset() == nameOffset && implementedMemberRegion.getLength() == nameLength) {
-        return createMarkerMember(name);
-      }
+    if (gutterModel.isImplementedMember(nameOffset, nameLength)) {
+      return createMarkerMember(name);
     }
     // not found
     return null;
@@ -94,15 +94,12 @@ public class DartServerImplementationsMarkerProvider implements LineMarkerProvid
                                 new GutterIconNavigationHandler<PsiElement>() {
                                   @Override
                                   public void navigate(MouseEvent e, PsiElement elt) {
-                                    final List<TypeHierarchyItem> items =
-                                      DartAnalysisServerService.getInstance().search_getTypeHierarchy(file, nameOffset, false);
-                                    if (items.isEmpty()) {
+                                    final List<DartComponent> components =
+                                      DartMarkerTargets.resolve(elt.getProject(), String.valueOf(name.getName()),
+                                                                () -> findSubClasses(name, file, nameOffset));
+                                    if (components == null || components.isEmpty()) {
                                       return;
                                     }
-                                    // TODO(scheglov) Consider using just Element(s), not PsiElement(s) for better performance
-                                    final List<DartComponent> components =
-                                      DartInheritorsSearcher
-                                        .getSubClasses(name.getProject(), GlobalSearchScope.allScope(name.getProject()), items);
                                     PsiElementListNavigator.openTargets(e, DartResolveUtil.getComponentNameArray(components),
                                                                         DaemonBundle.message("navigation.title.subclass", name.getName(),
                                                                                              components.size(), ""),
@@ -121,15 +118,12 @@ public class DartServerImplementationsMarkerProvider implements LineMarkerProvid
                                 new GutterIconNavigationHandler<PsiElement>() {
                                   @Override
                                   public void navigate(MouseEvent e, PsiElement elt) {
-                                    final List<TypeHierarchyItem> items =
-                                      DartAnalysisServerService.getInstance().search_getTypeHierarchy(file, nameOffset, false);
-                                    if (items.isEmpty()) {
+                                    final List<DartComponent> components =
+                                      DartMarkerTargets.resolve(elt.getProject(), String.valueOf(name.getName()),
+                                                                () -> findSubMembers(name, file, nameOffset));
+                                    if (components == null || components.isEmpty()) {
                                       return;
                                     }
-                                    // TODO(scheglov) Consider using just Element(s), not PsiElement(s) for better performance
-                                    final List<DartComponent> components =
-                                      DartInheritorsSearcher
-                                        .getSubMembers(name.getProject(), GlobalSearchScope.allScope(name.getProject()), items);
                                     PsiElementListNavigator.openTargets(e, DartResolveUtil.getComponentNameArray(components),
                                                                         DaemonBundle
                                                                           .message("navigation.title.overrider.method", name.getName(),
@@ -139,4 +133,30 @@ public class DartServerImplementationsMarkerProvider implements LineMarkerProvid
                                   }
                                 }, GutterIconRenderer.Alignment.RIGHT);
   }
+
+  @NotNull
+  private static List<DartComponent> findSubClasses(@NotNull final DartComponentName name,
+                                                    @NotNull final VirtualFile file,
+                                                    final int nameOffset) {
+    final List<TypeHierarchyItem> items = DartAnalysisServerService.getInstance().search_getTypeHierarchy(file, nameOffset, false);
+    if (items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    // TODO(scheglov) Consider using just Element(s), not PsiElement(s) for better performance
+    return ApplicationManager.getApplication().runReadAction((Computable<List<DartComponent>>)() -> DartInheritorsSearcher
+      .getSubClasses(name.getProject(), GlobalSearchScope.allScope(name.getProject()), items));
+  }
+
+  @NotNull
+  private static List<DartComponent> findSubMembers(@NotNull final DartComponentName name,
+                                                    @NotNull final VirtualFile file,
+                                                    final int nameOffset) {
+    final List<TypeHierarchyItem> items = DartAnalysisServerService.getInstance().search_getTypeHierarchy(file, nameOffset, false);
+    if (items.isEmpty()) {
+      return Collections.emptyList();
+    }
+    // TODO(scheglov) Consider using just Element(s), not PsiElement(s) for better performance
+    return ApplicationManager.getApplication().runReadAction((Computable<List<DartComponent>>)() -> DartInheritorsSearcher
+      .getSubMembers(name.getProject(), GlobalSearchScope.allScope(name.getProject()), items));
+  }
 }
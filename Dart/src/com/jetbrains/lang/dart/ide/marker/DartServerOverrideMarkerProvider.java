@@ -23,9 +23,11 @@ import com.intellij.codeInsight.daemon.LineMarkerInfo;
 import com.intellij.codeInsight.daemon.LineMarkerProvider;
 import com.intellij.codeInsight.daemon.impl.PsiElementListNavigator;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.ide.util.DefaultPsiElementCellRenderer;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiTreeUtil;
@@ -79,62 +81,56 @@ public class DartServerOverrideMarkerProvider implements LineMarkerProvider {
       return null;
     }
 
-    final List<DartServerData.DartOverrideMember> overrideMembers = DartAnalysisServerService.getInstance().getOverrideMembers(virtualFile);
-    final Project project = componentName.getProject();
     final int nameOffset = componentName.getTextRange().getStartOffset();
-    DartComponent superclassComponent = null;
-    List<DartComponent> interfaceComponents = Lists.newArrayList();
-    for (DartServerData.DartOverrideMember overrideMember : overrideMembers) {
-      if (overrideMember.getOffset() == nameOffset) {
-        final OverriddenMember member = overrideMember.getSuperclassMember();
-        superclassComponent = member == null ? null : DartHierarchyUtil.findDartComponent(project, member.getElement().getLocation());
-        if (overrideMember.getInterfaceMembers() != null) {
-          for (OverriddenMember overriddenMember : overrideMember.getInterfaceMembers()) {
-            addDartComponent(interfaceComponents, project, overriddenMember);
-          }
-        }
-      }
+    final DartServerData.DartOverrideMember overrideMember =
+      DartAnalysisServerService.getInstance().getGutterModel(virtualFile).getOverrideMember(nameOffset);
+    if (overrideMember == null) {
+      return null;
     }
-    return tryCreateOverrideMarker(componentName, superclassComponent, interfaceComponents);
-  }
 
-  @Nullable
-  private static LineMarkerInfo tryCreateOverrideMarker(@NotNull final DartComponentName componentName,
-                                                        @Nullable final DartComponent superclassComponent,
-                                                        @NotNull final List<DartComponent> interfaceComponents) {
-    if (superclassComponent == null && interfaceComponents.isEmpty()) {
+    final OverriddenMember superclassMember = overrideMember.getSuperclassMember();
+    final List<OverriddenMember> interfaceMembers = overrideMember.getInterfaceMembers();
+    if (superclassMember == null && (interfaceMembers == null || interfaceMembers.isEmpty())) {
       return null;
     }
+    return createOverrideMarker(componentName, superclassMember, interfaceMembers);
+  }
+
+  @NotNull
+  private static LineMarkerInfo createOverrideMarker(@NotNull final DartComponentName componentName,
+                                                     @Nullable final OverriddenMember superclassMember,
+                                                     @Nullable final List<OverriddenMember> interfaceMembers) {
     final String name = componentName.getName();
-    final boolean overrides;
-    final DartComponent superComponent;
-    if (superclassComponent != null) {
-      overrides = true;
-      superComponent = superclassComponent;
-    }
-    else {
-      overrides = false;
-      superComponent = interfaceComponents.iterator().next();
-    }
+    final boolean overrides = superclassMember != null;
+    final String superClassName = overrides ? superclassMember.getClassName() : interfaceMembers.iterator().next().getClassName();
+    final boolean operator = ((DartComponent)componentName.getParent()).isOperator();
     final Icon icon = overrides ? AllIcons.Gutter.OverridingMethod : AllIcons.Gutter.ImplementingMethod;
     return new LineMarkerInfo<>(componentName, componentName.getTextRange(), icon, Pass.LINE_MARKERS,
                                 element -> {
-                                  final DartClass superClass = PsiTreeUtil.getParentOfType(superComponent, DartClass.class);
-                                  if (superClass == null) return "null";
                                   if (overrides) {
-                                    return superclassComponent.isOperator()
-                                           ? DartBundle.message("overrides.operator.in", name, superClass.getName())
-                                           : DartBundle.message("overrides.method.in", name, superClass.getName());
+                                    return operator
+                                           ? DartBundle.message("overrides.operator.in", name, superClassName)
+                                           : DartBundle.message("overrides.method.in", name, superClassName);
                                   }
-                                  return DartBundle.message("implements.method.in", name, superClass.getName());
+                                  return DartBundle.message("implements.method.in", name, superClassName);
                                 }, new GutterIconNavigationHandler<PsiElement>() {
       @Override
       public void navigate(MouseEvent e, PsiElement elt) {
-        List<DartComponent> superComponents = Lists.newArrayList();
-        if (superclassComponent != null) {
-          superComponents.add(superclassComponent);
+        final Project project = elt.getProject();
+        final List<DartComponent> superComponents = DartMarkerTargets.resolve(project, String.valueOf(name), () ->
+          ApplicationManager.getApplication().runReadAction((Computable<List<DartComponent>>)() -> {
+            final List<DartComponent> components = Lists.newArrayList();
+            addDartComponent(components, project, superclassMember);
+            if (interfaceMembers != null) {
+              for (OverriddenMember interfaceMember : interfaceMembers) {
+                addDartComponent(components, project, interfaceMember);
+              }
+            }
+            return components;
+          }));
+        if (superComponents == null || superComponents.isEmpty()) {
+          return;
         }
-        superComponents.addAll(interfaceComponents);
         PsiElementListNavigator.openTargets(e, DartResolveUtil.getComponentNameArray(superComponents),
                                             DaemonBundle.message("navigation.title.super.method", name),
                                             DaemonBundle.message("navigation.findUsages.title.super.method", name),
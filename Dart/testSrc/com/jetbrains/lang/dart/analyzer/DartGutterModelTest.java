@@ -0,0 +1,60 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import junit.framework.TestCase;
+import org.dartlang.analysis.server.protocol.Element;
+import org.dartlang.analysis.server.protocol.ElementKind;
+import org.dartlang.analysis.server.protocol.Location;
+import org.dartlang.analysis.server.protocol.OverriddenMember;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DartGutterModelTest extends TestCase {
+  private static final int MEMBER_COUNT = 1000;
+
+  private static List<DartServerData.DartOverrideMember> createOverrides() {
+    final List<DartServerData.DartOverrideMember> overrides = new ArrayList<>();
+    for (int i = 0; i < MEMBER_COUNT; i++) {
+      final Location location = new Location("/project/lib/base.dart", i * 13, 3, i + 1, 3);
+      final Element element = new Element(ElementKind.METHOD, "m" + i, location, 0, "()", "void", null);
+      overrides.add(new DartServerData.DartOverrideMember(i * 20, 2, new OverriddenMember(element, "Base"), null));
+    }
+    return overrides;
+  }
+
+  public void testLookup() throws Exception {
+    final List<DartServerData.DartRegion> classes = Collections.singletonList(new DartServerData.DartRegion(6, 4));
+    final List<DartServerData.DartRegion> members = Collections.singletonList(new DartServerData.DartRegion(40, 2));
+    final DartGutterModel model = DartGutterModel.build("/project/lib/foo.dart", createOverrides(), classes, members);
+
+    assertEquals("m5", model.getOverrideMember(100).getSuperclassMember().getElement().getName());
+    assertNull(model.getOverrideMember(101));
+    assertTrue(model.isImplementedClass(6, 4));
+    assertFalse(model.isImplementedClass(6, 3));
+    assertFalse(model.isImplementedClass(40, 2));
+    assertTrue(model.isImplementedMember(40, 2));
+    assertFalse(model.isImplementedMember(0, 0));
+  }
+
+  public void testEmpty() throws Exception {
+    final DartGutterModel model = DartGutterModel.build("/project/lib/foo.dart", null, null, null);
+    assertNull(model.getOverrideMember(0));
+    assertFalse(model.isImplementedClass(0, 0));
+    assertFalse(model.isImplementedMember(0, 0));
+  }
+
+  public void testLookupPerformance() throws Exception {
+    final List<DartServerData.DartOverrideMember> overrides = createOverrides();
+    PlatformTestUtil.startPerformanceTest("Dart gutter model build and lookup", 500, () -> {
+      for (int i = 0; i < 100; i++) {
+        final DartGutterModel model = DartGutterModel.build("/project/lib/foo.dart", overrides, null, null);
+        // a highlighting pass asks for every component name of the file
+        for (int offset = 0; offset < MEMBER_COUNT * 20; offset += 10) {
+          model.getOverrideMember(offset);
+        }
+      }
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,127 @@
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import junit.framework.TestCase;
+import org.dartlang.analysis.server.protocol.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DartServerDataSnapshotTest extends TestCase {
+
+  private static final int FILE_COUNT = 500;
+
+  private File myTempDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTempDir = FileUtil.createTempDirectory("dartSnapshot", null);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myTempDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  @NotNull
+  private static String fileText(final int index) {
+    return "class Foo" + index + " extends Bar {\n  void baz() {}\n}\n";
+  }
+
+  @NotNull
+  private static DartServerDataSnapshot.Entry createEntry(final int index) {
+    final List<DartServerData.DartError> errors = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      errors.add(new DartServerData.DartError(i * 10, 5, "/project/lib/foo" + index + ".dart", AnalysisErrorSeverity.WARNING,
+                                              AnalysisErrorType.STATIC_WARNING, i % 2 == 0 ? "undefined_identifier" : null,
+                                              "Undefined name 'x" + i + "'"));
+    }
+
+    final List<DartServerData.DartHighlightRegion> highlights = new ArrayList<>();
+    for (int i = 0; i < 400; i++) {
+      highlights.add(new DartServerData.DartHighlightRegion(i * 7, 3, HighlightRegionType.LOCAL_VARIABLE_REFERENCE));
+    }
+
+    final List<DartServerData.DartNavigationRegion> navigation = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      navigation.add(new DartServerData.DartNavigationRegion(
+        i * 11, 4, Collections.singletonList(new DartServerData.DartNavigationTarget("/project/lib/bar.dart", i * 3, ElementKind.CLASS))));
+    }
+
+    final List<DartServerData.DartOverrideMember> overrides = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final Location location = new Location("/project/lib/bar.dart", i * 13, 3, i + 1, 3);
+      final Element element = new Element(ElementKind.METHOD, "baz" + i, location, 0, "()", "void", null);
+      overrides.add(new DartServerData.DartOverrideMember(i * 17, 3, new OverriddenMember(element, "Bar"), null));
+    }
+
+    final List<DartServerData.DartRegion> implementedClasses = Collections.singletonList(new DartServerData.DartRegion(6, 3));
+    final List<DartServerData.DartRegion> implementedMembers = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      implementedMembers.add(new DartServerData.DartRegion(i * 19, 3));
+    }
+
+    return new DartServerDataSnapshot.Entry(DartServerDataSnapshot.computeContentHash(fileText(index)), errors, highlights, navigation,
+                                            overrides, implementedClasses, implementedMembers);
+  }
+
+  public void testRoundTrip() throws Exception {
+    final File file = new File(myTempDir, "snapshot");
+    final DartServerDataSnapshot snapshot = new DartServerDataSnapshot(file);
+    snapshot.put("/project/lib/foo0.dart", createEntry(0));
+    snapshot.save();
+
+    final DartServerDataSnapshot loaded = new DartServerDataSnapshot(file);
+    assertNull(loaded.take("/project/lib/foo0.dart", fileText(0) + " "));
+    assertNull(loaded.take("/project/lib/foo0.dart", fileText(0))); // entry is removed on first use
+
+    final DartServerDataSnapshot loadedAgain = new DartServerDataSnapshot(file);
+    final DartServerDataSnapshot.Entry entry = loadedAgain.take("/project/lib/foo0.dart", fileText(0));
+    assertNotNull(entry);
+
+    final DartServerDataSnapshot.Entry expected = createEntry(0);
+    assertEquals(expected.myErrors.size(), entry.myErrors.size());
+    assertEquals("undefined_identifier", entry.myErrors.get(0).getCode());
+    assertNull(entry.myErrors.get(1).getCode());
+    assertEquals(expected.myHighlights, entry.myHighlights);
+    assertEquals(HighlightRegionType.LOCAL_VARIABLE_REFERENCE, entry.myHighlights.get(0).getType());
+    assertEquals(expected.myNavigation, entry.myNavigation);
+    assertEquals("/project/lib/bar.dart", entry.myNavigation.get(1).getTargets().get(0).getFile());
+    assertEquals(3, entry.myNavigation.get(1).getTargets().get(0).getOriginalOffset());
+    assertEquals(expected.myOverrides, entry.myOverrides);
+    assertEquals(expected.myOverrides.get(5).getSuperclassMember(), entry.myOverrides.get(5).getSuperclassMember());
+    assertEquals(expected.myImplementedClasses, entry.myImplementedClasses);
+    assertEquals(expected.myImplementedMembers, entry.myImplementedMembers);
+  }
+
+  public void testCorruptedSnapshotIgnored() throws Exception {
+    final File file = new File(myTempDir, "snapshot");
+    FileUtil.writeToFile(file, "garbage");
+    assertEquals(0, new DartServerDataSnapshot(file).size());
+  }
+
+  public void testSaveAndLoadPerformance() throws Exception {
+    final File file = new File(myTempDir, "snapshot");
+    final DartServerDataSnapshot snapshot = new DartServerDataSnapshot(file);
+    for (int i = 0; i < FILE_COUNT; i++) {
+      snapshot.put("/project/lib/foo" + i + ".dart", createEntry(i));
+    }
+
+    PlatformTestUtil.startPerformanceTest("Dart server data snapshot save", 3000, snapshot::save).cpuBound().assertTiming();
+
+    PlatformTestUtil.startPerformanceTest("Dart server data snapshot load, " + file.length() + " bytes", 3000, () -> {
+      final DartServerDataSnapshot loaded = new DartServerDataSnapshot(file);
+      assertEquals(FILE_COUNT, loaded.size());
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,50 @@
+package com.jetbrains.lang.dart.formatter;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.codeStyle.CodeStyleManager;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.lang.dart.DartCodeInsightFixtureTestCase;
+import com.jetbrains.lang.dart.DartFileType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reformatting of a large generated file; covers DartBlock tree building and DartSpacingProcessor rules.
+ */
+public class DartFormatterPerformanceTest extends DartCodeInsightFixtureTestCase {
+  private static final int LINE_COUNT = 10000;
+
+  @NotNull
+  private static String generateUnformattedText() {
+    final StringBuilder builder = new StringBuilder("library   generated ;\nimport 'dart:async';import 'dart:math' as math ;\n");
+    int lines = 2;
+    for (int i = 0; lines < LINE_COUNT; i++) {
+      builder.append("@deprecated class Foo").append(i).append(" extends Object with Bar implements Comparable{\n")
+        .append("final   Map<String,List<int>> field = <String,List<int>>{'a':[1,2,3]};\n")
+        .append("Foo").append(i).append("( int x ):super(){}\n")
+        .append("Future<int>compute(int x,{String name:'n'})async{\n")
+        .append("for(var j=0;j<x;j++){if(j%2==0&&name!=null)print(\"${name.length} $j\");else{continue;}}\n")
+        .append("switch(x){case 1:return 1;default:break;}\n")
+        .append("try{x=math.max(x,-x)~/2;}on Exception catch(e){throw e;}finally{x++;}\n")
+        .append("return await new Future.value(x>0?x*2:-x)..then((v)=>v+1)..catchError((e){});\n")
+        .append("}\n")
+        .append("int compareTo(other)=>0;   // comment\n")
+        .append("}\n");
+      lines += 11;
+    }
+    return builder.toString();
+  }
+
+  public void testReformatLargeFile() {
+    final String text = generateUnformattedText();
+    myFixture.configureByText(DartFileType.INSTANCE, text);
+
+    PlatformTestUtil.startPerformanceTest("Reformat " + LINE_COUNT + " lines of Dart code", 15000, () -> {
+      WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+        myFixture.getEditor().getDocument().setText(text);
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+        CodeStyleManager.getInstance(getProject()).reformat(myFixture.getFile());
+      });
+    }).cpuBound().assertTiming();
+  }
+}
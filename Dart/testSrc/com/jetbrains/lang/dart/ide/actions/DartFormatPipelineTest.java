@@ -0,0 +1,197 @@
+package com.jetbrains.lang.dart.ide.actions;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.LightVirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.Consumer;
+import com.jetbrains.lang.dart.DartCodeInsightFixtureTestCase;
+import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import org.dartlang.analysis.server.protocol.SourceEdit;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DartFormatPipelineTest extends DartCodeInsightFixtureTestCase {
+  private static final int FILE_COUNT = 300;
+  private static final long PIPE_LATENCY_MS = 2;
+
+  /**
+   * Imitates the analysis server: requests are formatted one by one in a single thread, formatting of a file takes
+   * {@code formatDelayMs}, and each request and response spends {@link #PIPE_LATENCY_MS} in the pipe.
+   */
+  private static class StubServer implements DartFormatPipeline.FormatRequestSender {
+    private final ScheduledExecutorService myPipe = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService myServerThread = Executors.newSingleThreadExecutor();
+    private final AtomicInteger myInFlight = new AtomicInteger();
+    private final AtomicInteger myMaxInFlight = new AtomicInteger();
+    private final long myFormatDelayMs;
+
+    private StubServer() {
+      this(0);
+    }
+
+    private StubServer(final long formatDelayMs) {
+      myFormatDelayMs = formatDelayMs;
+    }
+
+    @Override
+    public boolean send(@NotNull final VirtualFile file, @NotNull final Consumer<DartAnalysisServerService.FormatResult> consumer) {
+      if (file.getName().startsWith("unsent")) return false;
+
+      myMaxInFlight.accumulateAndGet(myInFlight.incrementAndGet(), Math::max);
+      myPipe.schedule(() -> myServerThread.execute(() -> {
+        if (file.getName().startsWith("lost")) return;
+
+        if (myFormatDelayMs > 0) {
+          try {
+            Thread.sleep(myFormatDelayMs);
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+        }
+
+        final String replacement = file.getName().startsWith("bad") ? null : "formatted " + file.getName() + "\r\n";
+        final DartAnalysisServerService.FormatResult result =
+          replacement == null ? null
+                              : new DartAnalysisServerService.FormatResult(
+                                Collections.singletonList(new SourceEdit(0, 0, replacement, null)), 0, 0);
+        myPipe.schedule(() -> {
+          myInFlight.decrementAndGet();
+          consumer.consume(result);
+        }, PIPE_LATENCY_MS, TimeUnit.MILLISECONDS);
+      }), PIPE_LATENCY_MS, TimeUnit.MILLISECONDS);
+      return true;
+    }
+
+    private void shutdown() {
+      myPipe.shutdownNow();
+      myServerThread.shutdownNow();
+    }
+  }
+
+  @NotNull
+  private static List<VirtualFile> createFiles(@NotNull final String prefix, final int count) {
+    final List<VirtualFile> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      files.add(new LightVirtualFile(prefix + i + ".dart", ""));
+    }
+    return files;
+  }
+
+  public void testAllFilesFormatted() throws Exception {
+    final StubServer server = new StubServer();
+    try {
+      final List<VirtualFile> files = createFiles("file", 50);
+      final Map<VirtualFile, String> result = new DartFormatPipeline(server, 8, 1000).run(files, null);
+
+      assertEquals(files.size(), result.size());
+      for (VirtualFile file : files) {
+        assertEquals("formatted " + file.getName() + "\n", result.get(file));
+      }
+      assertTrue(server.myMaxInFlight.get() <= 8);
+    }
+    finally {
+      server.shutdown();
+    }
+  }
+
+  public void testFailedFilesSkipped() throws Exception {
+    final StubServer server = new StubServer();
+    try {
+      final List<VirtualFile> files = createFiles("file", 10);
+      files.addAll(createFiles("unsent", 3));
+      files.addAll(createFiles("bad", 3));
+      files.addAll(createFiles("lost", 3));
+      files.addAll(createFiles("other", 10));
+      Collections.shuffle(files);
+
+      final DartFormatPipeline pipeline = new DartFormatPipeline(server, 4, 200);
+      final Map<VirtualFile, String> result = pipeline.run(files, null);
+      assertEquals(20, result.size());
+      for (VirtualFile file : result.keySet()) {
+        assertTrue(file.getName(), file.getName().startsWith("file") || file.getName().startsWith("other"));
+      }
+
+      assertEquals(3, pipeline.getTimedOutFiles().size());
+      for (VirtualFile file : pipeline.getTimedOutFiles()) {
+        assertTrue(file.getName(), file.getName().startsWith("lost"));
+      }
+    }
+    finally {
+      server.shutdown();
+    }
+  }
+
+  public void testQueuedFilesDoNotTimeOut() throws Exception {
+    // the whole window takes 16 * 50 ms in the server, much more than the timeout of a single request
+    final StubServer server = new StubServer(50);
+    try {
+      final List<VirtualFile> files = createFiles("file", 40);
+      final DartFormatPipeline pipeline = new DartFormatPipeline(server, 16, 300);
+      final Map<VirtualFile, String> result = pipeline.run(files, null);
+
+      assertEquals(files.size(), result.size());
+      assertEmpty(pipeline.getTimedOutFiles());
+    }
+    finally {
+      server.shutdown();
+    }
+  }
+
+  public void testLostFileTimesOutAfterPreviousResponse() throws Exception {
+    final StubServer server = new StubServer(50);
+    try {
+      final List<VirtualFile> files = createFiles("file", 10);
+      files.add(5, new LightVirtualFile("lost.dart", ""));
+      final DartFormatPipeline pipeline = new DartFormatPipeline(server, 16, 300);
+
+      final long start = System.currentTimeMillis();
+      final Map<VirtualFile, String> result = pipeline.run(files, null);
+      final long elapsed = System.currentTimeMillis() - start;
+
+      assertEquals(10, result.size());
+      assertEquals(1, pipeline.getTimedOutFiles().size());
+      assertEquals("lost.dart", pipeline.getTimedOutFiles().get(0).getName());
+      // lost file times out 300 ms after the response for the previous file, not after the whole queue
+      assertTrue(String.valueOf(elapsed), elapsed < 2000);
+    }
+    finally {
+      server.shutdown();
+    }
+  }
+
+  public void testPipelinedFormattingPerformance() throws Exception {
+    final StubServer server = new StubServer();
+    try {
+      final List<VirtualFile> files = createFiles("file", FILE_COUNT);
+
+      long start = System.currentTimeMillis();
+      new DartFormatPipeline(server, 1, 1000).run(files, null);
+      final long sequentialMs = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      new DartFormatPipeline(server, DartFormatPipeline.DEFAULT_WINDOW_SIZE, 1000).run(files, null);
+      final long pipelinedMs = System.currentTimeMillis() - start;
+
+      assertTrue("Formatting of " + FILE_COUNT + " files with " + PIPE_LATENCY_MS + " ms pipe latency: " +
+                 sequentialMs + " ms sequentially, " + pipelinedMs + " ms pipelined", pipelinedMs < sequentialMs);
+
+      // sequential formatting of 300 files takes 300 * 4 ms of pipe latency alone
+      PlatformTestUtil.startPerformanceTest("Pipelined formatting of " + FILE_COUNT + " files", 600, () ->
+        assertEquals(FILE_COUNT, new DartFormatPipeline(server, DartFormatPipeline.DEFAULT_WINDOW_SIZE, 1000).run(files, null).size())
+      ).assertTiming();
+    }
+    finally {
+      server.shutdown();
+    }
+  }
+}
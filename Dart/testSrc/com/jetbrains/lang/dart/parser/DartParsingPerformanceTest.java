@@ -0,0 +1,77 @@
+package com.jetbrains.lang.dart.parser;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.testFramework.ParsingTestCase;
+import com.jetbrains.lang.dart.DartFileType;
+import com.jetbrains.lang.dart.DartParserDefinition;
+import com.jetbrains.lang.dart.lexer.DartLexer;
+import com.jetbrains.lang.dart.util.DartTestUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Lexer and parser throughput over the checked-in parsing test data and over a generated file,
+ * so that runs before and after regenerating _DartLexer or DartParser can be compared.
+ */
+public class DartParsingPerformanceTest extends ParsingTestCase {
+  private static final int CORPUS_SIZE = 2 * 1024 * 1024;
+
+  public DartParsingPerformanceTest() {
+    super("parsing", DartFileType.DEFAULT_EXTENSION, new DartParserDefinition());
+  }
+
+  @Override
+  protected String getTestDataPath() {
+    return DartTestUtils.BASE_TEST_DATA_PATH;
+  }
+
+  @NotNull
+  private String loadCheckedInCorpus() throws Exception {
+    return ThroughputTestUtil.loadCorpus(new File(getTestDataPath(), "parsing"), ".dart", "\n", CORPUS_SIZE);
+  }
+
+  @NotNull
+  private static String generateCorpus() {
+    final StringBuilder builder = new StringBuilder("library generated;\n\nimport 'dart:async';\n\n");
+    for (int i = 0; builder.length() < CORPUS_SIZE; i++) {
+      builder.append("/// Doc comment for class ").append(i).append('\n')
+        .append("class Foo").append(i).append(" extends Base<int> implements Comparable<Foo").append(i).append("> {\n")
+        .append("  final Map<String, List<int>> field").append(i).append(" = <String, List<int>>{'a': [1, 2, 3]};\n")
+        .append("  Foo").append(i).append("(this.field").append(i).append(");\n")
+        .append("  Future<int> compute(int x, {String name: 'n$x'}) async {\n")
+        .append("    for (var j = 0; j < x; j++) {\n")
+        .append("      if (j % 2 == 0 && name != null) print(\"${name.length} $j\"); else continue;\n")
+        .append("    }\n")
+        .append("    return await new Future.value(x > 0 ? x * 2 : -x)..then((v) => v + 1);\n")
+        .append("  }\n")
+        .append("  int compareTo(Foo").append(i).append(" other) => 0;\n")
+        .append("}\n\n");
+    }
+    return builder.toString();
+  }
+
+  private void doLexerTest(@NotNull final String text, final int expectedMs) {
+    ThroughputTestUtil.assertLexerTiming(getTestName(false), new DartLexer(), text, expectedMs);
+  }
+
+  private void doParserTest(@NotNull final String text, final int expectedMs) {
+    ThroughputTestUtil.assertParserTiming(getTestName(false), text, expectedMs, t -> createPsiFile("corpus", t).getNode());
+  }
+
+  public void testLexerCheckedInCorpus() throws Exception {
+    doLexerTest(loadCheckedInCorpus(), 1000);
+  }
+
+  public void testLexerGeneratedCorpus() throws Exception {
+    doLexerTest(generateCorpus(), 1000);
+  }
+
+  public void testParserCheckedInCorpus() throws Exception {
+    doParserTest(loadCheckedInCorpus(), 5000);
+  }
+
+  public void testParserGeneratedCorpus() throws Exception {
+    doParserTest(generateCorpus(), 5000);
+  }
+}
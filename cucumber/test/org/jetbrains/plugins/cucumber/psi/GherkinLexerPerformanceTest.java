@@ -0,0 +1,20 @@
+package org.jetbrains.plugins.cucumber.psi;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.plugins.cucumber.CucumberTestUtil;
+
+import java.io.File;
+
+/**
+ * Throughput of {@link GherkinLexer} over the parsing test data.
+ */
+public class GherkinLexerPerformanceTest extends UsefulTestCase {
+  private static final int CORPUS_SIZE = 2 * 1024 * 1024;
+
+  public void testLexer() throws Exception {
+    final File dir = new File(CucumberTestUtil.getTestDataPath(), "parsing");
+    final String text = ThroughputTestUtil.loadCorpus(dir, ".feature", "\n", CORPUS_SIZE);
+    ThroughputTestUtil.assertLexerTiming("Gherkin lexer", new GherkinLexer(new PlainGherkinKeywordProvider()), text, 1500);
+  }
+}
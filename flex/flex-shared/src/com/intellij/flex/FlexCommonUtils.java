@@ -41,6 +41,8 @@ import org.jetbrains.jps.model.serialization.JpsModelSerializationDataService;
 import org.jetbrains.jps.util.JpsPathUtil;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.*;
@@ -1206,6 +1208,20 @@ public class FlexCommonUtils {
     return Trinity.create(majorVersion, minorVersion, revision);
   }
 
+  /**
+   * @return free physical memory in bytes, or -1 if this JRE doesn't report it
+   */
+  public static long getFreePhysicalMemory() {
+    final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+    try {
+      if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+        return ((com.sun.management.OperatingSystemMXBean)bean).getFreePhysicalMemorySize();
+      }
+    }
+    catch (Throwable ignore) {/* not available in this JRE */}
+    return -1;
+  }
+
   public static void deleteTempFlexConfigFiles(final String projectName) {
     if (KEEP_TEMP_FILES) return;
 
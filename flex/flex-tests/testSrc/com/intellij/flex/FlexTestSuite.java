@@ -1,6 +1,14 @@
 package com.intellij.flex;
 
+import com.intellij.javascript.flex.compiled.SwfStubCacheTest;
+import com.intellij.javascript.flex.resolve.SwcCatalogXmlIndexTest;
+import com.intellij.jps.flex.build.BuiltInFlexCompilerPoolTest;
+import com.intellij.jps.flex.build.FlexParallelCompilerTest;
+import com.intellij.jps.flex.build.FlexSourceFileStatesTest;
 import com.intellij.lang.javascript.*;
+import com.intellij.lang.javascript.flex.actions.ExternalTaskSchedulerTest;
+import com.intellij.lang.javascript.flex.build.FlexCompilationManagerTest;
+import com.intellij.lang.javascript.flex.debug.BatchEvaluateCommandTest;
 import com.intellij.lang.javascript.flexunit.FlexUnitCompletionTest;
 import com.intellij.lang.javascript.flexunit.FlexUnitConfigurationTest;
 import com.intellij.lang.javascript.flexunit.FlexUnitHighlightingTest;
@@ -36,6 +44,15 @@ public class FlexTestSuite extends TestCase {
     testSuite.addTestSuite(FlexCssNavigationTest.class);
 
     testSuite.addTestSuite(FlexImporterTest.class);
+    testSuite.addTestSuite(FlexImporterPerformanceTest.class);
+    testSuite.addTestSuite(SwfStubCacheTest.class);
+    testSuite.addTestSuite(SwcCatalogXmlIndexTest.class);
+    testSuite.addTestSuite(FlexParallelCompilerTest.class);
+    testSuite.addTestSuite(FlexCompilationManagerTest.class);
+    testSuite.addTestSuite(BuiltInFlexCompilerPoolTest.class);
+    testSuite.addTestSuite(FlexSourceFileStatesTest.class);
+    testSuite.addTestSuite(BatchEvaluateCommandTest.class);
+    testSuite.addTestSuite(ExternalTaskSchedulerTest.class);
     testSuite.addTestSuite(FlexProjectConfigTest.class);
     testSuite.addTestSuite(FlexScopeTest.class);
     testSuite.addTestSuite(FlexConversionTest.class);
@@ -0,0 +1,69 @@
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.InputStream;
+
+public class SwfStubCacheTest extends TestCase {
+  private File myTempDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTempDir = FileUtil.createTempDirectory("swfStubCache", null);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myTempDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testKey() throws Exception {
+    final byte[] content = {1, 2, 3};
+    assertEquals(SwfStubCache.computeKey(content, "1"), SwfStubCache.computeKey(content.clone(), "1"));
+    assertFalse(SwfStubCache.computeKey(content, "1").equals(SwfStubCache.computeKey(content, "2")));
+    assertFalse(SwfStubCache.computeKey(content, "1").equals(SwfStubCache.computeKey(new byte[]{1, 2, 4}, "1")));
+  }
+
+  public void testText() throws Exception {
+    final SwfStubCache cache = new SwfStubCache(new File(myTempDir, "cache"));
+    final String key = SwfStubCache.computeKey(new byte[]{1, 2, 3}, "1");
+    assertNull(cache.getText(key));
+
+    cache.putText(key, "package flash.display {\n  public class Sprite {} // é\n}");
+    assertEquals("package flash.display {\n  public class Sprite {} // é\n}", cache.getText(key).toString());
+    assertEquals("package flash.display {\n  public class Sprite {} // é\n}",
+                 new SwfStubCache(new File(myTempDir, "cache")).getText(key).toString());
+  }
+
+  public void testStub() throws Exception {
+    final SwfStubCache cache = new SwfStubCache(new File(myTempDir, "cache"));
+    final String key = SwfStubCache.computeKey(new byte[]{1, 2, 3}, "1");
+    assertNull(cache.getStub(key));
+
+    final byte[] bytes = new byte[100000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte)i;
+    }
+    cache.putStub(key, bytes, 50000);
+
+    final InputStream in = cache.getStub(key);
+    assertNotNull(in);
+    assertEquals(50000, in.available());
+    assertEquals(0, in.read());
+    final byte[] read = new byte[60000];
+    assertEquals(49999, in.read(read, 0, read.length));
+    assertEquals((byte)49999, read[49998]);
+    assertEquals(-1, in.read());
+
+    cache.removeStub(key);
+    assertNull(cache.getStub(key));
+  }
+}
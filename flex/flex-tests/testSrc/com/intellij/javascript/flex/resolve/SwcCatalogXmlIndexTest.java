@@ -0,0 +1,216 @@
+package com.intellij.javascript.flex.resolve;
+
+import com.intellij.lang.javascript.imports.FlexModuleFixtureBuilder;
+import com.intellij.lang.javascript.imports.FlexModuleFixtureBuilderImpl;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.impl.VfsRootAccess;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.PsiTestUtil;
+import com.intellij.testFramework.fixtures.CodeInsightFixtureTestCase;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class SwcCatalogXmlIndexTest extends CodeInsightFixtureTestCase<FlexModuleFixtureBuilder> {
+  private static final int SWC_COUNT = 300;
+  private static final int CLASSES_PER_SWC = 100;
+  /**
+   * Every SHARED_CLASS_SWC_STEP-th swc also defines mx.controls.Button
+   */
+  private static final int SHARED_CLASS_SWC_STEP = 100;
+
+  private File mySwcDir;
+
+  @Override
+  protected Class<FlexModuleFixtureBuilder> getModuleBuilderClass() {
+    return FlexModuleFixtureBuilder.class;
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    IdeaTestFixtureFactory.getFixtureFactory().registerFixtureBuilder(FlexModuleFixtureBuilder.class, FlexModuleFixtureBuilderImpl.class);
+    super.setUp();
+    mySwcDir = FileUtil.createTempDirectory("swcCatalogXmlIndex", null);
+    VfsRootAccess.allowRootAccess(getTestRootDisposable(), mySwcDir.getPath());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(mySwcDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private static String getCatalogXml(final int swcIndex) {
+    final StringBuilder b = new StringBuilder();
+    b.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<swc xmlns=\"http://www.adobe.com/flash/swccatalog/9\">\n");
+    b.append("  <libraries>\n    <library path=\"library.swf\">\n");
+    for (int i = 0; i < CLASSES_PER_SWC; i++) {
+      b.append("      <script name=\"pkg").append(swcIndex).append("/Class").append(i).append("\" mod=\"").append(1000 + i).append("\">\n");
+      b.append("        <def id=\"pkg").append(swcIndex).append(":Class").append(i).append("\" />\n");
+      b.append("      </script>\n");
+    }
+    if (swcIndex % SHARED_CLASS_SWC_STEP == 0) {
+      b.append("      <script name=\"mx/controls/Button\" mod=\"").append(2000 + swcIndex).append("\">\n");
+      b.append("        <def id=\"mx.controls:Button\" />\n");
+      b.append("      </script>\n");
+    }
+    b.append("    </library>\n  </libraries>\n  <components>\n");
+    for (int i = 0; i < CLASSES_PER_SWC; i += 10) {
+      b.append("    <component className=\"pkg").append(swcIndex).append(":Class").append(i).append("\" name=\"Class").append(i)
+        .append("\" uri=\"http://lib").append(swcIndex).append("\" />\n");
+    }
+    if (swcIndex % SHARED_CLASS_SWC_STEP == 0) {
+      b.append("    <component className=\"mx.controls:Button\" name=\"Button\" uri=\"http://lib").append(swcIndex).append("\" />\n");
+    }
+    b.append("  </components>\n</swc>\n");
+    return b.toString();
+  }
+
+  private static void writeSwc(final File swcFile, final String catalogXml) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(swcFile))) {
+      out.putNextEntry(new ZipEntry(SwcCatalogXmlIndex.CATALOG_XML));
+      out.write(catalogXml.getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+  }
+
+  private void createSwcLibraries() throws IOException {
+    final String[] swcNames = new String[SWC_COUNT];
+    for (int i = 0; i < SWC_COUNT; i++) {
+      swcNames[i] = "lib" + i + ".swc";
+      writeSwc(new File(mySwcDir, swcNames[i]), getCatalogXml(i));
+    }
+
+    LocalFileSystem.getInstance().refreshAndFindFileByIoFile(mySwcDir);
+    PsiTestUtil.addLibrary(myModule, "swcs", mySwcDir.getPath(), swcNames);
+  }
+
+  public void testIndexCatalogXml() throws Exception {
+    final Map<String, SwcCatalogXmlIndex.Definition> map = SwcCatalogXmlIndex.indexCatalogXml(getCatalogXml(7));
+    assertEquals(CLASSES_PER_SWC + 1, map.size());
+    assertEquals(Long.valueOf(0), map.get("").getTimestamp("library.swf"));
+    assertEquals(Long.valueOf(1000), map.get("pkg7.Class0").getTimestamp("library.swf"));
+    assertEquals(Long.valueOf(1005), map.get("pkg7.Class5").getTimestamp("library.swf"));
+    assertNull(map.get("pkg7.Class5").getTimestamp("other.swf"));
+
+    assertEmpty(map.get("pkg7.Class5").getComponents());
+    final List<SwcCatalogXmlUtil.ComponentFromCatalogXml> components = map.get("pkg7.Class10").getComponents();
+    assertEquals(1, components.size());
+    assertEquals("Class10", components.get(0).myName);
+    assertEquals("pkg7.Class10", components.get(0).myClassFqn);
+    assertEquals("http://lib7", components.get(0).myUri);
+  }
+
+  public void testFindSwcFiles() throws Exception {
+    createSwcLibraries();
+    final GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+
+    assertSameElements(getNames(SwcCatalogXmlIndex.findSwcFiles("pkg42.Class17", scope)), "lib42.swc");
+    assertSameElements(getNames(SwcCatalogXmlIndex.findSwcFiles("mx.controls.Button", scope)), "lib0.swc", "lib100.swc", "lib200.swc");
+    assertEmpty(SwcCatalogXmlIndex.findSwcFiles("pkg42.NoSuchClass", scope));
+    assertEmpty(SwcCatalogXmlIndex.findSwcFiles("", scope));
+  }
+
+  public void testFindComponents() throws Exception {
+    createSwcLibraries();
+    final GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+
+    final Collection<SwcCatalogXmlUtil.ComponentFromCatalogXml> components = SwcCatalogXmlIndex.findComponents("mx.controls.Button", scope);
+    final List<String> uris = new ArrayList<>();
+    for (SwcCatalogXmlUtil.ComponentFromCatalogXml component : components) {
+      assertEquals("Button", component.myName);
+      uris.add(component.myUri);
+    }
+    assertSameElements(uris, "http://lib0", "http://lib100", "http://lib200");
+    assertEmpty(SwcCatalogXmlIndex.findComponents("pkg42.Class17", scope));
+  }
+
+  public void testTimestamp() throws Exception {
+    createSwcLibraries();
+    final VirtualFile catalogFile = getCatalogFile(new File(mySwcDir, "lib42.swc"));
+
+    assertEquals(Long.valueOf(1017), SwcCatalogXmlIndex.getTimestamp(getProject(), catalogFile, "library.swf", "pkg42.Class17"));
+    // swf is listed, but doesn't contain the definition
+    assertEquals(Long.valueOf(0), SwcCatalogXmlIndex.getTimestamp(getProject(), catalogFile, "library.swf", "pkg42.NoSuchClass"));
+    assertEquals(Long.valueOf(0), SwcCatalogXmlIndex.getTimestamp(getProject(), catalogFile, "library.swf", "pkg41.Class17"));
+    // swf is not listed
+    assertEquals(Long.valueOf(-1), SwcCatalogXmlIndex.getTimestamp(getProject(), catalogFile, "other.swf", "pkg42.Class17"));
+  }
+
+  public void testNotIndexedCatalog() throws Exception {
+    final File swcFile = new File(mySwcDir, "notInProject.swc");
+    writeSwc(swcFile, getCatalogXml(0));
+    LocalFileSystem.getInstance().refreshAndFindFileByIoFile(mySwcDir);
+
+    // caller parses catalog.xml
+    assertNull(SwcCatalogXmlIndex.getTimestamp(getProject(), getCatalogFile(swcFile), "library.swf", "pkg0.Class0"));
+  }
+
+  public void testTimestampPerformance() throws Exception {
+    createSwcLibraries();
+    final VirtualFile[] catalogFiles = new VirtualFile[SWC_COUNT];
+    for (int i = 0; i < SWC_COUNT; i++) {
+      catalogFiles[i] = getCatalogFile(new File(mySwcDir, "lib" + i + ".swc"));
+    }
+
+    PlatformTestUtil.startPerformanceTest("Timestamp of a definition in swc should be found fast", 2000, () -> {
+      for (int i = 0; i < SWC_COUNT; i++) {
+        for (int j = 0; j < CLASSES_PER_SWC; j += 5) {
+          assertEquals(Long.valueOf(1000 + j),
+                       SwcCatalogXmlIndex.getTimestamp(getProject(), catalogFiles[i], "library.swf", "pkg" + i + ".Class" + j));
+        }
+      }
+    }).cpuBound().assertTiming();
+  }
+
+  public void testFindSwcFilesPerformance() throws Exception {
+    createSwcLibraries();
+    final GlobalSearchScope scope = GlobalSearchScope.allScope(getProject());
+
+    PlatformTestUtil.startPerformanceTest("Swc that defines a class should be found fast among " + SWC_COUNT + " swc files", 2000, () -> {
+      for (int i = 0; i < SWC_COUNT; i++) {
+        for (int j = 0; j < CLASSES_PER_SWC; j += 5) {
+          final Collection<VirtualFile> swcFiles = SwcCatalogXmlIndex.findSwcFiles("pkg" + i + ".Class" + j, scope);
+          assertEquals(1, swcFiles.size());
+          assertEquals("lib" + i + ".swc", swcFiles.iterator().next().getName());
+        }
+        assertEquals(SWC_COUNT / SHARED_CLASS_SWC_STEP, SwcCatalogXmlIndex.findSwcFiles("mx.controls.Button", scope).size());
+      }
+    }).cpuBound().assertTiming();
+  }
+
+  private static List<String> getNames(final Collection<VirtualFile> files) {
+    final List<String> names = new ArrayList<>();
+    for (VirtualFile file : files) {
+      names.add(file.getName());
+    }
+    return names;
+  }
+
+  private static VirtualFile getCatalogFile(final File swcFile) {
+    final VirtualFile swc = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(swcFile);
+    assertNotNull(swc);
+    final VirtualFile jarRoot = JarFileSystem.getInstance().getJarRootForLocalFile(swc);
+    assertNotNull(jarRoot);
+    final VirtualFile catalogFile = jarRoot.findChild(SwcCatalogXmlIndex.CATALOG_XML);
+    assertNotNull(catalogFile);
+    return catalogFile;
+  }
+}
@@ -0,0 +1,205 @@
+package com.intellij.jps.flex.build;
+
+import junit.framework.TestCase;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BuiltInFlexCompilerPoolTest extends TestCase {
+
+  /**
+   * Speaks the protocol of com.intellij.flex.compiler.FlexCompiler. Command "mxmlc <ms> [crash] [heap=<percent>]" sleeps for
+   * the given time and reports the instance id and the given heap usage; 'crash' makes the process exit without finishing.
+   */
+  public static class FakeFlexCompiler {
+    private static DataOutputStream ourOut;
+
+    public static void main(String[] args) throws IOException {
+      final Socket socket = new Socket(InetAddress.getLocalHost(), Integer.parseInt(args[0]));
+      final DataInputStream in = new DataInputStream(socket.getInputStream());
+      ourOut = new DataOutputStream(socket.getOutputStream());
+      System.out.println("Connection successful");
+
+      final String instanceId = UUID.randomUUID().toString();
+      final StringBuilder buffer = new StringBuilder();
+      while (true) {
+        buffer.append(in.readUTF());
+        int index;
+        while ((index = buffer.indexOf("\n")) > -1) {
+          final String command = buffer.substring(0, index);
+          buffer.delete(0, index + 1);
+          new Thread(() -> compile(command, instanceId)).start();
+        }
+      }
+    }
+
+    private static void compile(final String command, final String instanceId) {
+      final String prefix = command.substring(0, command.indexOf(':') + 1);
+      final List<String> params = Arrays.asList(command.substring(prefix.length()).split(" "));
+      if (params.contains("crash")) {
+        System.exit(1);
+      }
+
+      try {
+        Thread.sleep(Long.parseLong(params.get(1)));
+      }
+      catch (InterruptedException ignore) {/**/}
+
+      int heapPercent = 10;
+      for (String param : params) {
+        if (param.startsWith("heap=")) heapPercent = Integer.parseInt(param.substring("heap=".length()));
+      }
+
+      send(prefix + "compiled by " + instanceId);
+      send(prefix + JpsBuiltInFlexCompilerHandler.COMPILATION_FINISHED + " memory: " + heapPercent + "/100");
+    }
+
+    private static synchronized void send(final String message) {
+      try {
+        ourOut.writeUTF(message + "\n");
+      }
+      catch (IOException e) {
+        System.exit(2);
+      }
+    }
+  }
+
+  private static class TestListener implements JpsBuiltInFlexCompilerHandler.Listener {
+    private final List<String> myTexts = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch myFinished = new CountDownLatch(1);
+
+    @Override
+    public void textAvailable(final String text) {
+      myTexts.add(text);
+    }
+
+    @Override
+    public void compilationFinished() {
+      myFinished.countDown();
+    }
+
+    private void waitFor() throws InterruptedException {
+      assertTrue("compilation not finished", myFinished.await(30, TimeUnit.SECONDS));
+    }
+
+    private String getCompilerInstance() {
+      for (String text : myTexts) {
+        if (text.startsWith("compiled by ")) return text.substring("compiled by ".length());
+      }
+      fail("Not compiled: " + myTexts);
+      return null;
+    }
+  }
+
+  private JpsBuiltInFlexCompilerHandler myHandler;
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      if (myHandler != null) {
+        myHandler.stopCompilerProcess();
+      }
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private static List<String> getFakeCompilerCommandLine() {
+    final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    return Arrays.asList(java, "-cp", System.getProperty("java.class.path"), FakeFlexCompiler.class.getName());
+  }
+
+  private void startPool(final int poolSize, final int maxCompilations, final int maxHeapUsagePercent) throws Exception {
+    myHandler = new JpsBuiltInFlexCompilerHandler(null, poolSize, maxCompilations, maxHeapUsagePercent);
+    assertTrue(myHandler.startIfNeeded("sdk", getFakeCompilerCommandLine(), null, error -> fail(error)));
+    waitForPoolSize(poolSize);
+  }
+
+  private void waitForPoolSize(final int poolSize) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 30000;
+    while (myHandler.getProcessesNumber() != poolSize) {
+      assertTrue("pool not started", System.currentTimeMillis() < deadline);
+      Thread.sleep(50);
+    }
+  }
+
+  private void waitForFirstProcessRecycled() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 30000;
+    while (myHandler.getProcessesNumber() != 1 || myHandler.getStatistics().toString().contains("compiler #1:")) {
+      assertTrue("process not recycled", System.currentTimeMillis() < deadline);
+      Thread.sleep(50);
+    }
+  }
+
+  private TestListener compile(final String params) {
+    final TestListener listener = new TestListener();
+    myHandler.sendCompilationCommand("mxmlc " + params, listener);
+    return listener;
+  }
+
+  public void testCompilationsRoutedToIdleProcesses() throws Exception {
+    startPool(2, 100, 90);
+
+    final TestListener listener1 = compile("500");
+    final TestListener listener2 = compile("500");
+    listener1.waitFor();
+    listener2.waitFor();
+
+    assertFalse(listener1.getCompilerInstance().equals(listener2.getCompilerInstance()));
+    assertEquals(0, myHandler.getActiveCompilationsNumber());
+
+    final Collection<String> statistics = myHandler.getStatistics();
+    assertEquals(2, statistics.size());
+    for (String s : statistics) {
+      assertTrue(s, s.contains(": 1 compilations"));
+    }
+  }
+
+  public void testCrashedProcessReplaced() throws Exception {
+    startPool(1, 100, 90);
+
+    final TestListener crashed = compile("100 crash");
+    crashed.waitFor();
+    assertTrue(crashed.myTexts.toString(), crashed.myTexts.contains("Error: Compilation terminated"));
+
+    final TestListener next = compile("100");
+    next.waitFor();
+    next.getCompilerInstance();
+    waitForPoolSize(1);
+  }
+
+  public void testProcessRecycledAfterMaxCompilations() throws Exception {
+    startPool(1, 2, 90);
+
+    final TestListener listener1 = compile("10");
+    listener1.waitFor();
+    final TestListener listener2 = compile("10");
+    listener2.waitFor();
+    assertEquals(listener1.getCompilerInstance(), listener2.getCompilerInstance());
+
+    waitForFirstProcessRecycled();
+    final TestListener listener3 = compile("10");
+    listener3.waitFor();
+    assertFalse(listener2.getCompilerInstance().equals(listener3.getCompilerInstance()));
+  }
+
+  public void testProcessRecycledOnHighHeapUsage() throws Exception {
+    startPool(1, 100, 80);
+
+    final TestListener listener1 = compile("10 heap=95");
+    listener1.waitFor();
+
+    waitForFirstProcessRecycled();
+    final TestListener listener2 = compile("10");
+    listener2.waitFor();
+    assertFalse(listener1.getCompilerInstance().equals(listener2.getCompilerInstance()));
+  }
+}
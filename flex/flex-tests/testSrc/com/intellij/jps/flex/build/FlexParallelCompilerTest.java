@@ -0,0 +1,145 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FlexParallelCompilerTest extends TestCase {
+  private static final int BC_COUNT = 8;
+  private static final int COMPILATION_MS = 300;
+
+  /**
+   * Stub of an external compiler process: 'compiles' for the given number of milliseconds, exit code 1 means failed compilation.
+   */
+  public static class StubCompiler {
+    public static void main(String[] args) throws InterruptedException {
+      Thread.sleep(Integer.parseInt(args[0]));
+      final boolean failed = args.length > 1 && "fail".equals(args[1]);
+      System.out.println(failed ? "Error: stub compilation failed" : "stub.swf (1000 bytes)");
+      System.exit(failed ? 1 : 0);
+    }
+  }
+
+  private ExecutorService myExecutor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myExecutor = Executors.newCachedThreadPool();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myExecutor.shutdownNow();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private static FlexBuilder.Status runStubCompiler(final String bc) {
+    final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    final ProcessBuilder processBuilder =
+      new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), StubCompiler.class.getName(),
+                         String.valueOf(COMPILATION_MS), bc.startsWith("bad") ? "fail" : "ok");
+    processBuilder.redirectErrorStream(true);
+    try {
+      final Process process = processBuilder.start();
+      FileUtil.loadBytes(process.getInputStream());
+      return process.waitFor() == 0 ? FlexBuilder.Status.Ok : FlexBuilder.Status.Failed;
+    }
+    catch (IOException | InterruptedException e) {
+      return FlexBuilder.Status.Failed;
+    }
+  }
+
+  private static List<String> createBCs(final int count) {
+    final List<String> bcs = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      bcs.add("rlm" + i);
+    }
+    return bcs;
+  }
+
+  public void testStatusesInOrder() {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+
+    final List<String> bcs = Arrays.asList("rlm1", "bad1", "rlm2", "cancelled1", "rlm3", "bad2", "rlm4", "bad3");
+    final List<FlexBuilder.Status> statuses = new FlexParallelCompiler(myExecutor, 3).compile(bcs, bc -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(50);
+        return bc.startsWith("bad") ? FlexBuilder.Status.Failed
+                                    : bc.startsWith("cancelled") ? FlexBuilder.Status.Cancelled : FlexBuilder.Status.Ok;
+      }
+      catch (InterruptedException e) {
+        return FlexBuilder.Status.Cancelled;
+      }
+      finally {
+        running.decrementAndGet();
+      }
+    });
+
+    assertEquals(Arrays.asList(FlexBuilder.Status.Ok, FlexBuilder.Status.Failed, FlexBuilder.Status.Ok, FlexBuilder.Status.Cancelled,
+                               FlexBuilder.Status.Ok, FlexBuilder.Status.Failed, FlexBuilder.Status.Ok, FlexBuilder.Status.Failed),
+                 statuses);
+    assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 3);
+  }
+
+  public void testStubCompilerProcessFailure() {
+    final List<FlexBuilder.Status> statuses =
+      new FlexParallelCompiler(myExecutor, 4).compile(Arrays.asList("rlm", "bad"), FlexParallelCompilerTest::runStubCompiler);
+    assertEquals(Arrays.asList(FlexBuilder.Status.Ok, FlexBuilder.Status.Failed), statuses);
+  }
+
+  public void testParallelCompilationPerformance() {
+    final List<String> bcs = createBCs(BC_COUNT);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final List<long[]> intervals = Collections.synchronizedList(new ArrayList<>());
+
+    // sequential compilation takes at least BC_COUNT * COMPILATION_MS plus process startup, the budget is scaled by machine speed;
+    // concurrency itself is checked by the compilation intervals below
+    PlatformTestUtil.startPerformanceTest("Parallel compilation of " + BC_COUNT + " BCs", BC_COUNT * COMPILATION_MS, () -> {
+      intervals.clear();
+      maxRunning.set(0);
+      final List<FlexBuilder.Status> statuses = new FlexParallelCompiler(myExecutor, 4).compile(bcs, bc -> {
+        final long start = System.nanoTime();
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          return runStubCompiler(bc);
+        }
+        finally {
+          running.decrementAndGet();
+          intervals.add(new long[]{start, System.nanoTime()});
+        }
+      });
+      assertFalse(statuses.contains(FlexBuilder.Status.Failed));
+    }).assertTiming();
+
+    assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 4);
+    assertEquals(BC_COUNT, intervals.size());
+    assertTrue("stub compilations didn't run concurrently", hasOverlappingIntervals(intervals));
+  }
+
+  private static boolean hasOverlappingIntervals(final List<long[]> intervals) {
+    for (int i = 0; i < intervals.size(); i++) {
+      for (int j = i + 1; j < intervals.size(); j++) {
+        if (intervals.get(i)[0] < intervals.get(j)[1] && intervals.get(j)[0] < intervals.get(i)[1]) return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,104 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public class FlexSourceFileStatesTest extends TestCase {
+  private File myDir;
+  private File myStorage;
+  private File mySource;
+  private File myOutput;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDir = FileUtil.createTempDirectory("flexFileStates", null);
+    myStorage = new File(myDir, "targetData/file-states.dat");
+    mySource = new File(myDir, "src/Main.as");
+    myOutput = new File(myDir, "out/Main.swf");
+    write(mySource, "package { public class Main {} }", 1000000000000L);
+    write(myOutput, "swf", 1000000000000L);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private static void write(final File file, final String text, final long timestamp) throws IOException {
+    FileUtil.writeToFile(file, text);
+    assertTrue(file.setLastModified(timestamp));
+  }
+
+  private List<String> outputs() {
+    return Collections.singletonList(myOutput.getPath());
+  }
+
+  private List<String> dirty() {
+    return Collections.singletonList(mySource.getPath());
+  }
+
+  // state is saved after compilation and loaded by the next build, as FlexBuilder does
+  private FlexSourceFileStates compileAndReload() {
+    final FlexSourceFileStates states = FlexSourceFileStates.load(myStorage);
+    states.update(dirty());
+    states.save();
+    return FlexSourceFileStates.load(myStorage);
+  }
+
+  public void testNothingDirty() {
+    assertNull(FlexBuilder.getRecompilationReason(outputs(), Collections.<String>emptyList(), FlexSourceFileStates.load(myStorage)));
+  }
+
+  public void testMissingOutput() {
+    assertTrue(myOutput.delete());
+    assertEquals("output file doesn't exist: " + myOutput.getPath(),
+                 FlexBuilder.getRecompilationReason(outputs(), Collections.<String>emptyList(), compileAndReload()));
+  }
+
+  public void testNotCompiledBefore() {
+    assertEquals("file changed: " + mySource.getPath(),
+                 FlexBuilder.getRecompilationReason(outputs(), dirty(), FlexSourceFileStates.load(myStorage)));
+  }
+
+  public void testTouchedWithoutChanges() throws IOException {
+    final FlexSourceFileStates states = compileAndReload();
+    write(mySource, "package { public class Main {} }", 1000000060000L);
+    assertNull(FlexBuilder.getRecompilationReason(outputs(), dirty(), states));
+  }
+
+  public void testChangedWithSameLength() throws IOException {
+    final FlexSourceFileStates states = compileAndReload();
+    write(mySource, "package { public class Mine {} }", 1000000060000L);
+    assertEquals("file changed: " + mySource.getPath(), FlexBuilder.getRecompilationReason(outputs(), dirty(), states));
+  }
+
+  public void testChangedLength() throws IOException {
+    final FlexSourceFileStates states = compileAndReload();
+    write(mySource, "package { public class Main { var i:int; } }", 1000000000000L);
+    assertEquals("file changed: " + mySource.getPath(), FlexBuilder.getRecompilationReason(outputs(), dirty(), states));
+  }
+
+  public void testDeleted() {
+    final FlexSourceFileStates states = compileAndReload();
+    assertTrue(mySource.delete());
+    assertEquals("file changed: " + mySource.getPath(), FlexBuilder.getRecompilationReason(outputs(), dirty(), states));
+  }
+
+  public void testCorruptedStorage() throws IOException {
+    compileAndReload();
+    FileUtil.writeToFile(myStorage, "garbage");
+    assertEquals("file changed: " + mySource.getPath(),
+                 FlexBuilder.getRecompilationReason(outputs(), dirty(), FlexSourceFileStates.load(myStorage)));
+  }
+}
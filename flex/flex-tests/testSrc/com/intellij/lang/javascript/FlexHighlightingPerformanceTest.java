@@ -1,11 +1,28 @@
 package com.intellij.lang.javascript;
 
 import com.intellij.flex.FlexTestUtils;
+import com.intellij.javascript.flex.css.FlexCssElementDescriptorProvider;
+import com.intellij.javascript.flex.mxml.schema.CodeContext;
 import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.extensions.Extensions;
 import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.roots.ex.ProjectRootManagerEx;
+import com.intellij.openapi.util.EmptyRunnable;
+import com.intellij.psi.css.CssDeclaration;
+import com.intellij.psi.css.CssElementDescriptorProvider;
+import com.intellij.psi.css.CssRuleset;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlTag;
 import com.intellij.testFramework.PlatformTestUtil;
 import com.intellij.util.ProfilingUtil;
 import com.intellij.util.ThrowableRunnable;
+import com.intellij.util.containers.ContainerUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
 
 public class FlexHighlightingPerformanceTest extends ActionScriptDaemonAnalyzerTestCase {
   @Override
@@ -41,6 +58,76 @@ public class FlexHighlightingPerformanceTest extends ActionScriptDaemonAnalyzerT
     }
   }
 
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithJsSupportLoader})
+  public void testConcurrentMxmlSchemaResolution() throws Exception {
+    doTestFor(true, "Performance.mxml", "UsingSwcStubs2.swc");
+    final Collection<XmlTag> tags = PsiTreeUtil.findChildrenOfType(myFile, XmlTag.class);
+
+    // roots change that doesn't touch libraries, SDK or build configuration must not drop code contexts
+    final CodeContext context = CodeContext.getContext(JavaScriptSupportLoader.MXML_URI, myModule);
+    makeRootsChange();
+    assertSame(context, CodeContext.getContext(JavaScriptSupportLoader.MXML_URI, myModule));
+
+    final int readers = Math.max(2, Runtime.getRuntime().availableProcessors());
+    PlatformTestUtil.startPerformanceTest("Mxml schema should be resolved fast by concurrent readers", 3000, () -> {
+      makeRootsChange();
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < readers; i++) {
+        futures.add(ApplicationManager.getApplication().executeOnPooledThread(
+          () -> ApplicationManager.getApplication().runReadAction(() -> resolveTags(tags))));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }).cpuBound().usesAllCPUCores().useLegacyScaling().assertTiming();
+  }
+
+  private void makeRootsChange() {
+    ApplicationManager.getApplication().runWriteAction(
+      () -> ProjectRootManagerEx.getInstanceEx(myProject).makeRootsChange(EmptyRunnable.getInstance(), false, true));
+  }
+
+  private void resolveTags(final Collection<XmlTag> tags) {
+    for (int i = 0; i < 100; i++) {
+      for (XmlTag tag : tags) {
+        CodeContext.getContext(tag.getNamespace(), myModule).getElementDescriptor(tag.getLocalName(), tag);
+      }
+    }
+  }
+
+  @JSTestOptions({JSTestOption.WithFlexFacet, JSTestOption.WithJsSupportLoader})
+  public void testCssStyleDescriptorsPerformance() throws Exception {
+    final String[] selectors = {"Application", "HBox", "VBox", "Panel", "Button", "List", "DataGrid", "TabBar"};
+    final String[] properties = {"disabledColor", "disabledSkin", "upSkin", "borderColor", "borderAlpha", "verticalAlign",
+      "kerning", "headerColors", "tabStyleName", "unknownProperty"};
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append(selectors[i % selectors.length]).append(" {\n");
+      for (int j = 0; j < 5; j++) {
+        text.append("  ").append(properties[(i + j) % properties.length]).append(": 1;\n");
+      }
+      text.append("}\n");
+    }
+    configureFromFileText("Big.css", text.toString());
+
+    final FlexCssElementDescriptorProvider provider =
+      ContainerUtil.findInstance(Extensions.getExtensions(CssElementDescriptorProvider.EP_NAME), FlexCssElementDescriptorProvider.class);
+    final Collection<CssRuleset> rulesets = PsiTreeUtil.findChildrenOfType(myFile, CssRuleset.class);
+    final Collection<CssDeclaration> declarations = PsiTreeUtil.findChildrenOfType(myFile, CssDeclaration.class);
+    assertEquals(5000, declarations.size());
+
+    PlatformTestUtil.startPerformanceTest("Flex CSS property descriptors should be found fast", 5000, () -> {
+      // completion
+      for (CssRuleset ruleset : rulesets) {
+        provider.getAllPropertyDescriptors(ruleset.getBlock());
+      }
+      // highlighting
+      for (CssDeclaration declaration : declarations) {
+        provider.findPropertyDescriptors(declaration.getPropertyName(), declaration);
+      }
+    }).cpuBound().useLegacyScaling().assertTiming();
+  }
+
   @Override
   protected ModuleType getModuleType() {
     return FlexModuleType.getInstance();
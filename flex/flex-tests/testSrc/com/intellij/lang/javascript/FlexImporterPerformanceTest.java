@@ -0,0 +1,53 @@
+package com.intellij.lang.javascript;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.lang.javascript.flex.importer.FlexImporter;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Decoding of library.swf from the biggest swc files of the importer test data, as done by SwfFileDecompiler.
+ * Both decoding time and bytes allocated per swf byte are checked.
+ */
+public class FlexImporterPerformanceTest extends TestCase {
+  private static final int ITERATIONS = 10;
+  private static final int MAX_ALLOCATED_PER_INPUT_BYTE = 100;
+
+  public void testPlayerGlobal() throws Exception {
+    doTest("PlayerGlobal10.swc", 3000);
+  }
+
+  public void testAirGlobal() throws Exception {
+    doTest("airglobal_1_5.swc", 3000);
+  }
+
+  public void testDataServices() throws Exception {
+    doTest("ds.swc", 3000);
+  }
+
+  private static void doTest(final String fileName, final int expectedMs) throws IOException {
+    final byte[] librarySwf = loadLibrarySwf(new File(FlexImporterTest.getTestDataPath() + fileName));
+    ThroughputTestUtil.assertThroughput("Decompile " + fileName, librarySwf.length * ITERATIONS, expectedMs, MAX_ALLOCATED_PER_INPUT_BYTE,
+                                        () -> {
+                                          for (int i = 0; i < ITERATIONS; i++) {
+                                            FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(librarySwf));
+                                          }
+                                        });
+  }
+
+  private static byte[] loadLibrarySwf(final File swc) throws IOException {
+    try (ZipFile zipFile = new ZipFile(swc)) {
+      final ZipEntry zipEntry = zipFile.getEntry("library.swf");
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        return FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
+      }
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.intellij.lang.javascript.flex.actions;
+
+import com.intellij.lang.javascript.flex.actions.airpackage.AdtPackageTask;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExternalTaskSchedulerTest extends TestCase {
+  private static final int PACKAGE_COUNT = 6;
+  private static final int PACKAGING_MS = 500;
+
+  /**
+   * Stub of ADT: 'packages' for the given number of milliseconds. Package file is not created if packaging failed -
+   * this is how {@link AdtPackageTask} distinguishes errors from warnings. In 'exclusive' mode packaging fails if another
+   * stub is writing the same package.
+   */
+  public static class StubAdt {
+    public static void main(String[] args) throws Exception {
+      final String mode = args[2];
+      final File lockFile = new File(args[1] + ".lock");
+      if ("exclusive".equals(mode) && !lockFile.createNewFile()) {
+        System.out.println("Error: package is being written by another process");
+        System.exit(2);
+      }
+
+      Thread.sleep(Integer.parseInt(args[0]));
+      if ("fail".equals(mode)) {
+        System.out.println("Error: stub packaging failed");
+        System.exit(2);
+      }
+
+      if ("warn".equals(mode)) {
+        System.out.println("Warning: stub warning 1");
+        System.out.println("Warning: stub warning 2");
+      }
+      final File packageFile = new File(args[1]);
+      FileUtil.writeToFile(packageFile, "package");
+      // make sure that timestamp is after the start of the task even on file systems with coarse timestamps
+      packageFile.setLastModified(System.currentTimeMillis() + 2000);
+      if ("exclusive".equals(mode)) {
+        FileUtil.delete(lockFile);
+      }
+    }
+  }
+
+  private static class StubAdtTask extends AdtPackageTask {
+    private final String myPackagePath;
+    private final String myMode;
+    private final int myPackagingMs;
+
+    StubAdtTask(final String packagePath, final String mode, final int packagingMs) {
+      super(null, null, packagePath);
+      myPackagePath = packagePath;
+      myMode = mode;
+      myPackagingMs = packagingMs;
+    }
+
+    @Override
+    protected List<String> createCommandLine() {
+      final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      return new ArrayList<>(Arrays.asList(java, "-cp", System.getProperty("java.class.path"), StubAdt.class.getName(),
+                                           String.valueOf(myPackagingMs), myPackagePath, myMode));
+    }
+
+    @Override
+    protected void appendAdtOptions(final List<String> command) {
+    }
+
+    // there is no application in this test, output is read as ExternalTask does, but on a plain thread
+    @Override
+    protected void scheduleInputStreamReading() {
+      new Thread(() -> {
+        try {
+          for (String line : StringUtil.splitByLines(FileUtil.loadTextAndClose(getProcess().getInputStream()))) {
+            myMessages.add(line);
+          }
+        }
+        catch (IOException e) {
+          myMessages.add(e.getMessage());
+        }
+        finally {
+          cancel();
+        }
+      }).start();
+    }
+  }
+
+  private File myOutputDir;
+  private int myPackageCount;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myOutputDir = FileUtil.createTempDirectory("airPackages", null);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myOutputDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  private List<StubAdtTask> createTasks(final int packagingMs, final String... modes) {
+    final List<StubAdtTask> tasks = new ArrayList<>();
+    for (String mode : modes) {
+      final File packageFile = new File(myOutputDir, "package" + myPackageCount++ + ".air");
+      tasks.add(new StubAdtTask(packageFile.getPath(), mode, packagingMs));
+    }
+    return tasks;
+  }
+
+  public void testMaxConcurrentTasks() {
+    final long mb = 1024L * 1024L;
+    assertEquals(8, ExternalTaskScheduler.getMaxConcurrentTasks(8, 8192 * mb, 512 * mb));
+    assertEquals(2, ExternalTaskScheduler.getMaxConcurrentTasks(8, 1100 * mb, 512 * mb));
+    assertEquals(1, ExternalTaskScheduler.getMaxConcurrentTasks(8, 100 * mb, 512 * mb));
+    assertEquals(4, ExternalTaskScheduler.getMaxConcurrentTasks(4, -1, 512 * mb));
+  }
+
+  public void testResultsInOrder() {
+    final List<StubAdtTask> tasks = createTasks(100, "ok", "warn", "fail", "ok", "warn");
+    final List<ExternalTaskScheduler.Result> results = new ExternalTaskScheduler(3).run(tasks, null);
+
+    assertEquals(tasks.size(), results.size());
+    final boolean[] expected = {true, true, false, true, true};
+    for (int i = 0; i < tasks.size(); i++) {
+      final ExternalTaskScheduler.Result result = results.get(i);
+      assertSame(tasks.get(i), result.task);
+      assertEquals(String.valueOf(i), expected[i], result.successful);
+      assertTrue(String.valueOf(result.durationMs), result.durationMs >= 100);
+    }
+
+    assertEquals(Arrays.asList("Warning: stub warning 1", "Warning: stub warning 2"), results.get(1).task.getMessages());
+    assertEquals(Arrays.asList("Warning: stub warning 1", "Warning: stub warning 2"), results.get(4).task.getMessages());
+    assertEquals(Arrays.asList("Error: stub packaging failed"), results.get(2).task.getMessages());
+    assertTrue(results.get(0).task.getMessages().isEmpty());
+  }
+
+  public void testCancel() {
+    final List<StubAdtTask> tasks = createTasks(20000, "ok", "ok", "ok", "ok");
+    final ProgressIndicator indicator = new EmptyProgressIndicator();
+    new Thread(() -> {
+      try {
+        Thread.sleep(500);
+      }
+      catch (InterruptedException ignored) {
+      }
+      indicator.cancel();
+    }).start();
+
+    final long start = System.currentTimeMillis();
+    final List<ExternalTaskScheduler.Result> results = new ExternalTaskScheduler(2).run(tasks, indicator);
+    assertTrue(System.currentTimeMillis() - start < 10000);
+    assertEquals(Arrays.asList(null, null, null, null), results);
+    assertTrue(tasks.get(0).isFinished());
+    assertFalse(tasks.get(2).isFinished());
+  }
+
+  public void testConcurrentPackagingPerformance() {
+    final String[] modes = new String[PACKAGE_COUNT];
+    Arrays.fill(modes, "ok");
+
+    long start = System.currentTimeMillis();
+    new ExternalTaskScheduler(1).run(createTasks(PACKAGING_MS, modes), null);
+    final long sequentialMs = System.currentTimeMillis() - start;
+
+    start = System.currentTimeMillis();
+    final List<ExternalTaskScheduler.Result> results = new ExternalTaskScheduler(3).run(createTasks(PACKAGING_MS, modes), null);
+    final long concurrentMs = System.currentTimeMillis() - start;
+
+    for (ExternalTaskScheduler.Result result : results) {
+      assertTrue(result.successful);
+    }
+    assertTrue(PACKAGE_COUNT + " stub ADT runs of " + PACKAGING_MS + " ms: " + sequentialMs + " ms sequentially, " +
+               concurrentMs + " ms with 3 at the same time", concurrentMs < sequentialMs);
+  }
+
+  public void testSamePackagePath() {
+    final String packagePath = new File(myOutputDir, "same.air").getPath();
+    final List<StubAdtTask> tasks = new ArrayList<>();
+    tasks.add(new StubAdtTask(packagePath, "exclusive", PACKAGING_MS));
+    tasks.addAll(createTasks(PACKAGING_MS, "exclusive"));
+    tasks.add(new StubAdtTask(packagePath, "exclusive", PACKAGING_MS));
+    tasks.add(new StubAdtTask(packagePath, "exclusive", PACKAGING_MS));
+
+    final long start = System.currentTimeMillis();
+    final List<ExternalTaskScheduler.Result> results = new ExternalTaskScheduler(4).run(tasks, null);
+    final long durationMs = System.currentTimeMillis() - start;
+
+    for (int i = 0; i < tasks.size(); i++) {
+      assertTrue(tasks.get(i).getMessages().toString(), results.get(i).successful);
+    }
+    assertTrue(String.valueOf(durationMs), durationMs >= 3 * PACKAGING_MS);
+  }
+}
@@ -0,0 +1,162 @@
+package com.intellij.lang.javascript.flex.build;
+
+import com.intellij.lang.javascript.flex.FlexModuleType;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.ModifiableFlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.impl.Factory;
+import com.intellij.openapi.compiler.CompileContext;
+import com.intellij.openapi.compiler.CompilerMessage;
+import com.intellij.openapi.module.ModuleType;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestCase;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+public class FlexCompilationManagerTest extends PlatformTestCase {
+
+  private final List<String> myStartedTasks = new ArrayList<>();
+  private final List<String> myCancelledTasks = new ArrayList<>();
+  private final List<String> myPostCompiledTasks = new ArrayList<>();
+  private final ProgressIndicator myProgressIndicator = new EmptyProgressIndicator();
+
+  /**
+   * Finishes (successfully or not) right in {@link #doStart(FlexCompilationManager)}, or keeps running until cancelled
+   * if the compilation is 'hanging'; a hanging task cancels the whole compilation.
+   */
+  private class StubTask extends FlexCompilationTask {
+    private final boolean myFails;
+    private final boolean myHangs;
+
+    private StubTask(final FlexBuildConfiguration bc,
+                     final boolean fails,
+                     final boolean hangs,
+                     final FlexBuildConfiguration... dependencies) {
+      super(myModule, bc, Arrays.asList(dependencies));
+      myFails = fails;
+      myHangs = hangs;
+    }
+
+    @Override
+    protected List<VirtualFile> createConfigFiles() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    protected void doStart(final FlexCompilationManager compilationManager) {
+      myStartedTasks.add(myBC.getName());
+
+      if (myHangs) {
+        myProgressIndicator.cancel();
+      }
+      else {
+        myCompilationFailed = myFails;
+        setFinished();
+      }
+    }
+
+    @Override
+    protected void doCancel() {
+      myCancelledTasks.add(myBC.getName());
+    }
+  }
+
+  @Override
+  protected ModuleType getModuleType() {
+    return FlexModuleType.getInstance();
+  }
+
+  private static FlexBuildConfiguration createBC(final String name) {
+    final ModifiableFlexBuildConfiguration bc = Factory.createBuildConfiguration();
+    bc.setName(name);
+    bc.setOutputFolder(FileUtil.getTempDirectory() + "/nonexistent");
+    bc.setOutputFileName(name + ".swf");
+    return bc;
+  }
+
+  private StubTask task(final FlexBuildConfiguration bc, final FlexBuildConfiguration... dependencies) {
+    return new StubTask(bc, false, false, dependencies);
+  }
+
+  private CompileContext createCompileContext() {
+    final ClassLoader classLoader = CompileContext.class.getClassLoader();
+    return (CompileContext)Proxy.newProxyInstance(classLoader, new Class[]{CompileContext.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getProject":
+          return myProject;
+        case "getProgressIndicator":
+          return myProgressIndicator;
+        case "isMake":
+          return true;
+        case "getMessages":
+          return new CompilerMessage[0];
+        default:
+          return null;
+      }
+    });
+  }
+
+  private void compile(final int maxParallelCompilations, final FlexCompilationTask... tasks) {
+    FlexCompilerProjectConfiguration.getInstance(myProject).MAX_PARALLEL_COMPILATIONS = maxParallelCompilations;
+
+    new FlexCompilationManager(createCompileContext(), Arrays.asList(tasks)) {
+      @Override
+      void performPostCompileActions(final FlexCompilationTask task, final List<String> compileInfoMessages) {
+        myPostCompiledTasks.add(task.getBC().getName());
+      }
+    }.compile();
+  }
+
+  public void testDependencyOrder() {
+    final FlexBuildConfiguration lib = createBC("lib");
+    final FlexBuildConfiguration module = createBC("module");
+    final FlexBuildConfiguration app = createBC("app");
+
+    compile(4, task(app, module, lib), task(module, lib), task(lib));
+
+    assertEquals(Arrays.asList("lib", "module", "app"), myStartedTasks);
+    assertEquals(myStartedTasks, myPostCompiledTasks);
+    assertEmpty(myCancelledTasks);
+  }
+
+  public void testCriticalPathFirst() {
+    final FlexBuildConfiguration leaf1 = createBC("leaf1");
+    final FlexBuildConfiguration leaf2 = createBC("leaf2");
+    final FlexBuildConfiguration lib = createBC("lib");
+    final FlexBuildConfiguration module = createBC("module");
+    final FlexBuildConfiguration app = createBC("app");
+
+    // without critical path priority leaf1 and leaf2 would take the only slot before the lib -> module -> app chain
+    compile(1, task(leaf1), task(leaf2), task(app, module), task(module, lib), task(lib));
+
+    assertEquals(Arrays.asList("lib", "module", "leaf1", "leaf2", "app"), myStartedTasks);
+  }
+
+  public void testFailedTaskSkipsDependentTasks() {
+    final FlexBuildConfiguration lib = createBC("lib");
+    final FlexBuildConfiguration module = createBC("module");
+    final FlexBuildConfiguration app = createBC("app");
+    final FlexBuildConfiguration other = createBC("other");
+
+    compile(1, new StubTask(lib, true, false), task(module, lib), task(app, module), task(other));
+
+    assertEquals(Arrays.asList("lib", "other"), myStartedTasks);
+    assertEquals(Collections.singletonList("other"), myPostCompiledTasks);
+    assertSameElements(myCancelledTasks, "module", "app");
+  }
+
+  public void testCancel() {
+    final FlexBuildConfiguration lib = createBC("lib");
+    final FlexBuildConfiguration hanging = createBC("hanging");
+    final FlexBuildConfiguration app = createBC("app");
+
+    compile(2, task(lib), new StubTask(hanging, false, true, lib), task(app, hanging));
+
+    assertEquals(Arrays.asList("lib", "hanging"), myStartedTasks);
+    assertEquals(Collections.singletonList("hanging"), myCancelledTasks);
+    assertEquals(Collections.singletonList("lib"), myPostCompiledTasks);
+  }
+}
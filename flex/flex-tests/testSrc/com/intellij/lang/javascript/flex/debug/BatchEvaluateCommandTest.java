@@ -0,0 +1,54 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.flex.FlexTestUtils;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchEvaluateCommandTest extends TestCase {
+
+  /**
+   * Hand-written output of <code>batchprint #61771683.length;;#61771683.fixed;;#61771681.;;this.missingField;;xml.toXMLString();;1/</code>
+   * in the format of DebugCLI.doBatchPrint(): 'print' output of each expression, preceded by a header with its length
+   */
+  public void testBatchPrintOutput() throws Exception {
+    final String output = FileUtil.loadFile(new File(FlexTestUtils.getTestDataPath("debugger/batchPrint.txt"))).trim();
+    final List<String> results = BatchEvaluateCommand.parseResults(output, 6);
+
+    assertEquals("$7 = 3 (0x3)", results.get(0));
+    assertEquals("$8 = false", results.get(1));
+    assertEquals("$9 = [Object 61771681, class='__AS3__.vec::Vector.<String>']\n" +
+                 "  0 = \"first\"\n" +
+                 "  1 = \"batch 2 ok 4\"\n" +
+                 "  fixed = false\n" +
+                 "  length = 2 (0x2)", results.get(2));
+    assertNull(results.get(3));
+    assertEquals("$10 = \"<root attr=\\\"value\\\">\n  <child/>\n</root>\"", results.get(4));
+    assertNull(results.get(5));
+
+    assertEquals("3 (0x3)", BatchEvaluateCommand.getPrintedValue(results.get(0)));
+    assertEquals("false", BatchEvaluateCommand.getPrintedValue(results.get(1)));
+    assertNull(BatchEvaluateCommand.getPrintedValue(results.get(3)));
+  }
+
+  public void testWindowsLineSeparators() throws Exception {
+    final String output = "batch 0 ok 12\r\n$1 = 5 (0x5)\r\nbatch 1 ok 19\r\n$2 = \"line1\r\nline2\"\r\nbatch end";
+    assertEquals(Arrays.asList("$1 = 5 (0x5)", "$2 = \"line1\r\nline2\""), BatchEvaluateCommand.parseResults(output, 2));
+  }
+
+  public void testTruncatedOutput() throws Exception {
+    final String output = "batch 0 ok 12\n$1 = 5 (0x5)\nbatch 1 ok 300\n$2 = \"cut";
+    assertEquals(Arrays.asList("$1 = 5 (0x5)", null, null), BatchEvaluateCommand.parseResults(output, 3));
+    assertEquals(Arrays.asList(null, null), BatchEvaluateCommand.parseResults("Player session terminated", 2));
+  }
+
+  public void testCanBeBatched() throws Exception {
+    assertTrue(BatchEvaluateCommand.canBeBatched("this.items.length"));
+    assertTrue(BatchEvaluateCommand.canBeBatched("#61771681.toXMLString()"));
+    assertFalse(BatchEvaluateCommand.canBeBatched("a = 1"));
+    assertFalse(BatchEvaluateCommand.canBeBatched("dict[\"a;;b\"].length"));
+  }
+}
@@ -0,0 +1,364 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.FlexCommonUtils;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jps.service.SharedThreadPool;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One built-in compiler process (com.intellij.flex.compiler.FlexCompiler) and the socket connection to it.
+ * Several compilations may run in the process at the same time: each command is sent with a unique numeric prefix,
+ * and the process prefixes all output of the compilation with it.
+ */
+class BuiltInFlexCompilerProcess {
+
+  private static final Logger LOG = Logger.getInstance(BuiltInFlexCompilerProcess.class.getName());
+  private static final String CONNECTION_SUCCESSFUL = "Connection successful";
+  private static final String MEMORY_USAGE_MARKER = "memory: ";
+
+  interface Callback {
+    /**
+     * Called in the thread that reads compiler output, not under the lock of the process
+     */
+    void compilationFinished(BuiltInFlexCompilerProcess process);
+
+    /**
+     * Called when the connection to the process is lost unexpectedly
+     */
+    void terminated(BuiltInFlexCompilerProcess process);
+  }
+
+  private final int myId;
+  private final Callback myCallback;
+
+  private ServerSocket myServerSocket;
+  private Process myProcess;
+  private DataInputStream myDataInputStream;
+  private DataOutputStream myDataOutputStream;
+
+  private int myCommandNumber = 1;
+  private final Map<String, JpsBuiltInFlexCompilerHandler.Listener> myActiveListeners =
+    new THashMap<String, JpsBuiltInFlexCompilerHandler.Listener>();
+  private final Map<String, Long> myStartTimes = new THashMap<String, Long>();
+
+  private final long myCreationTime = System.currentTimeMillis();
+  private int myFinishedCompilations;
+  private long myTotalCompilationTime;
+  private long myUsedMemory = -1;
+  private long myMaxMemory = -1;
+
+  BuiltInFlexCompilerProcess(final int id, final Callback callback) {
+    myId = id;
+    myCallback = callback;
+  }
+
+  /**
+   * @param commandLine command line without the last parameter, which is the port to connect to
+   * @param errorConsumer receives the output of the process if it fails to connect
+   */
+  synchronized void start(final List<String> commandLine,
+                          @Nullable final File workDir,
+                          final Consumer<String> errorConsumer) throws IOException {
+    try {
+      myServerSocket = new ServerSocket(0);
+      myServerSocket.setSoTimeout(10000);
+
+      final List<String> commandLineWithPort = new ArrayList<String>(commandLine);
+      commandLineWithPort.add(String.valueOf(myServerSocket.getLocalPort()));
+
+      final ProcessBuilder processBuilder = new ProcessBuilder(commandLineWithPort);
+      processBuilder.redirectErrorStream(true);
+      processBuilder.directory(workDir);
+      myProcess = processBuilder.start();
+      readInputStreamUntilConnected(myProcess, errorConsumer);
+
+      final Socket socket = myServerSocket.accept();
+      myDataInputStream = new DataInputStream(socket.getInputStream());
+      myDataOutputStream = new DataOutputStream(socket.getOutputStream());
+      scheduleInputReading();
+    }
+    catch (IOException e) {
+      stop(false);
+      throw e;
+    }
+  }
+
+  private void readInputStreamUntilConnected(final Process process, final Consumer<String> errorConsumer) {
+    SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
+      public void run() {
+        final InputStreamReader reader = FlexCommonUtils.createInputStreamReader(process.getInputStream());
+
+        try {
+          char[] buf = new char[1024];
+          int read;
+          while ((read = reader.read(buf, 0, buf.length)) >= 0) {
+            final String output = new String(buf, 0, read);
+            if (output.startsWith(CONNECTION_SUCCESSFUL)) {
+              break;
+            }
+            else {
+              closeSocket();
+              errorConsumer.consume(output);
+            }
+          }
+        }
+        catch (IOException e) {
+          closeSocket();
+          errorConsumer.consume("Failed to start Flex compiler: " + e.toString());
+        }
+        finally {
+          try {
+            reader.close();
+          }
+          catch (IOException e) {/*ignore*/}
+        }
+      }
+    });
+  }
+
+  private void scheduleInputReading() {
+    SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
+      public void run() {
+        final StringBuilder buffer = new StringBuilder();
+        while (true) {
+          final DataInputStream dataInputStream = myDataInputStream;
+          if (dataInputStream != null) {
+            try {
+              buffer.append(dataInputStream.readUTF());
+
+              int index;
+              while ((index = buffer.indexOf("\n")) > -1) {
+                final String line = buffer.substring(0, index);
+                buffer.delete(0, index + 1);
+                handleInputLine(line);
+              }
+            }
+            catch (IOException e) {
+              if (dataInputStream == myDataInputStream) {
+                stop(true);
+              }
+              break;
+            }
+          }
+          else {
+            break;
+          }
+        }
+      }
+    });
+  }
+
+  private void handleInputLine(final String line) {
+    if (doHandleInputLine(line)) {
+      myCallback.compilationFinished(this);
+    }
+  }
+
+  /**
+   * @return {@code true} if a compilation has finished
+   */
+  private synchronized boolean doHandleInputLine(final String line) {
+    LOG.debug("RECEIVED from compiler #" + myId + ": [" + line + "]");
+
+    final int colonPos = line.indexOf(":");
+    if (colonPos <= 0) {
+      LOG.error("Incorrect command: [" + line + "]");
+      return false;
+    }
+
+    final String prefix = line.substring(0, colonPos + 1);
+    final JpsBuiltInFlexCompilerHandler.Listener listener = myActiveListeners.get(prefix);
+    if (listener == null) {
+      LOG.warn("No active listener for input line: [" + line + "]");  // could be message from cancelled compilation
+    }
+    else {
+      final String text = line.substring(colonPos + 1);
+      if (text.startsWith(JpsBuiltInFlexCompilerHandler.COMPILATION_FINISHED)) {
+        updateMemoryUsage(text);
+        final Long startTime = myStartTimes.remove(prefix);
+        if (startTime != null) {
+          myFinishedCompilations++;
+          myTotalCompilationTime += System.currentTimeMillis() - startTime;
+        }
+        myActiveListeners.remove(prefix);
+        listener.compilationFinished();
+        return true;
+      }
+
+      listener.textAvailable(text);
+    }
+    return false;
+  }
+
+  /**
+   * Newer compiler processes report heap usage after each compilation: "Compilation finished memory: used/max"
+   */
+  private void updateMemoryUsage(final String text) {
+    final int index = text.indexOf(MEMORY_USAGE_MARKER);
+    if (index < 0) return;
+
+    final String usage = text.substring(index + MEMORY_USAGE_MARKER.length()).trim();
+    final int slashIndex = usage.indexOf('/');
+    if (slashIndex < 0) return;
+
+    try {
+      myUsedMemory = Long.parseLong(usage.substring(0, slashIndex));
+      myMaxMemory = Long.parseLong(usage.substring(slashIndex + 1));
+    }
+    catch (NumberFormatException e) {
+      LOG.warn("Unexpected memory usage: [" + text + "]");
+    }
+  }
+
+  synchronized void sendCompilationCommand(final String command, final JpsBuiltInFlexCompilerHandler.Listener listener) {
+    if (myDataOutputStream == null) {
+      listener.textAvailable("Error: Compiler process is not started.");
+      listener.compilationFinished();
+      return;
+    }
+
+    try {
+      final String prefix = String.valueOf(myCommandNumber++) + ":";
+      final String commandToSend = prefix + command + "\n";
+      LOG.debug("SENDING to compiler #" + myId + ": [" + commandToSend + "]");
+      myDataOutputStream.writeUTF(commandToSend);
+      myActiveListeners.put(prefix, listener);
+      myStartTimes.put(prefix, System.currentTimeMillis());
+    }
+    catch (IOException e) {
+      listener.textAvailable("Error: Can't start compilation: " + e.toString());
+      listener.compilationFinished();
+    }
+  }
+
+  synchronized boolean removeListener(final JpsBuiltInFlexCompilerHandler.Listener listener) {
+    String toRemove = null;
+    for (final Map.Entry<String, JpsBuiltInFlexCompilerHandler.Listener> entry : myActiveListeners.entrySet()) {
+      if (entry.getValue() == listener) {
+        toRemove = entry.getKey();
+        break;
+      }
+    }
+
+    if (toRemove != null) {
+      myActiveListeners.remove(toRemove);
+      myStartTimes.remove(toRemove);
+      return true;
+    }
+    return false;
+  }
+
+  synchronized int getActiveCompilationsNumber() {
+    return myActiveListeners.size();
+  }
+
+  synchronized int getFinishedCompilationsNumber() {
+    return myFinishedCompilations;
+  }
+
+  /**
+   * Health check: the socket is connected and the process has not exited.
+   */
+  synchronized boolean isAlive() {
+    if (myDataOutputStream == null || myProcess == null) return false;
+
+    try {
+      myProcess.exitValue();
+      return false;
+    }
+    catch (IllegalThreadStateException e) {
+      return true; // still running
+    }
+  }
+
+  /**
+   * @return used heap of the process as a fraction of its max heap, or -1 if the process hasn't reported memory usage
+   */
+  synchronized double getMemoryUsage() {
+    return myUsedMemory < 0 || myMaxMemory <= 0 ? -1 : (double)myUsedMemory / myMaxMemory;
+  }
+
+  synchronized String getStatistics() {
+    final long lifetime = Math.max(1, System.currentTimeMillis() - myCreationTime);
+    return "compiler #" + myId + ": " + myFinishedCompilations + " compilations in " + lifetime / 1000 + " s, " +
+           (myFinishedCompilations == 0 ? "" : "average " + myTotalCompilationTime / myFinishedCompilations + " ms, ") +
+           "throughput " + myFinishedCompilations * 60000 / lifetime + " per minute" +
+           (myUsedMemory < 0 ? "" : ", heap " + myUsedMemory / (1024 * 1024) + " of " + myMaxMemory / (1024 * 1024) + " MB");
+  }
+
+  /**
+   * @param reportError whether to report an error to active compilations, that is, whether the process is stopped unexpectedly
+   */
+  void stop(final boolean reportError) {
+    final List<JpsBuiltInFlexCompilerHandler.Listener> listeners;
+    synchronized (this) {
+      if (myServerSocket == null && myDataOutputStream == null && myProcess == null) return;
+
+      LOG.info("Stopping built-in " + getStatistics());
+      listeners = new ArrayList<JpsBuiltInFlexCompilerHandler.Listener>(myActiveListeners.values());
+      myActiveListeners.clear();
+      myStartTimes.clear();
+      if (myProcess != null && myDataOutputStream == null) {
+        myProcess.destroy(); // hasn't connected, so won't notice that the socket is closed
+      }
+      closeSocket();
+      myProcess = null; // connected process exits when socket closes
+    }
+
+    for (JpsBuiltInFlexCompilerHandler.Listener listener : listeners) {
+      if (reportError) {
+        listener.textAvailable("Error: Compilation terminated");
+      }
+      listener.compilationFinished();
+    }
+
+    if (reportError) {
+      myCallback.terminated(this);
+    }
+  }
+
+  private synchronized void closeSocket() {
+    // compiler process exits when socket closes, so it's enough just to close streams
+
+    if (myDataInputStream != null) {
+      try {
+        myDataInputStream.close();
+      }
+      catch (IOException ignored) {/**/}
+    }
+
+    if (myDataOutputStream != null) {
+      try {
+        myDataOutputStream.close();
+      }
+      catch (IOException ignored) {/**/}
+    }
+
+    if (myServerSocket != null) {
+      try {
+        myServerSocket.close();
+      }
+      catch (IOException ignored) {/**/}
+    }
+
+    myServerSocket = null;
+    myDataInputStream = null;
+    myDataOutputStream = null;
+  }
+
+  @NotNull
+  @Override
+  public String toString() {
+    return "compiler #" + myId;
+  }
+}
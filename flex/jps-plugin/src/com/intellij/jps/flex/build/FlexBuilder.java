@@ -20,6 +20,7 @@ import com.intellij.util.Function;
 import com.intellij.util.PathUtilRt;
 import com.intellij.util.concurrency.Semaphore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.builders.BuildOutputConsumer;
 import org.jetbrains.jps.builders.BuildRootDescriptor;
 import org.jetbrains.jps.builders.DirtyFilesHolder;
@@ -48,7 +49,7 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   private static Logger LOG = Logger.getInstance(FlexBuilder.class.getName());
   private JpsBuiltInFlexCompilerHandler myBuiltInCompilerHandler;
 
-  private enum Status {Ok, Failed, Cancelled}
+  enum Status {Ok, Failed, Cancelled}
 
   protected FlexBuilder() {
     super(Collections.singletonList(FlexBuildTargetType.INSTANCE));
@@ -63,15 +64,27 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
   @Override
   public void buildStarted(final CompileContext context) {
     super.buildStarted(context);
-    myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler(context.getProjectDescriptor().getProject());
+
+    final JpsProject project = context.getProjectDescriptor().getProject();
+    // compiler processes are kept between builds of the same project in the same build process
+    if (myBuiltInCompilerHandler != null && myBuiltInCompilerHandler.canBeReusedForProject(project)) {
+      myBuiltInCompilerHandler.setProject(project);
+    }
+    else {
+      if (myBuiltInCompilerHandler != null) {
+        myBuiltInCompilerHandler.stopCompilerProcess();
+      }
+      myBuiltInCompilerHandler = new JpsBuiltInFlexCompilerHandler(project);
+    }
   }
 
   @Override
   public void buildFinished(final CompileContext context) {
     LOG.assertTrue(myBuiltInCompilerHandler.getActiveCompilationsNumber() == 0,
                    myBuiltInCompilerHandler.getActiveCompilationsNumber() + " Flex compilation(s) are not finished!");
-    myBuiltInCompilerHandler.stopCompilerProcess();
-    myBuiltInCompilerHandler = null;
+    for (String statistics : myBuiltInCompilerHandler.getStatistics()) {
+      LOG.info("Built-in " + statistics);
+    }
 
     FlexCommonUtils.deleteTempFlexConfigFiles(context.getProjectDescriptor().getProject().getName());
 
@@ -111,56 +124,120 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
 
     final List<JpsFlexBuildConfiguration> bcsToCompile = getAllBCsToCompile(mainBC);
 
+    final FlexSourceFileStates fileStates = FlexSourceFileStates.load(getFileStatesStorage(context, buildTarget));
+
     if (!FlexCommonUtils.isFlexUnitBC(mainBC) && !isFlexmojosBCWithUpdatedConfigFile(mainBC)) {
-      if (dirtyFilePaths.isEmpty()) {
-        boolean outputFilesExist = true;
-
-        for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-          if (!new File(bc.getActualOutputFilePath()).isFile()) {
-            outputFilesExist = false;
-            LOG.debug("recompile because output file doesn't exist: " + bc.getActualOutputFilePath());
-            break;
-          }
-        }
+      final List<String> outputFilePaths = new ArrayList<String>(bcsToCompile.size());
+      for (JpsFlexBuildConfiguration bc : bcsToCompile) {
+        outputFilePaths.add(bc.getActualOutputFilePath());
+      }
 
-        if (outputFilesExist) {
-          return;
-        }
+      final String recompilationReason = getRecompilationReason(outputFilePaths, dirtyFilePaths, fileStates);
+      if (recompilationReason == null) {
+        LOG.debug("output files exist, content of dirty files has not changed");
+        return;
       }
-      else if (mainBC.getNature().isApp() && isOnlyWrapperFilesDirty(mainBC, dirtyFilePaths)) {
+
+      if (!dirtyFilePaths.isEmpty() && mainBC.getNature().isApp() && isOnlyWrapperFilesDirty(mainBC, dirtyFilePaths)) {
         LOG.debug("only wrapper files dirty");
         FlexBuilderUtils.performPostCompileActions(context, mainBC, dirtyFilePaths, outputConsumer);
+        fileStates.update(dirtyFilePaths);
+        fileStates.save();
         return;
       }
+
+      LOG.debug(buildTarget.getId() + " needs compilation: " + recompilationReason);
+      context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(mainBC), BuildMessage.Kind.INFO,
+                                                 FlexCommonBundle.message("recompilation.reason", recompilationReason)));
     }
 
-    for (JpsFlexBuildConfiguration bc : bcsToCompile) {
-      final Status status = compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
-
-      switch (status) {
-        case Ok:
-          outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
-          FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.successful")));
-          break;
-
-        case Failed:
-          final String message = bc.getOutputType() == OutputType.Application
-                                 ? FlexCommonBundle.message("compilation.failed")
-                                 : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
-          context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
-
-          throw new StopBuildException();
-
-        case Cancelled:
-          context.processMessage(
-            new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
-                                FlexCommonBundle.message("compilation.cancelled")));
-          return;
+    // RLMs and runtime stylesheets depend only on the main BC (RLM optimization uses its link report), so they are compiled in parallel
+    final Status mainStatus = compileBuildConfiguration(context, mainBC, myBuiltInCompilerHandler);
+    if (!handleCompilationStatus(context, mainBC, mainBC, mainStatus, dirtyFilePaths, outputConsumer)) return;
+
+    if (bcsToCompile.size() == 1) {
+      fileStates.update(dirtyFilePaths);
+      fileStates.save();
+      return;
+    }
+
+    final List<JpsFlexBuildConfiguration> dependentBCs = bcsToCompile.subList(1, bcsToCompile.size());
+    final int maxParallelCompilations =
+      FlexParallelCompiler.getMaxParallelCompilations(mainBC.getModule().getProject(), isBuiltInCompiler(mainBC, myBuiltInCompilerHandler));
+    final List<Status> statuses = new FlexParallelCompiler(FlexParallelCompiler.SHARED_THREAD_POOL, maxParallelCompilations)
+      .compile(dependentBCs, new Function<JpsFlexBuildConfiguration, Status>() {
+        @Override
+        public Status fun(final JpsFlexBuildConfiguration bc) {
+          if (context.getCancelStatus().isCanceled()) return Status.Cancelled;
+          return compileBuildConfiguration(context, bc, myBuiltInCompilerHandler);
+        }
+      });
+
+    // post-compile actions and messages follow the order of BCs, as with sequential compilation
+    for (int i = 0; i < dependentBCs.size(); i++) {
+      if (!handleCompilationStatus(context, mainBC, dependentBCs.get(i), statuses.get(i), dirtyFilePaths, outputConsumer)) return;
+    }
+
+    fileStates.update(dirtyFilePaths);
+    fileStates.save();
+  }
+
+  private static File getFileStatesStorage(final CompileContext context, final FlexBuildTarget target) {
+    return new File(context.getProjectDescriptor().dataManager.getDataPaths().getTargetDataRoot(target), "file-states.dat");
+  }
+
+  /**
+   * Dirty files are compared with their state at the last compilation of the target, so that files touched without changes
+   * (VCS update, restore from backup) don't cause recompilation.
+   *
+   * @return description of the change that requires compilation, or {@code null} if all output files exist and nothing has changed
+   */
+  @Nullable
+  static String getRecompilationReason(final Collection<String> outputFilePaths,
+                                       final Collection<String> dirtyFilePaths,
+                                       final FlexSourceFileStates fileStates) {
+    for (String outputFilePath : outputFilePaths) {
+      if (!new File(outputFilePath).isFile()) {
+        return "output file doesn't exist: " + outputFilePath;
       }
     }
+
+    return dirtyFilePaths.isEmpty() ? null : fileStates.getChange(dirtyFilePaths);
+  }
+
+  /**
+   * @return {@code false} if the build of this target should not continue
+   * @throws StopBuildException if compilation failed
+   */
+  private static boolean handleCompilationStatus(final CompileContext context,
+                                                 final JpsFlexBuildConfiguration mainBC,
+                                                 final JpsFlexBuildConfiguration bc,
+                                                 final Status status,
+                                                 final Collection<String> dirtyFilePaths,
+                                                 final BuildOutputConsumer outputConsumer) throws ProjectBuildException, IOException {
+    switch (status) {
+      case Ok:
+        outputConsumer.registerOutputFile(new File(mainBC.getActualOutputFilePath()), dirtyFilePaths);
+        FlexBuilderUtils.performPostCompileActions(context, bc, dirtyFilePaths, outputConsumer);
+        context.processMessage(
+          new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                              FlexCommonBundle.message("compilation.successful")));
+        return true;
+
+      case Failed:
+        final String message = bc.getOutputType() == OutputType.Application
+                               ? FlexCommonBundle.message("compilation.failed")
+                               : FlexCommonBundle.message("compilation.failed.dependent.will.be.skipped");
+        context.processMessage(new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO, message));
+
+        throw new StopBuildException();
+
+      case Cancelled:
+        context.processMessage(
+          new CompilerMessage(FlexBuilderUtils.getCompilerName(bc), BuildMessage.Kind.INFO,
+                              FlexCommonBundle.message("compilation.cancelled")));
+    }
+    return false;
   }
 
   /**
@@ -355,16 +432,12 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     final JpsSdk<?> sdk = bc.getSdk();
     assert sdk != null;
 
-    final boolean asc20 = bc.isPureAs() &&
-                          FlexCommonUtils.containsASC20(sdk.getHomePath()) &&
-                          (JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).PREFER_ASC_20 ||
-                           FlexCommonUtils.isAirSdkWithoutFlex(sdk));
-    final boolean builtIn = !asc20 &&
-                            JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER &&
-                            builtInCompilerHandler.canBeUsedForSdk(sdk.getHomePath());
+    final boolean asc20 = isASC20(bc);
 
-    if (builtIn) {
-      return doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+    if (isBuiltInCompiler(bc, builtInCompilerHandler)) {
+      final Status status = doCompileWithBuiltInCompiler(context, bc, configFiles, compilerName, builtInCompilerHandler);
+      if (status != null) return status;
+      // otherwise built-in compiler is busy with compilations for another SDK, use external compiler process
     }
 
     final List<String> compilerCommand = asc20 ? getASC20Command(bc.getModule().getProject(), sdk, app)
@@ -394,13 +467,39 @@ public class FlexBuilder extends TargetBuilder<BuildRootDescriptor, FlexBuildTar
     }
   }
 
+  private static boolean isASC20(final JpsFlexBuildConfiguration bc) {
+    final JpsSdk<?> sdk = bc.getSdk();
+    assert sdk != null;
+
+    return bc.isPureAs() &&
+           FlexCommonUtils.containsASC20(sdk.getHomePath()) &&
+           (JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).PREFER_ASC_20 ||
+            FlexCommonUtils.isAirSdkWithoutFlex(sdk));
+  }
+
+  private static boolean isBuiltInCompiler(final JpsFlexBuildConfiguration bc,
+                                           final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
+    final JpsSdk<?> sdk = bc.getSdk();
+    assert sdk != null;
+
+    return !isASC20(bc) &&
+           JpsFlexCompilerProjectExtension.getInstance(bc.getModule().getProject()).USE_BUILT_IN_COMPILER &&
+           builtInCompilerHandler.canBeUsedForSdk(sdk.getHomePath());
+  }
+
+  /**
+   * @return {@code null} if built-in compiler process is busy with compilations for another SDK
+   */
+  @Nullable
   private static Status doCompileWithBuiltInCompiler(final CompileContext context,
                                                      final JpsFlexBuildConfiguration bc,
                                                      final List<File> configFiles,
                                                      final String compilerName,
                                                      final JpsBuiltInFlexCompilerHandler builtInCompilerHandler) {
     try {
-      builtInCompilerHandler.startCompilerIfNeeded(bc.getSdk(), context, compilerName);
+      if (!builtInCompilerHandler.startCompilerIfNeeded(bc.getSdk(), context, compilerName)) {
+        return null;
+      }
     }
     catch (IOException e) {
       context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, e.toString()));
@@ -0,0 +1,116 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.flex.FlexCommonUtils;
+import com.intellij.flex.model.JpsFlexCompilerProjectExtension;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.model.JpsProject;
+import org.jetbrains.jps.service.SharedThreadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compiles build configurations that don't depend on each other (RLMs and runtime stylesheets of an already compiled app)
+ * with up to {@code maxParallelCompilations} compilations running at the same time.
+ */
+class FlexParallelCompiler {
+
+  private static final Logger LOG = Logger.getInstance(FlexParallelCompiler.class.getName());
+
+  static final Executor SHARED_THREAD_POOL = new Executor() {
+    @Override
+    public void execute(@NotNull final Runnable runnable) {
+      SharedThreadPool.getInstance().executeOnPooledThread(runnable);
+    }
+  };
+
+  private final Executor myExecutor;
+  private final int myMaxParallelCompilations;
+
+  FlexParallelCompiler(final Executor executor, final int maxParallelCompilations) {
+    myExecutor = executor;
+    myMaxParallelCompilations = Math.max(1, maxParallelCompilations);
+  }
+
+  /**
+   * The limit is {@link JpsFlexCompilerProjectExtension#MAX_PARALLEL_COMPILATIONS}. Each external compiler process takes up to
+   * {@link JpsFlexCompilerProjectExtension#HEAP_SIZE_MB}, so for external compilers it is also limited by free physical memory.
+   * Compilations in the built-in compiler run in a single process and share its heap.
+   */
+  static int getMaxParallelCompilations(final JpsProject project, final boolean builtInCompiler) {
+    final JpsFlexCompilerProjectExtension extension = JpsFlexCompilerProjectExtension.getInstance(project);
+    final int maxParallelCompilations = Math.max(1, extension.MAX_PARALLEL_COMPILATIONS);
+    if (builtInCompiler) return maxParallelCompilations;
+
+    final long freeMemory = FlexCommonUtils.getFreePhysicalMemory();
+    if (freeMemory <= 0) return maxParallelCompilations;
+
+    final long heapSize = Math.max(1, extension.HEAP_SIZE_MB) * 1024L * 1024L;
+    return (int)Math.max(1, Math.min(maxParallelCompilations, freeMemory / heapSize));
+  }
+
+  /**
+   * Blocks until all compilations are finished.
+   *
+   * @return statuses in the order of {@code bcs}
+   */
+  <T> List<FlexBuilder.Status> compile(final List<T> bcs, final Function<T, FlexBuilder.Status> compiler) {
+    final FlexBuilder.Status[] statuses = new FlexBuilder.Status[bcs.size()];
+
+    if (myMaxParallelCompilations == 1 || bcs.size() == 1) {
+      for (int i = 0; i < bcs.size(); i++) {
+        statuses[i] = compiler.fun(bcs.get(i));
+      }
+      return Arrays.asList(statuses);
+    }
+
+    final long start = System.currentTimeMillis();
+    final Semaphore freeSlots = new Semaphore(myMaxParallelCompilations);
+    final CountDownLatch finished = new CountDownLatch(bcs.size());
+
+    for (int i = 0; i < bcs.size(); i++) {
+      final int index = i;
+      final T bc = bcs.get(i);
+
+      freeSlots.acquireUninterruptibly();
+      myExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            statuses[index] = compiler.fun(bc);
+          }
+          catch (Throwable t) {
+            LOG.error(t);
+            statuses[index] = FlexBuilder.Status.Failed;
+          }
+          finally {
+            freeSlots.release();
+            finished.countDown();
+          }
+        }
+      });
+    }
+
+    try {
+      finished.await();
+    }
+    catch (InterruptedException e) {
+      LOG.warn(e);
+    }
+
+    LOG.debug(bcs.size() + " compilations with up to " + myMaxParallelCompilations + " in parallel took " +
+              (System.currentTimeMillis() - start) + " ms");
+
+    final List<FlexBuilder.Status> result = new ArrayList<FlexBuilder.Status>(statuses.length);
+    for (FlexBuilder.Status status : statuses) {
+      result.add(status == null ? FlexBuilder.Status.Cancelled : status);
+    }
+    return result;
+  }
+}
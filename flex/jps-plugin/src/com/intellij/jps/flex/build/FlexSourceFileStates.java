@@ -0,0 +1,184 @@
+package com.intellij.jps.flex.build;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import gnu.trove.THashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Timestamp, length and content hash of the files of a Flex build target as they were when the target was compiled last time.
+ * Stored in the target data directory, so it survives restarts of the build process and of the IDE.
+ * <p/>
+ * A file reported as dirty whose content has not changed (touched by VCS update, restored from backup, regenerated with the same
+ * content) is not a reason to recompile. Content hash is computed only for dirty files, and only if timestamp or length differ.
+ */
+class FlexSourceFileStates {
+
+  private static final Logger LOG = Logger.getInstance(FlexSourceFileStates.class.getName());
+  private static final int VERSION = 1;
+
+  private final File myStorageFile;
+  private final Map<String, FileState> myStates = new THashMap<String, FileState>(); // path -> state
+
+  private FlexSourceFileStates(final File storageFile) {
+    myStorageFile = storageFile;
+  }
+
+  static FlexSourceFileStates load(final File storageFile) {
+    final FlexSourceFileStates result = new FlexSourceFileStates(storageFile);
+    if (!storageFile.isFile()) return result;
+
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(storageFile)));
+      if (in.readInt() == VERSION) {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          result.myStates.put(in.readUTF(), new FileState(in.readLong(), in.readLong(), in.readUTF()));
+        }
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Failed to load " + storageFile.getPath(), e);
+      result.myStates.clear();
+    }
+    finally {
+      close(in);
+    }
+    return result;
+  }
+
+  void save() {
+    DataOutputStream out = null;
+    try {
+      FileUtil.createParentDirs(myStorageFile);
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myStorageFile)));
+      out.writeInt(VERSION);
+      out.writeInt(myStates.size());
+      for (Map.Entry<String, FileState> entry : myStates.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeLong(entry.getValue().myTimestamp);
+        out.writeLong(entry.getValue().myLength);
+        out.writeUTF(entry.getValue().myHash);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Failed to save " + myStorageFile.getPath(), e);
+      close(out);
+      FileUtil.delete(myStorageFile);
+    }
+    finally {
+      close(out);
+    }
+  }
+
+  /**
+   * @return description of the first dirty file whose content is not the same as at the last compilation,
+   *         or {@code null} if content of all dirty files is the same
+   */
+  @Nullable
+  String getChange(final Collection<String> dirtyFilePaths) {
+    for (String path : dirtyFilePaths) {
+      final FileState state = myStates.get(path);
+      if (state == null || !state.isUpToDate(new File(path))) {
+        return "file changed: " + path;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Remembers the current state of the files that have just been compiled. States of other files are kept as is.
+   */
+  void update(final Collection<String> compiledFilePaths) {
+    for (String path : compiledFilePaths) {
+      final FileState state = FileState.compute(new File(path), myStates.get(path));
+      if (state == null) {
+        myStates.remove(path);
+      }
+      else {
+        myStates.put(path, state);
+      }
+    }
+  }
+
+  private static void close(@Nullable final Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      }
+      catch (IOException ignore) {/**/}
+    }
+  }
+
+  private static class FileState {
+    private final long myTimestamp;
+    private final long myLength;
+    private final String myHash;
+
+    private FileState(final long timestamp, final long length, final String hash) {
+      myTimestamp = timestamp;
+      myLength = length;
+      myHash = hash;
+    }
+
+    /**
+     * @return {@code null} if the file doesn't exist or can't be read
+     */
+    @Nullable
+    private static FileState compute(final File file, @Nullable final FileState previousState) {
+      if (!file.isFile()) return null;
+
+      final long timestamp = file.lastModified();
+      final long length = file.length();
+      if (previousState != null && previousState.myTimestamp == timestamp && previousState.myLength == length) {
+        return previousState;
+      }
+
+      final String hash = computeHash(file);
+      return hash == null ? null : new FileState(timestamp, length, hash);
+    }
+
+    private boolean isUpToDate(final File file) {
+      if (!file.isFile()) return false;
+
+      final long length = file.length();
+      if (length != myLength) return false;
+      if (file.lastModified() == myTimestamp) return true;
+
+      return myHash.equals(computeHash(file));
+    }
+
+    @Nullable
+    private static String computeHash(@NotNull final File file) {
+      InputStream in = null;
+      try {
+        final MessageDigest digest = MessageDigest.getInstance("MD5");
+        in = new FileInputStream(file);
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+          digest.update(buffer, 0, read);
+        }
+        return StringUtil.toHexString(digest.digest());
+      }
+      catch (IOException e) {
+        return null;
+      }
+      catch (NoSuchAlgorithmException e) {
+        return null;
+      }
+      finally {
+        close(in);
+      }
+    }
+  }
+}
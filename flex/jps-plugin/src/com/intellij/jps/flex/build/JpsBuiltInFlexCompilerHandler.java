@@ -6,37 +6,58 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Consumer;
 import com.intellij.util.Function;
-import gnu.trove.THashMap;
+import com.intellij.util.SystemProperties;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jps.incremental.CompileContext;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
 import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.model.JpsProject;
 import org.jetbrains.jps.model.library.sdk.JpsSdk;
+import org.jetbrains.jps.model.serialization.JpsModelSerializationDataService;
 import org.jetbrains.jps.service.SharedThreadPool;
 
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
-public class JpsBuiltInFlexCompilerHandler {
+/**
+ * Keeps a pool of built-in compiler processes for one Flex SDK. Processes are started in advance and stay alive between builds
+ * while the build process lives, so that they don't lose JIT warm-up. Each compilation goes to the process with the fewest
+ * active compilations. A process is replaced when it dies, and is recycled (replaced once idle) after a number of compilations
+ * or when its heap usage reported after a compilation is too high.
+ * <p/>
+ * Pool size and recycling thresholds can be changed with system properties of the build process:
+ * {@code flex.builtin.compiler.pool.size}, {@code flex.builtin.compiler.max.compilations} and
+ * {@code flex.builtin.compiler.max.heap.usage.percent}.
+ */
+public class JpsBuiltInFlexCompilerHandler implements BuiltInFlexCompilerProcess.Callback {
 
   private static final Logger LOG = Logger.getInstance(JpsBuiltInFlexCompilerHandler.class.getName());
-  private static final String CONNECTION_SUCCESSFUL = "Connection successful";
   public static final String COMPILATION_FINISHED = "Compilation finished";
 
-  private final JpsProject myProject;
+  private static final int DEFAULT_POOL_SIZE = 2;
+  private static final int DEFAULT_MAX_COMPILATIONS_PER_PROCESS = 500;
+  private static final int DEFAULT_MAX_HEAP_USAGE_PERCENT = 85;
 
-  private String mySdkHome;
+  private JpsProject myProject;
+  private final int myPoolSize;
+  private final int myMaxCompilationsPerProcess;
+  private final double myMaxHeapUsage;
 
-  private ServerSocket myServerSocket;
-  private DataInputStream myDataInputStream;
-  private DataOutputStream myDataOutputStream;
+  private String mySdkHome;
+  private List<String> myCommandLine;
+  private File myWorkDir;
+  private Consumer<String> myErrorConsumer;
 
-  private int commandNumber = 1;
-  private Map<String, Listener> myActiveListeners = new THashMap<String, Listener>();
+  private final List<BuiltInFlexCompilerProcess> myProcesses = new ArrayList<BuiltInFlexCompilerProcess>();
+  // processes that don't get new compilations and will be stopped when current compilations finish
+  private final List<BuiltInFlexCompilerProcess> myRecycledProcesses = new ArrayList<BuiltInFlexCompilerProcess>();
+  private int myStartingProcessesNumber;
+  private int myNextProcessId = 1;
 
   public interface Listener {
     void textAvailable(String text);
@@ -45,46 +66,98 @@ public class JpsBuiltInFlexCompilerHandler {
   }
 
   JpsBuiltInFlexCompilerHandler(final JpsProject project) {
+    this(project,
+         SystemProperties.getIntProperty("flex.builtin.compiler.pool.size", DEFAULT_POOL_SIZE),
+         SystemProperties.getIntProperty("flex.builtin.compiler.max.compilations", DEFAULT_MAX_COMPILATIONS_PER_PROCESS),
+         SystemProperties.getIntProperty("flex.builtin.compiler.max.heap.usage.percent", DEFAULT_MAX_HEAP_USAGE_PERCENT));
+  }
+
+  JpsBuiltInFlexCompilerHandler(final JpsProject project,
+                                final int poolSize,
+                                final int maxCompilationsPerProcess,
+                                final int maxHeapUsagePercent) {
+    myProject = project;
+    myPoolSize = Math.max(1, poolSize);
+    myMaxCompilationsPerProcess = Math.max(1, maxCompilationsPerProcess);
+    myMaxHeapUsage = maxHeapUsagePercent / 100.;
+  }
+
+  /**
+   * Processes of the pool may be reused by the next build of the same project in the same build process
+   */
+  synchronized boolean canBeReusedForProject(final JpsProject project) {
+    return FileUtil.filesEqual(JpsModelSerializationDataService.getBaseDirectory(myProject),
+                               JpsModelSerializationDataService.getBaseDirectory(project));
+  }
+
+  synchronized void setProject(final JpsProject project) {
     myProject = project;
   }
 
   public synchronized boolean canBeUsedForSdk(final String sdkHome) {
-    return mySdkHome == null || mySdkHome.equals(sdkHome);
+    return mySdkHome == null || mySdkHome.equals(sdkHome) || getActiveCompilationsNumber() == 0;
   }
 
-  public synchronized void startCompilerIfNeeded(final JpsSdk<?> sdk,
-                                                 final CompileContext context,
-                                                 final String compilerName) throws IOException {
-    if (!Comparing.equal(sdk.getHomePath(), mySdkHome)) {
+  /**
+   * @return {@code false} if the compiler processes are running for another SDK and can't be restarted because of active compilations
+   */
+  public synchronized boolean startCompilerIfNeeded(final JpsSdk<?> sdk,
+                                                    final CompileContext context,
+                                                    final String compilerName) throws IOException {
+    final List<String> commandLine = getCommandLine(sdk);
+    final boolean hasProcesses = Comparing.equal(sdk.getHomePath(), mySdkHome) && commandLine.equals(myCommandLine) &&
+                                 !myProcesses.isEmpty();
+    if (!hasProcesses) {
+      context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO,
+                                                 "Starting Flex compiler:\n" + getPresentableCommandLine(commandLine)));
+    }
+
+    final File workDir = new File(FlexCommonUtils.getFlexCompilerWorkDirPath(myProject));
+    return startIfNeeded(sdk.getHomePath(), commandLine, workDir, new Consumer<String>() {
+      @Override
+      public void consume(final String error) {
+        context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, error));
+      }
+    });
+  }
+
+  /**
+   * @param commandLine command line of the compiler process without the last parameter, which is the port to connect to
+   */
+  synchronized boolean startIfNeeded(final String sdkHome,
+                                     final List<String> commandLine,
+                                     @Nullable final File workDir,
+                                     final Consumer<String> errorConsumer) throws IOException {
+    if (!Comparing.equal(sdkHome, mySdkHome) || !commandLine.equals(myCommandLine)) {
+      if (getActiveCompilationsNumber() > 0) {
+        return false;
+      }
       stopCompilerProcess();
     }
 
-    if (myServerSocket == null) {
+    mySdkHome = sdkHome;
+    myCommandLine = commandLine;
+    myWorkDir = workDir;
+    myErrorConsumer = errorConsumer;
+
+    removeDeadProcesses();
+
+    if (myProcesses.isEmpty()) {
       try {
-        //context.processMessage(new ProgressMessage("Starting Flex compiler"));
-        myServerSocket = new ServerSocket(0);
-        myServerSocket.setSoTimeout(10000);
-        final int port = myServerSocket.getLocalPort();
-
-        startCompilerProcess(sdk, port, context, compilerName);
-
-        final Socket socket = myServerSocket.accept();
-        myDataInputStream = new DataInputStream(socket.getInputStream());
-        myDataOutputStream = new DataOutputStream(socket.getOutputStream());
-        mySdkHome = sdk.getHomePath();
-        scheduleInputReading();
+        myProcesses.add(startProcess(myNextProcessId++, commandLine, workDir, errorConsumer));
       }
       catch (IOException e) {
-        stopCompilerProcess();
+        mySdkHome = null;
+        myCommandLine = null;
         throw e;
       }
     }
+
+    warmUp();
+    return true;
   }
 
-  private void startCompilerProcess(final JpsSdk<?> sdk,
-                                    final int port,
-                                    final CompileContext context,
-                                    final String compilerName) throws IOException {
+  private List<String> getCommandLine(final JpsSdk<?> sdk) {
     final StringBuilder classpath = new StringBuilder();
 
     classpath.append(FlexCommonUtils.getPathToBundledJar("idea-flex-compiler-fix.jar"));
@@ -95,197 +168,191 @@ public class JpsBuiltInFlexCompilerHandler {
       classpath.append(File.pathSeparator).append(FileUtil.toSystemDependentName(sdk.getHomePath() + "/lib/flex-compiler-oem.jar"));
     }
 
-    final List<String> commandLine =
-      FlexCommonUtils.getCommandLineForSdkTool(myProject, sdk, classpath.toString(), "com.intellij.flex.compiler.FlexCompiler");
-    commandLine.add(String.valueOf(port));
-
-    final ProcessBuilder processBuilder = new ProcessBuilder(commandLine);
-    processBuilder.redirectErrorStream(true);
-    processBuilder.directory(new File(FlexCommonUtils.getFlexCompilerWorkDirPath(myProject)));
+    return FlexCommonUtils.getCommandLineForSdkTool(myProject, sdk, classpath.toString(), "com.intellij.flex.compiler.FlexCompiler");
+  }
 
-    final String plainCommand = StringUtil.join(processBuilder.command(), new Function<String, String>() {
+  private String getPresentableCommandLine(final List<String> commandLine) {
+    return StringUtil.join(commandLine, new Function<String, String>() {
       public String fun(final String s) {
         return s.contains(" ") ? "\"" + s + "\"" : s;
       }
     }, " ");
-    context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.INFO, "Starting Flex compiler:\n" + plainCommand));
+  }
 
-    final Process process = processBuilder.start();
-    readInputStreamUntilConnected(process, context, compilerName);
+  private BuiltInFlexCompilerProcess startProcess(final int id,
+                                                  final List<String> commandLine,
+                                                  @Nullable final File workDir,
+                                                  final Consumer<String> errorConsumer) throws IOException {
+    final BuiltInFlexCompilerProcess process = new BuiltInFlexCompilerProcess(id, this);
+    LOG.debug("Starting built-in " + process);
+    process.start(commandLine, workDir, errorConsumer);
+    return process;
   }
 
-  private void readInputStreamUntilConnected(final Process process, final CompileContext context, final String compilerName) {
-    SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
-      public void run() {
-        final InputStreamReader reader = FlexCommonUtils.createInputStreamReader(process.getInputStream());
-
-        try {
-          char[] buf = new char[1024];
-          int read;
-          while ((read = reader.read(buf, 0, buf.length)) >= 0) {
-            final String output = new String(buf, 0, read);
-            if (output.startsWith(CONNECTION_SUCCESSFUL)) {
-              break;
-            }
-            else {
-              closeSocket();
-              context.processMessage(new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, output));
-            }
-          }
-        }
-        catch (IOException e) {
-          closeSocket();
-          context.processMessage(
-            new CompilerMessage(compilerName, BuildMessage.Kind.ERROR, "Failed to start Flex compiler: " + e.toString()));
-        }
-        finally {
+  /**
+   * Starts missing processes of the pool in background
+   */
+  private void warmUp() {
+    while (myProcesses.size() + myStartingProcessesNumber < myPoolSize) {
+      myStartingProcessesNumber++;
+
+      final int id = myNextProcessId++;
+      final String sdkHome = mySdkHome;
+      final List<String> commandLine = myCommandLine;
+      final File workDir = myWorkDir;
+      final Consumer<String> errorConsumer = myErrorConsumer;
+
+      SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
+        @Override
+        public void run() {
+          BuiltInFlexCompilerProcess process = null;
           try {
-            reader.close();
+            process = startProcess(id, commandLine, workDir, errorConsumer);
+          }
+          catch (IOException e) {
+            LOG.info("Failed to start built-in compiler #" + id, e);
           }
-          catch (IOException e) {/*ignore*/}
-        }
-      }
-    });
-  }
 
-  private void scheduleInputReading() {
-    SharedThreadPool.getInstance().executeOnPooledThread(new Runnable() {
-      public void run() {
-        final StringBuilder buffer = new StringBuilder();
-        while (true) {
-          final DataInputStream dataInputStream = myDataInputStream;
-          if (dataInputStream != null) {
-            try {
-              buffer.append(dataInputStream.readUTF());
-
-              int index;
-              while ((index = buffer.indexOf("\n")) > -1) {
-                final String line = buffer.substring(0, index);
-                buffer.delete(0, index + 1);
-                handleInputLine(line);
-              }
-            }
-            catch (IOException e) {
-              if (dataInputStream == myDataInputStream) {
-                stopCompilerProcess();
-              }
-              break;
+          synchronized (JpsBuiltInFlexCompilerHandler.this) {
+            myStartingProcessesNumber--;
+            if (process == null) return;
+
+            if (sdkHome.equals(mySdkHome) && commandLine.equals(myCommandLine) && myProcesses.size() < myPoolSize) {
+              myProcesses.add(process);
+              return;
             }
           }
-          else {
-            break;
-          }
+
+          process.stop(false); // not needed anymore
         }
+      });
+    }
+  }
+
+  private void removeDeadProcesses() {
+    for (BuiltInFlexCompilerProcess process : new ArrayList<BuiltInFlexCompilerProcess>(myProcesses)) {
+      if (!process.isAlive()) {
+        LOG.info("Built-in " + process + " is not alive");
+        myProcesses.remove(process);
+        process.stop(true);
       }
-    });
+    }
   }
 
-  private synchronized void handleInputLine(final String line) {
-    LOG.debug("RECEIVED: [" + line + "]");
+  public synchronized void sendCompilationCommand(final String command, final Listener listener) {
+    removeDeadProcesses();
 
-    final int colonPos = line.indexOf(":");
-    if (colonPos <= 0) {
-      LOG.error("Incorrect command: [" + line + "]");
-      return;
+    BuiltInFlexCompilerProcess idlestProcess = null;
+    for (BuiltInFlexCompilerProcess process : myProcesses) {
+      if (idlestProcess == null || process.getActiveCompilationsNumber() < idlestProcess.getActiveCompilationsNumber()) {
+        idlestProcess = process;
+      }
     }
 
-    final String prefix = line.substring(0, colonPos + 1);
-    final Listener listener = myActiveListeners.get(prefix);
-    if (listener == null) {
-      LOG.warn("No active listener for input line: [" + line + "]");  // could be message from cancelled compilation
-    }
-    else {
-      final String text = line.substring(colonPos + 1);
-      if (text.startsWith(COMPILATION_FINISHED)) {
-        listener.compilationFinished();
-        myActiveListeners.remove(prefix);
+    if (idlestProcess == null && myCommandLine != null) {
+      try {
+        idlestProcess = startProcess(myNextProcessId++, myCommandLine, myWorkDir, myErrorConsumer);
+        myProcesses.add(idlestProcess);
       }
-      else {
-        listener.textAvailable(text);
+      catch (IOException e) {
+        listener.textAvailable("Error: Can't start compiler process: " + e.toString());
+        listener.compilationFinished();
+        return;
       }
     }
-  }
 
-  public synchronized void sendCompilationCommand(final String command, final Listener listener) {
-    if (myDataOutputStream == null) {
+    if (idlestProcess == null) {
       listener.textAvailable("Error: Compiler process is not started.");
       listener.compilationFinished();
       return;
     }
 
-    try {
-      final String prefix = String.valueOf(commandNumber++) + ":";
-      final String commandToSend = prefix + command + "\n";
-      LOG.debug("SENDING: [" + commandToSend + "]");
-      myDataOutputStream.writeUTF(commandToSend);
-      myActiveListeners.put(prefix, listener);
-    }
-    catch (IOException e) {
-      listener.textAvailable("Error: Can't start compilation: " + e.toString());
-      listener.compilationFinished();
-    }
+    idlestProcess.sendCompilationCommand(command, listener);
+    warmUp();
   }
 
-  private synchronized void cancelAllCompilations(final boolean reportError) {
-    for (final Listener listener : myActiveListeners.values()) {
-      if (reportError) {
-        listener.textAvailable("Error: Compilation terminated");
+  @Override
+  public synchronized void compilationFinished(final BuiltInFlexCompilerProcess process) {
+    if (myRecycledProcesses.contains(process)) {
+      if (process.getActiveCompilationsNumber() == 0) {
+        myRecycledProcesses.remove(process);
+        process.stop(false);
       }
-      listener.compilationFinished();
+      return;
     }
-    myActiveListeners.clear();
-  }
-
-  public synchronized void stopCompilerProcess() {
-    cancelAllCompilations(true);
-    closeSocket();
-  }
-
-  private synchronized void closeSocket() {
-    // compiler process exits when socket closes, so it's enough just to close streams
 
-    if (myDataInputStream != null) {
-      try {
-        myDataInputStream.close();
+    final double heapUsage = process.getMemoryUsage();
+    if (myProcesses.contains(process) &&
+        (process.getFinishedCompilationsNumber() >= myMaxCompilationsPerProcess || heapUsage > myMaxHeapUsage)) {
+      LOG.info("Recycling built-in " + process.getStatistics());
+      myProcesses.remove(process);
+      if (process.getActiveCompilationsNumber() == 0) {
+        process.stop(false);
+      }
+      else {
+        myRecycledProcesses.add(process);
       }
-      catch (IOException ignored) {/**/}
+      warmUp();
     }
+  }
 
-    if (myDataOutputStream != null) {
-      try {
-        myDataOutputStream.close();
-      }
-      catch (IOException ignored) {/**/}
+  @Override
+  public synchronized void terminated(final BuiltInFlexCompilerProcess process) {
+    myRecycledProcesses.remove(process);
+    if (myProcesses.remove(process)) {
+      LOG.warn("Built-in " + process + " terminated unexpectedly");
+      warmUp();
     }
+  }
 
-    if (myServerSocket != null) {
-      try {
-        myServerSocket.close();
-      }
-      catch (IOException ignored) {/**/}
+  public synchronized void stopCompilerProcess() {
+    final List<BuiltInFlexCompilerProcess> processes = getAllProcesses();
+    myProcesses.clear();
+    myRecycledProcesses.clear();
+
+    for (BuiltInFlexCompilerProcess process : processes) {
+      process.stop(true);
     }
 
-    myServerSocket = null;
-    myDataInputStream = null;
-    myDataOutputStream = null;
+    mySdkHome = null;
+    myCommandLine = null;
   }
 
   public synchronized void removeListener(final Listener listener) {
-    String toRemove = null;
-    for (final Map.Entry<String, Listener> entry : myActiveListeners.entrySet()) {
-      if (entry.getValue() == listener) {
-        toRemove = entry.getKey();
+    for (BuiltInFlexCompilerProcess process : getAllProcesses()) {
+      if (process.removeListener(listener)) {
+        compilationFinished(process);
         break;
       }
     }
+  }
 
-    if (toRemove != null) {
-      myActiveListeners.remove(toRemove);
+  public synchronized int getActiveCompilationsNumber() {
+    int result = 0;
+    for (BuiltInFlexCompilerProcess process : getAllProcesses()) {
+      result += process.getActiveCompilationsNumber();
     }
+    return result;
   }
 
-  public synchronized int getActiveCompilationsNumber() {
-    return myActiveListeners.size();
+  /**
+   * Per-process throughput, for logging
+   */
+  synchronized Collection<String> getStatistics() {
+    final List<String> result = new ArrayList<String>();
+    for (BuiltInFlexCompilerProcess process : getAllProcesses()) {
+      result.add(process.getStatistics());
+    }
+    return result;
+  }
+
+  synchronized int getProcessesNumber() {
+    return myProcesses.size();
   }
-}
 
+  private List<BuiltInFlexCompilerProcess> getAllProcesses() {
+    final List<BuiltInFlexCompilerProcess> result = new ArrayList<BuiltInFlexCompilerProcess>(myProcesses);
+    result.addAll(myRecycledProcesses);
+    return result;
+  }
+}
@@ -8,6 +8,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.ArrayUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 /**
@@ -21,7 +22,15 @@ public class SwfFileDecompiler implements BinaryFileDecompiler {
     final Project project = findProject();
     if (project == null) return "";
     try {
-      return FlexImporter.buildInterfaceFromStream(file.getInputStream());
+      final byte[] content = file.contentsToByteArray();
+      final SwfStubCache cache = SwfStubCache.getInstance();
+      final String key = SwfStubCache.computeKey(content, String.valueOf(FlexImporter.VERSION));
+      final CharSequence cached = cache.getText(key);
+      if (cached != null) return cached;
+
+      final String text = FlexImporter.buildInterfaceFromStream(new ByteArrayInputStream(content));
+      cache.putText(key, text);
+      return text;
     }
     catch (IOException ex) {
       return ArrayUtil.EMPTY_CHAR_SEQUENCE;
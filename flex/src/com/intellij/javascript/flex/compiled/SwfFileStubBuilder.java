@@ -7,16 +7,20 @@ import com.intellij.lang.javascript.psi.stubs.impl.JSFileCachedData;
 import com.intellij.lang.javascript.psi.stubs.impl.JSFileStubImpl;
 import com.intellij.lang.javascript.types.JSFileElementType;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
 import com.intellij.openapi.vfs.JarFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.stubs.BinaryFileStubBuilder;
 import com.intellij.psi.stubs.PsiFileStub;
-import com.intellij.psi.stubs.PsiFileStubImpl;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.Stub;
 import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.indexing.FileContent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 
 /**
  * @author Maxim.Mossienko
@@ -36,7 +40,12 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
   }
 
   static PsiFileStub buildFileStub(VirtualFile file, byte[] content) {
-    PsiFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
+    final SwfStubCache cache = SwfStubCache.getInstance();
+    final String key = SwfStubCache.computeKey(content, FlexImporter.VERSION + "." + getVersion());
+    final PsiFileStub cached = loadCachedStub(cache, key);
+    if (cached != null) return cached;
+
+    PsiFileStub stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
     try {
 
       FlexImporter.buildStubsInterfaceFromStream(
@@ -44,6 +53,7 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
         stub
       );
 
+      saveStub(cache, key, stub);
     } catch (Exception ex) {
       Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
     }
@@ -51,7 +61,33 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
     return stub;
   }
 
-  public int getStubVersion() {
+  @Nullable
+  private static PsiFileStub loadCachedStub(@NotNull SwfStubCache cache, @NotNull String key) {
+    final InputStream in = cache.getStub(key);
+    if (in == null) return null;
+
+    try {
+      final Stub stub = SerializationManagerEx.getInstanceEx().deserialize(in);
+      if (stub instanceof PsiFileStub) return (PsiFileStub)stub;
+    }
+    catch (Exception ex) {
+      Logger.getInstance(SwfFileStubBuilder.class.getName()).info("Cached swf stub " + key + " is invalid", ex);
+    }
+    cache.removeStub(key);
+    return null;
+  }
+
+  private static void saveStub(@NotNull SwfStubCache cache, @NotNull String key, @NotNull PsiFileStub stub) {
+    final BufferExposingByteArrayOutputStream out = new BufferExposingByteArrayOutputStream();
+    SerializationManagerEx.getInstanceEx().serialize(stub, out);
+    cache.putStub(key, out.getInternalBuffer(), out.size());
+  }
+
+  private static int getVersion() {
     return JSFileElementType.getVersion() + VERSION;
   }
-}
\ No newline at end of file
+
+  public int getStubVersion() {
+    return getVersion();
+  }
+}
@@ -0,0 +1,133 @@
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Application-wide disk cache of decompiled text and serialized stubs of library.swf files, so that the same SDK swc files
+ * are decoded once per machine rather than once per project. Entries are keyed by the SHA-1 of library.swf content plus
+ * the version of the producer. Entries are read into the heap rather than mapped: a mapped file stays mapped until GC and
+ * can't be deleted on Windows meanwhile, e.g. by pruning.
+ * <p/>
+ * The cache lives in the index root: serialized stubs refer to stub serializer ids, which are reset together with indices.
+ */
+public class SwfStubCache {
+  private static final Logger LOG = Logger.getInstance(SwfStubCache.class.getName());
+
+  private static final String TEXT_EXTENSION = ".as";
+  private static final String STUB_EXTENSION = ".stub";
+  private static final int MAX_FILES = 4000;
+
+  @NotNull private final File myDir;
+  private final AtomicBoolean myPruned = new AtomicBoolean();
+
+  public SwfStubCache() {
+    this(new File(PathManager.getIndexRoot(), "swfStubs"));
+  }
+
+  SwfStubCache(@NotNull final File dir) {
+    myDir = dir;
+  }
+
+  public static SwfStubCache getInstance() {
+    return ServiceManager.getService(SwfStubCache.class);
+  }
+
+  @NotNull
+  public static String computeKey(@NotNull final byte[] content, @NotNull final String version) {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return StringUtil.toHexString(digest.digest(content)) + "-" + version;
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Nullable
+  public CharSequence getText(@NotNull final String key) {
+    final byte[] bytes = load(new File(myDir, key + TEXT_EXTENSION));
+    return bytes == null ? null : new String(bytes, CharsetToolkit.UTF8_CHARSET);
+  }
+
+  public void putText(@NotNull final String key, @NotNull final CharSequence text) {
+    final byte[] bytes = text.toString().getBytes(CharsetToolkit.UTF8_CHARSET);
+    write(new File(myDir, key + TEXT_EXTENSION), bytes, bytes.length);
+  }
+
+  @Nullable
+  public InputStream getStub(@NotNull final String key) {
+    final byte[] bytes = load(new File(myDir, key + STUB_EXTENSION));
+    return bytes == null ? null : new ByteArrayInputStream(bytes);
+  }
+
+  public void putStub(@NotNull final String key, @NotNull final byte[] bytes, final int length) {
+    write(new File(myDir, key + STUB_EXTENSION), bytes, length);
+  }
+
+  /**
+   * Called when a cached entry could not be read, e.g. after stub serializers have changed.
+   */
+  public void removeStub(@NotNull final String key) {
+    FileUtil.delete(new File(myDir, key + STUB_EXTENSION));
+  }
+
+  @Nullable
+  private static byte[] load(@NotNull final File file) {
+    if (!file.isFile()) return null;
+
+    try {
+      final byte[] bytes = FileUtil.loadFileBytes(file);
+      file.setLastModified(System.currentTimeMillis()); // to keep recently used entries when pruning
+      return bytes;
+    }
+    catch (IOException e) {
+      LOG.info("Failed to read " + file.getPath(), e);
+      return null;
+    }
+  }
+
+  private void write(@NotNull final File file, @NotNull final byte[] bytes, final int length) {
+    if (myPruned.compareAndSet(false, true)) {
+      prune();
+    }
+
+    try {
+      FileUtil.createParentDirs(file);
+      // write to a temp file first so that a concurrent reader in another process never reads a partially written file
+      final File tempFile = FileUtil.createTempFile(myDir, file.getName(), ".tmp", true, false);
+      try (OutputStream out = new FileOutputStream(tempFile)) {
+        out.write(bytes, 0, length);
+      }
+      if (!tempFile.renameTo(file)) {
+        FileUtil.delete(tempFile); // another process has just written the same entry
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Failed to write " + file.getPath(), e);
+    }
+  }
+
+  private void prune() {
+    final File[] files = myDir.listFiles();
+    if (files == null || files.length <= MAX_FILES) return;
+
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i < files.length - MAX_FILES / 2; i++) {
+      FileUtil.delete(files[i]);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.intellij.javascript.flex.css;
+
+import com.intellij.javascript.flex.FlexAnnotationNames;
+import com.intellij.lang.javascript.flex.FlexUtils;
+import com.intellij.lang.javascript.psi.ecmal4.JSAttribute;
+import com.intellij.lang.javascript.psi.ecmal4.JSAttributeNameValuePair;
+import com.intellij.lang.javascript.psi.ecmal4.JSClass;
+import com.intellij.lang.javascript.psi.resolve.JSResolveUtil;
+import com.intellij.openapi.util.RecursionManager;
+import com.intellij.openapi.util.Ref;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.css.CssPropertyDescriptor;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * [Style] descriptors of a class together with the ones inherited from its supers, and the class hierarchy flattened in depth-first
+ * order. Computed once per class from the tables of its supers and kept until ActionScript code or project roots change.
+ */
+class FlexClassStyleTable {
+  private static final FlexClassStyleTable EMPTY = new FlexClassStyleTable(Collections.emptySet(), Collections.emptyList());
+
+  private final Set<CssPropertyDescriptor> myDescriptors;
+  private final List<HierarchyEntry> myHierarchy;
+
+  private static class HierarchyEntry {
+    private final JSClass myClass;
+    @Nullable private final String myQName;
+    private final String[] myIncludes;
+
+    private HierarchyEntry(@NotNull final JSClass jsClass) {
+      myClass = jsClass;
+      myQName = jsClass.getQualifiedName();
+      final Set<String> includes = ContainerUtil.newLinkedHashSet();
+      FlexCssUtil.collectAllIncludes(jsClass, includes);
+      myIncludes = ArrayUtil.toStringArray(includes);
+    }
+  }
+
+  private FlexClassStyleTable(@NotNull final Set<CssPropertyDescriptor> descriptors, @NotNull final List<HierarchyEntry> hierarchy) {
+    myDescriptors = descriptors;
+    myHierarchy = hierarchy;
+  }
+
+  @NotNull
+  static FlexClassStyleTable getInstance(@NotNull final JSClass jsClass) {
+    return CachedValuesManager.getCachedValue(jsClass, () -> {
+      final FlexClassStyleTable table = RecursionManager.doPreventingRecursion(jsClass, false, () -> compute(jsClass));
+      return CachedValueProvider.Result.create(table == null ? EMPTY : table, PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT);
+    });
+  }
+
+  @NotNull
+  private static FlexClassStyleTable compute(@NotNull final JSClass jsClass) {
+    final Set<CssPropertyDescriptor> descriptors = ContainerUtil.newLinkedHashSet();
+    final List<HierarchyEntry> hierarchy = new ArrayList<>();
+    hierarchy.add(new HierarchyEntry(jsClass));
+
+    FlexUtils.processMetaAttributesForClass(jsClass, new JSResolveUtil.MetaDataProcessor() {
+      public boolean process(@NotNull JSAttribute jsAttribute) {
+        if (FlexAnnotationNames.STYLE.equals(jsAttribute.getName())) {
+          JSAttributeNameValuePair pair = jsAttribute.getValueByName("name");
+          String styleName = pair != null ? pair.getSimpleValue() : null;
+          String qualifiedName = jsClass.getQualifiedName();
+          if (styleName != null && qualifiedName != null) {
+            descriptors.add(new FlexCssPropertyDescriptor(ContainerUtil.newLinkedHashSet(
+              FlexStyleIndexInfo.create(qualifiedName, styleName, jsAttribute, true))));
+          }
+        }
+        return true;
+      }
+
+      public boolean handleOtherElement(PsiElement el, PsiElement context, @Nullable Ref<PsiElement> continuePassElement) {
+        return true;
+      }
+    });
+
+    final Set<JSClass> visited = ContainerUtil.newHashSet(jsClass);
+    for (JSClass jsSuper : jsClass.getSupers()) {
+      if (jsSuper == null) continue;
+      final FlexClassStyleTable superTable = getInstance(jsSuper);
+      descriptors.addAll(superTable.myDescriptors);
+      for (HierarchyEntry entry : superTable.myHierarchy) {
+        if (visited.add(entry.myClass)) {
+          hierarchy.add(entry);
+        }
+      }
+    }
+
+    return new FlexClassStyleTable(descriptors, hierarchy);
+  }
+
+  /**
+   * [Style] descriptors declared in the class and in all its supers
+   */
+  @NotNull
+  Set<CssPropertyDescriptor> getDescriptors() {
+    return myDescriptors;
+  }
+
+  /**
+   * @return the first qualified name of a class in the hierarchy or of a file included into it that is one of {@code possibleNames}
+   */
+  @Nullable
+  String findClassOrIncludedFile(@NotNull final Set<String> possibleNames) {
+    for (HierarchyEntry entry : myHierarchy) {
+      if (entry.myQName != null && possibleNames.contains(entry.myQName)) {
+        return entry.myQName;
+      }
+
+      String fileName = null;
+      for (String include : entry.myIncludes) {
+        if (possibleNames.contains(include)) {
+          fileName = include;
+        }
+      }
+      if (fileName != null) {
+        return fileName;
+      }
+    }
+    return null;
+  }
+}
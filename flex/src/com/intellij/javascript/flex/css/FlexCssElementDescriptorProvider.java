@@ -2,7 +2,6 @@ package com.intellij.javascript.flex.css;
 
 import com.intellij.codeInsight.documentation.DocumentationManager;
 import com.intellij.codeInspection.LocalQuickFix;
-import com.intellij.javascript.flex.FlexAnnotationNames;
 import com.intellij.javascript.flex.mxml.schema.CodeContext;
 import com.intellij.lang.Language;
 import com.intellij.lang.css.CSSLanguage;
@@ -12,10 +11,7 @@ import com.intellij.lang.documentation.DocumentationProvider;
 import com.intellij.lang.injection.InjectedLanguageManager;
 import com.intellij.lang.javascript.JavaScriptSupportLoader;
 import com.intellij.lang.javascript.flex.FlexModuleType;
-import com.intellij.lang.javascript.flex.FlexUtils;
 import com.intellij.lang.javascript.flex.XmlBackedJSClassImpl;
-import com.intellij.lang.javascript.psi.ecmal4.JSAttribute;
-import com.intellij.lang.javascript.psi.ecmal4.JSAttributeNameValuePair;
 import com.intellij.lang.javascript.psi.ecmal4.JSClass;
 import com.intellij.lang.javascript.psi.ecmal4.JSQualifiedNamedElement;
 import com.intellij.lang.javascript.psi.ecmal4.impl.JSClassImpl;
@@ -27,7 +23,6 @@ import com.intellij.openapi.module.ModuleType;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Comparing;
-import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -169,31 +164,6 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
     return false;
   }
 
-  @Nullable
-  private static String findJsClassOrFile(@NotNull JSClass root, Set<JSClass> visited, Set<String> possibleQNames) {
-    if (!visited.add(root)) return null;
-    String qName = root.getQualifiedName();
-    if (qName != null && possibleQNames.contains(qName)) {
-      return qName;
-    }
-    Set<String> includes = ContainerUtil.newLinkedHashSet();
-    FlexCssUtil.collectAllIncludes(root, includes);
-    String fileName = null;
-    for (String include : includes) {
-      if (possibleQNames.contains(include)) {
-        fileName = include;
-      }
-    }
-    if (fileName != null) {
-      return fileName;
-    }
-    for (JSClass jsSuper : root.getSupers()) {
-      String result = findJsClassOrFile(jsSuper, visited, possibleQNames);
-      if (result != null) return result;
-    }
-    return null;
-  }
-
   private static List<FlexStyleIndexInfo> filter(Collection<? extends Collection<FlexStyleIndexInfo>> collections,
                                                  List<CssSimpleSelector> selectors,
                                                  @NotNull GlobalSearchScope scope,
@@ -212,7 +182,7 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
         if (module != null) {
           final JSClass jsClass = getClassFromMxmlDescriptor(selector, module);
           if (jsClass != null) {
-            String classOrFileName = findJsClassOrFile(jsClass, ContainerUtil.newLinkedHashSet(), allNames);
+            String classOrFileName = FlexClassStyleTable.getInstance(jsClass).findClassOrIncludedFile(allNames);
             if (classOrFileName != null) {
               namesFromSelectors.add(classOrFileName);
             }
@@ -224,7 +194,7 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
         Collection<JSQualifiedNamedElement> elements = JSResolveUtil.findElementsByName(selectorName, scope.getProject(), scope);
         for (PsiElement element : elements) {
           if (element instanceof JSClass) {
-            String classOrFileName = findJsClassOrFile((JSClass)element, ContainerUtil.newLinkedHashSet(), allNames);
+            String classOrFileName = FlexClassStyleTable.getInstance((JSClass)element).findClassOrIncludedFile(allNames);
             if (classOrFileName != null) {
               namesFromSelectors.add(classOrFileName);
             }
@@ -311,33 +281,6 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
     return propertyName.indexOf('-') >= 0;
   }
 
-  private static void fillPropertyDescriptorsDynamically(@NotNull final JSClass jsClass, Set<JSClass> visited, final Set<CssPropertyDescriptor> result) {
-    if (!visited.add(jsClass)) return;
-    FlexUtils.processMetaAttributesForClass(jsClass, new JSResolveUtil.MetaDataProcessor() {
-      public boolean process(@NotNull JSAttribute jsAttribute) {
-        if (FlexAnnotationNames.STYLE.equals(jsAttribute.getName())) {
-          JSAttributeNameValuePair pair = jsAttribute.getValueByName("name");
-          String styleName = pair != null ? pair.getSimpleValue() : null;
-          String qualifiedName = jsClass.getQualifiedName();
-          if (styleName != null && qualifiedName != null) {
-            result.add(new FlexCssPropertyDescriptor(ContainerUtil.newLinkedHashSet(
-              FlexStyleIndexInfo.create(qualifiedName, styleName, jsAttribute, true))));
-          }
-        }
-        return true;
-      }
-
-      public boolean handleOtherElement(PsiElement el, PsiElement context, @Nullable Ref<PsiElement> continuePassElement) {
-        return true;
-      }
-    });
-    for (JSClass jsSuper : jsClass.getSupers()) {
-      if (jsSuper != null) {
-        fillPropertyDescriptorsDynamically(jsSuper, visited, result);
-      }
-    }
-  }
-
   @NotNull
   private static Collection<? extends CssPropertyDescriptor> getPropertyDescriptorsDynamically(@NotNull List<CssSimpleSelector> selectors,
                                                                                                @NotNull Module module) {
@@ -350,23 +293,30 @@ public class FlexCssElementDescriptorProvider extends CssElementDescriptorProvid
     for (CssSimpleSelector selector : selectors) {
       final JSClass jsClass = getClassFromMxmlDescriptor(selector, module);
       if (jsClass != null) {
-        fillPropertyDescriptorsDynamically(jsClass, visited, result);
+        if (visited.add(jsClass)) {
+          result.addAll(FlexClassStyleTable.getInstance(jsClass).getDescriptors());
+        }
         continue;
       }
 
       final String shortClassName = selector.getElementName();
       Collection<JSQualifiedNamedElement> candidates = JSResolveUtil.findElementsByName(shortClassName, project, scope);
       for (JSQualifiedNamedElement candidate : candidates) {
-        if (candidate instanceof JSClass) {
-          fillPropertyDescriptorsDynamically((JSClass)candidate, visited, result);
+        if (candidate instanceof JSClass && visited.add((JSClass)candidate)) {
+          result.addAll(FlexClassStyleTable.getInstance((JSClass)candidate).getDescriptors());
         }
       }
     }
 
+    Map<String, Boolean> propertyNameToIndexed = ContainerUtil.newHashMap();
     for (Iterator<CssPropertyDescriptor> iterator = result.iterator(); iterator.hasNext();) {
-      CssPropertyDescriptor propertyDescriptor = iterator.next();
-      List<Set<FlexStyleIndexInfo>> values = fileBasedIndex.getValues(FlexStyleIndex.INDEX_ID, propertyDescriptor.getPropertyName(), scope);
-      if (values.size() == 0) {
+      String propertyName = iterator.next().getPropertyName();
+      Boolean indexed = propertyNameToIndexed.get(propertyName);
+      if (indexed == null) {
+        indexed = !fileBasedIndex.getValues(FlexStyleIndex.INDEX_ID, propertyName, scope).isEmpty();
+        propertyNameToIndexed.put(propertyName, indexed);
+      }
+      if (!indexed) {
         iterator.remove();
       }
     }
@@ -145,26 +145,12 @@ public class CodeContext {
     final FlexBuildConfiguration bc = FlexBuildConfigurationManager.getInstance(module).getActiveConfiguration();
     if (bc == null) return CodeContextHolder.EMPTY;
 
-    CodeContext codeContext;
-
-    synchronized (CodeContext.class) {
-      if (isStdNamespace(namespace)) {
-        return getStdCodeContext(namespace, module, bc);
-      }
-
-      final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
-      codeContext = contextHolder.getCodeContext(namespace, module);
-
-      if (codeContext == null) {
-        codeContext = createCodeContext(namespace, module, bc);
-        if (codeContext.getAllDescriptorsSize() > 0) {
-          // avoid adding of incorrect namespaces that appear during completion like "http://www.adobe.IntellijIdeaRulezzz com/2006/mxml"
-          contextHolder.putCodeContext(namespace, module, codeContext);
-        }
-      }
+    if (isStdNamespace(namespace)) {
+      return getStdCodeContext(namespace, module, bc);
     }
 
-    return codeContext;
+    return CodeContextHolder.getInstance(module.getProject()).computeCodeContextIfAbsent(namespace, module,
+                                                                                        ns -> createCodeContext(ns, module, bc));
   }
 
   public static boolean isStdNamespace(final String namespace) {
@@ -390,12 +376,11 @@ public class CodeContext {
   private static CodeContext getStdCodeContext(final String namespace, final Module module, final FlexBuildConfiguration bc) {
     final CodeContextHolder contextHolder = CodeContextHolder.getInstance(module.getProject());
 
-    if (!contextHolder.areSdkComponentsHandledForModule(module)) { // handleAllStandardManifests only once per module
+    contextHolder.handleSdkComponentsIfNeeded(module, () -> { // handleAllStandardManifests only once per module
       handleAllStandardManifests(module, bc);
       handleSwcFromSdk(module, bc); //swc files attached to Flex SDK may contribute to standard context
       createCodeContextFromLibraries(namespace, module, bc); // other libraries may contribute to standard context
-      contextHolder.setSdkComponentsHandledForModule(module);
-    }
+    });
 
     final CodeContext context = contextHolder.getStandardContext(namespace, module);
     return context != null ? context : CodeContextHolder.EMPTY;
@@ -1,37 +1,58 @@
 package com.intellij.javascript.flex.mxml.schema;
 
 import com.intellij.ProjectTopics;
+import com.intellij.flex.model.bc.LinkageType;
+import com.intellij.lang.javascript.flex.FlexUtils;
+import com.intellij.lang.javascript.flex.projectStructure.model.BuildConfigurationEntry;
+import com.intellij.lang.javascript.flex.projectStructure.model.DependencyEntry;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfiguration;
+import com.intellij.lang.javascript.flex.projectStructure.model.FlexBuildConfigurationManager;
 import com.intellij.openapi.components.AbstractProjectComponent;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.projectRoots.Sdk;
 import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
-import gnu.trove.THashMap;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.Function;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Caches namespace -> {@link CodeContext} per module. Lookups of already created contexts don't take any lock;
+ * contexts of a module are created under the lock of that module only, so highlighting of different modules doesn't contend.
+ * <p/>
+ * On roots change only the modules whose libraries, SDK or namespace-related build configuration settings have changed are dropped.
+ *
  * @author Maxim.Mossienko
 */
 public class CodeContextHolder extends AbstractProjectComponent {
-  private final Set<Module> myModulesWithSdkComponentsHandled = new HashSet<>();
-  private final Map<String, Map<Module, CodeContext>> myStandardContexts = new HashMap<>();
-  private final Map<String, Map<Module, CodeContext>> myNSToCodeContextMap = new THashMap<>();
+  private final ConcurrentMap<Module, ModuleCodeContexts> myModuleContexts = ContainerUtil.newConcurrentMap();
   static final CodeContext EMPTY = new CodeContext(null, null);
 
+  private static class ModuleCodeContexts {
+    private final String myRootsSignature;
+    private final ConcurrentMap<String, CodeContext> myStandardContexts = ContainerUtil.newConcurrentMap();
+    private final ConcurrentMap<String, CodeContext> myNSToCodeContextMap = ContainerUtil.newConcurrentMap();
+    private volatile boolean mySdkComponentsHandled;
+
+    private ModuleCodeContexts(final String rootsSignature) {
+      myRootsSignature = rootsSignature;
+    }
+  }
+
   public CodeContextHolder(Project project) {
     super(project);
     project.getMessageBus().connect().subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
       @Override
       public void rootsChanged(final ModuleRootEvent event) {
-        synchronized (CodeContextHolder.this) {
-          myNSToCodeContextMap.clear();
-          myStandardContexts.clear();
-          myModulesWithSdkComponentsHandled.clear();
-        }
+        dropOutdatedContexts();
       }
     });
   }
@@ -43,27 +64,115 @@ public class CodeContextHolder extends AbstractProjectComponent {
     return "CodeContextHolder";
   }
 
+  private void dropOutdatedContexts() {
+    for (Iterator<Map.Entry<Module, ModuleCodeContexts>> iterator = myModuleContexts.entrySet().iterator(); iterator.hasNext(); ) {
+      final Map.Entry<Module, ModuleCodeContexts> entry = iterator.next();
+      final Module module = entry.getKey();
+      if (module.isDisposed() || !entry.getValue().myRootsSignature.equals(getRootsSignature(module))) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Everything that {@link CodeContext}s of the module are built from, except the content of manifests, catalogs and source files,
+   * which is tracked by {@link FlexMxmlNSDescriptor#getDependences()}.
+   */
+  private static String getRootsSignature(final Module module) {
+    final StringBuilder signature = new StringBuilder();
+
+    final FlexBuildConfiguration bc = FlexBuildConfigurationManager.getInstance(module).getActiveConfiguration();
+    if (bc != null) {
+      signature.append(bc.getName()).append('\n');
+      signature.append(bc.getTargetPlatform()).append(bc.isPureAs()).append(bc.getOutputType()).append('\n');
+      signature.append(bc.getDependencies().getComponentSet()).append('\n');
+
+      final Sdk sdk = bc.getSdk();
+      if (sdk != null) {
+        signature.append(sdk.getName()).append(sdk.getHomePath()).append(sdk.getVersionString()).append('\n');
+      }
+
+      signature.append(bc.getCompilerOptions().getAdditionalConfigFilePath()).append('\n');
+      FlexUtils.processCompilerOption(module, bc, "compiler.namespaces.namespace", namespaceAndManifest -> {
+        signature.append(namespaceAndManifest.first).append('=').append(namespaceAndManifest.second).append('\n');
+        return true;
+      });
+
+      for (DependencyEntry entry : bc.getDependencies().getEntries()) {
+        final LinkageType linkageType = entry.getDependencyType().getLinkageType();
+        signature.append(linkageType);
+        if (entry instanceof BuildConfigurationEntry) {
+          final BuildConfigurationEntry bcEntry = (BuildConfigurationEntry)entry;
+          signature.append(bcEntry.getModuleName()).append(':').append(bcEntry.getBcName());
+        }
+        signature.append('\n');
+      }
+    }
+
+    for (String url : OrderEnumerator.orderEntries(module).recursively().classes().getUrls()) {
+      signature.append(url).append('\n');
+    }
+    for (String url : OrderEnumerator.orderEntries(module).recursively().sources().getUrls()) {
+      signature.append(url).append('\n');
+    }
+
+    return signature.toString();
+  }
+
   @Nullable
-  public synchronized CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
-    final Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map != null) return map.get(module);
-    return null;
+  private ModuleCodeContexts findModuleContexts(final Module module) {
+    return myModuleContexts.get(module);
   }
 
-  public synchronized void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map == null) {
-      map = new THashMap<>();
-      myNSToCodeContextMap.put(namespace, map);
+  @NotNull
+  private ModuleCodeContexts getModuleContexts(final Module module) {
+    ModuleCodeContexts contexts = myModuleContexts.get(module);
+    if (contexts == null) {
+      contexts = ConcurrencyUtil.cacheOrGet(myModuleContexts, module, new ModuleCodeContexts(getRootsSignature(module)));
     }
-    map.put(module, codeContext);
+    return contexts;
+  }
+
+  @Nullable
+  public CodeContext getCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+    final ModuleCodeContexts contexts = findModuleContexts(module);
+    return contexts == null ? null : contexts.myNSToCodeContextMap.get(namespace);
+  }
+
+  public void putCodeContext(@NotNull final String namespace, @NotNull final Module module, @NotNull final CodeContext codeContext) {
+    getModuleContexts(module).myNSToCodeContextMap.put(namespace, codeContext);
   }
 
-  public synchronized void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
-    Map<Module, CodeContext> map = myNSToCodeContextMap.get(namespace);
-    if (map != null) {
-      map.remove(module);
+  public void clearCodeContext(@NotNull final String namespace, @NotNull final Module module) {
+    final ModuleCodeContexts contexts = findModuleContexts(module);
+    if (contexts != null) {
+      contexts.myNSToCodeContextMap.remove(namespace);
+    }
+  }
+
+  /**
+   * Returns the cached context or creates it with {@code factory} under the lock of the module. The factory may put contexts
+   * of other namespaces of the same module into the holder. Empty contexts are not cached.
+   */
+  @NotNull
+  CodeContext computeCodeContextIfAbsent(@NotNull final String namespace,
+                                         @NotNull final Module module,
+                                         @NotNull final Function<String, CodeContext> factory) {
+    final ModuleCodeContexts contexts = getModuleContexts(module);
+    CodeContext codeContext = contexts.myNSToCodeContextMap.get(namespace);
+    if (codeContext != null) return codeContext;
+
+    synchronized (contexts) {
+      codeContext = contexts.myNSToCodeContextMap.get(namespace);
+      if (codeContext == null) {
+        codeContext = factory.fun(namespace);
+        if (codeContext.getAllDescriptorsSize() > 0) {
+          // avoid adding of incorrect namespaces that appear during completion like "http://www.adobe.IntellijIdeaRulezzz com/2006/mxml"
+          contexts.myNSToCodeContextMap.put(namespace, codeContext);
+        }
+      }
     }
+    return codeContext;
   }
 
   public static CodeContextHolder getInstance(@NotNull Project project) {
@@ -71,40 +180,36 @@ public class CodeContextHolder extends AbstractProjectComponent {
   }
 
   @Nullable
-  public synchronized CodeContext getStandardContext(final String namespace, final Module module) {
-    final Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    return map == null ? null : map.get(module);
+  public CodeContext getStandardContext(final String namespace, final Module module) {
+    final ModuleCodeContexts contexts = findModuleContexts(module);
+    return contexts == null ? null : contexts.myStandardContexts.get(namespace);
   }
 
-  public synchronized Collection<String> getNamespaces(final Module module) {
-    final List<String> result = new ArrayList<>();
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myStandardContexts.entrySet()) {
-      if (entry.getValue().containsKey(module)) {
-        result.add(entry.getKey());
-      }
-    }
-    for (final Map.Entry<String, Map<Module, CodeContext>> entry : myNSToCodeContextMap.entrySet()) {
-      if (entry.getValue().containsKey(module)) {
-        result.add(entry.getKey());
-      }
-    }
+  public Collection<String> getNamespaces(final Module module) {
+    final ModuleCodeContexts contexts = findModuleContexts(module);
+    if (contexts == null) return Collections.emptyList();
+
+    final List<String> result = new ArrayList<>(contexts.myStandardContexts.keySet());
+    result.addAll(contexts.myNSToCodeContextMap.keySet());
     return result;
   }
 
-  synchronized void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
-    Map<Module, CodeContext> map = myStandardContexts.get(namespace);
-    if (map == null) {
-      map = new HashMap<>();
-      myStandardContexts.put(namespace, map);
-    }
-    map.put(module, codeContext);
+  void putStandardContext(final String namespace, final Module module, final CodeContext codeContext) {
+    getModuleContexts(module).myStandardContexts.put(namespace, codeContext);
   }
 
-  synchronized boolean areSdkComponentsHandledForModule(final Module module) {
-    return myModulesWithSdkComponentsHandled.contains(module);
-  }
+  /**
+   * Runs {@code handler} once per module, under the lock of the module
+   */
+  void handleSdkComponentsIfNeeded(final Module module, final Runnable handler) {
+    final ModuleCodeContexts contexts = getModuleContexts(module);
+    if (contexts.mySdkComponentsHandled) return;
 
-  synchronized boolean setSdkComponentsHandledForModule(final Module module) {
-    return myModulesWithSdkComponentsHandled.add(module);
+    synchronized (contexts) {
+      if (!contexts.mySdkComponentsHandled) {
+        handler.run();
+        contexts.mySdkComponentsHandled = true;
+      }
+    }
   }
 }
@@ -0,0 +1,282 @@
+package com.intellij.javascript.flex.resolve;
+
+import com.intellij.openapi.fileTypes.StdFileTypes;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+import gnu.trove.THashMap;
+import gnu.trove.TObjectLongHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Indexes <i>catalog.xml</i> files of swc libraries: qualified name of each class or other definition -> swf files that contain it
+ * with their timestamps, and components that are backed by the class. The swc that defines a class and the timestamp of a resolve
+ * candidate can be found by a single query, without parsing catalogs of all libraries.
+ */
+public class SwcCatalogXmlIndex extends FileBasedIndexExtension<String, SwcCatalogXmlIndex.Definition> {
+
+  public static final ID<String, Definition> INDEX_ID = ID.create("flex.swc.catalog.xml");
+  public static final String CATALOG_XML = "catalog.xml";
+
+  /**
+   * Key of all swf files listed in catalog (with 0 timestamp), qualified name can't be empty
+   */
+  private static final String LIBRARIES_KEY = "";
+
+  private static final int VERSION = 3;
+
+  public static class Definition {
+    /**
+     * swf file name inside swc -> timestamp of the definition as written in <i>catalog.xml</i>
+     */
+    private final Map<String, Long> mySwfNameToTimestamp;
+    private final List<SwcCatalogXmlUtil.ComponentFromCatalogXml> myComponents;
+
+    Definition(@NotNull final Map<String, Long> swfNameToTimestamp,
+               @NotNull final List<SwcCatalogXmlUtil.ComponentFromCatalogXml> components) {
+      mySwfNameToTimestamp = swfNameToTimestamp;
+      myComponents = components;
+    }
+
+    @Nullable
+    public Long getTimestamp(@NotNull final String swfName) {
+      return mySwfNameToTimestamp.get(swfName);
+    }
+
+    @NotNull
+    public List<SwcCatalogXmlUtil.ComponentFromCatalogXml> getComponents() {
+      return myComponents;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      final Definition definition = (Definition)o;
+      if (!mySwfNameToTimestamp.equals(definition.mySwfNameToTimestamp)) return false;
+      if (myComponents.size() != definition.myComponents.size()) return false;
+
+      for (int i = 0; i < myComponents.size(); i++) {
+        final SwcCatalogXmlUtil.ComponentFromCatalogXml component1 = myComponents.get(i);
+        final SwcCatalogXmlUtil.ComponentFromCatalogXml component2 = definition.myComponents.get(i);
+        if (!component1.myName.equals(component2.myName) ||
+            !component1.myClassFqn.equals(component2.myClassFqn) ||
+            !component1.myUri.equals(component2.myUri) ||
+            !Objects.equals(component1.myIcon, component2.myIcon)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mySwfNameToTimestamp.hashCode() + myComponents.size();
+    }
+  }
+
+  private static final DataExternalizer<Definition> VALUE_EXTERNALIZER = new DataExternalizer<Definition>() {
+    @Override
+    public void save(@NotNull final DataOutput out, final Definition value) throws IOException {
+      DataInputOutputUtil.writeINT(out, value.mySwfNameToTimestamp.size());
+      for (Map.Entry<String, Long> entry : value.mySwfNameToTimestamp.entrySet()) {
+        IOUtil.writeUTF(out, entry.getKey());
+        DataInputOutputUtil.writeLONG(out, entry.getValue());
+      }
+
+      DataInputOutputUtil.writeINT(out, value.myComponents.size());
+      for (SwcCatalogXmlUtil.ComponentFromCatalogXml component : value.myComponents) {
+        IOUtil.writeUTF(out, component.myName);
+        IOUtil.writeUTF(out, component.myClassFqn);
+        IOUtil.writeUTF(out, component.myUri);
+        IOUtil.writeUTF(out, component.myIcon == null ? "" : component.myIcon);
+      }
+    }
+
+    @Override
+    public Definition read(@NotNull final DataInput in) throws IOException {
+      final int swfNumber = DataInputOutputUtil.readINT(in);
+      final Map<String, Long> swfNameToTimestamp = new THashMap<>(swfNumber);
+      for (int i = 0; i < swfNumber; i++) {
+        swfNameToTimestamp.put(IOUtil.readUTF(in), DataInputOutputUtil.readLONG(in));
+      }
+
+      final int componentsNumber = DataInputOutputUtil.readINT(in);
+      final List<SwcCatalogXmlUtil.ComponentFromCatalogXml> components =
+        componentsNumber == 0 ? Collections.emptyList() : new ArrayList<>(componentsNumber);
+      for (int i = 0; i < componentsNumber; i++) {
+        final String name = IOUtil.readUTF(in);
+        final String classFqn = IOUtil.readUTF(in);
+        final String uri = IOUtil.readUTF(in);
+        final String icon = IOUtil.readUTF(in);
+        components.add(new SwcCatalogXmlUtil.ComponentFromCatalogXml(name, classFqn, uri, icon.isEmpty() ? null : icon));
+      }
+
+      return new Definition(swfNameToTimestamp, components);
+    }
+  };
+
+  private static final FileBasedIndex.InputFilter INPUT_FILTER = new DefaultFileTypeSpecificInputFilter(StdFileTypes.XML) {
+    @Override
+    public boolean acceptInput(@NotNull final VirtualFile file) {
+      if (!CATALOG_XML.equals(file.getName()) || !(file.getFileSystem() instanceof JarFileSystem)) return false;
+      final VirtualFile parent = file.getParent();
+      return parent != null && parent.getParent() == null; // catalog.xml in the root of swc
+    }
+  };
+
+  @NotNull
+  @Override
+  public ID<String, Definition> getName() {
+    return INDEX_ID;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Definition, FileContent> getIndexer() {
+    return new DataIndexer<String, Definition, FileContent>() {
+      @Override
+      @NotNull
+      public Map<String, Definition> map(@NotNull final FileContent inputData) {
+        return indexCatalogXml(inputData.getContentAsText());
+      }
+    };
+  }
+
+  static Map<String, Definition> indexCatalogXml(@NotNull final CharSequence catalogText) {
+    final Map<String, Map<String, Long>> qNameToTimestamps = new THashMap<>();
+    final Map<String, List<SwcCatalogXmlUtil.ComponentFromCatalogXml>> qNameToComponents = new THashMap<>();
+    final Map<String, Long> libraries = new THashMap<>();
+    qNameToTimestamps.put(LIBRARIES_KEY, libraries);
+
+    for (Map.Entry<String, TObjectLongHashMap<String>> entry : SwcCatalogXmlUtil.parseTimestampsFromCatalogXml(catalogText).entrySet()) {
+      final String swfName = entry.getKey();
+      libraries.put(swfName, 0L);
+      entry.getValue().forEachEntry((qName, timestamp) -> {
+        Map<String, Long> timestamps = qNameToTimestamps.get(qName);
+        if (timestamps == null) {
+          timestamps = new THashMap<>(1);
+          qNameToTimestamps.put(qName, timestamps);
+        }
+        timestamps.put(swfName, timestamp);
+        return true;
+      });
+    }
+
+    for (SwcCatalogXmlUtil.ComponentFromCatalogXml component : SwcCatalogXmlUtil.parseComponentsFromCatalogXml(catalogText)) {
+      List<SwcCatalogXmlUtil.ComponentFromCatalogXml> components = qNameToComponents.get(component.myClassFqn);
+      if (components == null) {
+        components = new ArrayList<>(1);
+        qNameToComponents.put(component.myClassFqn, components);
+      }
+      components.add(component);
+    }
+
+    final Map<String, Definition> result = new THashMap<>(qNameToTimestamps.size());
+    for (String qName : ContainerUtil.union(qNameToTimestamps.keySet(), qNameToComponents.keySet())) {
+      final Map<String, Long> timestamps = qNameToTimestamps.get(qName);
+      final List<SwcCatalogXmlUtil.ComponentFromCatalogXml> components = qNameToComponents.get(qName);
+      result.put(qName, new Definition(timestamps == null ? Collections.emptyMap() : timestamps,
+                                       components == null ? Collections.emptyList() : components));
+    }
+    return result;
+  }
+
+  @NotNull
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return EnumeratorStringDescriptor.INSTANCE;
+  }
+
+  @NotNull
+  @Override
+  public DataExternalizer<Definition> getValueExternalizer() {
+    return VALUE_EXTERNALIZER;
+  }
+
+  @NotNull
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return INPUT_FILTER;
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+
+  /**
+   * @return swc files (local file system) that define the class or function with the given qualified name
+   */
+  @NotNull
+  public static Collection<VirtualFile> findSwcFiles(@NotNull final String qName, @NotNull final GlobalSearchScope scope) {
+    if (qName.isEmpty()) return Collections.emptyList();
+
+    final Collection<VirtualFile> result = new ArrayList<>();
+    for (VirtualFile catalogFile : FileBasedIndex.getInstance().getContainingFiles(INDEX_ID, qName, scope)) {
+      final VirtualFile swcFile = JarFileSystem.getInstance().getVirtualFileForJar(catalogFile);
+      if (swcFile != null) {
+        result.add(swcFile);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return components backed by the class with the given qualified name, from all swc files in scope
+   */
+  @NotNull
+  public static Collection<SwcCatalogXmlUtil.ComponentFromCatalogXml> findComponents(@NotNull final String qName,
+                                                                                    @NotNull final GlobalSearchScope scope) {
+    final Collection<SwcCatalogXmlUtil.ComponentFromCatalogXml> result = new ArrayList<>();
+    for (Definition definition : FileBasedIndex.getInstance().getValues(INDEX_ID, qName, scope)) {
+      result.addAll(definition.getComponents());
+    }
+    return result;
+  }
+
+  /**
+   * @return timestamp of the definition in the given swf as written in <i>catalog.xml</i> (0 if catalog doesn't mention the definition
+   * in this swf, -1 if catalog doesn't list the swf), or {@code null} if indices are not ready or catalog is not indexed
+   */
+  @Nullable
+  static Long getTimestamp(@NotNull final Project project,
+                           @NotNull final VirtualFile catalogFile,
+                           @NotNull final String swfName,
+                           @NotNull final String qName) {
+    if (DumbService.isDumb(project) || !GlobalSearchScope.allScope(project).contains(catalogFile)) return null;
+
+    final GlobalSearchScope scope = GlobalSearchScope.fileScope(project, catalogFile);
+    final FileBasedIndex index = FileBasedIndex.getInstance();
+    for (Definition definition : index.getValues(INDEX_ID, qName, scope)) {
+      final Long timestamp = definition.getTimestamp(swfName);
+      if (timestamp != null) return timestamp;
+    }
+
+    for (Definition libraries : index.getValues(INDEX_ID, LIBRARIES_KEY, scope)) {
+      if (libraries.getTimestamp(swfName) != null) return 0L;
+    }
+    return -1L;
+  }
+}
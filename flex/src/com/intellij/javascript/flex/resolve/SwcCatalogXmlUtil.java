@@ -2,7 +2,6 @@ package com.intellij.javascript.flex.resolve;
 
 import com.intellij.lang.javascript.index.JavaScriptIndex;
 import com.intellij.lang.javascript.psi.ecmal4.JSQualifiedNamedElement;
-import com.intellij.openapi.util.JDOMUtil;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
@@ -17,8 +16,6 @@ import com.intellij.util.containers.Stack;
 import com.intellij.util.containers.StringInterner;
 import gnu.trove.THashMap;
 import gnu.trove.TObjectLongHashMap;
-import org.jdom.Element;
-import org.jdom.JDOMException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -53,10 +50,10 @@ public class SwcCatalogXmlUtil {
     public final @NotNull String myUri;
     public final @Nullable String myIcon;
 
-    private ComponentFromCatalogXml(final @NotNull String name,
-                                    final @NotNull String classFqn,
-                                    final @NotNull String uri,
-                                    final @Nullable String icon) {
+    ComponentFromCatalogXml(final @NotNull String name,
+                            final @NotNull String classFqn,
+                            final @NotNull String uri,
+                            final @Nullable String icon) {
       myName = name;
       myClassFqn = classFqn;
       myUri = uri.intern(); // memory optimization
@@ -141,12 +138,19 @@ public class SwcCatalogXmlUtil {
 
     final VirtualFile swfFile = psiFile.getVirtualFile();
     final VirtualFile dir = swfFile != null && "swf".equalsIgnoreCase(swfFile.getExtension()) ? swfFile.getParent() : null;
-    final VirtualFile catalogFile = dir == null ? null : dir.findChild("catalog.xml");
+    final VirtualFile catalogFile = dir == null ? null : dir.findChild(SwcCatalogXmlIndex.CATALOG_XML);
 
     if (catalogFile == null) {
       return -1;
     }
 
+    final Long indexedTimestamp = SwcCatalogXmlIndex.getTimestamp(psiElement.getProject(), catalogFile, swfFile.getName(), qName);
+    if (indexedTimestamp != null) {
+      psiElement.putUserData(TIMESTAMP_IN_CATALOG_XML, indexedTimestamp);
+      return indexedTimestamp;
+    }
+
+    // indices are not ready, parse catalog.xml
     Pair<Long, THashMap<String, TObjectLongHashMap<String>>> modStampAndSwfNameToQnameWithTimestampMap =
       catalogFile.getUserData(MOD_STAMP_AND_SWF_NAME_TO_QNAME_WITH_TIMESTAMP_MAP);
 
@@ -164,8 +168,16 @@ public class SwcCatalogXmlUtil {
     return timestamp;
   }
 
-  @SuppressWarnings({"unchecked"})
   private static THashMap<String, TObjectLongHashMap<String>> parseTimestampsFromCatalogXml(final @NotNull VirtualFile catalogFile) {
+    try {
+      return parseTimestampsFromCatalogXml(VfsUtilCore.loadText(catalogFile));
+    }
+    catch (IOException e) {
+      return new THashMap<>(1);
+    }
+  }
+
+  static THashMap<String, TObjectLongHashMap<String>> parseTimestampsFromCatalogXml(final @NotNull CharSequence catalogText) {
     //  <swc xmlns="http://www.adobe.com/flash/swccatalog/9">
     //    <libraries>
     //      <library path="library.swf">                                                                    take swf name here
@@ -176,45 +188,52 @@ public class SwcCatalogXmlUtil {
 
     final THashMap<String, TObjectLongHashMap<String>> swfNameToQnameWithTimestampMap = new THashMap<>(1);
 
-    try {
-      final Element rootElement = JDOMUtil.load(catalogFile.getInputStream());
-      if (rootElement != null && "swc".equals(rootElement.getName())) {
-        for (final Element librariesElement : rootElement.getChildren("libraries", rootElement.getNamespace())) {
-          for (final Element libraryElement : librariesElement.getChildren("library", librariesElement.getNamespace())) {
-            final String swfName = libraryElement.getAttributeValue("path");
-            if (StringUtil.isEmpty(swfName)) {
-              continue;
-            }
+    final XmlBuilder xmlBuilder = new XmlBuilderAdapter() {
+      private static final String LIBRARY_LOCATION = ".swc.libraries.library";
+      private static final String SCRIPT_LOCATION = ".swc.libraries.library.script";
+      private static final String DEF_LOCATION = ".swc.libraries.library.script.def";
+
+      private TObjectLongHashMap<String> myQNameWithTimestampMap = null;
+      private long myTimestamp = -1;
 
-            final TObjectLongHashMap<String> qNameWithTimestampMap = new TObjectLongHashMap<>();
-            swfNameToQnameWithTimestampMap.put(swfName, qNameWithTimestampMap);
-
-            for (final Element scriptElement : libraryElement.getChildren("script", libraryElement.getNamespace())) {
-              final String mod = scriptElement.getAttributeValue("mod");
-              if (StringUtil.isEmpty(mod)) {
-                continue;
-              }
-
-              try {
-                final long timestamp = Long.parseLong(mod);
-
-                for (final Element defElement : scriptElement.getChildren("def", scriptElement.getNamespace())) {
-                  final String id = defElement.getAttributeValue("id");
-                  if (!StringUtil.isEmpty(id)) {
-                    final String fqn = id.replace(':', '.');
-                    qNameWithTimestampMap.put(fqn, timestamp);
-                  }
-                }
-              }
-              catch (NumberFormatException ignored) {/*ignore*/}
+      @Override
+      public ProcessingOrder startTag(CharSequence localName, String namespace, int start, int end, int headerEnd) {
+        final ProcessingOrder order = super.startTag(localName, namespace, start, end, headerEnd);
+        if (LIBRARY_LOCATION.equals(getLocation())) {
+          myQNameWithTimestampMap = null;
+        }
+        else if (SCRIPT_LOCATION.equals(getLocation())) {
+          myTimestamp = -1;
+        }
+        return order;
+      }
+
+      @Override
+      public void attribute(CharSequence name, CharSequence value, int start, int end) {
+        final String location = getLocation();
+        if (LIBRARY_LOCATION.equals(location)) {
+          if ("path".contentEquals(name) && value.length() > 0) {
+            myQNameWithTimestampMap = new TObjectLongHashMap<>();
+            swfNameToQnameWithTimestampMap.put(value.toString(), myQNameWithTimestampMap);
+          }
+        }
+        else if (SCRIPT_LOCATION.equals(location)) {
+          if ("mod".contentEquals(name) && value.length() > 0) {
+            try {
+              myTimestamp = Long.parseLong(value.toString());
             }
+            catch (NumberFormatException ignored) {/*ignore*/}
+          }
+        }
+        else if (DEF_LOCATION.equals(location)) {
+          if ("id".contentEquals(name) && value.length() > 0 && myQNameWithTimestampMap != null && myTimestamp != -1) {
+            myQNameWithTimestampMap.put(value.toString().replace(':', '.'), myTimestamp);
           }
         }
       }
-    }
-    catch (JDOMException ignored) {/*ignore*/}
-    catch (IOException ignored) {/*ignore*/}
+    };
 
+    new XmlBuilderDriver(catalogText).build(xmlBuilder);
     return swfNameToQnameWithTimestampMap;
   }
 
@@ -233,6 +252,15 @@ public class SwcCatalogXmlUtil {
   }
 
   private static ComponentFromCatalogXml[] parseComponentsFromCatalogXml(final VirtualFile catalogFile) {
+    try {
+      return parseComponentsFromCatalogXml(VfsUtilCore.loadText(catalogFile));
+    }
+    catch (IOException e) {
+      return new ComponentFromCatalogXml[0];
+    }
+  }
+
+  static ComponentFromCatalogXml[] parseComponentsFromCatalogXml(final @NotNull CharSequence catalogText) {
     final Collection<ComponentFromCatalogXml> result = new ArrayList<>();
 
     final XmlBuilder xmlBuilder = new XmlBuilderAdapter() {
@@ -290,12 +318,7 @@ public class SwcCatalogXmlUtil {
       }
     };
 
-    try {
-      new XmlBuilderDriver(VfsUtilCore.loadText(catalogFile)).build(xmlBuilder);
-    }
-    catch (IOException ignored) {/*ignore*/}
-
-
+    new XmlBuilderDriver(catalogText).build(xmlBuilder);
     return result.toArray(new ComponentFromCatalogXml[result.size()]);
   }
 
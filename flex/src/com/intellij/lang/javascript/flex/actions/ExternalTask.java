@@ -35,7 +35,7 @@ public abstract class ExternalTask {
   protected final Sdk myFlexSdk;
 
   private Process myProcess;
-  private boolean myFinished;
+  private volatile boolean myFinished;
   private String myCommandLine = "";
   protected List<String> myMessages = new ArrayList<>();
   private int myExitCode = -1;
@@ -77,6 +77,14 @@ public abstract class ExternalTask {
     return null;
   }
 
+  /**
+   * @return file written by this task, tasks with the same output file are never run at the same time
+   */
+  @Nullable
+  public String getOutputFilePath() {
+    return null;
+  }
+
   private void debug(final String message) {
     LOG.debug("[" + hashCode() + "] " + message);
   }
@@ -0,0 +1,155 @@
+package com.intellij.lang.javascript.flex.actions;
+
+import com.intellij.flex.FlexCommonUtils;
+import com.intellij.lang.javascript.flex.actions.airpackage.AirPackageProjectParameters;
+import com.intellij.lang.javascript.flex.build.FlexCompilerProjectConfiguration;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.Consumer;
+import com.intellij.util.TimeoutUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs external tasks that don't depend on each other (ADT packaging for several build configurations and targets) with up to
+ * {@code maxConcurrentTasks} processes running at the same time. Tasks that write the same file (two build configurations
+ * with the same package path) are run one after another, in the order of the list.
+ */
+public class ExternalTaskScheduler {
+
+  private static final Logger LOG = Logger.getInstance(ExternalTaskScheduler.class.getName());
+
+  private static final int POLL_INTERVAL_MS = 200;
+
+  public static class Result {
+    public final ExternalTask task;
+    public final boolean successful;
+    public final long durationMs;
+
+    Result(final ExternalTask task, final boolean successful, final long durationMs) {
+      this.task = task;
+      this.successful = successful;
+      this.durationMs = durationMs;
+    }
+  }
+
+  private final int myMaxConcurrentTasks;
+
+  public ExternalTaskScheduler(final int maxConcurrentTasks) {
+    myMaxConcurrentTasks = Math.max(1, maxConcurrentTasks);
+  }
+
+  /**
+   * Each task is a separate JVM that takes up to {@link FlexCompilerProjectConfiguration#HEAP_SIZE_MB}, so the limit is the number
+   * of processors and the number of such heaps that fit into free physical memory.
+   */
+  public static int getMaxConcurrentTasks(final Project project) {
+    final int heapSizeMb = Math.max(1, FlexCompilerProjectConfiguration.getInstance(project).HEAP_SIZE_MB);
+    return getMaxConcurrentTasks(Runtime.getRuntime().availableProcessors(), FlexCommonUtils.getFreePhysicalMemory(),
+                                 heapSizeMb * 1024L * 1024L);
+  }
+
+  static int getMaxConcurrentTasks(final int processors, final long freeMemory, final long memoryPerTask) {
+    if (freeMemory <= 0) return Math.max(1, processors);
+    return (int)Math.max(1, Math.min(processors, freeMemory / memoryPerTask));
+  }
+
+  /**
+   * Blocks until all tasks are finished. If the indicator is canceled, running tasks are canceled and the rest are not started.
+   *
+   * @return results in the order of {@code tasks}, {@code null} for a task that was canceled or not started
+   */
+  public List<Result> run(final List<? extends ExternalTask> tasks, @Nullable final ProgressIndicator indicator) {
+    final Result[] results = new Result[tasks.size()];
+    final long[] startTimes = new long[tasks.size()];
+    final boolean[] started = new boolean[tasks.size()];
+    final List<Integer> running = new ArrayList<>(myMaxConcurrentTasks);
+    final Set<String> runningOutputPaths = new HashSet<>();
+    final long start = System.currentTimeMillis();
+    int firstNotStarted = 0;
+    int finished = 0;
+
+    if (indicator != null) {
+      indicator.setIndeterminate(tasks.size() == 1);
+    }
+
+    while (true) {
+      if (indicator != null && indicator.isCanceled()) {
+        for (Integer index : running) {
+          tasks.get(index).cancel();
+        }
+        break;
+      }
+
+      for (int i = running.size() - 1; i >= 0; i--) {
+        final int index = running.get(i);
+        final ExternalTask task = tasks.get(index);
+        if (task.isFinished()) {
+          results[index] = new Result(task, task.checkMessages(), System.currentTimeMillis() - startTimes[index]);
+          running.remove(i);
+          runningOutputPaths.remove(task.getOutputFilePath());
+          finished++;
+        }
+      }
+
+      for (int i = firstNotStarted; i < tasks.size() && running.size() < myMaxConcurrentTasks; i++) {
+        if (started[i]) continue;
+        final ExternalTask task = tasks.get(i);
+        final String outputPath = task.getOutputFilePath();
+        if (outputPath != null && !runningOutputPaths.add(outputPath)) continue;
+
+        started[i] = true;
+        startTimes[i] = System.currentTimeMillis();
+        task.start();
+        running.add(i);
+      }
+      while (firstNotStarted < tasks.size() && started[firstNotStarted]) {
+        firstNotStarted++;
+      }
+
+      if (running.isEmpty()) break;
+
+      if (indicator != null && tasks.size() > 1) {
+        indicator.setFraction((double)finished / tasks.size());
+      }
+      TimeoutUtil.sleep(POLL_INTERVAL_MS);
+    }
+
+    LOG.debug(tasks.size() + " tasks with up to " + myMaxConcurrentTasks + " at the same time took " +
+              (System.currentTimeMillis() - start) + " ms");
+    return Arrays.asList(results);
+  }
+
+  public static void runInBackground(final Project project,
+                                     final List<? extends ExternalTask> tasks,
+                                     final String progressTitle,
+                                     final Consumer<List<Result>> onFinished) {
+    ProgressManager.getInstance().run(new Task.Backgroundable(project, progressTitle, true) {
+      private List<Result> myResults;
+
+      public void run(@NotNull final ProgressIndicator indicator) {
+        final AirPackageProjectParameters params = AirPackageProjectParameters.getInstance(project);
+        try {
+          params.setPackagingInProgress(true);
+          myResults = new ExternalTaskScheduler(getMaxConcurrentTasks(project)).run(tasks, indicator);
+        }
+        finally {
+          params.setPackagingInProgress(false);
+        }
+      }
+
+      public void onSuccess() {
+        onFinished.consume(myResults);
+      }
+    });
+  }
+}
@@ -34,6 +34,11 @@ public abstract class AdtPackageTask extends AdtTask {
     return new File(PathUtil.getParentPath(myPackageFilePath));
   }
 
+  @Override
+  public String getOutputFilePath() {
+    return myPackageFilePath;
+  }
+
   public void start() {
     myStartTime = System.currentTimeMillis();
     super.start();
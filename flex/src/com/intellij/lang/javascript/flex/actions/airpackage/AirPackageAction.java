@@ -6,6 +6,7 @@ import com.intellij.ide.actions.ShowFilePathAction;
 import com.intellij.lang.javascript.flex.FlexBundle;
 import com.intellij.lang.javascript.flex.FlexModuleType;
 import com.intellij.lang.javascript.flex.actions.ExternalTask;
+import com.intellij.lang.javascript.flex.actions.ExternalTaskScheduler;
 import com.intellij.lang.javascript.flex.build.FlexResourceBuildTargetScopeProvider;
 import com.intellij.lang.javascript.flex.projectStructure.model.*;
 import com.intellij.notification.Notification;
@@ -27,7 +28,7 @@ import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.Consumer;
 import com.intellij.util.PathUtil;
-import gnu.trove.THashMap;
+import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -103,7 +104,7 @@ public class AirPackageAction extends DumbAwareAction {
   private static void createPackages(final Project project,
                                      final Collection<Pair<Module, FlexBuildConfiguration>> modulesAndBCs,
                                      final PasswordStore passwords) {
-    final Collection<Pair<ExternalTask, String>> tasksAndPackagePaths = new ArrayList<>();
+    final List<Pair<ExternalTask, String>> tasksAndPackagePaths = new ArrayList<>();
 
     final AirPackageProjectParameters params = AirPackageProjectParameters.getInstance(project);
 
@@ -141,69 +142,70 @@ public class AirPackageAction extends DumbAwareAction {
     createPackages(project, tasksAndPackagePaths);
   }
 
-  private static void createPackages(final Project project, final Collection<Pair<ExternalTask, String>> tasksAndPackagePaths) {
-    final Iterator<Pair<ExternalTask, String>> iterator = tasksAndPackagePaths.iterator();
-    final Pair<ExternalTask, String> taskAndPackagePath = iterator.next();
-    final ExternalTask task = taskAndPackagePath.first;
-    final String packagePath = taskAndPackagePath.second;
-    final Consumer<List<String>> onSuccessRunnable =
-      createSuccessConsumer(project, iterator, packagePath, new THashMap<>());
-    ExternalTask
-      .runInBackground(task, FlexBundle.message("packaging.air.application", PathUtil.getFileName(packagePath)),
-                       onSuccessRunnable, createFailureConsumer(project, packagePath, task));
-  }
+  private static void createPackages(final Project project, final List<Pair<ExternalTask, String>> tasksAndPackagePaths) {
+    if (tasksAndPackagePaths.isEmpty()) return;
 
-  private static Consumer<List<String>> createSuccessConsumer(final Project project,
-                                                              final Iterator<Pair<ExternalTask, String>> iterator,
-                                                              final String createdPackagePath,
-                                                              final Map<String, List<String>> packagePathsToWarnings) {
-    return messages -> {
-      packagePathsToWarnings.put(createdPackagePath, messages);
-
-      if (iterator.hasNext()) {
-        final Pair<ExternalTask, String> taskAndPackagePath = iterator.next();
-        final ExternalTask task = taskAndPackagePath.first;
-        final String packagePath = taskAndPackagePath.second;
-        final Consumer<List<String>> onSuccessRunnable = createSuccessConsumer(project, iterator, packagePath, packagePathsToWarnings);
-        ExternalTask
-          .runInBackground(task, FlexBundle.message("packaging.air.application", PathUtil.getFileName(packagePath)),
-                           onSuccessRunnable, createFailureConsumer(project, packagePath, task));
+    final List<ExternalTask> tasks = ContainerUtil.map(tasksAndPackagePaths, taskAndPackagePath -> taskAndPackagePath.first);
+    final String progressTitle = tasks.size() == 1
+                                 ? FlexBundle.message("packaging.air.application",
+                                                      PathUtil.getFileName(tasksAndPackagePaths.get(0).second))
+                                 : FlexBundle.message("packaging.air.applications", tasks.size());
+
+    ExternalTaskScheduler.runInBackground(project, tasks, progressTitle, results -> {
+      final Map<String, ExternalTaskScheduler.Result> createdPackages = new LinkedHashMap<>();
+      for (int i = 0; i < results.size(); i++) {
+        final ExternalTaskScheduler.Result result = results.get(i);
+        if (result == null) continue;
+
+        final String packagePath = tasksAndPackagePaths.get(i).second;
+        if (result.successful) {
+          createdPackages.put(packagePath, result);
+        }
+        else {
+          createFailureConsumer(project, packagePath, result.task).consume(result.task.getMessages());
+        }
       }
-      else {
-        final StringBuilder hrefs = new StringBuilder();
-        for (Map.Entry<String, List<String>> entry : packagePathsToWarnings.entrySet()) {
-          final String packagePath = entry.getKey();
-          final List<String> warnings = entry.getValue();
 
-          if (hrefs.length() > 0) {
-            hrefs.append("<br>");
-          }
+      if (!createdPackages.isEmpty()) {
+        notifyPackagesCreated(project, createdPackages);
+      }
+    });
+  }
 
-          hrefs.append("<a href='").append(packagePath).append("'>").append(PathUtil.getFileName(packagePath)).append("</a>");
+  private static void notifyPackagesCreated(final Project project, final Map<String, ExternalTaskScheduler.Result> createdPackages) {
+    final StringBuilder hrefs = new StringBuilder();
+    for (Map.Entry<String, ExternalTaskScheduler.Result> entry : createdPackages.entrySet()) {
+      final String packagePath = entry.getKey();
+      final List<String> warnings = entry.getValue().task.getMessages();
 
-          if (!warnings.isEmpty()) {
-            hrefs.append("<br>");
-            for (String warning : warnings) {
-              hrefs.append(warning).append("<br>");
-            }
-          }
-        }
+      if (hrefs.length() > 0) {
+        hrefs.append("<br>");
+      }
 
-        final String message = FlexBundle.message("air.application.created", packagePathsToWarnings.size(), hrefs);
+      hrefs.append("<a href='").append(packagePath).append("'>").append(PathUtil.getFileName(packagePath)).append("</a>");
+      hrefs.append(" (").append(StringUtil.formatDuration(entry.getValue().durationMs)).append(")");
 
-        final NotificationListener listener = new NotificationListener() {
-          public void hyperlinkUpdate(@NotNull final Notification notification, @NotNull final HyperlinkEvent event) {
-            if (event.getEventType() == HyperlinkEvent.EventType.ACTIVATED) {
-              notification.expire();
-              final String packagePath = event.getDescription();
-              ShowFilePathAction.openFile(new File(packagePath));
-            }
-          }
-        };
+      if (!warnings.isEmpty()) {
+        hrefs.append("<br>");
+        for (String warning : warnings) {
+          hrefs.append(warning).append("<br>");
+        }
+      }
+    }
+
+    final String message = FlexBundle.message("air.application.created", createdPackages.size(), hrefs);
 
-        NOTIFICATION_GROUP.createNotification("", message, NotificationType.INFORMATION, listener).notify(project);
+    final NotificationListener listener = new NotificationListener() {
+      public void hyperlinkUpdate(@NotNull final Notification notification, @NotNull final HyperlinkEvent event) {
+        if (event.getEventType() == HyperlinkEvent.EventType.ACTIVATED) {
+          notification.expire();
+          final String packagePath = event.getDescription();
+          ShowFilePathAction.openFile(new File(packagePath));
+        }
       }
     };
+
+    NOTIFICATION_GROUP.createNotification("", message, NotificationType.INFORMATION, listener).notify(project);
   }
 
   private static Consumer<List<String>> createFailureConsumer(final Project project, final String packagePath, final ExternalTask task) {
@@ -12,19 +12,34 @@ import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.compiler.CompileContext;
 import com.intellij.openapi.compiler.CompilerMessage;
 import com.intellij.openapi.compiler.CompilerMessageCategory;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.util.NullableComputable;
 import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import gnu.trove.THashSet;
+import gnu.trove.TObjectIntHashMap;
+import gnu.trove.TObjectLongHashMap;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Starts compilation tasks as soon as their dependencies are compiled, up to
+ * {@link FlexCompilerProjectConfiguration#MAX_PARALLEL_COMPILATIONS} at a time. Tasks report completion via
+ * {@link #taskFinished(FlexCompilationTask)}, which wakes up the scheduling loop in {@link #compile()} instead of periodic polling.
+ * Among ready tasks, the ones with the longest chain of dependent tasks are started first.
+ */
 public class FlexCompilationManager {
+  private static final Logger LOG = Logger.getInstance(FlexCompilationManager.class.getName());
+  private static final long CHECK_CANCELED_PERIOD = 200;
 
   private final CompileContext myCompileContext;
   private final int myMaxParallelCompilations;
@@ -32,6 +47,11 @@ public class FlexCompilationManager {
   private final Collection<FlexCompilationTask> myNotStartedTasks;
   private final Collection<FlexCompilationTask> myInProgressTasks;
   private final Collection<FlexCompilationTask> myFinishedTasks;
+  private final BlockingQueue<FlexCompilationTask> myFinishNotifications = new LinkedBlockingQueue<>();
+
+  private final long myStartTime = System.currentTimeMillis();
+  private final TObjectLongHashMap<FlexCompilationTask> myReadyTimes = new TObjectLongHashMap<>();
+  private final TObjectLongHashMap<FlexCompilationTask> myStartTimes = new TObjectLongHashMap<>();
 
   private boolean myCompilationFinished;
   private final FlexCompilerDependenciesCache myCompilerDependenciesCache;
@@ -43,7 +63,7 @@ public class FlexCompilationManager {
     myCompileContext = context;
     myMaxParallelCompilations = FlexCompilerProjectConfiguration.getInstance(context.getProject()).MAX_PARALLEL_COMPILATIONS;
     myTasksAmount = compilationTasks.size();
-    myNotStartedTasks = new LinkedList<>(compilationTasks);
+    myNotStartedTasks = sortByCriticalPath(compilationTasks);
     myInProgressTasks = new LinkedList<>();
     myFinishedTasks = new LinkedList<>();
     myCompilationFinished = false;
@@ -62,15 +82,12 @@ public class FlexCompilationManager {
         }
 
         checkFinishedTasks();
+        markReadyTasks();
         startNewTaskIfPossible();
         updateProgressIndicator();
 
-        try {
-          //noinspection BusyWait
-          Thread.sleep(200);
-        }
-        catch (InterruptedException e) {
-          assert false;
+        if (!myNotStartedTasks.isEmpty() || !myInProgressTasks.isEmpty()) {
+          waitForFinishedTask();
         }
       }
     }
@@ -82,6 +99,25 @@ public class FlexCompilationManager {
     }
   }
 
+  /**
+   * Called by a task in any thread when it has finished or has been canceled.
+   */
+  void taskFinished(final FlexCompilationTask task) {
+    myFinishNotifications.offer(task);
+  }
+
+  private void waitForFinishedTask() {
+    try {
+      if (myFinishNotifications.poll(CHECK_CANCELED_PERIOD, TimeUnit.MILLISECONDS) != null) {
+        // finished flags of all tasks that have sent notifications are already set and will be checked by checkFinishedTasks()
+        myFinishNotifications.clear();
+      }
+    }
+    catch (InterruptedException e) {
+      assert false;
+    }
+  }
+
   public synchronized void addMessage(final FlexCompilationTask task,
                                       CompilerMessageCategory category,
                                       final String message,
@@ -144,6 +180,7 @@ public class FlexCompilationManager {
       if (task.isFinished()) {
         iterator.remove();
         myFinishedTasks.add(task);
+        logTimes(task);
 
         if (task.isCompilationFailed()) {
           final Collection<FlexCompilationTask> cancelledTasks = cancelNotStartedDependentTasks(task);
@@ -169,12 +206,7 @@ public class FlexCompilationManager {
             }
           }
 
-          try {
-            FlexCompilationUtils.performPostCompileActions(task.getModule(), task.getBC(), taskMessages);
-          }
-          catch (FlexCompilerException e) {
-            addMessage(task, CompilerMessageCategory.ERROR, e.getMessage(), e.getUrl(), e.getLine(), e.getColumn());
-          }
+          performPostCompileActions(task, taskMessages);
         }
 
         if (task.isCompilationFailed()) {
@@ -190,6 +222,15 @@ public class FlexCompilationManager {
     }
   }
 
+  void performPostCompileActions(final FlexCompilationTask task, final List<String> compileInfoMessages) {
+    try {
+      FlexCompilationUtils.performPostCompileActions(task.getModule(), task.getBC(), compileInfoMessages);
+    }
+    catch (FlexCompilerException e) {
+      addMessage(task, CompilerMessageCategory.ERROR, e.getMessage(), e.getUrl(), e.getLine(), e.getColumn());
+    }
+  }
+
   private String getMessagePrefix(final FlexCompilationTask task) {
     return "[" + task.getPresentableName() + "] ";
   }
@@ -278,14 +319,10 @@ public class FlexCompilationManager {
           taskToStart.cancel();
           myFinishedTasks.add(taskToStart);
 
-          try {
-            FlexCompilationUtils.performPostCompileActions(taskToStart.getModule(), taskToStart.getBC(), Collections.<String>emptyList());
-          }
-          catch (FlexCompilerException e) {
-            addMessage(taskToStart, CompilerMessageCategory.ERROR, e.getMessage(), e.getUrl(), e.getLine(), e.getColumn());
-          }
+          performPostCompileActions(taskToStart, Collections.<String>emptyList());
         }
         else {
+          myStartTimes.put(taskToStart, System.currentTimeMillis());
           taskToStart.start(this);
           myInProgressTasks.add(taskToStart);
         }
@@ -295,6 +332,73 @@ public class FlexCompilationManager {
     }
   }
 
+  private void markReadyTasks() {
+    final long now = System.currentTimeMillis();
+    for (FlexCompilationTask task : myNotStartedTasks) {
+      if (!myReadyTimes.containsKey(task) &&
+          !(BCUtils.isRLMTemporaryBC(task.getBC()) && !isMainAppCompiledForRLM(task.getModule(), task.getBC())) &&
+          !hasDependenciesIn(task, myInProgressTasks) &&
+          !hasDependenciesIn(task, myNotStartedTasks)) {
+        myReadyTimes.put(task, now);
+      }
+    }
+  }
+
+  private void logTimes(final FlexCompilationTask task) {
+    if (!myStartTimes.containsKey(task)) return;
+
+    final long startTime = myStartTimes.get(task);
+    final long readyTime = myReadyTimes.containsKey(task) ? myReadyTimes.get(task) : startTime; // started as a part of a dependency cycle
+    LOG.info(task.getPresentableName() + ": waited for dependencies " + (readyTime - myStartTime) + " ms, waited for a free slot " +
+             (startTime - readyTime) + " ms, compiled in " + (System.currentTimeMillis() - startTime) + " ms");
+  }
+
+  /**
+   * Tasks that have longer chains of dependent tasks go first, so that the longest chain (the critical path) is not delayed by tasks
+   * that nothing depends on.
+   */
+  private static LinkedList<FlexCompilationTask> sortByCriticalPath(final Collection<FlexCompilationTask> tasks) {
+    final TObjectIntHashMap<FlexCompilationTask> chainLengths = new TObjectIntHashMap<>();
+    for (FlexCompilationTask task : tasks) {
+      computeChainLength(task, tasks, chainLengths, new THashSet<>());
+    }
+
+    final List<FlexCompilationTask> sorted = new ArrayList<>(tasks);
+    Collections.sort(sorted, (task1, task2) -> chainLengths.get(task2) - chainLengths.get(task1)); // stable, keeps initial order of equal
+    return new LinkedList<>(sorted);
+  }
+
+  private static int computeChainLength(final FlexCompilationTask task,
+                                        final Collection<FlexCompilationTask> tasks,
+                                        final TObjectIntHashMap<FlexCompilationTask> chainLengths,
+                                        final Set<FlexCompilationTask> visiting) {
+    if (chainLengths.containsKey(task)) return chainLengths.get(task);
+    if (!visiting.add(task)) return 0; // cyclic dependency
+
+    int maxDependentChainLength = 0;
+    for (FlexCompilationTask otherTask : tasks) {
+      if (isDependent(otherTask, task)) {
+        maxDependentChainLength = Math.max(maxDependentChainLength, computeChainLength(otherTask, tasks, chainLengths, visiting));
+      }
+    }
+
+    visiting.remove(task);
+    chainLengths.put(task, maxDependentChainLength + 1);
+    return maxDependentChainLength + 1;
+  }
+
+  private static boolean isDependent(final FlexCompilationTask task, final FlexCompilationTask dependency) {
+    if (task == dependency) return false;
+    //noinspection ConstantConditions
+    if (task.getDependencies().contains(dependency.getBC())) return true;
+
+    // RLM is compiled after its main application
+    return BCUtils.isRLMTemporaryBC(task.getBC()) &&
+           !BCUtils.isRLMTemporaryBC(dependency.getBC()) &&
+           task.getModule() == dependency.getModule() &&
+           task.getBC().getName().equals(dependency.getBC().getName());
+  }
+
   private boolean isMainAppCompiledForRLM(final Module module, final FlexBuildConfiguration rlmBC) {
     for (FlexCompilationTask task : myFinishedTasks) {
       final FlexBuildConfiguration bc = task.getBC();
@@ -0,0 +1,127 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates several expressions in the context of a stack frame with a single <code>batchprint</code> command of the patched fdb
+ * (see <code>DebugCLI.doBatchPrint()</code> in flex/tools/idea-fdb-fix) instead of a <code>print</code> round trip per expression.
+ * Consumer receives the <code>print</code> output for each expression, or <code>null</code> if the expression could not be evaluated.
+ */
+class BatchEvaluateCommand extends DebuggerCommand {
+  @NonNls private static final String BATCH_PRINT_COMMAND = "batchprint ";
+  @NonNls private static final String BATCH_SEPARATOR = ";;";
+  @NonNls private static final String BATCH_MARKER = "batch ";
+  @NonNls private static final String BATCH_END = "batch end";
+  @NonNls private static final String OK_STATUS = "ok";
+
+  private final FlexDebugProcess myDebugProcess;
+  private final int myExpressionCount;
+  private final Consumer<List<String>> myResultsConsumer;
+  private int myResponseCount;
+
+  BatchEvaluateCommand(final @NotNull FlexStackFrame frame,
+                       final @NotNull List<String> expressions,
+                       final @NotNull Consumer<List<String>> resultsConsumer) {
+    super(frame.addFrameOffset(BATCH_PRINT_COMMAND + StringUtil.join(expressions, BATCH_SEPARATOR)),
+          CommandOutputProcessingType.SPECIAL_PROCESSING);
+    myDebugProcess = frame.getDebugProcess();
+    myExpressionCount = expressions.size();
+    myResultsConsumer = resultsConsumer;
+  }
+
+  /**
+   * Expressions with assignments are not batched because {@link FlexStackFrame.EvaluateCommand} turns them into <code>set</code> command
+   */
+  static boolean canBeBatched(final @NotNull String expression) {
+    return !expression.contains(BATCH_SEPARATOR) &&
+           expression.indexOf('=') == -1 &&
+           expression.indexOf('\n') == -1 &&
+           expression.indexOf('\r') == -1;
+  }
+
+  @Override
+  CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+    if (!s.startsWith(BATCH_MARKER) && myDebugProcess.filterStdResponse(s)) return CommandOutputProcessingMode.PROCEEDING;
+
+    ++myResponseCount;
+    if (myResponseCount == 1) { // skip frame
+      return CommandOutputProcessingMode.PROCEEDING;
+    }
+
+    if (!s.startsWith(BATCH_MARKER)) {
+      // bundled fdb fix jar built before the command was added, don't try again in this session
+      FlexDebugProcess.log("batchprint is not supported: " + s);
+      myDebugProcess.batchPrintNotSupported();
+    }
+
+    myResultsConsumer.consume(parseResults(s, myExpressionCount));
+    return CommandOutputProcessingMode.DONE;
+  }
+
+  /**
+   * Parses <code>batchprint</code> output. Each result is preceded by a header with its index, status and length, so values spanning
+   * several lines are read as is:
+   * <pre>
+   * batch 0 ok 12
+   * $1 = 3 (0x3)
+   * batch 1 error 27
+   * Variable foo is unknown.
+   * batch end
+   * </pre>
+   */
+  @NotNull
+  static List<String> parseResults(final @NotNull String output, final int expressionCount) {
+    final String[] results = new String[expressionCount];
+    int offset = output.indexOf(BATCH_MARKER);
+
+    while (offset != -1 && output.startsWith(BATCH_MARKER, offset) && !output.startsWith(BATCH_END, offset)) {
+      final int headerEnd = output.indexOf('\n', offset);
+      if (headerEnd == -1) break;
+
+      final String[] header = output.substring(offset + BATCH_MARKER.length(), headerEnd).trim().split(" ");
+      final int index = header.length == 3 ? parseInt(header[0]) : -1;
+      final int length = header.length == 3 ? parseInt(header[2]) : -1;
+      final int valueStart = headerEnd + 1;
+      if (index < 0 || index >= expressionCount || length < 0 || valueStart + length > output.length()) {
+        FlexDebugProcess.log("Unexpected batchprint output: " + output);
+        break;
+      }
+
+      if (OK_STATUS.equals(header[1])) {
+        results[index] = output.substring(valueStart, valueStart + length);
+      }
+
+      offset = valueStart + length;
+      if (offset < output.length() && output.charAt(offset) == '\r') offset++;
+      if (offset < output.length() && output.charAt(offset) == '\n') offset++;
+    }
+
+    return Arrays.asList(results);
+  }
+
+  private static int parseInt(final String s) {
+    try {
+      return Integer.parseInt(s);
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return value part of the <code>print</code> command output, i.e. <code>3 (0x3)</code> for <code>$1 = 3 (0x3)</code>
+   */
+  @Nullable
+  static String getPrintedValue(final @Nullable String printOutput) {
+    if (printOutput == null) return null;
+    final int i = printOutput.indexOf(FlexStackFrame.DELIM);
+    return (i == -1 ? printOutput : printOutput.substring(i + FlexStackFrame.DELIM.length())).trim();
+  }
+}
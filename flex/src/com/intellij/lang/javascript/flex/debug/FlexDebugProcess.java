@@ -112,6 +112,7 @@ public class FlexDebugProcess extends XDebugProcess {
   private final String myAppSdkHome;
   private final String myDebuggerSdkHome;
   private final String myDebuggerVersion;
+  private volatile boolean myBatchPrintSupported;
 
   @NonNls static final String RESOLVED_BREAKPOINT_MARKER = "Resolved breakpoint ";
   @NonNls static final String BREAKPOINT_MARKER = "Breakpoint ";
@@ -198,6 +199,7 @@ public class FlexDebugProcess extends XDebugProcess {
                                : sdk;
     myDebuggerSdkHome = FileUtil.toSystemIndependentName(sdkForDebugger.getHomePath());
     myDebuggerVersion = sdkForDebugger.getVersionString();
+    myBatchPrintSupported = getFdbFixJarName() != null;
     myBreakpointsHandler = new FlexBreakpointsHandler(this);
 
     final List<String> fdbLaunchCommand = FlexSdkUtils
@@ -319,15 +321,28 @@ public class FlexDebugProcess extends XDebugProcess {
       return legacyFdbPath;
     }
 
-    String classpath = myDebuggerSdkHome + "/lib/fdb.jar";
+    final String classpath = myDebuggerSdkHome + "/lib/fdb.jar";
+    final String fdbFixJarName = getFdbFixJarName();
+    return fdbFixJarName == null ? classpath : FlexCommonUtils.getPathToBundledJar(fdbFixJarName) + File.pathSeparator + classpath;
+  }
+
+  /**
+   * @return name of the bundled jar with patched fdb classes (see flex/tools/idea-fdb-fix) that is put before fdb.jar of the SDK,
+   * or {@code null} if fdb of this SDK is used as is
+   */
+  @Nullable
+  private String getFdbFixJarName() {
+    if (new File(myDebuggerSdkHome + "/lib/legacy/fdb.jar").isFile()) {
+      return null;
+    }
 
     if (isDebuggerFromSdk3()) {
-      classpath = FlexCommonUtils.getPathToBundledJar("idea-fdb-3-fix.jar") + File.pathSeparator + classpath;
+      return "idea-fdb-3-fix.jar";
     }
     else if (!myDebuggerVersion.startsWith(FlexCommonUtils.AIR_SDK_VERSION_PREFIX)) {
       if (StringUtil.compareVersionNumbers(myDebuggerVersion, "4.0") >= 0 &&
           StringUtil.compareVersionNumbers(myDebuggerVersion, "4.1.1") < 0) {
-        classpath = FlexCommonUtils.getPathToBundledJar("idea-fdb-4.0.0.14159-fix.jar") + File.pathSeparator + classpath;
+        return "idea-fdb-4.0.0.14159-fix.jar";
       }
       else if (myDebuggerVersion.startsWith("4.6.b")
                ||
@@ -336,10 +351,10 @@ public class FlexDebugProcess extends XDebugProcess {
                ||
                (StringUtil.compareVersionNumbers(myDebuggerVersion, "4.8") >= 0 &&
                 StringUtil.compareVersionNumbers(myDebuggerVersion, "4.12") < 0)) {
-        classpath = FlexCommonUtils.getPathToBundledJar("idea-fdb-4.5.0.20967-fix.jar") + File.pathSeparator + classpath;
+        return "idea-fdb-4.5.0.20967-fix.jar";
       }
     }
-    return classpath;
+    return null;
   }
 
   private void openFlexUnitConnections(final int socketPolicyPort, final int port) {
@@ -994,6 +1009,17 @@ public class FlexDebugProcess extends XDebugProcess {
     return myDebuggerVersion != null && myDebuggerVersion.startsWith("3.");
   }
 
+  /**
+   * @return whether fdb understands the 'batchprint' command, see {@link BatchEvaluateCommand}
+   */
+  boolean isBatchPrintSupported() {
+    return myBatchPrintSupported;
+  }
+
+  void batchPrintNotSupported() {
+    myBatchPrintSupported = false;
+  }
+
   boolean isFlexSdk_4_12plus_IdeMode() {
     return !myDebuggerVersion.startsWith(FlexCommonUtils.AIR_SDK_VERSION_PREFIX) &&
            StringUtil.compareVersionNumbers(myDebuggerVersion, "4.12") > 0;
@@ -182,7 +182,7 @@ public class FlexStackFrame extends XStackFrame {
     );
   }
 
-  private String addFrameOffset(String text) {
+  String addFrameOffset(String text) {
     text="frame " + (myFrameIndex != 0 ? myFrameIndex: "")+ "\n"+text;
     return text;
   }
@@ -588,6 +588,11 @@ public class FlexStackFrame extends XStackFrame {
       ++current;
 
       if (current == offsetIndex + 1) {
+        final List<FlexValue> values = new ArrayList<>(resultChildren.size());
+        for (int i = 0; i < resultChildren.size(); i++) {
+          values.add((FlexValue)resultChildren.getValue(i));
+        }
+        FlexValue.prefetchPresentationDetails(FlexStackFrame.this, values);
         myNode.addChildren(resultChildren, false);
         return CommandOutputProcessingMode.DONE;
       } else {
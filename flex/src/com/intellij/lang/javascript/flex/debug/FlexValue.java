@@ -48,6 +48,7 @@ class FlexValue extends XValue {
   private @Nullable final String myParentResult;
   private final ValueType myValueType;
   private Icon myPreferredIcon;
+  private @Nullable Map<String, String> myPrefetchedResults;
 
   private static final String OBJECT_MARKER = "Object ";
   private static final String XML_TYPE = "XML";
@@ -57,6 +58,9 @@ class FlexValue extends XValue {
   private static final String ESCAPE_START = "IDEA-ESCAPE-START";
   private static final String ESCAPE_END = "IDEA-ESCAPE-END";
   private static final String VECTOR_PREFIX = "__AS3__.vec::";
+  private static final String FIXED_SUFFIX = ".fixed";
+  private static final String LENGTH_SUFFIX = ".length";
+  private static final String TO_XML_STRING_SUFFIX = ".toXMLString()";
 
   private static final String VECTOR = "Vector";
   private static final String GENERIC_VECTOR_PREFIX = "Vector.<";
@@ -173,7 +177,8 @@ class FlexValue extends XValue {
       }
     }
 
-    if ((XML_TYPE.equals(typeFromFlexValueResult) || XMLLIST_TYPE.equals(typeFromFlexValueResult)) && myExpression.indexOf('=') == -1) {
+    boolean toXmlStringNeeded = false;
+    if (isXml(typeFromFlexValueResult)) {
       if (myDebugProcess.isDebuggerFromSdk3()) {
         if (XMLLIST_TYPE.equals(typeFromFlexValueResult)) {
           setXmlListPresentation(node, val, this);
@@ -185,23 +190,110 @@ class FlexValue extends XValue {
         }
       }
       else {
-        scheduleToXmlStringCalculation(node, typeFromFlexValueResult);
-        // return; no return - show default presentation until toXmlString calculated
+        toXmlStringNeeded = true; // show default presentation until toXmlString calculated
       }
     }
 
+    val = setFullValueEvaluatorIfNeeded(node, val, false);
+    node.setPresentation(getIcon(), typeFromFlexValueResult, val, isObject);
+
+    // scheduled after the default presentation is set because results may be already prefetched, see prefetchPresentationDetails()
+    if (toXmlStringNeeded) {
+      scheduleToXmlStringCalculation(node, typeFromFlexValueResult);
+    }
+
     final String type = getType(typeFromFlexValueResult);
     if (type != null && isCollection(type)) {
-      if (type.equals(VECTOR) || type.startsWith(GENERIC_VECTOR_PREFIX)) {
+      if (isVector(type)) {
         scheduleVectorPresentation(node, typeFromFlexValueResult);
       }
       else {
         scheduleCollectionSizePresentation(node, typeFromFlexValueResult, "");
       }
     }
+  }
 
-    val = setFullValueEvaluatorIfNeeded(node, val, false);
-    node.setPresentation(getIcon(), typeFromFlexValueResult, val, isObject);
+  private boolean isXml(final @Nullable String typeFromFlexValueResult) {
+    return (XML_TYPE.equals(typeFromFlexValueResult) || XMLLIST_TYPE.equals(typeFromFlexValueResult)) && myExpression.indexOf('=') == -1;
+  }
+
+  private static boolean isVector(final @NotNull String type) {
+    return type.equals(VECTOR) || type.startsWith(GENERIC_VECTOR_PREFIX);
+  }
+
+  /**
+   * @return expressions that {@link #computePresentation(XValueNode, XValuePlace)} evaluates in addition to the value itself
+   */
+  private List<String> getPresentationDetailExpressions() {
+    if (!myResult.contains(OBJECT_MARKER)) return Collections.emptyList();
+
+    final String typeFromFlexValueResult = getTypeAndAdditionalInfo(myResult).first;
+    if (isXml(typeFromFlexValueResult)) {
+      return myDebugProcess.isDebuggerFromSdk3() ? Collections.emptyList()
+                                                 : Collections.singletonList(myExpression + TO_XML_STRING_SUFFIX);
+    }
+
+    final String type = getType(typeFromFlexValueResult);
+    if (type != null && isCollection(type)) {
+      return isVector(type) ? Arrays.asList(myExpression + FIXED_SUFFIX, myExpression + LENGTH_SUFFIX)
+                            : Collections.singletonList(myExpression + LENGTH_SUFFIX);
+    }
+    return Collections.emptyList();
+  }
+
+  /**
+   * Evaluates details needed for presentation of all <code>values</code> (sizes of collections, xml text) with a single
+   * {@link BatchEvaluateCommand}, so that showing many children doesn't cause a separate fdb round trip for each of them.
+   * Must be called in the debugger thread before the values are added to the tree.
+   */
+  static void prefetchPresentationDetails(final @NotNull FlexStackFrame frame, final @NotNull Collection<FlexValue> values) {
+    final FlexDebugProcess debugProcess = frame.getDebugProcess();
+    if (!debugProcess.isBatchPrintSupported()) return;
+
+    final Map<String, FlexValue> expressionToValue = new LinkedHashMap<>();
+    for (FlexValue value : values) {
+      for (String expression : value.getPresentationDetailExpressions()) {
+        if (BatchEvaluateCommand.canBeBatched(expression)) {
+          expressionToValue.put(expression, value);
+        }
+      }
+    }
+
+    if (expressionToValue.size() < 2) return; // nothing to save
+
+    final List<String> expressions = new ArrayList<>(expressionToValue.keySet());
+    final BatchEvaluateCommand command = new BatchEvaluateCommand(frame, expressions, results -> {
+      for (int i = 0; i < expressions.size(); i++) {
+        final String result = BatchEvaluateCommand.getPrintedValue(results.get(i));
+        if (result == null) continue; // will be evaluated separately
+
+        final FlexValue value = expressionToValue.get(expressions.get(i));
+        if (value.myPrefetchedResults == null) {
+          value.myPrefetchedResults = new HashMap<>();
+        }
+        value.myPrefetchedResults.put(expressions.get(i), result);
+      }
+    });
+
+    debugProcess.sendAndProcessOneCommand(command, e -> {
+      FlexDebugProcess.log(e);
+      return null;
+    });
+  }
+
+  private void evaluatePresentationDetail(final XValueNode node,
+                                          final String expression,
+                                          final XDebuggerEvaluator.XEvaluationCallback callback,
+                                          final int delay) {
+    final String prefetchedResult = myPrefetchedResults == null ? null : myPrefetchedResults.get(expression);
+    if (prefetchedResult != null) {
+      callback.evaluated(new FlexValue(myFlexStackFrame, myDebugProcess, mySourcePosition, expression, expression, prefetchedResult, null,
+                                       ValueType.Other));
+      return;
+    }
+
+    final FlexStackFrame.EvaluateCommand command = myFlexStackFrame.new EvaluateCommand(expression, callback);
+    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), delay);
   }
 
   private static boolean isCollectionWithDirectContent(final String fqn) {
@@ -213,8 +305,7 @@ class FlexValue extends XValue {
   }
 
   private void scheduleVectorPresentation(final XValueNode node, final String type) {
-    final FlexStackFrame.EvaluateCommand command =
-      myFlexStackFrame.new EvaluateCommand(myExpression + ".fixed", new XDebuggerEvaluator.XEvaluationCallback() {
+    evaluatePresentationDetail(node, myExpression + FIXED_SUFFIX, new XDebuggerEvaluator.XEvaluationCallback() {
 
         @Override
         public void evaluated(@NotNull XValue result) {
@@ -229,14 +320,11 @@ class FlexValue extends XValue {
         @Override
         public void errorOccurred(@NotNull String errorMessage) {
         }
-      });
-
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 100);
+      }, 100);
   }
 
   private void scheduleCollectionSizePresentation(final XValueNode node, final String type, final String prefix) {
-    final FlexStackFrame.EvaluateCommand command =
-      myFlexStackFrame.new EvaluateCommand(myExpression + ".length", new XDebuggerEvaluator.XEvaluationCallback() {
+    evaluatePresentationDetail(node, myExpression + LENGTH_SUFFIX, new XDebuggerEvaluator.XEvaluationCallback() {
 
         @Override
         public void evaluated(@NotNull XValue result) {
@@ -253,9 +341,7 @@ class FlexValue extends XValue {
         @Override
         public void errorOccurred(@NotNull String errorMessage) {
         }
-      });
-
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 100);
+      }, 100);
   }
 
   private static void setXmlListPresentation(final XValueNode node, final String value, final FlexValue flexValue) {
@@ -319,8 +405,7 @@ class FlexValue extends XValue {
   }
 
   private void scheduleToXmlStringCalculation(final XValueNode node, final String type) {
-    final FlexStackFrame.EvaluateCommand
-      command = myFlexStackFrame.new EvaluateCommand(myExpression + ".toXMLString()", new XDebuggerEvaluator.XEvaluationCallback() {
+    evaluatePresentationDetail(node, myExpression + TO_XML_STRING_SUFFIX, new XDebuggerEvaluator.XEvaluationCallback() {
 
       @Override
       public void evaluated(@NotNull XValue result) {
@@ -338,9 +423,7 @@ class FlexValue extends XValue {
           node.setPresentation(getIcon(), type, value, hasChildren);
         }
       }
-    });
-
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 700);
+    }, 700);
   }
 
   private static String setFullValueEvaluatorIfNeeded(final XValueNode node, String value, final boolean isXml) {
@@ -471,6 +554,7 @@ class FlexValue extends XValue {
           addValueCheckingDuplicates(flexValue, fieldNameToFlexValueMap);
         }
 
+        prefetchPresentationDetails(myFlexStackFrame, fieldNameToFlexValueMap.values());
         addChildren(node, fieldNameToFlexValueMap, nodeClassInfo);
 
         return CommandOutputProcessingMode.DONE;
@@ -1,30 +1,32 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.openapi.vfs.CharsetToolkit;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.InputStream;
-import java.io.IOException;
-import java.io.ByteArrayInputStream;
-import java.io.UnsupportedEncodingException;
-import java.util.zip.InflaterInputStream;
-
 /**
  * @author Maxim.Mossienko
 *         Date: Oct 20, 2008
 *         Time: 7:02:53 PM
 */
 class ByteBuffer {
-  private byte[] bytes;
+  private static final byte[] EMPTY = new byte[0];
+
+  // this buffer is the [start, end) range of bytes, which may be shared with other buffers; position is absolute
+  private final byte[] bytes;
+  private final int start;
+  private final int end;
   private int position;
   private boolean littleEndian;
 
-  void read(@NotNull InputStream inputStream) throws IOException {
-    try {
-      bytes = readStream(inputStream);
-    }
-    finally {
-      if (inputStream != null) inputStream.close();
-    }
+  ByteBuffer() {
+    this(EMPTY, 0, 0);
+  }
+
+  ByteBuffer(@NotNull final byte[] bytes, final int start, final int end) {
+    this.bytes = bytes;
+    this.start = start;
+    this.end = end;
+    position = start;
   }
 
   void setLittleEndian() {
@@ -48,42 +50,11 @@ class ByteBuffer {
   }
 
   public void setPosition(final int i) {
-    position = i;
+    position = start + i;
   }
 
   public int bytesSize() {
-    return bytes.length;
-  }
-
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
-
-    bytes = readStream(zipInputStream);
-
-    zipInputStream.close();
-  }
-
-  private static byte[] readStream(final InputStream zipInputStream) throws IOException {
-    final byte[] buf = new byte[8192];
-    byte[] result = new byte[8192];
-    int total = 0;
-
-    while (true) {
-      int read = zipInputStream.read(buf);
-      if (read == -1) break;
-      if (total + read >= result.length) {
-        byte[] newresult = new byte[result.length * 2];
-        System.arraycopy(result, 0, newresult, 0, total);
-        result = newresult;
-      }
-
-      System.arraycopy(buf, 0, result, total, read);
-      total += read;
-    }
-
-    final byte[] realResult = new byte[total];
-    System.arraycopy(result, 0, realResult, 0, total);
-    return realResult;
+    return end - start;
   }
 
   public int readUnsignedByte() {
@@ -106,28 +77,32 @@ class ByteBuffer {
     return result;
   }
 
-  public void readBytes(ByteBuffer data2, int length) {
-    data2.bytes = new byte[length];
-    System.arraycopy(bytes, position, data2.bytes, 0, length);
+  /**
+   * Returns the next {@code length} bytes as a new buffer without copying them; the new buffer has the same byte order.
+   */
+  @NotNull
+  public ByteBuffer slice(int length) {
+    final ByteBuffer result = new ByteBuffer(bytes, position, position + length);
+    result.littleEndian = littleEndian;
     position += length;
+    return result;
   }
 
   public boolean eof() {
-    return position >= bytes.length;
+    return position >= end;
   }
 
   public String readUTFBytes(int i) {
-    try {
-      final byte[] buf = new byte[i];
-      while (i > 0) {
-        buf[buf.length - i] = (byte)readByte();
-        --i;
-      }
-      return new String(buf, "utf-8");
-    }
-    catch (UnsupportedEncodingException e) {
-      throw new RuntimeException(e);
-    }
+    final String result = new String(bytes, position, i, CharsetToolkit.UTF8_CHARSET);
+    position += i;
+    return result;
+  }
+
+  /**
+   * Decodes UTF-8 string at the given position without changing the current position.
+   */
+  public String getUTFBytes(int offset, int length) {
+    return new String(bytes, start + offset, length, CharsetToolkit.UTF8_CHARSET);
   }
 
   public double readDouble() {
@@ -149,11 +124,11 @@ class ByteBuffer {
   }
 
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes[start + i];
   }
 
   public int getPosition() {
-    return position;
+    return position - start;
   }
 
   public void incPosition(final int length) {
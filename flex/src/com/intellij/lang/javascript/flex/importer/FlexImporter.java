@@ -1,21 +1,32 @@
 package com.intellij.lang.javascript.flex.importer;
 
+import com.intellij.openapi.util.io.BufferExposingByteArrayOutputStream;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.psi.stubs.StubElement;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /**
  * Produced from abcdump.as
  */
 public class FlexImporter {
+  /**
+   * Must be incremented whenever decompiled text or generated stubs change,
+   * it is a part of {@link com.intellij.javascript.flex.compiled.SwfStubCache} keys.
+   */
+  public static final int VERSION = 1;
+
   private static final int ABC_VER = 46 << 16 | 14;
   private static final int ABC_VER2 = 46 << 16 | 15;
   private static final int ABC_VER3 = 46 << 16 | 16;
   private static final int SWF_MAGIC = 67 | 87 << 8 | 83 << 16;
   private static final int SWF_MAGIC2 = 70 | 87 << 8 | 83 << 16;
+  private static final int SWF_HEADER_SIZE = 8;
+  private static final int MAX_SWF_SIZE = 512 * 1024 * 1024;
 
   public static void main(String[] args) throws IOException {
     if (args.length < 1) {
@@ -60,7 +71,7 @@ public class FlexImporter {
     catch (IOException ex) {
       return "/* " + ex.getLocalizedMessage() + " */";
     }
-    catch (ArrayIndexOutOfBoundsException ex) {
+    catch (IndexOutOfBoundsException ex) {
       return "/* Invalid format */";
     }
   }
@@ -71,34 +82,111 @@ public class FlexImporter {
   }
 
   private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
-    ByteBuffer data = new ByteBuffer();
-    data.read(in);
-    data.setLittleEndian();
-    if (data.bytesSize() == 0) return;
-    int version = data.readUnsignedInt();
-
-    if (version == ABC_VER || version == ABC_VER2 || version == ABC_VER3) {
-      Abc abc = new Abc(data, processor);
-      abc.dump("");
+    try {
+      final byte[] header = new byte[SWF_HEADER_SIZE];
+      final int headerSize = readFully(in, header, 0, SWF_HEADER_SIZE);
+      if (headerSize == 0) return;
+
+      final ByteBuffer headerData = new ByteBuffer(header, 0, headerSize);
+      headerData.setLittleEndian();
+      final int version = headerData.readUnsignedInt();
+
+      if (version == ABC_VER || version == ABC_VER2 || version == ABC_VER3) {
+        final ByteBuffer data = readRemaining(in, header, headerSize);
+        data.setLittleEndian();
+        Abc abc = new Abc(data, processor);
+        abc.dump("");
+      }
+      else if ((version & SWF_MAGIC) == SWF_MAGIC) {
+        final ByteBuffer udata = inflateSwfBody(in, getSwfBodySize(headerData), processor);
+        udata.setLittleEndian();
+        new Swf(udata, processor);
+      }
+      else if ((version & SWF_MAGIC2) == SWF_MAGIC2) {
+        final byte[] bytes = new byte[SWF_HEADER_SIZE + getSwfBodySize(headerData)];
+        System.arraycopy(header, 0, bytes, 0, SWF_HEADER_SIZE);
+        final int size = SWF_HEADER_SIZE + readFully(in, bytes, SWF_HEADER_SIZE, bytes.length - SWF_HEADER_SIZE);
+
+        final ByteBuffer data = new ByteBuffer(bytes, 0, size);
+        data.setLittleEndian();
+        data.setPosition(SWF_HEADER_SIZE); // skip header and length
+        new Swf(data, processor);
+      }
+      else {
+        processor.hasError("unknown format " + version + ", swf version: " + (version >> 24) + "\n");
+      }
     }
-    else if ((version & SWF_MAGIC) == SWF_MAGIC) {
-      final int delta = 8;
-      data.setPosition(delta);
-      ByteBuffer udata = new ByteBuffer();
-      udata.setLittleEndian();
-      data.readBytes(udata, data.bytesSize() - delta);
-      int csize = udata.bytesSize();
-      udata.uncompress();
-      processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
-      udata.setPosition(0);
-      new Swf(udata, processor);
+    finally {
+      in.close();
     }
-    else if ((version & SWF_MAGIC2) == SWF_MAGIC2) {
-      data.setPosition(8); // skip header and length
-      new Swf(data, processor);
+  }
+
+  private static int getSwfBodySize(@NotNull final ByteBuffer headerData) throws IOException {
+    final int fileSize = headerData.readUnsignedInt();
+    if (fileSize < SWF_HEADER_SIZE || fileSize > MAX_SWF_SIZE) {
+      throw new IOException("Invalid swf file size: " + fileSize);
     }
-    else {
-      processor.hasError("unknown format " + version + ", swf version: " + (version >> 24) + "\n");
+    return fileSize - SWF_HEADER_SIZE;
+  }
+
+  /**
+   * Inflates straight from the stream into an array of the size declared in the swf header, without buffering compressed data.
+   */
+  @NotNull
+  private static ByteBuffer inflateSwfBody(@NotNull final InputStream in,
+                                           final int bodySize,
+                                           @NotNull final FlexByteCodeInformationProcessor processor) throws IOException {
+    final byte[] bytes = new byte[bodySize];
+    final byte[] buffer = new byte[8192];
+    final Inflater inflater = new Inflater();
+    int compressedSize = 0;
+    int size = 0;
+    try {
+      int read;
+      while (size < bodySize && !inflater.finished()) {
+        if (inflater.needsInput()) {
+          if ((read = in.read(buffer)) == -1) break;
+          compressedSize += read;
+          inflater.setInput(buffer, 0, read);
+        }
+        else if (inflater.needsDictionary()) {
+          throw new IOException("Unsupported swf compression");
+        }
+        size += inflater.inflate(bytes, size, bodySize - size);
+      }
+
+      while ((read = in.read(buffer)) != -1) {
+        compressedSize += read;
+      }
+    }
+    catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    finally {
+      inflater.end();
+    }
+
+    processor.dumpStat("decompressed swf " + compressedSize + " -> " + size + "\n");
+    return new ByteBuffer(bytes, 0, size);
+  }
+
+  @NotNull
+  private static ByteBuffer readRemaining(@NotNull final InputStream in, @NotNull final byte[] header, final int headerSize)
+    throws IOException {
+    final BufferExposingByteArrayOutputStream out = new BufferExposingByteArrayOutputStream();
+    out.write(header, 0, headerSize);
+    FileUtil.copy(in, out);
+    return new ByteBuffer(out.getInternalBuffer(), 0, out.size());
+  }
+
+  private static int readFully(@NotNull final InputStream in, @NotNull final byte[] bytes, final int offset, final int length)
+    throws IOException {
+    int total = 0;
+    while (total < length) {
+      final int read = in.read(bytes, offset + total, length - total);
+      if (read == -1) break;
+      total += read;
     }
+    return total;
   }
 }
@@ -185,9 +185,8 @@ class Swf {
           length -= (data.getPosition() - pos1);
           // fall through
         case stagDoABC:
-          ByteBuffer data2 = new ByteBuffer();
+          final ByteBuffer data2 = data.slice(length);
           data2.setLittleEndian();
-          data.readBytes(data2, length);
           new Abc(data2, processor).dump(processor.getAbcInSwfIndent());
           processor.append("\n");
           break;
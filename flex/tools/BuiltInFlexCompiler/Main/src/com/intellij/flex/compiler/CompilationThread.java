@@ -81,9 +81,12 @@ public class CompilationThread extends Thread {
       System.exit(1);
     }
     finally {
-      myLogger.log(FlexCompiler.COMPILATION_FINISHED);
       mySdkSpecificHandler.cleanThreadLocals();
       System.gc();
+      // memory usage lets IDE recycle compiler processes that have grown too big
+      final Runtime runtime = Runtime.getRuntime();
+      myLogger.log(FlexCompiler.COMPILATION_FINISHED + " " + FlexCompiler.MEMORY_USAGE_MARKER +
+                   (runtime.totalMemory() - runtime.freeMemory()) + "/" + runtime.maxMemory());
     }
   }
 
@@ -16,6 +16,7 @@ public class FlexCompiler implements MessageSender {
   private static final String FINISH_COMMAND = "Finish";
   public static final String CANCEL_COMMAND = "Cancel";
   public static final String COMPILATION_FINISHED = "Compilation finished";
+  public static final String MEMORY_USAGE_MARKER = "memory: ";
 
   public static String SDK_MAJOR_VERSION = VersionInfo.FLEX_MAJOR_VERSION;
   public static String SDK_MINOR_VERSION = VersionInfo.FLEX_MINOR_VERSION;
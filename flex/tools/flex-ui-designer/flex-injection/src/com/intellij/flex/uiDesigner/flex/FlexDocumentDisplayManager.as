@@ -546,6 +546,22 @@ public final class FlexDocumentDisplayManager extends FlexDocumentDisplayManager
     return bounds == null ? getBounds(realStage) : bounds;
   }
 
+  public function stylesChanged():void {
+    var styleClient:IStyleClient = _document as IStyleClient;
+    if (styleClient == null) {
+      return;
+    }
+
+    styleClient.regenerateStyleCache(true);
+    styleClient.styleChanged(null);
+    styleClient.notifyStyleChangeInChildren(null, true);
+
+    var v:IInvalidating = _document as IInvalidating;
+    if (v != null) {
+      v.validateNow();
+    }
+  }
+
   // mx.managers::ISystemManagerChildManager, ChildManager, "cm.notifyStyleChangeInChildren(styleProp, true);" in CSSStyleDeclaration
   //noinspection JSUnusedGlobalSymbols,JSUnusedLocalSymbols
   public function notifyStyleChangeInChildren(styleProp:String, recursive:Boolean):void {
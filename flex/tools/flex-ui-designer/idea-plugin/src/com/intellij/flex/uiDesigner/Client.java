@@ -3,6 +3,7 @@ package com.intellij.flex.uiDesigner;
 import com.intellij.flex.uiDesigner.abc.ClassPoolGenerator;
 import com.intellij.flex.uiDesigner.io.AmfOutputStream;
 import com.intellij.flex.uiDesigner.io.BlockDataOutputStream;
+import com.intellij.flex.uiDesigner.io.ImageUpdate;
 import com.intellij.flex.uiDesigner.io.PrimitiveAmfOutputStream;
 import com.intellij.flex.uiDesigner.io.StringRegistry;
 import com.intellij.flex.uiDesigner.libraries.*;
@@ -32,7 +33,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.io.InfoMap;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -456,6 +456,53 @@ public class Client implements Disposable {
     }
   }
 
+  /**
+   * Designer applies the ruleset update to the already read stylesheet of the local style holder and refreshes styles of the module
+   * documents (instead of recreating the style manager and rendering documents again), result is the list of refreshed documents.
+   */
+  public AsyncResult<List<DocumentInfo>> updateLocalStyleRuleset(ModuleInfo moduleInfo,
+                                                                 VirtualFile file,
+                                                                 StringRegistry.StringWriter stringWriter,
+                                                                 byte[] rulesetUpdate) {
+    final AsyncResult<List<DocumentInfo>> result = new AsyncResult<>();
+    final ActionCallback callback = new ActionCallback("updateLocalStyleRuleset");
+    boolean hasError = true;
+    try {
+      beginMessage(ClientMethod.updateLocalStyleRuleset, callback, result, () -> {
+        final int[] ids;
+        try {
+          ids = SocketInputHandler.getInstance().getReader().readIntArray();
+        }
+        catch (IOException e) {
+          LogMessageUtil.processInternalError(e);
+          return;
+        }
+
+        DocumentFactoryManager documentFactoryManager = DocumentFactoryManager.getInstance();
+        List<DocumentInfo> refreshed = new ArrayList<>(ids.length);
+        for (int id : ids) {
+          refreshed.add(documentFactoryManager.getInfo(id));
+        }
+        result.setDone(refreshed);
+      });
+
+      out.writeUInt29(moduleInfo.getId());
+      writeVirtualFile(file, out);
+      stringWriter.writeTo(out);
+      out.write(rulesetUpdate);
+      hasError = false;
+    }
+    catch (Throwable e) {
+      stringWriter.rollback();
+      LogMessageUtil.processInternalError(e);
+    }
+    finally {
+      finalizeMessageAndFlush(hasError, callback);
+    }
+
+    return result;
+  }
+
   public boolean updateDocumentFactory(int factoryId, Module module, XmlFile psiFile, boolean reportProblems) {
     try {
       beginMessage(ClientMethod.updateDocumentFactory);
@@ -661,20 +708,17 @@ public class Client implements Disposable {
     return callback;
   }
 
-  //public AsyncResult<BufferedImage> getDocumentImage(DocumentFactoryManager.DocumentInfo documentInfo) {
-  //  final AsyncResult<BufferedImage> result = new AsyncResult<BufferedImage>();
-  //  getDocumentImage(documentInfo, result);
-  //  return result;
-  //}
-
-  public void getDocumentImage(DocumentInfo documentInfo, final AsyncResult<BufferedImage> result) {
+  /**
+   * If baseVersion is the version of the last image sent for the document, only changed regions are transferred
+   */
+  public void getDocumentImage(DocumentInfo documentInfo, final int baseVersion, final AsyncResult<ImageUpdate> result) {
     final ActionCallback callback = new ActionCallback("getDocumentImage");
     boolean hasError = true;
     try {
       beginMessage(ClientMethod.getDocumentImage, callback, result, () -> {
         Reader reader = SocketInputHandler.getInstance().getReader();
         try {
-          result.setDone(reader.readImage());
+          result.setDone(reader.readImageUpdate(baseVersion));
         }
         catch (IOException e) {
           LogMessageUtil.LOG.error(e);
@@ -683,6 +727,7 @@ public class Client implements Disposable {
       });
 
       out.writeShort(documentInfo.getId());
+      out.writeInt(baseVersion);
       hasError = false;
     }
     finally {
@@ -727,7 +772,7 @@ public class Client implements Disposable {
   private enum ClientMethod {
     openProject, closeProject, registerLibrarySet, registerModule, unregisterModule, registerDocumentFactory, updateDocumentFactory, renderDocument, renderDocumentsAndDependents,
     initStringRegistry, updateStringRegistry, fillImageClassPool, fillSwfClassPool, fillViewClassPool,
-    selectComponent, getDocumentImage, updatePropertyOrStyle, updateLocalStyleHolders;
+    selectComponent, getDocumentImage, updatePropertyOrStyle, updateLocalStyleHolders, updateLocalStyleRuleset;
     
     public static final int METHOD_CLASS = 0;
   }
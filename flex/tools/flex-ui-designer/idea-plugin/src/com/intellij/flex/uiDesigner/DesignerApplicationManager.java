@@ -1,6 +1,7 @@
 package com.intellij.flex.uiDesigner;
 
 import com.intellij.ProjectTopics;
+import com.intellij.flex.uiDesigner.io.ImageUpdate;
 import com.intellij.flex.uiDesigner.mxml.ProjectComponentReferenceCounter;
 import com.intellij.flex.uiDesigner.preview.MxmlPreviewToolWindowManager;
 import com.intellij.javascript.flex.mxml.FlexCommonTypeNames;
@@ -59,7 +60,6 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import javax.swing.event.HyperlinkEvent;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -278,9 +278,9 @@ public class DesignerApplicationManager {
   }
 
   @NotNull
-  public AsyncResult<BufferedImage> getDocumentImage(@NotNull XmlFile psiFile) {
-    final AsyncResult<BufferedImage> result = new AsyncResult<>();
-    renderIfNeed(psiFile, documentInfo -> Client.getInstance().getDocumentImage(documentInfo, result), result, false);
+  public AsyncResult<ImageUpdate> getDocumentImage(@NotNull XmlFile psiFile, int baseVersion) {
+    final AsyncResult<ImageUpdate> result = new AsyncResult<>();
+    renderIfNeed(psiFile, documentInfo -> Client.getInstance().getDocumentImage(documentInfo, baseVersion, result), result, false);
     return result;
   }
 
@@ -1,10 +1,13 @@
 package com.intellij.flex.uiDesigner;
 
+import com.intellij.flex.uiDesigner.css.LocalCssWriter;
 import com.intellij.flex.uiDesigner.io.ByteArrayOutputStreamEx;
 import com.intellij.flex.uiDesigner.io.PrimitiveAmfOutputStream;
 import com.intellij.flex.uiDesigner.io.StringRegistry;
+import com.intellij.flex.uiDesigner.libraries.FlexLibrarySet;
 import com.intellij.flex.uiDesigner.mxml.MxmlUtil;
 import com.intellij.flex.uiDesigner.mxml.PrimitiveWriter;
+import com.intellij.flex.uiDesigner.mxml.ProjectComponentReferenceCounter;
 import com.intellij.flex.uiDesigner.mxml.XmlAttributeValueProvider;
 import com.intellij.flex.uiDesigner.mxml.XmlElementValueProvider;
 import com.intellij.injected.editor.VirtualFileWindow;
@@ -17,28 +20,49 @@ import com.intellij.lang.javascript.flex.AnnotationBackedDescriptor;
 import com.intellij.lang.javascript.psi.JSCommonTypeNames;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.css.CssBlock;
+import com.intellij.psi.css.CssRuleset;
 import com.intellij.psi.css.StylesheetFile;
 import com.intellij.psi.impl.source.tree.injected.InjectedLanguageUtil;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
+import com.intellij.util.Consumer;
 import com.intellij.util.ui.update.Update;
 import com.intellij.xml.XmlAttributeDescriptor;
 import com.intellij.xml.XmlElementDescriptor;
+import gnu.trove.TObjectProcedure;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 import static com.intellij.flex.uiDesigner.DocumentFactoryManager.DocumentInfo;
 
 final class IncrementalDocumentSynchronizer extends Update {
   private final PsiTreeChangeEvent event;
+  // computed on event, psi will be changed by the time of run
+  private final CssRuleset changedRuleset;
   private boolean isSkippedXml;
   private boolean isStyleDataChanged;
 
   public IncrementalDocumentSynchronizer(PsiTreeChangeEvent event) {
     super("FlashUIDesigner.incrementalUpdate");
     this.event = event;
+    changedRuleset = event.getFile() instanceof StylesheetFile ? findChangedRuleset(event.getParent()) : null;
+  }
+
+  /**
+   * Only change inside of the ruleset block can be applied incrementally - selectors are registered in the style manager.
+   */
+  @Nullable
+  private static CssRuleset findChangedRuleset(@Nullable PsiElement parent) {
+    CssBlock block = parent instanceof CssBlock ? (CssBlock)parent : PsiTreeUtil.getParentOfType(parent, CssBlock.class);
+    return block == null ? null : PsiTreeUtil.getParentOfType(block, CssRuleset.class);
   }
 
   @Override
@@ -47,14 +71,15 @@ final class IncrementalDocumentSynchronizer extends Update {
       return false;
     }
 
-    PsiTreeChangeEvent otherEvent = ((IncrementalDocumentSynchronizer)update).event;
+    IncrementalDocumentSynchronizer other = (IncrementalDocumentSynchronizer)update;
+    PsiTreeChangeEvent otherEvent = other.event;
     if (event.getFile() != otherEvent.getFile()) {
       return false;
     }
 
-    // todo we don't support incremental update for CSS
+    // ruleset update is sent as a whole, full style update covers any other
     if (event.getFile() instanceof StylesheetFile) {
-      return true;
+      return changedRuleset == null || changedRuleset == other.changedRuleset;
     }
 
     return event.getParent() == otherEvent.getParent() &&
@@ -77,7 +102,9 @@ final class IncrementalDocumentSynchronizer extends Update {
     }
     else {
       assert event.getFile() instanceof StylesheetFile;
-      styleChanged();
+      if (!incrementalStyleSync()) {
+        styleChanged();
+      }
       return;
     }
 
@@ -92,16 +119,112 @@ final class IncrementalDocumentSynchronizer extends Update {
     }
   }
 
-  private void styleChanged() {
+  private VirtualFile getTopLevelFile() {
     // BE AWARE!!! INJECTION BEHAVIOR IS NOT PREDICTABLE, file may be injected.
     //noinspection ConstantConditions
     VirtualFile file = event.getFile().getViewProvider().getVirtualFile();
     if (file instanceof VirtualFileWindow) {
       file = ((VirtualFileWindow)file).getDelegate();
     }
+    return file;
+  }
 
+  private void styleChanged() {
     DesignerApplicationManager.getInstance().renderDocumentsAndCheckLocalStyleModification(
-      new Document[]{FileDocumentManager.getInstance().getCachedDocument(file)}, true, false);
+      new Document[]{FileDocumentManager.getInstance().getCachedDocument(getTopLevelFile())}, true, false);
+  }
+
+  private boolean incrementalStyleSync() {
+    if (changedRuleset == null || !changedRuleset.isValid()) {
+      return false;
+    }
+
+    final VirtualFile file = getTopLevelFile();
+    final Client client = Client.getInstance();
+    final Ref<ModuleInfo> moduleInfoRef = new Ref<>();
+    final Ref<LocalStyleHolder> holderRef = new Ref<>();
+    client.getRegisteredModules().forEach(new TObjectProcedure<ModuleInfo>() {
+      @Override
+      public boolean execute(ModuleInfo moduleInfo) {
+        List<LocalStyleHolder> styleHolders = moduleInfo.getLocalStyleHolders();
+        if (styleHolders != null) {
+          for (LocalStyleHolder styleHolder : styleHolders) {
+            if (styleHolder.file.equals(file)) {
+              if (moduleInfoRef.isNull()) {
+                moduleInfoRef.set(moduleInfo);
+                holderRef.set(styleHolder);
+              }
+              else {
+                // several style tags in one file - ruleset index is ambiguous
+                holderRef.set(null);
+              }
+            }
+          }
+        }
+        // local style applicable only for one module
+        return moduleInfoRef.isNull();
+      }
+    });
+
+    final LocalStyleHolder holder = holderRef.get();
+    if (holder == null) {
+      return false;
+    }
+
+    final ModuleInfo moduleInfo = moduleInfoRef.get();
+    final FlexLibrarySet flexLibrarySet = moduleInfo.getFlexLibrarySet();
+    final ProjectComponentReferenceCounter projectComponentReferenceCounter = new ProjectComponentReferenceCounter();
+    final StringRegistry.StringWriter stringWriter = new StringRegistry.StringWriter();
+    // problems of the changed ruleset are reported, problems of other rulesets were reported when they were written
+    final ProblemsHolder problemsHolder = new ProblemsHolder();
+    final ProblemsHolder dataProblemsHolder = new ProblemsHolder();
+    dataProblemsHolder.disableLog();
+    final LocalCssWriter cssWriter = new LocalCssWriter(stringWriter, dataProblemsHolder, projectComponentReferenceCounter,
+                                                        flexLibrarySet.assetCounterInfo.demanded);
+    final LocalCssWriter rulesetWriter = new LocalCssWriter(stringWriter, problemsHolder, projectComponentReferenceCounter,
+                                                            flexLibrarySet.assetCounterInfo.demanded);
+    final StylesheetFile stylesheetFile = (StylesheetFile)event.getFile();
+    final Module module = moduleInfo.getModule();
+    final byte[] data;
+    final byte[] rulesetUpdate;
+    stringWriter.startChange();
+    try {
+      // holder data must be actual - it is compared with the collected one on full style update
+      data = cssWriter.write(stylesheetFile, module);
+      rulesetUpdate = data == null ? null : rulesetWriter.writeRulesetUpdate(stylesheetFile, changedRuleset, module);
+    }
+    catch (Throwable e) {
+      stringWriter.rollback();
+      LogMessageUtil.LOG.error(e);
+      return false;
+    }
+
+    if (rulesetUpdate == null || projectComponentReferenceCounter.hasUnregistered()) {
+      stringWriter.rollback();
+      return false;
+    }
+
+    // declaration with invalid value is skipped, as in full style update
+    if (!problemsHolder.isEmpty()) {
+      DocumentProblemManager.getInstance().report(module.getProject(), problemsHolder);
+    }
+
+    holder.setData(data);
+    // as in full style update - style tag change doesn't require document factory update
+    DocumentInfo documentInfo = DocumentFactoryManager.getInstance().getNullableInfo(file);
+    Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    if (documentInfo != null && document != null) {
+      documentInfo.documentModificationStamp = document.getModificationStamp();
+    }
+
+    client.fillAssetClassPoolIfNeed(flexLibrarySet);
+    client.updateLocalStyleRuleset(moduleInfo, file, stringWriter, rulesetUpdate).doWhenDone(infos -> {
+      Consumer<DocumentInfo> notificationHandler = DesignerApplicationManager.createDocumentRenderedNotificationDoneHandler(false);
+      for (DocumentInfo info : infos) {
+        notificationHandler.consume(info);
+      }
+    });
+    return true;
   }
 
   @Nullable
@@ -1,11 +1,11 @@
 package com.intellij.flex.uiDesigner;
 
-import com.intellij.flex.uiDesigner.io.IOUtil;
+import com.intellij.flex.uiDesigner.io.ImageUpdate;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.awt.image.BufferedImage;
 import java.io.*;
 
 public class Reader extends DataInputStream {
@@ -63,8 +63,9 @@ public class Reader extends DataInputStream {
     }
   }
 
-  public BufferedImage readImage() throws IOException {
-    return IOUtil.readARGBImage(this);
+  @Nullable
+  public ImageUpdate readImageUpdate(int baseVersion) throws IOException {
+    return ImageUpdate.read(this, baseVersion);
   }
 
   public int[] readIntArray() throws IOException {
@@ -90,8 +90,7 @@ final class NS extends ByteArray {
     }
     data.seek(originalPos);
 
-    long num = 1234 ^ nsKind ^ index;
-    hash = (int)((num >> 32) ^ num);
+    hash = 31 * nsKind + index;
   }
 
   @Override
@@ -148,11 +147,11 @@ final class NSSPool extends PoolPart {
       }
       data.seek(originalPos);
 
-      long num = 1234;
+      int h = count;
       for (int k = 0; k < count; k++) {
-        num ^= set[k];
+        h = 31 * h + set[k];
       }
-      hash = (int)((num >> 32) ^ num);
+      hash = h;
     }
 
     @Override
@@ -207,36 +206,31 @@ final class MultinameByteArray extends ByteArray {
       case CONSTANT_QnameA: {
         index1 = data.readU32();
         index2 = data.readU32();
-        long num = 1234 ^ constKind ^ index1 ^ index2;
-        hash = (int)((num >> 32) ^ num);
+        hash = (31 * constKind + index1) * 31 + index2;
         break;
       }
       case CONSTANT_Multiname:
       case CONSTANT_MultinameA: {
         index1 = data.readU32();
         index2 = data.readU32();
-        long num = 1234 ^ constKind ^ index1 ^ index2;
-        hash = (int)((num >> 32) ^ num);
+        hash = (31 * constKind + index1) * 31 + index2;
         break;
       }
       case CONSTANT_RTQname:
       case CONSTANT_RTQnameA: {
         index1 = data.readU32();
-        long num = 1234 ^ constKind ^ index1;
-        hash = (int)((num >> 32) ^ num);
+        hash = 31 * constKind + index1;
         break;
       }
       case CONSTANT_RTQnameL:
       case CONSTANT_RTQnameLA: {
-        long num = 1234 ^ constKind;
-        hash = (int)((num >> 32) ^ num);
+        hash = constKind;
         break;
       }
       case CONSTANT_MultinameL:
       case CONSTANT_MultinameLA: {
         index1 = data.readU32();
-        long num = 1234 ^ constKind ^ index1;
-        hash = (int)((num >> 32) ^ num);
+        hash = 31 * constKind + index1;
         break;
       }
       case CONSTANT_TypeName: {
@@ -244,8 +238,7 @@ final class MultinameByteArray extends ByteArray {
         data.readU32();
         // Only 1 typeparam for now.
         index2 = data.readU32();
-        long num = 1234 ^ constKind ^ index1 ^ index2;
-        hash = (int)((num >> 32) ^ num);
+        hash = (31 * constKind + index1) * 31 + index2;
         break;
       }
       default:
@@ -135,13 +135,14 @@ public class DataBuffer {
   }
 
   public int hashCode(int start, int end) {
-    long hash = 1234;
+    // xor of bytes has only 256 values - pool parts of a big library were mostly collisions
+    int hash = 1234;
     end += offset;
     for (int i = offset + start; i < end; i++) {
-      hash ^= data[i];
+      hash = 31 * hash + data[i];
     }
 
-    return (int)((hash >> 32) ^ hash);
+    return hash;
   }
 
   public final void writeTo(ByteBuffer buffer, int start, int end) {
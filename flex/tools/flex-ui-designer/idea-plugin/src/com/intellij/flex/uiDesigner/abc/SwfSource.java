@@ -0,0 +1,18 @@
+package com.intellij.flex.uiDesigner.abc;
+
+/**
+ * Uncompressed swf body with the partial header, decoded independently of a transcoder (i.e. in parallel)
+ */
+public final class SwfSource {
+  final byte[] partialHeader;
+  final byte[] data;
+
+  SwfSource(byte[] partialHeader, byte[] data) {
+    this.partialHeader = partialHeader;
+    this.data = data;
+  }
+
+  public int getLength() {
+    return data.length;
+  }
+}
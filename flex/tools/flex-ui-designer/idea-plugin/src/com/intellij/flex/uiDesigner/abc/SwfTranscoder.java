@@ -28,6 +28,19 @@ abstract class SwfTranscoder extends AbcEncoder {
 
   // in will be closed
   protected void readSource(InputStream in, long inputLength) throws IOException {
+    readSource(decodeSource(in, inputLength));
+  }
+
+  protected void readSource(SwfSource source) throws IOException {
+    System.arraycopy(source.partialHeader, 0, partialHeader, 0, PARTIAL_HEADER_LENGTH);
+    buffer = ByteBuffer.wrap(source.data).order(ByteOrder.LITTLE_ENDIAN);
+
+    readFrameSizeFrameRateAndFrameCount(source.data[0]);
+  }
+
+  // in will be closed, thread safe
+  protected static SwfSource decodeSource(InputStream in, long inputLength) throws IOException {
+    final byte[] partialHeader = new byte[PARTIAL_HEADER_LENGTH];
     final int uncompressedBodyLength;
     final boolean compressed;
     byte[] data;
@@ -61,9 +74,7 @@ abstract class SwfTranscoder extends AbcEncoder {
       }
     }
 
-    buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-
-    readFrameSizeFrameRateAndFrameCount(data[0]);
+    return new SwfSource(partialHeader, data);
   }
 
   protected void readFrameSizeFrameRateAndFrameCount(byte b) throws IOException {
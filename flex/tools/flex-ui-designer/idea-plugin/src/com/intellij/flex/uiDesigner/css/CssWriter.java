@@ -103,64 +103,118 @@ public class CssWriter {
       }
 
       PrimitiveAmfOutputStream rulesetOut = rulesetVectorWriter.getOutputForIteration();
+      writeRulesetPosition(ruleset, document, documentWindow, rulesetOut);
+      writeSelectors(ruleset, rulesetOut, module);
+      writeDeclarations(block, documentWindow, rulesetOut);
+    }
 
-      int textOffset = ruleset.getTextOffset();
-      if (documentWindow == null) {
-        rulesetOut.writeUInt29(document.getLineNumber(textOffset) + 1);
-      }
-      else {
-        rulesetOut.writeUInt29(documentWindow.injectedToHostLine(document.getLineNumber(textOffset)) + 1);
-        textOffset = documentWindow.injectedToHost(textOffset);
+    PrimitiveAmfOutputStream outputForCustomData = rulesetVectorWriter.getOutputForCustomData();
+    CssNamespace[] namespaces = stylesheet.getNamespaces();
+    outputForCustomData.write(namespaces.length);
+    if (namespaces.length > 0) {
+      for (CssNamespace cssNamespace : namespaces) {
+        stringWriter.writeNullable(cssNamespace.getPrefix(), outputForCustomData);
+        stringWriter.writeNullable(cssNamespace.getUri(), outputForCustomData);
       }
-      rulesetOut.writeUInt29(textOffset);
-
-      writeSelectors(ruleset, rulesetOut, module);
+    }
 
-      declarationVectorWriter.prepareIteration();
-      for (CssDeclaration declaration : block.getDeclarations()) {
-        CssTermList value = declaration.getValue();
-        if (value == null || PsiTreeUtil.getChildOfType(value, PsiErrorElement.class) != null) {
-          continue;
-        }
+    return IOUtil.getBytes(rulesetVectorWriter);
+  }
 
-        propertyOut = declarationVectorWriter.getOutputForIteration();
-        try {
-          stringWriter.write(declaration.getPropertyName(), propertyOut);
+  /**
+   * Update of the changed ruleset only - edit inside of the ruleset block doesn't change selectors (style manager is not affected),
+   * but shifts the rulesets below, so, positions of all rulesets are written too.
+   */
+  @Nullable
+  public byte[] writeRulesetUpdate(@NotNull StylesheetFile stylesheetFile, @NotNull CssRuleset changedRuleset, @NotNull Module module) {
+    CssStylesheet stylesheet = stylesheetFile.getStylesheet();
+    Document document = PsiDocumentManager.getInstance(module.getProject()).getDocument(stylesheetFile);
+    if (stylesheet == null || document == null) {
+      return null;
+    }
 
-          textOffset = declaration.getTextOffset();
-          propertyOut.writeUInt29(documentWindow == null ? textOffset : documentWindow.injectedToHost(textOffset));
+    problemsHolder.setCurrentFile(stylesheetFile.getVirtualFile());
+    try {
+      rulesetVectorWriter.prepareIteration();
 
-          CssPropertyDescriptor propertyDescriptor = ContainerUtil.getFirstItem(declaration.getDescriptors());
-          writePropertyValue(value, propertyDescriptor != null && propertyDescriptor instanceof FlexCssPropertyDescriptor
-                                    ? ((FlexCssPropertyDescriptor)propertyDescriptor).getStyleInfo()
-                                    : null);
+      DocumentWindow documentWindow = document instanceof DocumentWindow ? (DocumentWindow)document : null;
+      int rulesetIndex = 0;
+      int changedRulesetIndex = -1;
+      for (CssRuleset ruleset : stylesheet.getRulesets()) {
+        if (ruleset.getBlock() == null) {
           continue;
         }
-        catch (RuntimeException e) {
-          problemsHolder.add(declaration, e, declaration.getPropertyName());
-        }
-        catch (Throwable e) {
-          problemsHolder.add(e);
+
+        if (ruleset == changedRuleset) {
+          changedRulesetIndex = rulesetIndex;
         }
+        rulesetIndex++;
+        writeRulesetPosition(ruleset, document, documentWindow, rulesetVectorWriter.getOutputForIteration());
+      }
 
-        declarationVectorWriter.rollbackLastIteration();
+      if (changedRulesetIndex == -1) {
+        return null;
       }
 
-      // must be written in any case, IDEA-86219, ruleset without rules
-      declarationVectorWriter.writeTo(rulesetOut);
+      PrimitiveAmfOutputStream outputForCustomData = rulesetVectorWriter.getOutputForCustomData();
+      outputForCustomData.writeUInt29(changedRulesetIndex);
+      //noinspection ConstantConditions
+      writeDeclarations(changedRuleset.getBlock(), documentWindow, outputForCustomData);
+      return IOUtil.getBytes(rulesetVectorWriter);
     }
+    finally {
+      problemsHolder.setCurrentFile(null);
+    }
+  }
 
-    PrimitiveAmfOutputStream outputForCustomData = rulesetVectorWriter.getOutputForCustomData();
-    CssNamespace[] namespaces = stylesheet.getNamespaces();
-    outputForCustomData.write(namespaces.length);
-    if (namespaces.length > 0) {
-      for (CssNamespace cssNamespace : namespaces) {
-        stringWriter.writeNullable(cssNamespace.getPrefix(), outputForCustomData);
-        stringWriter.writeNullable(cssNamespace.getUri(), outputForCustomData);
+  private static void writeRulesetPosition(@NotNull CssRuleset ruleset,
+                                           @NotNull Document document,
+                                           @Nullable DocumentWindow documentWindow,
+                                           @NotNull PrimitiveAmfOutputStream out) {
+    int textOffset = ruleset.getTextOffset();
+    if (documentWindow == null) {
+      out.writeUInt29(document.getLineNumber(textOffset) + 1);
+    }
+    else {
+      out.writeUInt29(documentWindow.injectedToHostLine(document.getLineNumber(textOffset)) + 1);
+      textOffset = documentWindow.injectedToHost(textOffset);
+    }
+    out.writeUInt29(textOffset);
+  }
+
+  private void writeDeclarations(@NotNull CssBlock block, @Nullable DocumentWindow documentWindow, @NotNull PrimitiveAmfOutputStream out) {
+    declarationVectorWriter.prepareIteration();
+    for (CssDeclaration declaration : block.getDeclarations()) {
+      CssTermList value = declaration.getValue();
+      if (value == null || PsiTreeUtil.getChildOfType(value, PsiErrorElement.class) != null) {
+        continue;
+      }
+
+      propertyOut = declarationVectorWriter.getOutputForIteration();
+      try {
+        stringWriter.write(declaration.getPropertyName(), propertyOut);
+
+        int textOffset = declaration.getTextOffset();
+        propertyOut.writeUInt29(documentWindow == null ? textOffset : documentWindow.injectedToHost(textOffset));
+
+        CssPropertyDescriptor propertyDescriptor = ContainerUtil.getFirstItem(declaration.getDescriptors());
+        writePropertyValue(value, propertyDescriptor != null && propertyDescriptor instanceof FlexCssPropertyDescriptor
+                                  ? ((FlexCssPropertyDescriptor)propertyDescriptor).getStyleInfo()
+                                  : null);
+        continue;
+      }
+      catch (RuntimeException e) {
+        problemsHolder.add(declaration, e, declaration.getPropertyName());
       }
+      catch (Throwable e) {
+        problemsHolder.add(e);
+      }
+
+      declarationVectorWriter.rollbackLastIteration();
     }
 
-    return IOUtil.getBytes(rulesetVectorWriter);
+    // must be written in any case, IDEA-86219, ruleset without rules
+    declarationVectorWriter.writeTo(out);
   }
 
   private void writeSelectors(@NotNull CssRuleset ruleset, @NotNull PrimitiveAmfOutputStream out, @NotNull Module module) {
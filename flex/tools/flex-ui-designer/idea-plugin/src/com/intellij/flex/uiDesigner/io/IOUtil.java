@@ -49,14 +49,11 @@ public final class IOUtil {
     }
   }
 
-  public static BufferedImage readARGBImage(DataInputStream in) throws IOException {
-    final int w = in.readUnsignedShort();
-    if (w == 0) {
-      return null;
-    }
-
-    final int h = in.readUnsignedShort();
-    int l = w * h * 4;
+  /**
+   * Designer sends pixels as ARGB, image is stored as BGR - conversion is done in place
+   */
+  static byte[] readARGBAsBGR(DataInputStream in, int pixelCount) throws IOException {
+    final int l = pixelCount * 4;
     final byte[] data = FileUtil.loadBytes(in, l);
     for (int i = 0, j = 0; i < l; i += 4) {
       data[j++] = data[i + 3];
@@ -64,11 +61,10 @@ public final class IOUtil {
       data[j++] = data[i + 2];
       data[j++] = r;
     }
-
-    return createImage(w, h, data);
+    return data;
   }
 
-  private static BufferedImage createImage(int w, int h, byte[] bgr) {
+  static BufferedImage createImage(int w, int h, byte[] bgr) {
     return new BufferedImage(COLOR_MODER,
                              Raster.createInterleavedRaster(new DataBufferByte(bgr, w * h * 3), w, h, w * 3, 3, new int[]{2, 1, 0}, null),
                              false, null);
@@ -0,0 +1,148 @@
+package com.intellij.flex.uiDesigner.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Document image as sent by the designer. Designer keeps the last snapshot of the document and, if the image of that version is
+ * requested as base, sends only regions changed since it (see DocumentImageWriter.as) - the whole image is sent for the first request,
+ * after resize or if the versions don't match.
+ *
+ * Wire format: image version (int), width (unsigned short, 0 if document has no image), height (unsigned short), kind (byte),
+ * then ARGB pixels of the whole image or count of regions (unsigned short) and x, y, width, height (unsigned short) and ARGB pixels
+ * of every region.
+ */
+public final class ImageUpdate {
+  public static final int NO_VERSION = -1;
+
+  static final int FULL = 0;
+  static final int REGIONS = 1;
+
+  private static final int REGION_HEADER_LENGTH = 4 * 2;
+
+  private final int version;
+  private final int baseVersion;
+  private final int width;
+  private final int height;
+
+  private final BufferedImage image;
+  private final Rectangle[] regions;
+  private final byte[][] regionPixels;
+
+  private final int transferredBytes;
+
+  private ImageUpdate(int version, int baseVersion, int width, int height, @Nullable BufferedImage image, @Nullable Rectangle[] regions,
+                      @Nullable byte[][] regionPixels, int transferredBytes) {
+    this.version = version;
+    this.baseVersion = baseVersion;
+    this.width = width;
+    this.height = height;
+    this.image = image;
+    this.regions = regions;
+    this.regionPixels = regionPixels;
+    this.transferredBytes = transferredBytes;
+  }
+
+  /**
+   * Returns null if document has no image
+   */
+  @Nullable
+  public static ImageUpdate read(DataInputStream in, int baseVersion) throws IOException {
+    final int version = in.readInt();
+    final int w = in.readUnsignedShort();
+    if (w == 0) {
+      return null;
+    }
+
+    final int h = in.readUnsignedShort();
+    final int kind = in.readByte();
+    int transferredBytes = 4 + 2 + 2 + 1;
+    if (kind == FULL) {
+      transferredBytes += w * h * 4;
+      return new ImageUpdate(version, baseVersion, w, h, IOUtil.createImage(w, h, IOUtil.readARGBAsBGR(in, w * h)), null, null,
+                             transferredBytes);
+    }
+    else if (kind != REGIONS) {
+      throw new IOException("Unknown image update kind " + kind);
+    }
+
+    final int n = in.readUnsignedShort();
+    transferredBytes += 2;
+    final Rectangle[] regions = new Rectangle[n];
+    final byte[][] regionPixels = new byte[n][];
+    for (int i = 0; i < n; i++) {
+      final Rectangle region = new Rectangle(in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort());
+      if (region.x + region.width > w || region.y + region.height > h) {
+        throw new IOException("Region " + region + " is out of image bounds " + w + "x" + h);
+      }
+
+      regions[i] = region;
+      regionPixels[i] = IOUtil.readARGBAsBGR(in, region.width * region.height);
+      transferredBytes += REGION_HEADER_LENGTH + region.width * region.height * 4;
+    }
+    return new ImageUpdate(version, baseVersion, w, h, null, regions, regionPixels, transferredBytes);
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public boolean isFull() {
+    return image != null;
+  }
+
+  /**
+   * Only for full update
+   */
+  @NotNull
+  public BufferedImage getImage() {
+    assert image != null;
+    return image;
+  }
+
+  /**
+   * Returns false if update cannot be applied to the image - it is not the image of the base version, caller must request full image
+   */
+  public boolean canApplyTo(@Nullable BufferedImage base, int baseImageVersion) {
+    return regions != null && base != null && baseImageVersion == baseVersion && baseVersion != NO_VERSION &&
+           base.getWidth() == width && base.getHeight() == height;
+  }
+
+  /**
+   * Paints changed regions over the image of the base version (in place), returns bounds of changed area or null if nothing is changed
+   */
+  @Nullable
+  public Rectangle applyTo(@NotNull BufferedImage base) {
+    assert regions != null && regionPixels != null;
+    // rows are copied as is, image is created by IOUtil.createImage - BGR, scanline stride is width * 3
+    final byte[] data = ((DataBufferByte)base.getRaster().getDataBuffer()).getData();
+    Rectangle bounds = null;
+    for (int i = 0; i < regions.length; i++) {
+      final Rectangle region = regions[i];
+      final int rowLength = region.width * 3;
+      for (int row = 0; row < region.height; row++) {
+        System.arraycopy(regionPixels[i], row * rowLength, data, ((region.y + row) * width + region.x) * 3, rowLength);
+      }
+      if (bounds == null) {
+        bounds = new Rectangle(region);
+      }
+      else {
+        bounds.add(region);
+      }
+    }
+    return bounds;
+  }
+
+  /**
+   * Size of the update message, whole image is width * height * 4 bytes
+   */
+  public int getTransferredBytes() {
+    return transferredBytes;
+  }
+}
@@ -52,10 +52,19 @@ class AbcMerger extends AbcTranscoder {
   }
 
   public void process(Library library) throws IOException {
+    process(library, decode(library));
+  }
+
+  public void process(Library library, SwfSource source) throws IOException {
     this.library = library;
+    readSource(source);
+    processSource();
+  }
 
+  // thread safe, doesn't depend on merger state
+  static SwfSource decode(Library library) throws IOException {
     VirtualFile file = library.getSwfFile();
-    process(file.getInputStream(), (int)file.getLength());
+    return decodeSource(file.getInputStream(), (int)file.getLength());
   }
 
   public void process(InputStream in) throws IOException {
@@ -64,6 +73,10 @@ class AbcMerger extends AbcTranscoder {
 
   public void process(InputStream in, int length) throws IOException {
     readSource(in, length);
+    processSource();
+  }
+
+  private void processSource() throws IOException {
     processTags(null);
     library = null;
 
@@ -0,0 +1,68 @@
+package com.intellij.flex.uiDesigner.libraries;
+
+import com.intellij.util.xml.NanoXmlUtil.IXMLBuilderAdapter;
+import gnu.trove.TByteArrayList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog is parsed in parallel with other catalogs, but the definition map is built in library order - events recorded here are
+ * replayed into {@link CatalogXmlBuilder} in that order.
+ */
+class CatalogXmlEvents extends IXMLBuilderAdapter {
+  private static final byte START_ELEMENT = 0;
+  private static final byte END_ELEMENT = 1;
+  private static final byte ATTRIBUTE = 2;
+
+  private final TByteArrayList kinds = new TByteArrayList();
+  // element name, or attribute name and value
+  private final List<String> strings = new ArrayList<>();
+
+  @Override
+  public void startElement(String name, String nsPrefix, String nsURI, String systemID, int lineNr) throws Exception {
+    kinds.add(START_ELEMENT);
+    strings.add(name);
+  }
+
+  @Override
+  public void endElement(String name, String nsPrefix, String nsURI) throws Exception {
+    kinds.add(END_ELEMENT);
+    strings.add(name);
+  }
+
+  @Override
+  public void addAttribute(String name, String nsPrefix, String nsURI, String value, String type) throws Exception {
+    kinds.add(ATTRIBUTE);
+    strings.add(name);
+    strings.add(value);
+  }
+
+  public void replay(CatalogXmlBuilder builder) throws IOException {
+    int stringIndex = 0;
+    try {
+      for (int i = 0, n = kinds.size(); i < n; i++) {
+        switch (kinds.get(i)) {
+          case START_ELEMENT:
+            builder.startElement(strings.get(stringIndex++), null, null, null, 0);
+            break;
+
+          case END_ELEMENT:
+            builder.endElement(strings.get(stringIndex++), null, null);
+            break;
+
+          case ATTRIBUTE:
+            builder.addAttribute(strings.get(stringIndex++), null, null, strings.get(stringIndex++), null);
+            break;
+        }
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      throw e;
+    }
+    catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -4,60 +4,95 @@ import com.intellij.flex.uiDesigner.abc.AbcTranscoder;
 import com.intellij.flex.uiDesigner.abc.Decoder;
 import com.intellij.flex.uiDesigner.abc.DecoderException;
 import com.intellij.flex.uiDesigner.abc.Encoder;
+import com.intellij.flex.uiDesigner.abc.SwfSource;
 import com.intellij.flex.uiDesigner.io.IOUtil;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.text.StringUtil;
 import gnu.trove.THashMap;
 import gnu.trove.TObjectProcedure;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
+import org.jetbrains.ide.PooledThreadExecutor;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.InterruptedIOException;
+import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.intellij.flex.uiDesigner.libraries.Definition.ResolvedState;
 
 public class LibrarySorter {
+  private static final Logger LOG = Logger.getInstance(LibrarySorter.class.getName());
+
   @Nullable
   private final DefinitionProcessor definitionProcessor;
   @Nullable
   private final DefinitionMapProcessor definitionMapProcessor;
+  // number of libraries read ahead of the sequential catalog processing and merging
+  private final int parallelism;
+
+  private final Map<Library, LibraryTiming> timings = new LinkedHashMap<>();
 
   public LibrarySorter() {
     this(null, null);
   }
 
   public LibrarySorter(@Nullable DefinitionProcessor definitionProcessor, @Nullable DefinitionMapProcessor definitionMapProcessor) {
+    this(definitionProcessor, definitionMapProcessor, Runtime.getRuntime().availableProcessors());
+  }
+
+  private LibrarySorter(@Nullable DefinitionProcessor definitionProcessor, @Nullable DefinitionMapProcessor definitionMapProcessor,
+                        int parallelism) {
     this.definitionProcessor = definitionProcessor;
     this.definitionMapProcessor = definitionMapProcessor;
+    this.parallelism = parallelism;
   }
 
-  private static List<LibrarySetItem> collectItems(final List<Library> libraries, Map<CharSequence, Definition> definitionMap,
-                                                   Condition<String> isExternal) throws IOException {
+  /**
+   * Sorting on the calling thread, as it was done before catalogs and swf files were read in parallel
+   */
+  @TestOnly
+  static LibrarySorter createSequential() {
+    return new LibrarySorter(null, null, 1);
+  }
+
+  private List<LibrarySetItem> collectItems(final List<Library> libraries, Map<CharSequence, Definition> definitionMap,
+                                            Condition<String> isExternal) throws IOException {
     final List<LibrarySetItem> items = new ArrayList<>(libraries.size());
     final CatalogXmlBuilder catalogXmlBuilder = new CatalogXmlBuilder(definitionMap, isExternal);
-    for (Library library : libraries) {
-      LibrarySetItem item = new LibrarySetItem(library);
+    forEachLibrary(libraries, timing -> {
+      final long start = System.nanoTime();
+      final CatalogXmlEvents events = new CatalogXmlEvents();
+      IOUtil.parseXml(timing.library.getCatalogFile(), events);
+      timing.catalogTime = System.nanoTime() - start;
+      return events;
+    }, (timing, events) -> {
+      final long start = System.nanoTime();
+      LibrarySetItem item = new LibrarySetItem(timing.library);
       catalogXmlBuilder.setLibrary(item);
-      IOUtil.parseXml(library.getCatalogFile(), catalogXmlBuilder);
-      if (item.hasDefinitions() || library.hasResourceBundles()) {
+      events.replay(catalogXmlBuilder);
+      if (item.hasDefinitions() || timing.library.hasResourceBundles()) {
         items.add(item);
       }
-    }
+      timing.catalogTime += System.nanoTime() - start;
+    });
 
     return items;
   }
 
   public SortResult sort(List<Library> libraries, File outFile, Condition<String> isExternal, boolean returnDefinitionMap) throws IOException {
+    timings.clear();
     final THashMap<CharSequence, Definition> definitionMap = new THashMap<>(libraries.size() * 128, AbcTranscoder.HASHING_STRATEGY);
     final List<LibrarySetItem> unsortedItems = collectItems(libraries, definitionMap, isExternal);
     final AbcMerger abcMerger = new AbcMerger(definitionMap, outFile, definitionProcessor);
     try {
       final ArrayList<Library> resourceOrStyleHolders = new ArrayList<>(unsortedItems.size());
+      final List<Library> librariesToMerge = new ArrayList<>(unsortedItems.size());
       for (LibrarySetItem item : unsortedItems) {
         if (!item.hasDefinitions()) {
           if (item.library.hasResourceBundles()) {
@@ -70,9 +105,21 @@ public class LibrarySorter {
           resourceOrStyleHolders.add(item.library);
         }
 
-        abcMerger.process(item.library);
+        librariesToMerge.add(item.library);
       }
-      
+
+      // swf files are decoded in parallel, but merged in library order - symbol ids and tags in the out file depend on it
+      forEachLibrary(librariesToMerge, timing -> {
+        final long start = System.nanoTime();
+        final SwfSource source = AbcMerger.decode(timing.library);
+        timing.decodeTime = System.nanoTime() - start;
+        return source;
+      }, (timing, source) -> {
+        final long start = System.nanoTime();
+        abcMerger.process(timing.library, source);
+        timing.mergeTime = System.nanoTime() - start;
+      });
+
       if (definitionMapProcessor != null) {
         definitionMapProcessor.process(definitionMap, abcMerger);
       }
@@ -93,6 +140,9 @@ public class LibrarySorter {
       });
 
       abcMerger.end(decoders, new Encoder());
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Libraries sorted into " + outFile.getPath() + ":\n" + StringUtil.join(timings.values(), LibraryTiming::toString, "\n"));
+      }
       return new SortResult(returnDefinitionMap ? definitionMap : null, resourceOrStyleHolders);
     }
     finally {
@@ -100,6 +150,83 @@ public class LibrarySorter {
     }
   }
 
+  /**
+   * Runs task for up to {@link #parallelism} libraries ahead and passes results to consumer on the calling thread in library order
+   */
+  private <T> void forEachLibrary(List<Library> libraries, LibraryTask<T> task, LibraryConsumer<T> consumer) throws IOException {
+    final List<LibraryTiming> libraryTimings = new ArrayList<>(libraries.size());
+    for (Library library : libraries) {
+      libraryTimings.add(getTiming(library));
+    }
+
+    if (parallelism <= 1) {
+      for (LibraryTiming timing : libraryTimings) {
+        consumer.consume(timing, task.run(timing));
+      }
+      return;
+    }
+
+    final List<Future<T>> futures = new ArrayList<>(libraries.size());
+    try {
+      for (int i = 0; i < libraryTimings.size(); i++) {
+        while (futures.size() < Math.min(libraryTimings.size(), i + parallelism)) {
+          final LibraryTiming timing = libraryTimings.get(futures.size());
+          futures.add(PooledThreadExecutor.INSTANCE.submit(() -> task.run(timing)));
+        }
+
+        final T result = getResult(futures.get(i));
+        // result is not needed after consume, don't hold it till the end
+        futures.set(i, null);
+        consumer.consume(libraryTimings.get(i), result);
+      }
+    }
+    finally {
+      for (Future<T> future : futures) {
+        if (future != null) {
+          future.cancel(false);
+        }
+      }
+    }
+  }
+
+  private static <T> T getResult(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+    catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private LibraryTiming getTiming(Library library) {
+    LibraryTiming timing = timings.get(library);
+    if (timing == null) {
+      timing = new LibraryTiming(library);
+      timings.put(library, timing);
+    }
+    return timing;
+  }
+
+  /**
+   * @return time spent on each library by the last {@link #sort}, in library order
+   */
+  public List<LibraryTiming> getTimings() {
+    return new ArrayList<>(timings.values());
+  }
+
   private static Decoder createDecoder(Definition definition) {
     final Decoder decoder = new Decoder(definition.doAbcData, definition.doAbcData.abcModifier);
     definition.doAbcData = null;
@@ -151,6 +278,45 @@ public class LibrarySorter {
     return true;
   }
 
+  private interface LibraryTask<T> {
+    T run(LibraryTiming timing) throws IOException;
+  }
+
+  private interface LibraryConsumer<T> {
+    void consume(LibraryTiming timing, T result) throws IOException;
+  }
+
+  public static class LibraryTiming {
+    public final Library library;
+
+    // nanoseconds
+    long catalogTime;
+    long decodeTime;
+    long mergeTime;
+
+    LibraryTiming(Library library) {
+      this.library = library;
+    }
+
+    public long getCatalogTime() {
+      return catalogTime;
+    }
+
+    public long getDecodeTime() {
+      return decodeTime;
+    }
+
+    public long getMergeTime() {
+      return mergeTime;
+    }
+
+    @Override
+    public String toString() {
+      return library.getFile().getPath() + ": catalog " + TimeUnit.NANOSECONDS.toMillis(catalogTime) + " ms, decode " +
+             TimeUnit.NANOSECONDS.toMillis(decodeTime) + " ms, merge " + TimeUnit.NANOSECONDS.toMillis(mergeTime) + " ms";
+    }
+  }
+
   static class SortResult {
     final @Nullable THashMap<CharSequence, Definition> definitionMap;
     final List<Library> libraries;
@@ -1,6 +1,7 @@
 package com.intellij.flex.uiDesigner.preview;
 
 import com.intellij.flex.uiDesigner.FlashUIDesignerBundle;
+import com.intellij.flex.uiDesigner.io.ImageUpdate;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.ui.LoadingDecorator;
 import com.intellij.ui.JBColor;
@@ -21,6 +22,8 @@ class MxmlPreviewPanel extends JBLayeredPane implements Disposable {
   private static final double ZOOM_STEP = 1.25;
 
   private BufferedImage image;
+  // version of the image in the designer, changed regions are requested relative to it
+  private int imageVersion = ImageUpdate.NO_VERSION;
 
   private double zoomFactor = 1.0;
   private boolean zoomToFit = true;
@@ -81,12 +84,53 @@ class MxmlPreviewPanel extends JBLayeredPane implements Disposable {
     return image;
   }
 
+  int getImageVersion() {
+    return imageVersion;
+  }
+
   public void setImage(@Nullable BufferedImage image) {
+    setImage(image, ImageUpdate.NO_VERSION);
+  }
+
+  private void setImage(@Nullable BufferedImage image, int version) {
     this.image = image;
+    imageVersion = version;
     clearCannotRender();
     doRevalidate();
   }
 
+  /**
+   * Returns false if the update is not relative to the current image (image was replaced while waiting for the designer) -
+   * whole image must be requested
+   */
+  boolean updateImage(@Nullable ImageUpdate update) {
+    if (update == null) {
+      setImage(null);
+      return true;
+    }
+    if (update.isFull()) {
+      setImage(update.getImage(), update.getVersion());
+      return true;
+    }
+    if (!update.canApplyTo(image, imageVersion)) {
+      imageVersion = ImageUpdate.NO_VERSION;
+      return false;
+    }
+
+    imageVersion = update.getVersion();
+    clearCannotRender();
+    Rectangle changed = update.applyTo(image);
+    if (changed != null) {
+      // size is not changed, only the changed area of the (scaled) image is repainted
+      final double fx = (double)imagePanel.getWidth() / image.getWidth();
+      final double fy = (double)imagePanel.getHeight() / image.getHeight();
+      final int x = (int)Math.floor(changed.x * fx);
+      final int y = (int)Math.floor(changed.y * fy);
+      imagePanel.repaint(x, y, (int)Math.ceil(changed.getMaxX() * fx) - x + 1, (int)Math.ceil(changed.getMaxY() * fy) - y + 1);
+    }
+    return true;
+  }
+
   public void clearCannotRender() {
     if (cannotRenderText != null) {
       remove(cannotRenderText);
@@ -2,6 +2,7 @@ package com.intellij.flex.uiDesigner.preview;
 
 import com.intellij.flex.uiDesigner.*;
 import com.intellij.flex.uiDesigner.io.IOUtil;
+import com.intellij.flex.uiDesigner.io.ImageUpdate;
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.application.AccessToken;
 import com.intellij.openapi.application.ApplicationManager;
@@ -258,16 +259,22 @@ public class MxmlPreviewToolWindowManager implements ProjectComponent {
     toolWindowForm.waitingForGetDocument = true;
     XmlFile xmlFile = (XmlFile)PsiManager.getInstance(project).findFile(file);
     LogMessageUtil.LOG.assertTrue(xmlFile != null);
-    AsyncResult<BufferedImage> result = DesignerApplicationManager.getInstance().getDocumentImage(xmlFile);
-    result.doWhenDone(new QueuedAsyncResultHandler<BufferedImage>() {
+    final int baseVersion = toolWindowForm.getPreviewPanel().getImageVersion();
+    AsyncResult<ImageUpdate> result = DesignerApplicationManager.getInstance().getDocumentImage(xmlFile, baseVersion);
+    result.doWhenDone(new QueuedAsyncResultHandler<ImageUpdate>() {
       @Override
       protected boolean isExpired() {
         return toolWindowForm == null || !file.equals(toolWindowForm.getFile());
       }
 
       @Override
-      public void process(final BufferedImage image) {
-        UIUtil.invokeLaterIfNeeded(() -> toolWindowForm.getPreviewPanel().setImage(image));
+      public void process(final ImageUpdate update) {
+        UIUtil.invokeLaterIfNeeded(() -> {
+          if (toolWindowForm != null && !toolWindowForm.getPreviewPanel().updateImage(update)) {
+            // changed regions are relative to the image we don't have anymore
+            render(false, false);
+          }
+        });
       }
     });
 
@@ -14,9 +14,11 @@ import com.intellij.psi.impl.DebugUtil;
 import com.intellij.util.concurrency.Semaphore;
 import com.intellij.util.messages.MessageBusConnection;
 import com.intellij.util.ui.UIUtil;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketException;
@@ -35,6 +37,12 @@ public class AppTest extends AppTestBase {
   protected void changeServicesImplementation() {
     Tests.changeDesignerServiceImplementation(SocketInputHandler.class, MySocketInputHandler.class);
     Tests.changeDesignerServiceImplementation(Client.class, TestClient.class);
+    Tests.changeServiceImplementation(DocumentProblemManager.class, TestDocumentProblemManager.class);
+  }
+
+  @Override
+  protected String getSourceBasePath() {
+    return getName().contains("Style") ? "css" : super.getSourceBasePath();
   }
 
   @Override
@@ -110,6 +118,125 @@ public class AppTest extends AppTestBase {
     callClientAssert(files[0]);
   }
 
+  @Flex(requireLocalStyleHolder = true)
+  public void testIncrementalStyleUpdateInCssFile() throws Exception {
+    final VirtualFile[] files = configureByFiles("IncrementalStyleUpdate.mxml", "incrementalStyleUpdate.css");
+    renderAndWait(files[0]);
+
+    insertString(files[1], getOffsetAfter(files[1], "italic;"), "\n  fontSize: 20;");
+    assertRulesetUpdate(files[1], new String[]{"s|Button", ".custom"}, 0, "fontStyle", "fontSize");
+    callClientAssert(files[0]);
+  }
+
+  @Flex(requireLocalStyleHolder = true)
+  public void testIncrementalStyleUpdateInStyleTag() throws Exception {
+    final VirtualFile[] files = configureByFiles("IncrementalStyleTagUpdate.mxml");
+    renderAndWait(files[0]);
+
+    insertString(files[0], getOffsetAfter(files[0], "bold;"), "\n      fontSize: 20;");
+    // positions in the host file
+    assertRulesetUpdate(files[0], new String[]{"s|Button", ".custom"}, 1, "fontWeight", "fontSize");
+    callClientAssert(files[0]);
+  }
+
+  @Flex(requireLocalStyleHolder = true)
+  public void testIncrementalStyleUpdateReportsInvalidValue() throws Exception {
+    final VirtualFile[] files = configureByFiles("IncrementalStyleUpdate.mxml", "incrementalStyleUpdate.css");
+    renderAndWait(files[0]);
+
+    final THashSet<ProblemDescriptor> expectedProblems = new THashSet<>();
+    expectedProblems.add(new ProblemDescriptor("Unresolved class UnresolvedSkin", files[1], 5));
+    TestDocumentProblemManager.setExpectedProblems(expectedProblems);
+    try {
+      insertString(files[1], getOffsetAfter(files[1], "italic;"), "\n  skinClass: ClassReference(\"UnresolvedSkin\");");
+      // declaration with invalid value is skipped
+      assertRulesetUpdate(files[1], new String[]{"s|Button", ".custom"}, 0, "fontStyle");
+    }
+    finally {
+      TestDocumentProblemManager.setExpectedProblems(null);
+    }
+  }
+
+  @Flex(requireLocalStyleHolder = true)
+  public void testSelectorChangeFallsBackToFullStyleUpdate() throws Exception {
+    final VirtualFile[] files = configureByFiles("IncrementalStyleUpdate.mxml", "incrementalStyleUpdate.css");
+    renderAndWait(files[0]);
+
+    insertString(files[1], getOffsetAfter(files[1], ".custom"), ", s|Button");
+    assertFullStyleUpdate();
+    callClientAssert(files[0]);
+  }
+
+  @Flex(requireLocalStyleHolder = true)
+  public void testSeveralStyleTagsFallBackToFullStyleUpdate() throws Exception {
+    final VirtualFile[] files = configureByFiles("SeveralStyleTags.mxml");
+    renderAndWait(files[0]);
+
+    insertString(files[0], getOffsetAfter(files[0], "bold;"), "\n      fontSize: 20;");
+    assertFullStyleUpdate();
+    callClientAssert(files[0]);
+  }
+
+  @Flex(requireLocalStyleHolder = true)
+  public void testUnregisteredComponentFallsBackToFullStyleUpdate() throws Exception {
+    final VirtualFile[] files = configureByFiles("IncrementalStyleUpdate.mxml", "incrementalStyleUpdate.css", "AuxMyButtonSkin.mxml");
+    renderAndWait(files[0]);
+
+    insertString(files[1], getOffsetAfter(files[1], "italic;"), "\n  skinClass: ClassReference(\"AuxMyButtonSkin\");");
+    assertFullStyleUpdate();
+    callClientAssert(files[0]);
+  }
+
+  private static int getOffsetAfter(VirtualFile file, String s) {
+    final Document document = FileDocumentManager.getInstance().getDocument(file);
+    assertNotNull(document);
+    final int offset = document.getText().indexOf(s);
+    assertTrue(s, offset != -1);
+    return offset + s.length();
+  }
+
+  private void assertFullStyleUpdate() {
+    assertEquals(1, client.localStyleHoldersUpdateCount);
+    assertTrue(client.localStyleRulesetUpdates.isEmpty());
+  }
+
+  /**
+   * Ruleset update is positions of all rulesets, index of the changed one and its declarations (see CssWriter.writeRulesetUpdate).
+   * Length of the declaration value depends on its type, so, only the first declaration is decoded, values are checked on client side.
+   */
+  private void assertRulesetUpdate(VirtualFile file, String[] selectors, int changedRulesetIndex, String... declarationNames) {
+    assertEquals(0, client.localStyleHoldersUpdateCount);
+    assertEquals(1, client.localStyleRulesetUpdates.size());
+
+    final Document document = FileDocumentManager.getInstance().getDocument(file);
+    assertNotNull(document);
+    final String text = document.getText();
+    final ByteArrayInputStream in = new ByteArrayInputStream(client.localStyleRulesetUpdates.get(0));
+    assertEquals(selectors.length, readUInt29(in));
+    for (String selector : selectors) {
+      final int textOffset = text.indexOf(selector + " {");
+      assertEquals(selector, document.getLineNumber(textOffset) + 1, readUInt29(in));
+      assertEquals(selector, textOffset, readUInt29(in));
+    }
+
+    assertEquals(changedRulesetIndex, readUInt29(in));
+    assertEquals(declarationNames.length, readUInt29(in));
+    assertEquals(declarationNames[0], StringRegistry.getInstance().toArray()[readUInt29(in) - 1]);
+    assertEquals(text.indexOf(declarationNames[0] + ":"), readUInt29(in));
+  }
+
+  private static int readUInt29(ByteArrayInputStream in) {
+    int result = 0;
+    for (int i = 0; i < 3; i++) {
+      final int b = in.read();
+      if ((b & 0x80) == 0) {
+        return (result << 7) | b;
+      }
+      result = (result << 7) | (b & 0x7F);
+    }
+    return (result << 8) | in.read();
+  }
+
   private void insertString(VirtualFile file, final int offset, @NotNull final CharSequence s) throws InterruptedException {
     final Document document = FileDocumentManager.getInstance().getDocument(file);
     assertNotNull(document);
@@ -1,11 +1,19 @@
 package com.intellij.flex.uiDesigner;
 
+import com.intellij.flex.uiDesigner.io.StringRegistry;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.util.ActionCallback;
+import com.intellij.openapi.util.AsyncResult;
+import com.intellij.openapi.vfs.VirtualFile;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.intellij.flex.uiDesigner.DocumentFactoryManager.DocumentInfo;
 
 class TestClient extends Client {
   private static final int CLASS = 1;
@@ -17,6 +25,25 @@ class TestClient extends Client {
   private static final int INJECTED_AS_TEST_CLASS_ID = 2;
   private static final int STYLE_TEST_CLASS_ID = 4;
 
+  // local style updates sent to the designer, AppTest checks which one is used for the edit of stylesheet
+  int localStyleHoldersUpdateCount;
+  final List<byte[]> localStyleRulesetUpdates = new ArrayList<>();
+
+  @Override
+  public void updateLocalStyleHolders(THashMap<ModuleInfo, List<LocalStyleHolder>> holders, StringRegistry.StringWriter stringWriter) {
+    localStyleHoldersUpdateCount++;
+    super.updateLocalStyleHolders(holders, stringWriter);
+  }
+
+  @Override
+  public AsyncResult<List<DocumentInfo>> updateLocalStyleRuleset(ModuleInfo moduleInfo,
+                                                                 VirtualFile file,
+                                                                 StringRegistry.StringWriter stringWriter,
+                                                                 byte[] rulesetUpdate) {
+    localStyleRulesetUpdates.add(rulesetUpdate);
+    return super.updateLocalStyleRuleset(moduleInfo, file, stringWriter, rulesetUpdate);
+  }
+
   // MxmlTest on idea side splitted as MxmlTest, StatesTest and InjectedAsTest on client side.
   public ActionCallback test(int documentId, String method, String parentFilename) throws IOException {
     return test(null, documentId, method, charToTestId(parentFilename.charAt(0), parentFilename.length()));
@@ -0,0 +1,139 @@
+package com.intellij.flex.uiDesigner.abc;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.flex.uiDesigner.DesignerTests;
+import com.intellij.openapi.util.io.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Checked in fixtures are used as is, big and uncompressed swf files and FXG are generated from them.
+ * Merge of libraries is measured in {@link com.intellij.flex.uiDesigner.libraries.AbcMergerTest}.
+ */
+public class AbcTranscoderPerformanceTest {
+  private static final File TEST_DATA_DIR = new File(DesignerTests.getTestDataPath());
+  private static final String ANIMATION = "src/common/AuxAnim.swf";
+  private static final int MOVIE_RUNS = 2000;
+  private static final int FXG_PATH_COUNT = 500;
+
+  private File out;
+
+  @Before
+  public void runBeforeEveryTest() throws Exception {
+    out = File.createTempFile("abc_", ".swf");
+  }
+
+  @After
+  public void runAfterEveryTest() {
+    //noinspection ResultOfMethodCallIgnored
+    out.delete();
+  }
+
+  private static File extractLibrarySwf(String swcPath) throws IOException {
+    final File swf = FileUtil.createTempFile("library", ".swf", true);
+    try (ZipFile zipFile = new ZipFile(new File(TEST_DATA_DIR, swcPath))) {
+      final ZipEntry entry = zipFile.getEntry("library.swf");
+      try (InputStream in = zipFile.getInputStream(entry); OutputStream swfOut = new FileOutputStream(swf)) {
+        FileUtil.copy(in, swfOut);
+      }
+    }
+    return swf;
+  }
+
+  /**
+   * Same swf with FWS signature and inflated body, transcoders read it without Inflater
+   */
+  private static File createUncompressedSwf(File compressed) throws IOException {
+    final byte[] data = FileUtil.loadFileBytes(compressed);
+    final int length = data[4] & 0xFF | (data[5] & 0xFF) << 8 | (data[6] & 0xFF) << 16 | data[7] << 24;
+    final byte[] result = new byte[length];
+    System.arraycopy(data, 0, result, 0, 8);
+    result[0] = 'F';
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data, 8, data.length - 8);
+      inflater.inflate(result, 8, length - 8);
+    }
+    catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    finally {
+      inflater.end();
+    }
+
+    final File swf = FileUtil.createTempFile("uncompressed", ".swf", true);
+    FileUtil.writeToFile(swf, result);
+    return swf;
+  }
+
+  private static byte[] createFxg(int pathCount) {
+    final StringBuilder builder = new StringBuilder("<Graphic version=\"2.0\" xmlns=\"http://ns.adobe.com/fxg/2008\">\n");
+    for (int i = 0; i < pathCount; i++) {
+      builder.append("  <Path x=\"").append(i % 20 * 10).append("\" y=\"").append(i / 20 * 10)
+        .append("\" data=\"M11.2 18.4 6.6 13.9 0.3 15.2 3.1 9.4 0 3.8 6.4 4.7 10.8 0 11.8 6.3 17.7 9.1 12 12 11.2 18.4Z\">\n")
+        .append("    <fill><SolidColor color=\"#").append(String.format("%06X", i * 0x10204 & 0xFFFFFF)).append("\"/></fill>\n")
+        .append("    <stroke><SolidColorStroke weight=\"1\" color=\"#00FF66\"/></stroke>\n")
+        .append("  </Path>\n");
+    }
+    return builder.append("</Graphic>").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void filterSdkLibrary() throws IOException {
+    final File swf = extractLibrarySwf("lib/flex-sdk/4.6/frameworks/libs/framework.swc");
+    ThroughputTestUtil.assertThroughput("Filter of framework.swc library", swf.length() * 5, 1000, 40, () -> {
+      for (int i = 0; i < 5; i++) {
+        new AbcFilter().filter(swf, out, null);
+      }
+    });
+  }
+
+  @Test
+  public void filterUncompressedLibrary() throws IOException {
+    final File swf = createUncompressedSwf(new File(TEST_DATA_DIR, "abcTestLib/MinimalComps_0_9_10.swf"));
+    ThroughputTestUtil.assertThroughput("Filter of uncompressed library", swf.length() * 20, 700, 15, () -> {
+      for (int i = 0; i < 20; i++) {
+        new AbcFilter().filter(swf, out, null);
+      }
+    });
+  }
+
+  @Test
+  public void extractSymbol() throws IOException {
+    final File swf = new File(TEST_DATA_DIR, ANIMATION);
+    final byte[] symbolName = "myMC".getBytes(StandardCharsets.UTF_8);
+    ThroughputTestUtil.assertThroughput("Extraction of movie symbol", swf.length() * MOVIE_RUNS, 700, 20, () -> {
+      for (int i = 0; i < MOVIE_RUNS; i++) {
+        new MovieSymbolTranscoder().transcode(swf, out, symbolName);
+      }
+    });
+  }
+
+  @Test
+  public void transcodeEntireMovie() throws IOException {
+    final File swf = new File(TEST_DATA_DIR, ANIMATION);
+    ThroughputTestUtil.assertThroughput("Transcoding of entire movie", swf.length() * MOVIE_RUNS, 500, 20, () -> {
+      for (int i = 0; i < MOVIE_RUNS; i++) {
+        new EntireMovieTranscoder().transcode(swf, out);
+      }
+    });
+  }
+
+  @Test
+  public void transcodeFxg() throws IOException {
+    final byte[] fxg = createFxg(FXG_PATH_COUNT);
+    ThroughputTestUtil.assertThroughput("Transcoding of FXG with " + FXG_PATH_COUNT + " paths", fxg.length * 10, 2000, 100, () -> {
+      for (int i = 0; i < 10; i++) {
+        new FxgTranscoder().transcode(new ByteArrayInputStream(fxg), fxg.length, out, false);
+      }
+    });
+  }
+}
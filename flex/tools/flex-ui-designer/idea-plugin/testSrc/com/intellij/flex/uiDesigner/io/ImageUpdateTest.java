@@ -0,0 +1,224 @@
+package com.intellij.flex.uiDesigner.io;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.intellij.flex.uiDesigner.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ImageUpdateTest {
+  private static final int WIDTH = 800;
+  private static final int HEIGHT = 600;
+
+  private StubDesigner designer;
+
+  @Before
+  public void runBeforeEveryTest() {
+    designer = new StubDesigner();
+    designer.frame = createFrame(WIDTH, HEIGHT);
+  }
+
+  private static int[] createFrame(int w, int h) {
+    final int[] frame = new int[w * h];
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        frame[y * w + x] = 0xff000000 | (x * 7 & 0xff) << 16 | (y * 3 & 0xff) << 8 | (x + y) & 0xff;
+      }
+    }
+    return frame;
+  }
+
+  private static void fill(int[] frame, int w, Rectangle rect, int argb) {
+    for (int y = rect.y; y < rect.y + rect.height; y++) {
+      for (int x = rect.x; x < rect.x + rect.width; x++) {
+        frame[y * w + x] = argb;
+      }
+    }
+  }
+
+  private static void assertImage(BufferedImage image, int[] frame, int w, int h) {
+    assertThat(image.getWidth(), equalTo(w));
+    assertThat(image.getHeight(), equalTo(h));
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        if (image.getRGB(x, y) != frame[y * w + x]) {
+          throw new AssertionError("Pixel " + x + ", " + y + " expected " + Integer.toHexString(frame[y * w + x]) + " but " +
+                                   Integer.toHexString(image.getRGB(x, y)));
+        }
+      }
+    }
+  }
+
+  private ImageUpdate request(int baseVersion) throws IOException {
+    final byte[] message = designer.getDocumentImage(baseVersion);
+    final ImageUpdate update = ImageUpdate.read(new DataInputStream(new ByteArrayInputStream(message)), baseVersion);
+    assertThat(update, notNullValue());
+    //noinspection ConstantConditions
+    assertThat(update.getTransferredBytes(), equalTo(message.length));
+    return update;
+  }
+
+  @Test
+  public void changedRegions() throws IOException {
+    final ImageUpdate first = request(ImageUpdate.NO_VERSION);
+    assertThat(first.isFull(), equalTo(true));
+    final BufferedImage image = first.getImage();
+    assertImage(image, designer.frame, WIDTH, HEIGHT);
+
+    // hover of button and caret in text input
+    final int[] frame = designer.frame.clone();
+    fill(frame, WIDTH, new Rectangle(20, 30, 90, 24), 0xff3366cc);
+    fill(frame, WIDTH, new Rectangle(400, 500, 1, 18), 0xff000000);
+    designer.frame = frame;
+
+    final ImageUpdate update = request(first.getVersion());
+    assertThat(update.isFull(), equalTo(false));
+    assertThat(update.canApplyTo(image, first.getVersion()), equalTo(true));
+    assertThat(update.applyTo(image), equalTo(new Rectangle(20, 30, 381, 488)));
+    assertImage(image, frame, WIDTH, HEIGHT);
+
+    assertThat("whole image: " + first.getTransferredBytes() + " bytes", update.getTransferredBytes(),
+               lessThan(first.getTransferredBytes() / 50));
+
+    final ImageUpdate unchanged = request(update.getVersion());
+    assertThat(unchanged.canApplyTo(image, update.getVersion()), equalTo(true));
+    assertThat(unchanged.applyTo(image), nullValue());
+    assertThat(unchanged.getTransferredBytes(), equalTo(4 + 2 + 2 + 1 + 2));
+  }
+
+  @Test
+  public void wholeImageIfVersionDiffers() throws IOException {
+    final ImageUpdate first = request(ImageUpdate.NO_VERSION);
+    final ImageUpdate second = request(first.getVersion());
+    assertThat(second.isFull(), equalTo(false));
+
+    // client didn't apply second update (e.g. file was switched)
+    final ImageUpdate third = request(first.getVersion());
+    assertThat(third.isFull(), equalTo(true));
+    assertImage(third.getImage(), designer.frame, WIDTH, HEIGHT);
+    assertThat(second.canApplyTo(third.getImage(), third.getVersion()), equalTo(false));
+  }
+
+  @Test
+  public void wholeImageIfResized() throws IOException {
+    final ImageUpdate first = request(ImageUpdate.NO_VERSION);
+    designer.width = 640;
+    designer.frame = createFrame(640, HEIGHT);
+    final ImageUpdate update = request(first.getVersion());
+    assertThat(update.isFull(), equalTo(true));
+    assertImage(update.getImage(), designer.frame, 640, HEIGHT);
+  }
+
+  @Test
+  public void wholeImageIfMostIsChanged() throws IOException {
+    final ImageUpdate first = request(ImageUpdate.NO_VERSION);
+    final int[] frame = designer.frame.clone();
+    fill(frame, WIDTH, new Rectangle(0, 0, WIDTH, HEIGHT - 100), 0xffffffff);
+    designer.frame = frame;
+    assertThat(request(first.getVersion()).isFull(), equalTo(true));
+  }
+
+  /**
+   * Answers getDocumentImage as DocumentImageWriter.as does
+   */
+  private static final class StubDesigner {
+    private static final int BAND_HEIGHT = 16;
+    private static final int MAX_MERGE_WASTE = BAND_HEIGHT * 64;
+    private static final double MAX_CHANGED_AREA_RATIO = 0.6;
+
+    private int width = WIDTH;
+    private int[] frame;
+
+    private int[] lastFrame;
+    private int lastWidth;
+    private int lastVersion;
+
+    public byte[] getDocumentImage(int clientVersion) throws IOException {
+      List<Rectangle> regions = null;
+      if (lastFrame != null && clientVersion == lastVersion && lastWidth == width && lastFrame.length == frame.length) {
+        regions = computeChangedRegions();
+      }
+
+      lastFrame = frame;
+      lastWidth = width;
+      lastVersion++;
+
+      final int height = frame.length / width;
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(lastVersion);
+      out.writeShort(width);
+      out.writeShort(height);
+      if (regions == null) {
+        out.writeByte(ImageUpdate.FULL);
+        writePixels(out, new Rectangle(0, 0, width, height));
+      }
+      else {
+        out.writeByte(ImageUpdate.REGIONS);
+        out.writeShort(regions.size());
+        for (Rectangle region : regions) {
+          out.writeShort(region.x);
+          out.writeShort(region.y);
+          out.writeShort(region.width);
+          out.writeShort(region.height);
+          writePixels(out, region);
+        }
+      }
+      return bytes.toByteArray();
+    }
+
+    private void writePixels(DataOutputStream out, Rectangle region) throws IOException {
+      for (int y = region.y; y < region.y + region.height; y++) {
+        for (int x = region.x; x < region.x + region.width; x++) {
+          out.writeInt(frame[y * width + x]);
+        }
+      }
+    }
+
+    private List<Rectangle> computeChangedRegions() {
+      final int height = frame.length / width;
+      final List<Rectangle> regions = new ArrayList<>();
+      int changedArea = 0;
+      Rectangle last = null;
+      for (int bandY = 0; bandY < height; bandY += BAND_HEIGHT) {
+        Rectangle changed = null;
+        for (int y = bandY; y < Math.min(bandY + BAND_HEIGHT, height); y++) {
+          for (int x = 0; x < width; x++) {
+            if (frame[y * width + x] != lastFrame[y * width + x]) {
+              if (changed == null) {
+                changed = new Rectangle(x, y, 1, 1);
+              }
+              else {
+                changed.add(new Rectangle(x, y, 1, 1));
+              }
+            }
+          }
+        }
+
+        if (changed == null) {
+          continue;
+        }
+
+        if (last != null && last.y + last.height == changed.y) {
+          final Rectangle union = last.union(changed);
+          if (union.width * union.height - last.width * last.height - changed.width * changed.height <= MAX_MERGE_WASTE) {
+            changedArea += union.width * union.height - last.width * last.height;
+            last.setBounds(union);
+            continue;
+          }
+        }
+
+        changedArea += changed.width * changed.height;
+        regions.add(changed);
+        last = changed;
+      }
+      return changedArea > width * height * MAX_CHANGED_AREA_RATIO ? null : regions;
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package com.intellij.flex.uiDesigner.libraries;
 
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
 import com.intellij.flex.uiDesigner.DesignerTests;
-import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -9,10 +11,15 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 public class AbcMergerTest {
+  private static final String[] SDK_LIBRARIES = {"framework.swc", "textLayout.swc", "spark.swc", "sparkskins.swc", "rpc.swc",
+    "charts.swc", "osmf.swc", "mx/mx.swc", "air/airframework.swc", "air/airspark.swc", "mobile/mobilecomponents.swc"};
+
   private File out;
 
   @Before
@@ -48,6 +55,62 @@ public class AbcMergerTest {
            createLibrary("IDEA-104608/IpgVptLoaderAssets.swc"));
   }
 
+  private static List<Library> createSdkLibraries() throws IOException {
+    final List<Library> libraries = new ArrayList<>(SDK_LIBRARIES.length);
+    for (String path : SDK_LIBRARIES) {
+      libraries.add(createLibrary("flex-sdk/4.6/frameworks/libs/" + path));
+    }
+    return libraries;
+  }
+
+  @Test
+  public void parallelMergeIsSameAsSequential() throws IOException {
+    final Set<CharSequence> globalDefinitions = LibraryUtil.getDefinitions(LibraryUtil.getTestGlobalLibrary(false));
+    final List<Library> libraries = createSdkLibraries();
+    libraries.add(createLibrary("MinimalComps_0_9_10.swc"));
+    libraries.add(createLibrary("ds_release.swc"));
+    final File sequentialOut = File.createTempFile("abc_", ".swf");
+    try {
+      LibrarySorter.createSequential().sort(libraries, sequentialOut, name -> globalDefinitions.contains(name), false);
+      new LibrarySorter().sort(libraries, out, name -> globalDefinitions.contains(name), false);
+      Assert.assertArrayEquals(FileUtil.loadFileBytes(sequentialOut), FileUtil.loadFileBytes(out));
+    }
+    finally {
+      Assert.assertTrue(sequentialOut.delete());
+    }
+  }
+
+  /**
+   * Sequential sorter - allocation is measured on the calling thread and time doesn't depend on the number of processors
+   */
+  @Test
+  public void mergeSdkLibrariesPerformance() throws IOException {
+    final Set<CharSequence> globalDefinitions = LibraryUtil.getDefinitions(LibraryUtil.getTestGlobalLibrary(false));
+    final List<Library> libraries = createSdkLibraries();
+    long inputLength = 0;
+    for (Library library : libraries) {
+      inputLength += library.getSwfFile().getLength();
+    }
+    final LibrarySorter librarySorter = LibrarySorter.createSequential();
+    ThroughputTestUtil.assertThroughput("Merge of Flex SDK framework libraries", inputLength, 2000, 40, () -> {
+      librarySorter.sort(libraries, out, name -> globalDefinitions.contains(name), false);
+    });
+  }
+
+  /**
+   * Parallel sorter, as used by the designer - only time is checked, allocation happens on the pool threads
+   */
+  @Test
+  public void mergeSdkLibrariesParallelPerformance() throws IOException {
+    final Set<CharSequence> globalDefinitions = LibraryUtil.getDefinitions(LibraryUtil.getTestGlobalLibrary(false));
+    final List<Library> libraries = createSdkLibraries();
+    final LibrarySorter librarySorter = new LibrarySorter();
+    librarySorter.sort(libraries, out, name -> globalDefinitions.contains(name), false);
+    PlatformTestUtil.startPerformanceTest("Parallel merge of Flex SDK framework libraries", 2000, () -> {
+      librarySorter.sort(libraries, out, name -> globalDefinitions.contains(name), false);
+    }).cpuBound().assertTiming();
+  }
+
   private void doTest(Library... libraries) throws IOException {
     final Set<CharSequence> globalDefinitions = LibraryUtil.getDefinitions(LibraryUtil.getTestGlobalLibrary(false));
     LibrarySorter librarySorter = new LibrarySorter();
@@ -0,0 +1,142 @@
+package com.intellij.flex.uiDesigner {
+import flash.display.BitmapData;
+import flash.geom.Point;
+import flash.geom.Rectangle;
+import flash.utils.Dictionary;
+import flash.utils.IDataOutput;
+
+/**
+ * Keeps the last snapshot written for every document. If client has the image of that version, only regions changed since it are
+ * written (see ImageUpdate.java), otherwise the whole image.
+ */
+public final class DocumentImageWriter {
+  private static const FULL:int = 0;
+  private static const REGIONS:int = 1;
+
+  private static const NO_VERSION:int = -1;
+
+  // changed pixels are searched in bands of rows, adjacent changed bands are merged into one region
+  private static const BAND_HEIGHT:int = 16;
+  // merged region may contain unchanged pixels, but not more than this count (header of region is 8 bytes, pixel is 4 bytes)
+  private static const MAX_MERGE_WASTE:int = BAND_HEIGHT * 64;
+  // if the most of image is changed, the whole image is cheaper - one getPixels, no region headers
+  private static const MAX_CHANGED_AREA_RATIO:Number = 0.6;
+
+  private static const sharedPoint:Point = new Point();
+
+  // DocumentFactory -> Snapshot
+  private const snapshots:Dictionary = new Dictionary(true);
+  private var lastVersion:int;
+
+  /**
+   * bitmapData is owned by writer after call
+   */
+  public function write(documentFactory:DocumentFactory, bitmapData:BitmapData, clientVersion:int, out:IDataOutput):void {
+    var previous:Snapshot = snapshots[documentFactory];
+    var regions:Vector.<Rectangle>;
+    if (previous != null) {
+      if (bitmapData != null && previous.version == clientVersion) {
+        regions = computeChangedRegions(previous.bitmapData, bitmapData);
+      }
+      previous.bitmapData.dispose();
+      delete snapshots[documentFactory];
+    }
+
+    if (bitmapData == null) {
+      out.writeInt(NO_VERSION);
+      out.writeShort(0);
+      return;
+    }
+
+    snapshots[documentFactory] = new Snapshot(++lastVersion, bitmapData);
+    out.writeInt(lastVersion);
+    out.writeShort(bitmapData.width);
+    out.writeShort(bitmapData.height);
+    if (regions == null) {
+      out.writeByte(FULL);
+      out.writeBytes(bitmapData.getPixels(bitmapData.rect));
+    }
+    else {
+      out.writeByte(REGIONS);
+      out.writeShort(regions.length);
+      for each (var region:Rectangle in regions) {
+        out.writeShort(region.x);
+        out.writeShort(region.y);
+        out.writeShort(region.width);
+        out.writeShort(region.height);
+        out.writeBytes(bitmapData.getPixels(region));
+      }
+    }
+  }
+
+  /**
+   * Returns null if the whole image must be written
+   */
+  private static function computeChangedRegions(previous:BitmapData, current:BitmapData):Vector.<Rectangle> {
+    // 0 if equal, negative if size differs, otherwise bitmap where unchanged pixels are 0
+    var result:Object = current.compare(previous);
+    var regions:Vector.<Rectangle> = new Vector.<Rectangle>();
+    if (result === 0) {
+      return regions;
+    }
+    else if (!(result is BitmapData)) {
+      return null;
+    }
+
+    const diff:BitmapData = BitmapData(result);
+    const w:int = diff.width;
+    const h:int = diff.height;
+    const band:BitmapData = new BitmapData(w, BAND_HEIGHT, true, 0);
+    const bandRect:Rectangle = new Rectangle(0, 0, w, BAND_HEIGHT);
+    var changedArea:int = 0;
+    var last:Rectangle;
+    try {
+      for (var y:int = 0; y < h; y += BAND_HEIGHT) {
+        bandRect.y = y;
+        bandRect.height = Math.min(BAND_HEIGHT, h - y);
+        if (bandRect.height != BAND_HEIGHT) {
+          band.fillRect(band.rect, 0);
+        }
+        band.copyPixels(diff, bandRect, sharedPoint);
+
+        var changed:Rectangle = band.getColorBoundsRect(0xffffffff, 0, false);
+        if (changed.width == 0 || changed.height == 0) {
+          continue;
+        }
+
+        changed.y += y;
+        if (last != null && last.bottom == changed.y) {
+          var union:Rectangle = last.union(changed);
+          if ((union.width * union.height) - (last.width * last.height) - (changed.width * changed.height) <= MAX_MERGE_WASTE) {
+            changedArea += (union.width * union.height) - (last.width * last.height);
+            last.copyFrom(union);
+            continue;
+          }
+        }
+
+        changedArea += changed.width * changed.height;
+        regions[regions.length] = changed;
+        last = changed;
+      }
+    }
+    finally {
+      band.dispose();
+      diff.dispose();
+    }
+
+    return changedArea > (w * h * MAX_CHANGED_AREA_RATIO) ? null : regions;
+  }
+}
+}
+
+import flash.display.BitmapData;
+
+final class Snapshot {
+  public var version:int;
+  public var bitmapData:BitmapData;
+
+  public function Snapshot(version:int, bitmapData:BitmapData) {
+    this.version = version;
+    this.bitmapData = bitmapData;
+  }
+}
@@ -29,6 +29,8 @@ public class Server implements ResourceBundleProvider {
 
   private var socket:Socket;
 
+  private const documentImageWriter:DocumentImageWriter = new DocumentImageWriter();
+
   public function Server(socketManager:SocketManager) {
     socket = socketManager.getSocket();
     assert(socket != null);
@@ -398,17 +400,8 @@ public class Server implements ResourceBundleProvider {
     socket.flush();
   }
 
-  public function writeDocumentImage(bitmapData:BitmapData):void {
-    if (bitmapData == null) {
-      socket.writeShort(0);
-    }
-    else {
-      var argb:ByteArray = bitmapData.getPixels(bitmapData.rect);
-      socket.writeShort(bitmapData.width);
-      socket.writeShort(bitmapData.height);
-      socket.writeBytes(argb);
-    }
-
+  public function writeDocumentImage(documentFactory:DocumentFactory, bitmapData:BitmapData, clientVersion:int):void {
+    documentImageWriter.write(documentFactory, bitmapData, clientVersion, socket);
     socket.flush();
   }
 
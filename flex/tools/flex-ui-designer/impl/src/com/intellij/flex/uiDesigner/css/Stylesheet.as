@@ -48,6 +48,28 @@ public final class Stylesheet {
     }
   }
 
+  /**
+   * Positions of all rulesets and declarations of the changed one (selectors are not changed), see CssWriter.writeRulesetUpdate
+   */
+  public function updateRuleset(input:IDataInput):void {
+    const n:int = AmfUtil.readUInt29(input);
+    if (n != (_rulesets == null ? 0 : _rulesets.length)) {
+      throw new Error("Ruleset count mismatch, expected " + (_rulesets == null ? 0 : _rulesets.length) + ", but got " + n);
+    }
+
+    for (var i:int = 0; i < n; i++) {
+      _rulesets[i].moveTo(AmfUtil.readUInt29(input), AmfUtil.readUInt29(input));
+    }
+
+    var ruleset:CssRuleset = _rulesets[AmfUtil.readUInt29(input)];
+    try {
+      ruleset.updateDeclarations(readDeclarations(input, StringRegistry.instance));
+    }
+    catch (e:Error) {
+      throw new Error("Cannot update css ruleset (line: " + ruleset.line + "): " + e.message + "\n" + e.getStackTrace())
+    }
+  }
+
   private static function readRuleset(ruleset:CssRuleset, input:IDataInput, stringRegistry:StringRegistry):void {
     var i:int;
     const selectorsLength:int = input.readByte();
@@ -61,11 +83,14 @@ public final class Stylesheet {
       }
     }
     ruleset.selectors = selectors;
+    ruleset.declarations = readDeclarations(input, stringRegistry);
+  }
 
+  private static function readDeclarations(input:IDataInput, stringRegistry:StringRegistry):Vector.<CssDeclaration> {
     var n:int = AmfUtil.readUInt29(input);
     if (n > 0) {
       var declarations:Vector.<CssDeclaration> = new Vector.<CssDeclaration>(n, true);
-      for (i = 0; i < n; i++) {
+      for (var i:int = 0; i < n; i++) {
         var name:String = stringRegistry.read(input);
         var textOffset:int = AmfUtil.readUInt29(input);
         var type:int = input.readByte();
@@ -116,8 +141,9 @@ public final class Stylesheet {
           throw new Error("Cannot read css declaration " + name + ": " + e.message + "\n" + e.getStackTrace())
         }
       }
-      ruleset.declarations = declarations;
     }
+
+    return declarations;
   }
 
   private static function readCssArray(input:IDataInput, stringRegistry:StringRegistry): Array {
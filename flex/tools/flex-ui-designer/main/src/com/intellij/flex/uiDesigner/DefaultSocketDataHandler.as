@@ -128,6 +128,10 @@ internal class DefaultSocketDataHandler implements SocketDataHandler {
       case ClientMethod.updateLocalStyleHolders:
         updateLocalStyleHolders(input);
         break;
+
+      case ClientMethod.updateLocalStyleRuleset:
+        updateLocalStyleRuleset(input, callbackId);
+        break;
     }
   }
 
@@ -168,6 +172,41 @@ internal class DefaultSocketDataHandler implements SocketDataHandler {
     }
   }
 
+  private function updateLocalStyleRuleset(input:IDataInput, callbackId:int):void {
+    var module:Module = moduleManager.getById(AmfUtil.readUInt29(input));
+    var file:VirtualFile = VirtualFileImpl.create(input);
+    stringRegistry.readTable(input);
+
+    var localStyleHolder:LocalStyleHolder;
+    for each (var holder:LocalStyleHolder in module.localStyleHolders) {
+      if (holder.file == file) {
+        localStyleHolder = holder;
+        break;
+      }
+    }
+
+    if (localStyleHolder == null) {
+      UncaughtErrorManager.instance.logWarning("Can't find local style holder " + file.presentableUrl);
+      Server.instance.callback(callbackId, false);
+      return;
+    }
+
+    localStyleHolder.stylesheet.updateRuleset(input);
+
+    var refreshedDocumentIds:Vector.<int> = new Vector.<int>();
+    getDocumentFactoryManager().forEachBelongToModule(module, function (documentFactory:DocumentFactory):void {
+      var document:Document = documentFactory.document;
+      if (document != null && !documentFactory.isPureFlash) {
+        document.displayManager.stylesChanged();
+        refreshedDocumentIds[refreshedDocumentIds.length] = documentFactory.id;
+      }
+    });
+
+    var server:Server = Server.instance;
+    server.callback(callbackId, true, false);
+    server.writeIds(refreshedDocumentIds);
+  }
+
   private function registerModule(input:IDataInput):void {
     stringRegistry.readTable(input);
     moduleManager.register(new Module(input.readUnsignedShort(), projectManager.getById(input.readUnsignedShort()),
@@ -224,23 +263,24 @@ internal class DefaultSocketDataHandler implements SocketDataHandler {
   private static function getDocumentImage(input:IDataInput, callbackId:int):void {
     var documentFactoryManager:DocumentFactoryManager = getDocumentFactoryManager();
     var documentFactory:DocumentFactory = documentFactoryManager.getById(input.readUnsignedShort());
+    var clientVersion:int = input.readInt();
     var documentManager:DocumentManager = DocumentManager(documentFactory.module.project.getComponent(DocumentManager));
     if (documentFactory.document == null) {
       var callback:ActionCallback = documentManager.render(documentFactory);
-      callback.doWhenDone(getDocumentImageDoneHandler, documentFactory, callbackId);
+      callback.doWhenDone(getDocumentImageDoneHandler, documentFactory, clientVersion, callbackId);
       callback.doWhenRejected(Server.instance.callback, callbackId, false);
     }
     else {
-      getDocumentImageDoneHandler(documentFactory, callbackId);
+      getDocumentImageDoneHandler(documentFactory, clientVersion, callbackId);
     }
   }
 
-  private static function getDocumentImageDoneHandler(documentFactory:DocumentFactory, callbackId:int):void {
+  private static function getDocumentImageDoneHandler(documentFactory:DocumentFactory, clientVersion:int, callbackId:int):void {
     var document:Document = documentFactory.document;
     var bitmapData:BitmapData = document.displayManager.getSnapshot(document.container == null);
     var server:Server = Server.instance;
     server.callback(callbackId, true, false);
-    server.writeDocumentImage(bitmapData);
+    server.writeDocumentImage(documentFactory, bitmapData, clientVersion);
   }
 
   private function updatePropertyOrStyle(input:IDataInput, callbackId:int):void {
@@ -425,4 +465,5 @@ final class ClientMethod {
   public static const getDocumentImage:int = 15;
   public static const updatePropertyOrStyle:int = 16;
   public static const updateLocalStyleHolders:int = 17;
+  public static const updateLocalStyleRuleset:int = 18;
 }
\ No newline at end of file
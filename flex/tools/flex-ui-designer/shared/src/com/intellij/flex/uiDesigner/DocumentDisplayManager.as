@@ -48,6 +48,11 @@ public interface DocumentDisplayManager {
 
   function setStyleManagerForTalentAdobeEngineers(value:Boolean):void;
 
+  /**
+   * Declarations of the rulesets have been changed in place, style manager is not changed
+   */
+  function stylesChanged():void;
+
   /**
    * @see com.intellij.flex.uiDesigner.DocumentFactory
    */
@@ -76,6 +76,9 @@ public class FlashDocumentDisplayManager extends AbstractDocumentDisplayManager
   public function added():void {
   }
 
+  public function stylesChanged():void {
+  }
+
   public function activated():void {
   }
 
@@ -4,5 +4,9 @@ internal class AbstractCssDeclaration {
   public function get textOffset():int {
     return _textOffset;
   }
+
+  internal function moveBy(delta:int):void {
+    _textOffset += delta;
+  }
 }
 }
\ No newline at end of file
@@ -57,6 +57,25 @@ public class CssRuleset {
     return _textOffset;
   }
 
+  // rulesets below the changed one are shifted, see Stylesheet.updateRuleset
+  public function moveTo(line:int, textOffset:int):void {
+    const delta:int = textOffset - _textOffset;
+    _line = line;
+    _textOffset = textOffset;
+    if (delta != 0) {
+      for each (var declaration:CssDeclaration in declarations) {
+        if (declaration is AbstractCssDeclaration) {
+          AbstractCssDeclaration(declaration).moveBy(delta);
+        }
+      }
+    }
+  }
+
+  public function updateDeclarations(value:Vector.<CssDeclaration>):void {
+    declarations = value;
+    _declarationMap = null;
+  }
+
   public function put(name:String, value:*):void {
     var propertyDescriptor:CssDeclarationImpl = _declarationMap == null ? null : _declarationMap[name];
     if (propertyDescriptor == null) {
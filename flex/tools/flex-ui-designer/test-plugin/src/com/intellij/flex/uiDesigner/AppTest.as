@@ -1,4 +1,6 @@
 package com.intellij.flex.uiDesigner {
+import com.intellij.flex.uiDesigner.css.CssRuleset;
+
 import flash.desktop.NativeApplication;
 import flash.display.NativeWindow;
 import flash.events.Event;
@@ -6,6 +8,7 @@ import flash.events.Event;
 import org.hamcrest.assertThat;
 import org.hamcrest.collection.arrayWithSize;
 import org.hamcrest.object.nullValue;
+import org.hamcrest.object.strictlyEqualTo;
 
 public class AppTest extends BaseTestCase {
   [Test(async)]
@@ -37,5 +40,39 @@ public class AppTest extends BaseTestCase {
     assertThat(app.getElementAt(0), m);
     assertThat(DocumentFactoryManager.getInstance().getById(0).document.uiComponent, m);
   }
+
+  private function getLocalRulesets():Vector.<CssRuleset> {
+    assertThat(module.localStyleHolders, arrayWithSize(1));
+    return module.localStyleHolders[0].stylesheet.rulesets;
+  }
+
+  public function IncrementalStyleUpdateInCssFile():void {
+    var rulesets:Vector.<CssRuleset> = getLocalRulesets();
+    assertThat(rulesets[0], {line: 3, textOffset: 51, declarations: [{name: "fontStyle", value: "italic", textOffset: 64}, {name: "fontSize", value: 20, textOffset: 85}]});
+    // ruleset below the changed one is moved
+    assertThat(rulesets[1], {line: 8, textOffset: 102, declarations: [{name: "fontWeight", value: "bold", textOffset: 114}]});
+    assertThat(app.getElementAt(0).getStyle("fontSize"), strictlyEqualTo(20));
+  }
+
+  public function IncrementalStyleUpdateInStyleTag():void {
+    var rulesets:Vector.<CssRuleset> = getLocalRulesets();
+    assertThat(rulesets[0], {line: 5, textOffset: 169, declarations: [{name: "fontStyle", value: "italic", textOffset: 186}]});
+    assertThat(rulesets[1], {line: 9, textOffset: 216, declarations: [{name: "fontWeight", value: "bold", textOffset: 232}, {name: "fontSize", value: 20, textOffset: 256}]});
+    assertThat(app.getElementAt(0).getStyle("fontSize"), strictlyEqualTo(20));
+  }
+
+  public function SelectorChangeFallsBackToFullStyleUpdate():void {
+    assertThat(getLocalRulesets()[1], {selectors: arrayWithSize(2)});
+    assertThat(app.getElementAt(0).getStyle("fontWeight"), "bold");
+  }
+
+  public function SeveralStyleTagsFallBackToFullStyleUpdate():void {
+    assertThat(app.getElementAt(0).getStyle("fontSize"), strictlyEqualTo(20));
+  }
+
+  public function UnregisteredComponentFallsBackToFullStyleUpdate():void {
+    validateUI();
+    assertThat(app.getElementAt(0), {skin: {minWidth: 21}});
+  }
 }
 }
\ No newline at end of file
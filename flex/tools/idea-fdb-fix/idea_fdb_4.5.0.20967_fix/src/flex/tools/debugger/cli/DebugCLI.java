@@ -162,6 +162,11 @@ public class DebugCLI implements Runnable, SourceLocator
 	public static final int CMD_DIRECTORY		= 42;
 	public static final int CMD_CATCH			= 43;
 	public static final int CMD_CONNECT			= 44;
+	public static final int CMD_BATCH_PRINT		= 45;
+
+	/* separates expressions of the batchprint command and prefixes each of its results */
+	public static final String BATCH_SEPARATOR	= ";;"; //$NON-NLS-1$
+	public static final String BATCH_MARKER		= "batch"; //$NON-NLS-1$
 
 	/* info sub commands */
 	public static final int INFO_UNKNOWN_CMD	= 100;
@@ -3563,6 +3568,39 @@ public class DebugCLI implements Runnable, SourceLocator
 		}
 	}
 
+	/**
+	 * IDEA: prints all expressions (or #objectId references) separated by ';;' at once, as the 'print' command would print
+	 * each of them. Every result is preceded by a 'batch index ok|error length' line, so a value spanning several lines
+	 * can't be taken for the next result, and the output is terminated by a 'batch end' line.
+	 */
+	void doBatchPrint()
+	{
+		String[] expressions = hasMoreTokens() ? restOfLine().split(BATCH_SEPARATOR) : new String[0];
+		String currentLine = m_currentLine;
+		String repeatLine = m_repeatLine;
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < expressions.length; i++)
+		{
+			StringBuilder result = new StringBuilder();
+			issueCommand("print " + expressions[i].trim(), result); //$NON-NLS-1$
+
+			while (result.length() > 0 && (result.charAt(result.length() - 1) == '\n' || result.charAt(result.length() - 1) == '\r'))
+				result.setLength(result.length() - 1);
+
+			boolean evaluated = result.length() > 0 && result.charAt(0) == '$';
+			sb.append(BATCH_MARKER).append(' ').append(i).append(evaluated ? " ok " : " error ").append(result.length()); //$NON-NLS-1$ //$NON-NLS-2$
+			sb.append(m_newline);
+			sb.append(result);
+			sb.append(m_newline);
+		}
+		sb.append(BATCH_MARKER).append(" end"); //$NON-NLS-1$
+
+		m_currentLine = currentLine;
+		m_repeatLine = repeatLine;
+		out(sb.toString());
+	}
+
 	void doPrint() throws NotConnectedException
 	{
 		/* wait a bit if we are not halted */
@@ -6585,6 +6623,10 @@ public class DebugCLI implements Runnable, SourceLocator
 				doPrint();
 				break;
 
+			case CMD_BATCH_PRINT:
+				doBatchPrint();
+				break;
+
 			case CMD_TUTORIAL:
 				doTutorial();
 				break;
@@ -6935,6 +6977,7 @@ public class DebugCLI implements Runnable, SourceLocator
 		{ "awatch", new Integer(CMD_AWATCH) }, //$NON-NLS-1$
 		{ "break", new Integer(CMD_BREAK) }, //$NON-NLS-1$
 		{ "bt", new Integer(INFO_STACK_CMD) }, //$NON-NLS-1$
+		{ "batchprint", new Integer(CMD_BATCH_PRINT) }, //$NON-NLS-1$
         { "continue", new Integer(CMD_CONTINUE) }, //$NON-NLS-1$
         { "catch", new Integer(CMD_CATCH) }, //$NON-NLS-1$
         { "cf", new Integer(CMD_CF) }, //$NON-NLS-1$
@@ -18,6 +18,7 @@ import flash.sampler.isGetterSetter;
 import flash.sampler.pauseSampling;
 import flash.sampler.startSampling;
 import flash.system.System;
+import flash.utils.ByteArray;
 import flash.utils.Dictionary;
 import flash.utils.getQualifiedClassName;
 
@@ -38,6 +39,11 @@ public class ProfilerAgent extends Sprite {
   private var typeDict:Object = {};
   private var typeDictSize:int = 0;
   private var cpuSamplingStarted:Boolean;
+  private var internedFrames:Boolean;
+  private var frameIds:Object = {};
+  private var frameIdsSize:int = 0;
+  private var sampleBlock:ByteArray = new ByteArray();
+  private var sampleBlockSize:int = 0;
 
   private var collectingLiveObjects:Boolean = false;
 
@@ -65,6 +71,8 @@ public class ProfilerAgent extends Sprite {
   private function clearSlidingStuff():void {
     stringDict = {};
     stringDictSize = 0;
+    frameIds = {};
+    frameIdsSize = 0;
     lastCPUSample = null;
   }
 
@@ -136,8 +144,6 @@ public class ProfilerAgent extends Sprite {
         var lastSampleToCheck:Sample = lastCPUSample;
         lastCPUSample = s;
         var stackFrameCount:uint = (s.stack == null) ? 0:s.stack.length;
-        socket.writeUTF("s\x00" + (s.time - lastSampleTime) + " " + s.stack.length);
-
         var matchedCount:int = 0;
         var key:String;
 
@@ -152,10 +158,15 @@ public class ProfilerAgent extends Sprite {
           }
         }
 
-        if (stackFrameCount > matchedCount) {
-          writeStack(s.stack, stackFrameCount, matchedCount);
+        if (internedFrames) {
+          writeInternedSample(s.time - lastSampleTime, s.stack, stackFrameCount, matchedCount);
+        } else {
+          socket.writeUTF("s\x00" + (s.time - lastSampleTime) + " " + s.stack.length);
+          if (stackFrameCount > matchedCount) {
+            writeStack(s.stack, stackFrameCount, matchedCount);
+          }
+          if (matchedCount != 0) socket.writeUTF("u>:" + matchedCount);
         }
-        if (matchedCount != 0) socket.writeUTF("u>:" + matchedCount);
       }
       lastSampleTime = s.time;
     }
@@ -175,6 +186,7 @@ public class ProfilerAgent extends Sprite {
     }
 
     if (connected) {
+      if (sampleBlockSize > 0) writeSampleBlock();
       socket.flush();
     }
 
@@ -201,6 +213,36 @@ public class ProfilerAgent extends Sprite {
     }
   }
 
+  // sample block format is described in com.jetbrains.actionscript.profiler.sampler.SampleStore.addSamples()
+  private function writeInternedSample(duration:Number, stack:Array, stackFrameCount:uint, matchedCount:int):void {
+    sampleBlock.writeInt(duration);
+    sampleBlock.writeInt(stackFrameCount);
+    sampleBlock.writeInt(matchedCount);
+
+    for (var i:int = 0; i < stackFrameCount - matchedCount; ++i) {
+      var key:String = stack[i].toString();
+      var id:* = frameIds[key];
+      if (id == undefined) {
+        id = ++frameIdsSize;
+        frameIds[key] = id;
+        sampleBlock.writeInt(-id);
+        sampleBlock.writeUTF(key);
+      } else {
+        sampleBlock.writeInt(id);
+      }
+    }
+    ++sampleBlockSize;
+  }
+
+  private function writeSampleBlock():void {
+    socket.writeUTF(SAMPLE_BLOCK_MARKER);
+    socket.writeInt(sampleBlockSize);
+    socket.writeInt(sampleBlock.length);
+    socket.writeBytes(sampleBlock);
+    sampleBlock.clear();
+    sampleBlockSize = 0;
+  }
+
   private function isProfilerAgentSample(sample:Sample):Boolean{
     if(sample.stack && sample.stack.length > 0){
         /*
@@ -266,12 +308,14 @@ public class ProfilerAgent extends Sprite {
   private static const DO_GC:int = 4;
   private static const START_COLLECTING_LIVE_OBJECTS:int = 5;
   private static const STOP_COLLECTING_LIVE_OBJECTS:int = 6;
+  private static const START_CPU_PROFILING_INTERNED_FRAMES:int = 7;
   private static const VERSION_COMMAND_MARKER:String = "v\x00 ";
 
-  private static const VERSION:int = 4;
+  private static const VERSION:int = 5;
 
   private static const END_COMMAND_MARKER:String = "e\x00 ";
   private static const SI_COMMAND_MARKER:String = "si\x00 ";
+  private static const SAMPLE_BLOCK_MARKER:String = "sb\x00";
 
   private function socketDataHandler(event:ProgressEvent):void {
     if (!connected) return;
@@ -279,9 +323,10 @@ public class ProfilerAgent extends Sprite {
     var i:int = socket.readByte();
     trace("received byte " + i);
 
-    if (i == START_CPU_PROFILING) {
+    if (i == START_CPU_PROFILING || i == START_CPU_PROFILING_INTERNED_FRAMES) {
       if (!cpuSamplingStarted) {
         trace("started cpu profiling");
+        internedFrames = i == START_CPU_PROFILING_INTERNED_FRAMES;
         socket.writeUTF(END_COMMAND_MARKER + i);
         socket.flush();
         cpuSamplingStarted = true;
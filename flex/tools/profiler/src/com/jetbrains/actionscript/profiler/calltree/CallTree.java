@@ -3,12 +3,18 @@ package com.jetbrains.actionscript.profiler.calltree;
 import com.intellij.openapi.util.Pair;
 import com.intellij.util.ArrayUtil;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
-import gnu.trove.THashSet;
+import com.jetbrains.actionscript.profiler.sampler.SampleStore;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.Map;
 
 public class CallTree {
-  private final CallTreeNode root;
+  // created from the index on demand for a tree read by CpuSnapshotFormat
+  private CallTreeNode root;
+  // built on the first query, snapshot trees aren't changed after that
+  private volatile CallTreeIndex index;
+  private volatile CallTree systemStuffFiltered;
 
   public CallTree() {
     root = new CallTreeNode();
@@ -18,51 +24,68 @@ public class CallTree {
     this.root = root;
   }
 
-  CallTreeNode getRoot() {
+  CallTree(CallTreeIndex index, @Nullable CallTreeIndex systemStuffFilteredIndex) {
+    this.index = index;
+    if (systemStuffFilteredIndex != null) {
+      systemStuffFiltered = new CallTree(systemStuffFilteredIndex, null);
+    }
+  }
+
+  synchronized CallTreeNode getRoot() {
+    if (root == null) {
+      root = index.createNodes();
+    }
     return root;
   }
 
   public void addFrames(FrameInfo[] frames, long duration) {
-    root.addChildren(Arrays.asList(ArrayUtil.reverseArray(frames)), duration);
+    getRoot().addChildren(Arrays.asList(ArrayUtil.reverseArray(frames)), duration);
+    index = null;
+    systemStuffFiltered = null;
+  }
+
+  public void addSample(SampleStore store, int sample) {
+    getRoot().addChildren(store, sample, store.getDuration(sample));
+    index = null;
+    systemStuffFiltered = null;
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
   public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
-    return TimeMapBuilder.buildTimeMaps(root, root.getChildren());
+    return getIndex().getTimeMaps();
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
   public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CallerFinder.findCallsByFrames(root, frames);
-    Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = TimeMapBuilder.buildTimeMaps(root, calls);
-    Set<FrameInfo> callerNames = getNamesOfNodes(calls);
-    Map<FrameInfo, Long> filteredCountMap = filterMap(timeMaps.getFirst(), callerNames);
-    Map<FrameInfo, Long> filteredSelfTimeMap = filterMap(timeMaps.getSecond(), callerNames);
-    return Pair.create(filteredCountMap, filteredSelfTimeMap);
+    return getIndex().getCallersTimeMaps(frames);
   }
 
   /*
    * @return pair <cumulative time map, self time map>
    */
   public Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
-    List<CallTreeNode> calls = CalleeFinder.findCallsByFrameName(root, frames);
-    return TimeMapBuilder.buildTimeMaps(root, calls);
+    return getIndex().getCalleesTimeMaps(frames);
   }
 
-  private static Map<FrameInfo, Long> filterMap(Map<FrameInfo, Long> first, Set<FrameInfo> callerNames) {
-    first.keySet().retainAll(callerNames);
-    return first;
+  CallTreeIndex getIndex() {
+    CallTreeIndex result = index;
+    if (result == null) {
+      result = CallTreeIndex.create(getRoot());
+      index = result;
+    }
+    return result;
   }
 
-  private static Set<FrameInfo> getNamesOfNodes(Collection<CallTreeNode> nodes) {
-    THashSet<FrameInfo> names = new THashSet<>();
-    for (CallTreeNode node : nodes) {
-      names.add(node.getFrameInfo());
+  CallTree getSystemStuffFiltered() {
+    CallTree result = systemStuffFiltered;
+    if (result == null) {
+      result = new CallTree(getIndex().filterSystemFrames(), null);
+      systemStuffFiltered = result;
     }
-    return names;
+    return result;
   }
 }
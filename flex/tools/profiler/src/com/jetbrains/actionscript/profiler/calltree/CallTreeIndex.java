@@ -0,0 +1,501 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.openapi.util.Pair;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import gnu.trove.THashMap;
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntHashSet;
+import gnu.trove.TLongArrayList;
+import gnu.trove.TLongIntHashMap;
+import gnu.trove.TObjectIntHashMap;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Call tree flattened in depth-first order, so that the subtree of a node is the range of indices from the node to its end.
+ * For every frame the indices of its nodes are kept sorted together with prefix sums of their cumulative and self time,
+ * so time in the subtree of a call is summed with a binary search instead of walking the subtree.
+ * Built once per call tree, queries cost time proportional to the number of nodes of the queried frames.
+ * Per node columns are buffers, so that an index read by {@link CpuSnapshotFormat} stays in the memory mapped file.
+ */
+class CallTreeIndex {
+  private static final int NO_FRAME = -1;
+
+  final FrameInfo[] frames;
+  private final TObjectIntHashMap<FrameInfo> frameIds = new TObjectIntHashMap<>();
+
+  // per node, node 0 is the root
+  final IntBuffer frameIdOfNode;
+  final IntBuffer parents;
+  final IntBuffer ends;
+  final LongBuffer cumulativeTimes;
+  final LongBuffer selfTimes;
+  final IntBuffer sameFrameAncestors;
+
+  // nodes grouped by frame, prefix sums are of the times of these nodes
+  final IntBuffer occurrences;
+  final LongBuffer cumulativePrefixSums;
+  final LongBuffer selfPrefixSums;
+
+  // per frame: range of its nodes in occurrences, total times and whether it's called recursively
+  final int[] occurrenceStarts;
+  final long[] totalCumulativeTimes;
+  final long[] totalSelfTimes;
+  final boolean[] recursive;
+
+  CallTreeIndex(FrameInfo[] frames,
+                IntBuffer frameIdOfNode,
+                IntBuffer parents,
+                IntBuffer ends,
+                LongBuffer cumulativeTimes,
+                LongBuffer selfTimes,
+                IntBuffer sameFrameAncestors,
+                IntBuffer occurrences,
+                LongBuffer cumulativePrefixSums,
+                LongBuffer selfPrefixSums,
+                int[] occurrenceStarts,
+                long[] totalCumulativeTimes,
+                long[] totalSelfTimes,
+                boolean[] recursive) {
+    this.frames = frames;
+    this.frameIdOfNode = frameIdOfNode;
+    this.parents = parents;
+    this.ends = ends;
+    this.cumulativeTimes = cumulativeTimes;
+    this.selfTimes = selfTimes;
+    this.sameFrameAncestors = sameFrameAncestors;
+    this.occurrences = occurrences;
+    this.cumulativePrefixSums = cumulativePrefixSums;
+    this.selfPrefixSums = selfPrefixSums;
+    this.occurrenceStarts = occurrenceStarts;
+    this.totalCumulativeTimes = totalCumulativeTimes;
+    this.totalSelfTimes = totalSelfTimes;
+    this.recursive = recursive;
+    for (int f = 0; f < frames.length; ++f) {
+      frameIds.put(frames[f], f);
+    }
+  }
+
+  static CallTreeIndex create(CallTreeNode root) {
+    final List<CallTreeNode> nodes = new ArrayList<>();
+    final TIntArrayList parentList = new TIntArrayList();
+    final List<CallTreeNode> stack = new ArrayList<>();
+    final TIntArrayList parentStack = new TIntArrayList();
+    stack.add(root);
+    parentStack.add(-1);
+    while (!stack.isEmpty()) {
+      final CallTreeNode node = stack.remove(stack.size() - 1);
+      final int parent = parentStack.remove(parentStack.size() - 1);
+      final int index = nodes.size();
+      nodes.add(node);
+      parentList.add(parent);
+      for (CallTreeNode child : node.getChildren()) {
+        stack.add(child);
+        parentStack.add(index);
+      }
+    }
+
+    final int nodeCount = nodes.size();
+    final int[] frameIdOfNode = new int[nodeCount];
+    final long[] cumulativeTimes = new long[nodeCount];
+    final TObjectIntHashMap<FrameInfo> frameIds = new TObjectIntHashMap<>();
+    final List<FrameInfo> frameList = new ArrayList<>();
+    frameIdOfNode[0] = NO_FRAME;
+    for (int i = 1; i < nodeCount; ++i) {
+      final CallTreeNode node = nodes.get(i);
+      final FrameInfo frame = node.getFrameInfo();
+      int frameId = frameIds.get(frame);
+      if (!frameIds.containsKey(frame)) {
+        frameId = frameList.size();
+        frameIds.put(frame, frameId);
+        frameList.add(frame);
+      }
+      frameIdOfNode[i] = frameId;
+      cumulativeTimes[i] = node.getCumulativeTiming();
+    }
+    return new CallTreeIndex(frameList.toArray(new FrameInfo[frameList.size()]), frameIdOfNode, parentList.toNativeArray(),
+                             cumulativeTimes);
+  }
+
+  /**
+   * @param frameIdOfNode   frame of every node in depth-first order, node 0 is the root without a frame
+   * @param parents         parent of every node, <code>-1</code> for the root
+   * @param cumulativeTimes time of every node including its callees
+   */
+  CallTreeIndex(FrameInfo[] frames, int[] frameIdOfNode, int[] parents, long[] cumulativeTimes) {
+    this.frames = frames;
+    for (int f = 0; f < frames.length; ++f) {
+      frameIds.put(frames[f], f);
+    }
+
+    final int nodeCount = parents.length;
+    final long[] selfTimes = cumulativeTimes.clone();
+    final int[] ends = new int[nodeCount];
+    final int[] sameFrameAncestors = new int[nodeCount];
+
+    // children go after the parent, so the subtree end and self time of a node are known when its parent is reached
+    for (int i = 0; i < nodeCount; ++i) {
+      ends[i] = i + 1;
+    }
+    for (int i = nodeCount - 1; i > 0; --i) {
+      final int parent = parents[i];
+      if (ends[i] > ends[parent]) ends[parent] = ends[i];
+      if (parent != 0) selfTimes[parent] -= cumulativeTimes[i];
+    }
+
+    final int frameCount = frames.length;
+    totalCumulativeTimes = new long[frameCount];
+    totalSelfTimes = new long[frameCount];
+    recursive = new boolean[frameCount];
+    final int[] openNodes = new int[frameCount];
+    Arrays.fill(openNodes, -1);
+    final TIntArrayList path = new TIntArrayList();
+    sameFrameAncestors[0] = -1;
+    for (int i = 1; i < nodeCount; ++i) {
+      while (!path.isEmpty() && ends[path.get(path.size() - 1)] <= i) {
+        final int closed = path.remove(path.size() - 1);
+        openNodes[frameIdOfNode[closed]] = sameFrameAncestors[closed];
+      }
+      final int frameId = frameIdOfNode[i];
+      sameFrameAncestors[i] = openNodes[frameId];
+      openNodes[frameId] = i;
+      path.add(i);
+
+      if (sameFrameAncestors[i] == -1) {
+        totalCumulativeTimes[frameId] += cumulativeTimes[i];
+      }
+      else {
+        recursive[frameId] = true;
+      }
+      totalSelfTimes[frameId] += selfTimes[i];
+    }
+
+    occurrenceStarts = new int[frameCount + 1];
+    for (int i = 1; i < nodeCount; ++i) {
+      ++occurrenceStarts[frameIdOfNode[i] + 1];
+    }
+    for (int f = 0; f < frameCount; ++f) {
+      occurrenceStarts[f + 1] += occurrenceStarts[f];
+    }
+    final int[] occurrences = new int[nodeCount - 1];
+    final int[] filled = new int[frameCount];
+    for (int i = 1; i < nodeCount; ++i) {
+      final int frameId = frameIdOfNode[i];
+      occurrences[occurrenceStarts[frameId] + filled[frameId]++] = i;
+    }
+    final long[] cumulativePrefixSums = new long[occurrences.length + 1];
+    final long[] selfPrefixSums = new long[occurrences.length + 1];
+    for (int k = 0; k < occurrences.length; ++k) {
+      cumulativePrefixSums[k + 1] = cumulativePrefixSums[k] + cumulativeTimes[occurrences[k]];
+      selfPrefixSums[k + 1] = selfPrefixSums[k] + selfTimes[occurrences[k]];
+    }
+
+    this.frameIdOfNode = IntBuffer.wrap(frameIdOfNode);
+    this.parents = IntBuffer.wrap(parents);
+    this.ends = IntBuffer.wrap(ends);
+    this.cumulativeTimes = LongBuffer.wrap(cumulativeTimes);
+    this.selfTimes = LongBuffer.wrap(selfTimes);
+    this.sameFrameAncestors = IntBuffer.wrap(sameFrameAncestors);
+    this.occurrences = IntBuffer.wrap(occurrences);
+    this.cumulativePrefixSums = LongBuffer.wrap(cumulativePrefixSums);
+    this.selfPrefixSums = LongBuffer.wrap(selfPrefixSums);
+  }
+
+  int getNodeCount() {
+    return parents.limit();
+  }
+
+  /*
+   * @return tree without system frames, callees of a system frame are merged into the callees of its caller
+   */
+  CallTreeIndex filterSystemFrames() {
+    final int nodeCount = getNodeCount();
+    final int[] filteredNodes = new int[nodeCount];
+    final TIntArrayList filteredParents = new TIntArrayList();
+    final TIntArrayList filteredFrameIds = new TIntArrayList();
+    final TLongArrayList filteredTimes = new TLongArrayList();
+    filteredParents.add(-1);
+    filteredFrameIds.add(NO_FRAME);
+    filteredTimes.add(0);
+
+    final int[] newFrameIds = new int[frames.length];
+    Arrays.fill(newFrameIds, NO_FRAME);
+    final List<FrameInfo> frameList = new ArrayList<>();
+    // (filtered parent, frame) -> filtered node, absent key gives 0 that is never a child
+    final TLongIntHashMap children = new TLongIntHashMap();
+    for (int i = 1; i < nodeCount; ++i) {
+      final int parent = filteredNodes[parents.get(i)];
+      final int frameId = frameIdOfNode.get(i);
+      if (frames[frameId].isSystem()) {
+        filteredNodes[i] = parent;
+        continue;
+      }
+      if (newFrameIds[frameId] == NO_FRAME) {
+        newFrameIds[frameId] = frameList.size();
+        frameList.add(frames[frameId]);
+      }
+      final long key = ((long)parent << 32) | frameId;
+      int node = children.get(key);
+      if (node == 0) {
+        node = filteredParents.size();
+        filteredParents.add(parent);
+        filteredFrameIds.add(newFrameIds[frameId]);
+        filteredTimes.add(0);
+        children.put(key, node);
+      }
+      filteredTimes.set(node, filteredTimes.get(node) + cumulativeTimes.get(i));
+      filteredNodes[i] = node;
+    }
+
+    // merged nodes get callees from different subtrees, so the filtered nodes are renumbered in depth-first order
+    final int filteredCount = filteredParents.size();
+    final int[] childStarts = new int[filteredCount + 1];
+    for (int i = 1; i < filteredCount; ++i) {
+      ++childStarts[filteredParents.get(i) + 1];
+    }
+    for (int i = 0; i < filteredCount; ++i) {
+      childStarts[i + 1] += childStarts[i];
+    }
+    final int[] childList = new int[Math.max(filteredCount - 1, 0)];
+    final int[] filled = new int[filteredCount];
+    for (int i = 1; i < filteredCount; ++i) {
+      final int parent = filteredParents.get(i);
+      childList[childStarts[parent] + filled[parent]++] = i;
+    }
+
+    final int[] newIndices = new int[filteredCount];
+    final int[] frameIdOfNode = new int[filteredCount];
+    final int[] parents = new int[filteredCount];
+    final long[] cumulativeTimes = new long[filteredCount];
+    final int[] stack = new int[filteredCount];
+    int stackSize = 0;
+    int next = 0;
+    stack[stackSize++] = 0;
+    while (stackSize > 0) {
+      final int node = stack[--stackSize];
+      final int index = next++;
+      newIndices[node] = index;
+      frameIdOfNode[index] = filteredFrameIds.get(node);
+      parents[index] = node == 0 ? -1 : newIndices[filteredParents.get(node)];
+      cumulativeTimes[index] = filteredTimes.get(node);
+      for (int k = childStarts[node]; k < childStarts[node + 1]; ++k) {
+        stack[stackSize++] = childList[k];
+      }
+    }
+    return new CallTreeIndex(frameList.toArray(new FrameInfo[frameList.size()]), frameIdOfNode, parents, cumulativeTimes);
+  }
+
+  /*
+   * @return root of the call tree nodes built from the index
+   */
+  CallTreeNode createNodes() {
+    final int nodeCount = getNodeCount();
+    final CallTreeNode[] nodes = new CallTreeNode[nodeCount];
+    nodes[0] = new CallTreeNode();
+    for (int i = 1; i < nodeCount; ++i) {
+      nodes[i] = new CallTreeNode(frames[frameIdOfNode.get(i)], cumulativeTimes.get(i));
+      nodes[parents.get(i)].addChild(nodes[i]);
+    }
+    return nodes[0];
+  }
+
+  /*
+   * @return pair <cumulative time map, self time map>
+   */
+  Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getTimeMaps() {
+    final Map<FrameInfo, Long> countMap = new THashMap<>();
+    final Map<FrameInfo, Long> selfCountMap = new THashMap<>();
+    for (int f = 0; f < frames.length; ++f) {
+      countMap.put(frames[f], totalCumulativeTimes[f]);
+      selfCountMap.put(frames[f], totalSelfTimes[f]);
+    }
+    return Pair.create(countMap, selfCountMap);
+  }
+
+  /*
+   * Times of the frames of the nodes that call <code>frames</code> in reverse order, in the subtrees of these nodes.
+   * Only the nearest node to the root is taken from the nodes of the same frame in a call chain.
+   *
+   * For example
+   *
+   * <code>foo</code> call <code>bar</code> call <code>baz</code>
+   * <code>bad</code> call <code>bar</code> call <code>foo</code> call <code>baz</code>
+   * <code>frames = [baz, bar]</code>
+   *
+   * Only <code>foo</code> is a caller.
+   *
+   * @return pair <cumulative time map, self time map>
+   */
+  Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCallersTimeMaps(FrameInfo[] frames) {
+    final TIntArrayList candidates = new TIntArrayList();
+    if (frames.length > 0) {
+      final int[] chain = getFrameIds(frames);
+      if (chain != null) {
+        for (int k = occurrenceStarts[chain[0]]; k < occurrenceStarts[chain[0] + 1]; ++k) {
+          final int top = getChainTop(occurrences.get(k), chain);
+          if (top > 0 && parents.get(top) > 0) candidates.add(parents.get(top));
+        }
+      }
+    }
+    candidates.sort();
+
+    final TIntHashSet callers = new TIntHashSet();
+    final TIntHashSet callerFrames = new TIntHashSet();
+    for (int i = 0; i < candidates.size(); ++i) {
+      final int candidate = candidates.get(i);
+      boolean calledByCaller = false;
+      for (int ancestor = sameFrameAncestors.get(candidate); ancestor != -1; ancestor = sameFrameAncestors.get(ancestor)) {
+        if (callers.contains(ancestor)) {
+          calledByCaller = true;
+          break;
+        }
+      }
+      if (!calledByCaller) {
+        callers.add(candidate);
+        callerFrames.add(frameIdOfNode.get(candidate));
+      }
+    }
+
+    final int[] subtrees = getOutermostSubtrees(callers.toArray());
+    final Map<FrameInfo, Long> countMap = new THashMap<>();
+    final Map<FrameInfo, Long> selfCountMap = new THashMap<>();
+    for (int frameId : callerFrames.toArray()) {
+      long cumulativeTime = 0;
+      long selfTime = 0;
+      for (int subtree : subtrees) {
+        final int from = findOccurrence(frameId, subtree);
+        final int to = findOccurrence(frameId, ends.get(subtree));
+        selfTime += selfPrefixSums.get(to) - selfPrefixSums.get(from);
+        cumulativeTime += getCumulativeTime(frameId, from, to);
+      }
+      countMap.put(this.frames[frameId], cumulativeTime);
+      selfCountMap.put(this.frames[frameId], selfTime);
+    }
+    return Pair.create(countMap, selfCountMap);
+  }
+
+  /*
+   * Times of the frames in the subtrees of nodes called by <code>frames[0]</code>, which call chain ends with all
+   * <code>frames</code> in reverse order.
+   *
+   * @return pair <cumulative time map, self time map>
+   */
+  Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> getCalleesTimeMaps(FrameInfo[] frames) {
+    if (frames.length == 0) return getTimeMaps();
+
+    final TIntArrayList callees = new TIntArrayList();
+    final int[] chain = getFrameIds(frames);
+    if (chain != null) {
+      for (int k = occurrenceStarts[chain[0]]; k < occurrenceStarts[chain[0] + 1]; ++k) {
+        final int node = occurrences.get(k);
+        if (getChainTop(node, chain) > 0) {
+          for (int child = node + 1; child < ends.get(node); child = ends.get(child)) {
+            callees.add(child);
+          }
+        }
+      }
+    }
+
+    final long[] cumulativeTimes = new long[this.frames.length];
+    final long[] selfTimes = new long[this.frames.length];
+    final TIntArrayList calleeFrames = new TIntArrayList();
+    final boolean[] seen = new boolean[this.frames.length];
+    for (int subtree : getOutermostSubtrees(callees.toNativeArray())) {
+      for (int i = subtree; i < ends.get(subtree); ++i) {
+        final int frameId = frameIdOfNode.get(i);
+        if (!seen[frameId]) {
+          seen[frameId] = true;
+          calleeFrames.add(frameId);
+        }
+        selfTimes[frameId] += this.selfTimes.get(i);
+        if (sameFrameAncestors.get(i) < subtree) cumulativeTimes[frameId] += this.cumulativeTimes.get(i);
+      }
+    }
+
+    final Map<FrameInfo, Long> countMap = new THashMap<>();
+    final Map<FrameInfo, Long> selfCountMap = new THashMap<>();
+    for (int i = 0; i < calleeFrames.size(); ++i) {
+      final int frameId = calleeFrames.get(i);
+      countMap.put(this.frames[frameId], cumulativeTimes[frameId]);
+      selfCountMap.put(this.frames[frameId], selfTimes[frameId]);
+    }
+    return Pair.create(countMap, selfCountMap);
+  }
+
+  private int[] getFrameIds(FrameInfo[] frames) {
+    final int[] result = new int[frames.length];
+    for (int i = 0; i < frames.length; ++i) {
+      if (!frameIds.containsKey(frames[i])) return null;
+      result[i] = frameIds.get(frames[i]);
+    }
+    return result;
+  }
+
+  /*
+   * @return ancestor of <code>node</code> with the frame of <code>chain[chain.length - 1]</code> if the frames of <code>node</code>
+   * and its ancestors are <code>chain</code>, <code>-1</code> otherwise
+   */
+  private int getChainTop(int node, int[] chain) {
+    for (int i = 1; i < chain.length; ++i) {
+      node = parents.get(node);
+      if (node <= 0 || frameIdOfNode.get(node) != chain[i]) return -1;
+    }
+    return node;
+  }
+
+  /*
+   * @return nodes not lying in the subtrees of each other, sorted
+   */
+  private int[] getOutermostSubtrees(int[] nodes) {
+    Arrays.sort(nodes);
+    final TIntArrayList result = new TIntArrayList(nodes.length);
+    int end = 0;
+    for (int node : nodes) {
+      if (node >= end) {
+        result.add(node);
+        end = ends.get(node);
+      }
+    }
+    return result.toNativeArray();
+  }
+
+  /*
+   * @return position in occurrences of the first node of the frame with index not less than <code>node</code>
+   */
+  private int findOccurrence(int frameId, int node) {
+    int low = occurrenceStarts[frameId];
+    int high = occurrenceStarts[frameId + 1];
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (occurrences.get(middle) < node) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /*
+   * Cumulative time of the nodes of the frame in the range of occurrences without the ones called from a node of the same frame
+   * in the range
+   */
+  private long getCumulativeTime(int frameId, int from, int to) {
+    if (!recursive[frameId]) return cumulativePrefixSums.get(to) - cumulativePrefixSums.get(from);
+
+    long result = 0;
+    int k = from;
+    while (k < to) {
+      final int node = occurrences.get(k);
+      result += cumulativeTimes.get(node);
+      k = findOccurrence(frameId, ends.get(node));
+    }
+    return result;
+  }
+}
@@ -3,6 +3,7 @@ package com.jetbrains.actionscript.profiler.calltree;
 import com.jetbrains.actionscript.profiler.base.FilePathProducer;
 import com.jetbrains.actionscript.profiler.base.FrameInfoProducer;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.SampleStore;
 import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 
@@ -50,7 +51,7 @@ class CallTreeNode implements FrameInfoProducer, FilePathProducer {
     }
   }
 
-  private void addChild(CallTreeNode newChildNode) {
+  void addChild(CallTreeNode newChildNode) {
     children.put(newChildNode.getFrameInfo(), newChildNode);
   }
 
@@ -99,6 +100,20 @@ class CallTreeNode implements FrameInfoProducer, FilePathProducer {
     }
   }
 
+  void addChildren(SampleStore store, int sample, long duration) {
+    CallTreeNode node = this;
+    for (int i = store.getStackDepth(sample) - 1; i >= 0; --i) {
+      final FrameInfo frame = store.getFrameInfo(sample, i);
+      CallTreeNode child = node.findChildByName(frame);
+      if (child == null) {
+        child = new CallTreeNode(frame, 0);
+        node.addChild(child);
+      }
+      child.duration += duration;
+      node = child;
+    }
+  }
+
   @Override
   public String getFilePath() {
     return frameInfo.getFilePath();
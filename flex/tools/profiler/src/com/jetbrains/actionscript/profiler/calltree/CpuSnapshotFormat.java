@@ -0,0 +1,286 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.lang.javascript.psi.JSFunction;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfoBuilder;
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar CPU snapshot file. Header keeps the frame string table, the frame table and per frame data of the call tree and of the
+ * call tree without system frames, the rest of the file are per node columns of both trees, each aligned to 8 bytes:
+ * <pre>
+ * int magic, int version, int header length, header, padding
+ * for each tree: frame ids, parents, subtree ends, same frame ancestors, nodes grouped by frame (node count - 1),
+ *                cumulative times, self times, cumulative and self time prefix sums by frame (node count)
+ * </pre>
+ * Columns are read into primitive arrays, which take several times less heap than {@link CallTreeNode} objects. Nodes are
+ * materialized only when the tree is changed, the snapshot view loads the children of its nodes lazily. The file is not kept open
+ * or mapped after reading.
+ */
+public class CpuSnapshotFormat {
+  private static final int MAGIC = 0x41534350; // ASCP
+  private static final int VERSION = 1;
+  private static final int NULL_STRING = -1;
+  private static final int NO_KIND = -1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private CpuSnapshotFormat() {
+  }
+
+  public static void write(CallTree callTree, File file) throws IOException {
+    final CallTreeIndex index = callTree.getIndex();
+    final CallTreeIndex filteredIndex = callTree.getSystemStuffFiltered().getIndex();
+
+    final List<String> strings = new ArrayList<>();
+    final TObjectIntHashMap<String> stringIds = new TObjectIntHashMap<>();
+    final List<FrameInfo> frames = new ArrayList<>();
+    final TObjectIntHashMap<FrameInfo> frameIds = new TObjectIntHashMap<>();
+    for (CallTreeIndex treeIndex : new CallTreeIndex[]{index, filteredIndex}) {
+      for (FrameInfo frame : treeIndex.frames) {
+        if (!frameIds.containsKey(frame)) {
+          frameIds.put(frame, frames.size());
+          frames.add(frame);
+        }
+      }
+    }
+
+    final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+    final DataOutputStream header = new DataOutputStream(headerBytes);
+    final ByteArrayOutputStream frameTableBytes = new ByteArrayOutputStream();
+    final DataOutputStream frameTable = new DataOutputStream(frameTableBytes);
+    frameTable.writeInt(frames.size());
+    for (FrameInfo frame : frames) {
+      frameTable.writeInt(getStringId(frame.getFileDirectory(), strings, stringIds));
+      frameTable.writeInt(getStringId(frame.getFileName(), strings, stringIds));
+      frameTable.writeInt(frame.getFileLine());
+      frameTable.writeInt(getStringId(frame.getPackageName(), strings, stringIds));
+      frameTable.writeInt(getStringId(frame.getQName(), strings, stringIds));
+      frameTable.writeInt(getStringId(frame.getMethodName(), strings, stringIds));
+      frameTable.writeInt(frame.getKind() != null ? frame.getKind().ordinal() : NO_KIND);
+      frameTable.writeInt(getStringId(frame.getNamespace(), strings, stringIds));
+    }
+    header.writeInt(strings.size());
+    for (String s : strings) {
+      header.writeUTF(s);
+    }
+    frameTableBytes.writeTo(header);
+    writeFrameData(header, index, frameIds);
+    writeFrameData(header, filteredIndex, frameIds);
+    header.flush();
+
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      final FileChannel channel = out.getChannel();
+      final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.putInt(MAGIC).putInt(VERSION).putInt(headerBytes.size());
+      flush(channel, buffer);
+      writeFully(channel, ByteBuffer.wrap(headerBytes.toByteArray()));
+      for (long i = 12 + headerBytes.size(); i < align(12 + headerBytes.size()); ++i) {
+        buffer.put((byte)0);
+      }
+      writeColumns(channel, buffer, index);
+      writeColumns(channel, buffer, filteredIndex);
+      flush(channel, buffer);
+    }
+  }
+
+  private static int getStringId(@Nullable String s, List<String> strings, TObjectIntHashMap<String> stringIds) {
+    if (s == null) return NULL_STRING;
+    if (!stringIds.containsKey(s)) {
+      stringIds.put(s, strings.size());
+      strings.add(s);
+    }
+    return stringIds.get(s);
+  }
+
+  private static void writeFrameData(DataOutputStream out, CallTreeIndex index, TObjectIntHashMap<FrameInfo> frameIds)
+    throws IOException {
+    out.writeInt(index.getNodeCount());
+    out.writeInt(index.frames.length);
+    for (int f = 0; f < index.frames.length; ++f) {
+      out.writeInt(frameIds.get(index.frames[f]));
+      out.writeLong(index.totalCumulativeTimes[f]);
+      out.writeLong(index.totalSelfTimes[f]);
+      out.writeBoolean(index.recursive[f]);
+    }
+    for (int start : index.occurrenceStarts) {
+      out.writeInt(start);
+    }
+  }
+
+  private static void writeColumns(FileChannel channel, ByteBuffer buffer, CallTreeIndex index) throws IOException {
+    for (IntBuffer column : new IntBuffer[]{index.frameIdOfNode, index.parents, index.ends, index.sameFrameAncestors, index.occurrences}) {
+      for (int i = 0; i < column.limit(); ++i) {
+        if (buffer.remaining() < 8) flush(channel, buffer);
+        buffer.putInt(column.get(i));
+      }
+      if (column.limit() % 2 != 0) buffer.putInt(0);
+    }
+    for (LongBuffer column : new LongBuffer[]{index.cumulativeTimes, index.selfTimes, index.cumulativePrefixSums, index.selfPrefixSums}) {
+      for (int i = 0; i < column.limit(); ++i) {
+        if (buffer.remaining() < 8) flush(channel, buffer);
+        buffer.putLong(column.get(i));
+      }
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    writeFully(channel, buffer);
+    buffer.clear();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static long align(long offset) {
+    return (offset + 7) & ~7L;
+  }
+
+  public static CallTree read(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      final FileChannel channel = randomAccessFile.getChannel();
+      final ByteBuffer prefix = ByteBuffer.allocate(12);
+      readFully(channel, prefix, 0);
+      if (prefix.getInt(0) != MAGIC || prefix.getInt(4) != VERSION) {
+        throw new IOException("Not a CPU snapshot of version " + VERSION + ": " + file.getPath());
+      }
+      final ByteBuffer headerBytes = ByteBuffer.allocate(prefix.getInt(8));
+      readFully(channel, headerBytes, 12);
+      final DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes.array()));
+
+      final String[] strings = new String[header.readInt()];
+      for (int i = 0; i < strings.length; ++i) {
+        strings[i] = header.readUTF();
+      }
+      final JSFunction.FunctionKind[] kinds = JSFunction.FunctionKind.values();
+      final FrameInfo[] frames = new FrameInfo[header.readInt()];
+      for (int i = 0; i < frames.length; ++i) {
+        final String fileDirectory = getString(strings, header.readInt());
+        final String fileName = getString(strings, header.readInt());
+        final int fileLine = header.readInt();
+        final String packageName = getString(strings, header.readInt());
+        final String qName = getString(strings, header.readInt());
+        final String methodName = getString(strings, header.readInt());
+        final int kind = header.readInt();
+        final String namespace = getString(strings, header.readInt());
+        frames[i] = FrameInfoBuilder.createInstance(fileDirectory, fileName, fileLine, packageName, qName, methodName,
+                                                    kind != NO_KIND ? kinds[kind] : null, namespace);
+      }
+
+      final TreeHeader treeHeader = new TreeHeader(header, frames);
+      final TreeHeader filteredHeader = new TreeHeader(header, frames);
+      final long columnsOffset = align(12 + headerBytes.capacity());
+      final long columnsSize = treeHeader.getColumnsSize() + filteredHeader.getColumnsSize();
+      if (columnsOffset + columnsSize != channel.size()) {
+        throw new IOException("Unexpected CPU snapshot length " + channel.size() + ", expected " + (columnsOffset + columnsSize) + ": " +
+                              file.getPath());
+      }
+
+      final CallTreeIndex index = treeHeader.readIndex(channel, columnsOffset);
+      final CallTreeIndex filteredIndex = filteredHeader.readIndex(channel, columnsOffset + treeHeader.getColumnsSize());
+      return new CallTree(index, filteredIndex);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+    }
+  }
+
+  @Nullable
+  private static String getString(String[] strings, int id) {
+    return id == NULL_STRING ? null : strings[id];
+  }
+
+  private static IntBuffer readIntColumn(FileChannel channel, long position, int length) throws IOException {
+    final int[] column = new int[length];
+    final ByteBuffer buffer = ByteBuffer.allocate(Math.min(BUFFER_SIZE, length * 4));
+    for (int i = 0; i < length; ) {
+      buffer.clear();
+      buffer.limit(Math.min(buffer.capacity(), (length - i) * 4));
+      readFully(channel, buffer, position + i * 4L);
+      buffer.flip();
+      final int count = buffer.remaining() / 4;
+      buffer.asIntBuffer().get(column, i, count);
+      i += count;
+    }
+    return IntBuffer.wrap(column);
+  }
+
+  private static LongBuffer readLongColumn(FileChannel channel, long position, int length) throws IOException {
+    final long[] column = new long[length];
+    final ByteBuffer buffer = ByteBuffer.allocate(Math.min(BUFFER_SIZE, length * 8));
+    for (int i = 0; i < length; ) {
+      buffer.clear();
+      buffer.limit(Math.min(buffer.capacity(), (length - i) * 8));
+      readFully(channel, buffer, position + i * 8L);
+      buffer.flip();
+      final int count = buffer.remaining() / 8;
+      buffer.asLongBuffer().get(column, i, count);
+      i += count;
+    }
+    return LongBuffer.wrap(column);
+  }
+
+  private static class TreeHeader {
+    private final int nodeCount;
+    private final FrameInfo[] frames;
+    private final long[] totalCumulativeTimes;
+    private final long[] totalSelfTimes;
+    private final boolean[] recursive;
+    private final int[] occurrenceStarts;
+
+    TreeHeader(DataInputStream in, FrameInfo[] frameTable) throws IOException {
+      nodeCount = in.readInt();
+      final int frameCount = in.readInt();
+      frames = new FrameInfo[frameCount];
+      totalCumulativeTimes = new long[frameCount];
+      totalSelfTimes = new long[frameCount];
+      recursive = new boolean[frameCount];
+      for (int f = 0; f < frameCount; ++f) {
+        frames[f] = frameTable[in.readInt()];
+        totalCumulativeTimes[f] = in.readLong();
+        totalSelfTimes[f] = in.readLong();
+        recursive[f] = in.readBoolean();
+      }
+      occurrenceStarts = new int[frameCount + 1];
+      for (int f = 0; f <= frameCount; ++f) {
+        occurrenceStarts[f] = in.readInt();
+      }
+    }
+
+    long getColumnsSize() {
+      return 4 * align(nodeCount * 4L) + align((nodeCount - 1) * 4L) + 4 * nodeCount * 8L;
+    }
+
+    CallTreeIndex readIndex(FileChannel channel, long offset) throws IOException {
+      final IntBuffer[] intColumns = new IntBuffer[5];
+      for (int i = 0; i < intColumns.length; ++i) {
+        final int length = i < 4 ? nodeCount : nodeCount - 1;
+        intColumns[i] = readIntColumn(channel, offset, length);
+        offset += align(length * 4L);
+      }
+      final LongBuffer[] longColumns = new LongBuffer[4];
+      for (int i = 0; i < longColumns.length; ++i) {
+        longColumns[i] = readLongColumn(channel, offset, nodeCount);
+        offset += nodeCount * 8L;
+      }
+      return new CallTreeIndex(frames, intColumns[0], intColumns[1], intColumns[2], longColumns[0], longColumns[1], intColumns[3],
+                               intColumns[4], longColumns[2], longColumns[3], occurrenceStarts, totalCumulativeTimes,
+                               totalSelfTimes, recursive);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package com.jetbrains.actionscript.profiler.file;
+
+import com.intellij.openapi.fileTypes.FileTypeConsumer;
+import com.intellij.openapi.fileTypes.FileTypeFactory;
+import com.intellij.openapi.fileTypes.WildcardFileNameMatcher;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Snapshot files written by {@link com.jetbrains.actionscript.profiler.calltree.CpuSnapshotFormat}, the double extension
+ * takes precedence over the generic <code>snapshot</code> one
+ */
+public class ActionScriptProfilerFileTypeFactory extends FileTypeFactory {
+  @Override
+  public void createFileTypes(@NotNull FileTypeConsumer consumer) {
+    consumer.consume(new CpuSnapshotFileType(), new WildcardFileNameMatcher("*." + CpuSnapshotFileType.DEFAULT_EXTENSION));
+  }
+}
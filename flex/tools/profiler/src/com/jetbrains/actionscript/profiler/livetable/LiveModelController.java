@@ -1,18 +1,17 @@
 package com.jetbrains.actionscript.profiler.livetable;
 
+import com.intellij.openapi.util.Comparing;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.jetbrains.actionscript.profiler.base.SortableListTreeTableModel;
 import com.jetbrains.actionscript.profiler.sampler.*;
 import com.jetbrains.actionscript.profiler.util.ResolveUtil;
-import org.jetbrains.annotations.Nullable;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
@@ -24,20 +23,38 @@ public class LiveModelController implements ObjectSampleHandler {
   private final List<Sample> cache = new LinkedList<>();
   private final ConcurrentLinkedQueue<Sample> queue = new ConcurrentLinkedQueue<>();
 
-  private final List<SizeInfoNode> filteredClasses = new ArrayList<>();
+  private final Set<SizeInfoNode> filteredClasses = new LinkedHashSet<>();
+  // class nodes under the root and filtered out by scope
+  private final Map<String, SizeInfoNode> classNodes = new THashMap<>();
+  // nodes decreased by the applied samples, only they can become useless
+  private final Set<SizeInfoNode> decreasedNodes = new THashSet<>();
+  private TreeNode root;
   private GlobalSearchScope scope;
+  private boolean scopeChanged = true;
+  private boolean structureChanged;
   
   private volatile int allocatedMemorySize = 0;
 
   public void updateScope(GlobalSearchScope scope) {
-    this.scope = scope;
+    if (!Comparing.equal(this.scope, scope)) {
+      this.scope = scope;
+      scopeChanged = true;
+    }
   }
 
   public int getAllocatedMemorySize() {
     return allocatedMemorySize / BYTES_IN_KB;
   }
 
-  public void apply(SortableListTreeTableModel model) {
+  /**
+   * @return whether nodes were added or removed, otherwise only sizes and counts of the nodes were changed
+   */
+  public boolean apply(SortableListTreeTableModel model) {
+    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
+    if (root != this.root) {
+      setRoot(root);
+    }
+    structureChanged = false;
     while (!queue.isEmpty()) {
       cache.add(queue.poll());
     }
@@ -45,35 +62,55 @@ public class LiveModelController implements ObjectSampleHandler {
     while (iterator.hasNext()) {
       final Sample sample = iterator.next();
       if (sample instanceof CreateObjectSample) {
-        applyCreate(model, (CreateObjectSample)sample);
+        applyCreate(root, (CreateObjectSample)sample);
         iterator.remove();
       }
-      else if (sample instanceof DeleteObjectSample && applyDelete(model, (DeleteObjectSample)sample)) {
+      else if (sample instanceof DeleteObjectSample && applyDelete((DeleteObjectSample)sample)) {
         iterator.remove();
       }
     }
-    removeUselessNodes((MutableTreeNode)model.getRoot());
+    removeUselessNodes();
+
+    if (scopeChanged) {
+      filterByScope(root);
+      scopeChanged = false;
+    }
+    return structureChanged;
+  }
 
-    filterByScope(model);
+  private void setRoot(DefaultMutableTreeNode root) {
+    this.root = root;
+    classNodes.clear();
+    for (SizeInfoNode node : filteredClasses) {
+      classNodes.put(node.getMatchName(), node);
+    }
+    for (int i = 0; i < root.getChildCount(); ++i) {
+      final TreeNode child = root.getChildAt(i);
+      if (child instanceof SizeInfoNode) {
+        classNodes.put(((SizeInfoNode)child).getMatchName(), (SizeInfoNode)child);
+      }
+    }
+    scopeChanged = true;
   }
 
-  private void filterByScope(SortableListTreeTableModel model) {
-    final MutableTreeNode root = (MutableTreeNode)model.getRoot();
+  private void filterByScope(MutableTreeNode root) {
     int i = 0;
     Iterator<SizeInfoNode> iterator = filteredClasses.iterator();
     while (iterator.hasNext()) {
       final SizeInfoNode node = iterator.next();
-      if (scope == null || ResolveUtil.containsInScope(node.getQName(), scope)) {
+      if (isInScope(node)) {
         root.insert(node, root.getChildCount());
         iterator.remove();
+        structureChanged = true;
         ++i;
       }
     }
     while (i < root.getChildCount()) {
       final SizeInfoNode child = (SizeInfoNode)root.getChildAt(i);
-      if (scope != null && !ResolveUtil.containsInScope(child.getQName(), scope)) {
+      if (!isInScope(child)) {
         root.remove(i);
         filteredClasses.add(child);
+        structureChanged = true;
       }
       else {
         ++i;
@@ -81,48 +118,61 @@ public class LiveModelController implements ObjectSampleHandler {
     }
   }
 
-  private static void removeUselessNodes(MutableTreeNode root) {
-    for (int i = 0; i < root.getChildCount(); ++i) {
-      MutableTreeNode child = (MutableTreeNode)root.getChildAt(i);
-      if (child instanceof SizeInfoNode) {
-        if (((SizeInfoNode)child).getCount() <= 0) {
-          root.remove(child);
-          continue;
-        }
+  private boolean isInScope(SizeInfoNode classNode) {
+    return scope == null || ResolveUtil.containsInScope(classNode.getQName(), scope);
+  }
+
+  private void removeUselessNodes() {
+    for (SizeInfoNode node : decreasedNodes) {
+      if (node.getCount() > 0) {
+        continue;
+      }
+      final MutableTreeNode parent = (MutableTreeNode)node.getParent();
+      if (parent != null) {
+        parent.remove(node);
+        structureChanged = true;
+      }
+      if (!node.isMethod() && classNodes.get(node.getMatchName()) == node) {
+        classNodes.remove(node.getMatchName());
+        filteredClasses.remove(node);
       }
-      removeUselessNodes(child);
     }
+    decreasedNodes.clear();
   }
 
-  private void applyCreate(SortableListTreeTableModel model,
-                           CreateObjectSample sample) {
+  private void applyCreate(MutableTreeNode root, CreateObjectSample sample) {
     final String className = sample.className;
-    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
-    SizeInfoNode classNode = findChildByValue(root, className);
+    SizeInfoNode classNode = classNodes.get(className);
     if (classNode == null) {
       classNode = new SizeInfoNode(className, null, 0, 0);
-      root.insert(classNode, root.getChildCount());
+      classNodes.put(className, classNode);
+      if (isInScope(classNode)) {
+        root.insert(classNode, root.getChildCount());
+        structureChanged = true;
+      }
+      else {
+        filteredClasses.add(classNode);
+      }
     }
     classNode.incSize(sample.size);
 
     SizeInfoNode node = classNode;
     for (FrameInfo frameInfo : sample.frames) {
-      SizeInfoNode frameNode = findChildByValue(node, frameInfo.getQName());
+      SizeInfoNode frameNode = node.findChild(frameInfo.getQName());
       if (frameNode == null) {
         frameNode = new SizeInfoNode(frameInfo.toSimpleString(), frameInfo, 0, 0);
         node.insert(frameNode, node.getChildCount());
+        structureChanged = true;
       }
       node = frameNode;
       node.incSize(sample.size);
     }
   }
 
-  private boolean applyDelete(SortableListTreeTableModel model,
-                              DeleteObjectSample sample) {
+  private boolean applyDelete(DeleteObjectSample sample) {
     final List<SizeInfoNode> nodesForUpdate = new ArrayList<>();
     final String className = sample.className;
-    final DefaultMutableTreeNode root = (DefaultMutableTreeNode)model.getRoot();
-    SizeInfoNode classNode = findChildByValue(root, className);
+    SizeInfoNode classNode = classNodes.get(className);
     if (classNode == null) {
       return false;
     }
@@ -130,7 +180,7 @@ public class LiveModelController implements ObjectSampleHandler {
 
     SizeInfoNode node = classNode;
     for (FrameInfo frameInfo : sample.frames) {
-      final SizeInfoNode frameNode = findChildByValue(node, frameInfo.getQName());
+      final SizeInfoNode frameNode = node.findChild(frameInfo.getQName());
       if (frameNode == null) {
         return false;
       }
@@ -140,38 +190,10 @@ public class LiveModelController implements ObjectSampleHandler {
     for (SizeInfoNode sizeInfoNode : nodesForUpdate) {
       sizeInfoNode.decSize(sample.size);
     }
+    decreasedNodes.addAll(nodesForUpdate);
     return true;
   }
 
-  @Nullable
-  private SizeInfoNode findChildByValue(TreeNode root, String name) {
-    for (int i = 0; i < root.getChildCount(); ++i) {
-      final TreeNode child = root.getChildAt(i);
-      if (!(child instanceof SizeInfoNode)) {
-        continue;
-      }
-      final SizeInfoNode sizeInfoNode = (SizeInfoNode)child;
-      if (matchByName(name, sizeInfoNode)) {
-        return (SizeInfoNode)child;
-      }
-    }
-
-
-    for (SizeInfoNode filteredNode : filteredClasses) {
-      if (matchByName(name, filteredNode)) {
-        return filteredNode;
-      }
-    }
-    return null;
-  }
-
-  private static boolean matchByName(String name, SizeInfoNode sizeInfoNode) {
-    if (sizeInfoNode.isMethod()) {
-      return name.equals(sizeInfoNode.getQName());
-    }
-    return name.equals(sizeInfoNode.getUserObject());
-  }
-
   @Override
   public void processCreateSample(CreateObjectSample createObjectSample) {
     if (createObjectSample.className != null) {
@@ -5,9 +5,13 @@ import com.jetbrains.actionscript.profiler.base.FilePathProducer;
 import com.jetbrains.actionscript.profiler.base.FrameInfoProducer;
 import com.jetbrains.actionscript.profiler.base.QNameProducer;
 import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import gnu.trove.THashMap;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.util.Map;
 
 /**
  * @author: Fedor.Korotkov
@@ -18,6 +22,8 @@ public class SizeInfoNode extends DefaultMutableTreeNode implements FrameInfoPro
   private final JSResolveUtil.GenericSignature signature;
   private long size;
   private int count;
+  // created with the first child, most of the nodes are leaves
+  private @Nullable Map<String, SizeInfoNode> childrenByName;
 
   public SizeInfoNode(String qName, @Nullable FrameInfo frameInfo, long size, int count) {
     JSResolveUtil.GenericSignature signatureCandidate = JSResolveUtil.extractGenericSignature(qName);
@@ -63,6 +69,41 @@ public class SizeInfoNode extends DefaultMutableTreeNode implements FrameInfoPro
     return getFrameInfo() != null;
   }
 
+  /**
+   * @return qualified name of the frame class for a frame node, class name for a class node
+   */
+  String getMatchName() {
+    return isMethod() ? getQName() : (String)getUserObject();
+  }
+
+  @Nullable
+  SizeInfoNode findChild(String matchName) {
+    return childrenByName != null ? childrenByName.get(matchName) : null;
+  }
+
+  @Override
+  public void insert(MutableTreeNode newChild, int childIndex) {
+    super.insert(newChild, childIndex);
+    if (newChild instanceof SizeInfoNode) {
+      if (childrenByName == null) {
+        childrenByName = new THashMap<>();
+      }
+      childrenByName.put(((SizeInfoNode)newChild).getMatchName(), (SizeInfoNode)newChild);
+    }
+  }
+
+  @Override
+  public void remove(int childIndex) {
+    final TreeNode child = getChildAt(childIndex);
+    super.remove(childIndex);
+    if (child instanceof SizeInfoNode && childrenByName != null) {
+      final String matchName = ((SizeInfoNode)child).getMatchName();
+      if (childrenByName.get(matchName) == child) {
+        childrenByName.remove(matchName);
+      }
+    }
+  }
+
   @Override
   public String getFilePath() {
     if (frameInfo != null) {
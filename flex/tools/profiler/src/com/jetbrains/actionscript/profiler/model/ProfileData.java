@@ -5,7 +5,9 @@ import com.jetbrains.actionscript.profiler.calltree.CallTree;
 import com.jetbrains.actionscript.profiler.livetable.LiveModelController;
 import com.jetbrains.actionscript.profiler.sampler.CreateObjectSample;
 import com.jetbrains.actionscript.profiler.sampler.Sample;
+import com.jetbrains.actionscript.profiler.sampler.SampleStore;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -16,10 +18,12 @@ import java.util.Set;
  */
 public class ProfileData {
   public static final Key<CallTree> CALL_TREE_KEY = Key.create("ASCallTree");
+  public static final Key<File> CPU_SNAPSHOT_FILE_KEY = Key.create("ASCpuSnapshotFile");
   public static final Key<LiveModelController> CONTROLLER = Key.create("ASLiveController");
   public static final Key<ProfilingManager> PROFILING_MANAGER = Key.create("ASProfilingManager");
 
   private CallTree callTree = new CallTree();
+  private final SampleStore sampleStore = new SampleStore();
   private final Map<Integer, CreateObjectSample> objects = new HashMap<>();
   private final Map<Integer, Set<Integer>> references = new LinkedHashMap<>(50);
 
@@ -27,6 +31,10 @@ public class ProfileData {
     return callTree;
   }
 
+  public SampleStore getSampleStore() {
+    return sampleStore;
+  }
+
   public Map<Integer, Set<Integer>> getReferences() {
     return references;
   }
@@ -43,6 +51,12 @@ public class ProfileData {
     callTree.addFrames(sample.frames, sample.duration);
   }
 
+  public void addPerformanceSamples(int fromSample) {
+    for (int i = fromSample; i < sampleStore.getSampleCount(); ++i) {
+      callTree.addSample(sampleStore, i);
+    }
+  }
+
   public void clearMemory() {
     objects.clear();
     references.clear();
@@ -50,5 +64,6 @@ public class ProfileData {
 
   public void clearPerformance() {
     callTree = new CallTree();
+    sampleStore.clearSamples();
   }
 }
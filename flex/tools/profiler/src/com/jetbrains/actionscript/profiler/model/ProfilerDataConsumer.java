@@ -44,6 +44,13 @@ public class ProfilerDataConsumer {
     }
   }
 
+  /**
+   * Feeds CPU samples appended to {@link ProfileData#getSampleStore()} in the interned frames mode
+   */
+  public void processCpuSamples(int fromSample) {
+    profileData.addPerformanceSamples(fromSample);
+  }
+
   public void referenced(int pid, int id) {
     Set<Integer> integers = profileData.getReferences().get(pid);
     if (integers == null) {
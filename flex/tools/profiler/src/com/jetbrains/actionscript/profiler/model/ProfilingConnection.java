@@ -30,7 +30,7 @@ public class ProfilingConnection {
   private final Map<String, PacketProcessor> myInitialString2ProcessorsMap = new HashMap<>();
   private final Callback myIoHandler;
   private final int myPort;
-  private static final int ourAgentVersion = 4;
+  private static final int ourAgentVersion = 5;
   private boolean myAbortingSocketConnection;
   private boolean myDisposed;
 
@@ -62,6 +62,11 @@ public class ProfilingConnection {
       samplesProcessor
     );
 
+    myInitialString2ProcessorsMap.put(
+      InternedSamplesProcessor.SAMPLE_BLOCK_MARKER,
+      new InternedSamplesProcessor(sampleProcessor)
+    );
+
     myInitialString2ProcessorsMap.put(
       FinishCommandProcessor.END_COMMAND_MARKER,
       new FinishCommandProcessor()
@@ -106,39 +111,10 @@ public class ProfilingConnection {
     }
 
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
-      int bytesRead = 0;
       try {
-        while (true) {
-          String x = myInputStream.readUTF();
-          if (x == null) break;
-          LOG.debug(x);
-          bytesRead += x.length();
-          try {
-            if (myCurrentPacketProcessor == null) {
-              String marker = x;
-              int i = x.indexOf('\0');
-              if (i != -1) marker = x.substring(0, i + 1);
-              myCurrentPacketProcessor = myInitialString2ProcessorsMap.get(marker);
-              if (myCurrentPacketProcessor != null) {
-                myCurrentPacketProcessor.startingPacket(x);
-              }
-            }
-            if (myCurrentPacketProcessor != null) {
-              PacketProcessor.ProcessingResult processingResult = myCurrentPacketProcessor.process(x);
-              if (processingResult == PacketProcessor.ProcessingResult.FINISHED) myCurrentPacketProcessor = null;
-              if (processingResult == PacketProcessor.ProcessingResult.STOP) return;
-            }
-            else {
-              LOG.warn("No processing:" + x);
-            }
-          }
-          catch (Exception e) {
-            LOG.error(e);
-          }
-        }
+        readPackets(myInputStream);
       }
       catch (IOException ex) {
-        LOG.debug("Bytes read:" + bytesRead);
         myIoHandler.finished(null, ex);
       }
       catch (Throwable t) {
@@ -147,6 +123,47 @@ public class ProfilingConnection {
     });
   }
 
+  /**
+   * Dispatches packets read from the agent to the processors until one of them stops reading or the stream ends
+   */
+  void readPackets(DataInputStream inputStream) throws IOException {
+    int bytesRead = 0;
+    try {
+      while (true) {
+        String x = inputStream.readUTF();
+        if (x == null) break;
+        LOG.debug(x);
+        bytesRead += x.length();
+        try {
+          if (myCurrentPacketProcessor == null) {
+            String marker = x;
+            int i = x.indexOf('\0');
+            if (i != -1) marker = x.substring(0, i + 1);
+            myCurrentPacketProcessor = myInitialString2ProcessorsMap.get(marker);
+            if (myCurrentPacketProcessor != null) {
+              myCurrentPacketProcessor.startingPacket(x);
+            }
+          }
+          if (myCurrentPacketProcessor != null) {
+            PacketProcessor.ProcessingResult processingResult = myCurrentPacketProcessor.process(x, inputStream);
+            if (processingResult == PacketProcessor.ProcessingResult.FINISHED) myCurrentPacketProcessor = null;
+            if (processingResult == PacketProcessor.ProcessingResult.STOP) return;
+          }
+          else {
+            LOG.warn("No processing:" + x);
+          }
+        }
+        catch (Exception e) {
+          LOG.error(e);
+        }
+      }
+    }
+    catch (IOException ex) {
+      LOG.debug("Bytes read:" + bytesRead);
+      throw ex;
+    }
+  }
+
   private void ensurePolicyServedEvenOnFlashSecurityPort() {
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
       try {
@@ -172,10 +189,17 @@ public class ProfilingConnection {
   private static final int DO_GC = 4;
   private static final int START_COLLECTING_LIVE_OBJECTS = 5;
   private static final int STOP_COLLECTING_LIVE_OBJECTS = 6;
+  private static final int START_CPU_PROFILING_INTERNED_FRAMES = 7;
+
+  /**
+   * Agent sends CPU samples in text packets, every frame as a string or its string id (as before agent version 5)
+   */
+  private static final boolean ourTextCpuSamples = Boolean.getBoolean("actionscript.profiler.text.cpu.samples");
 
   private void clearProfilingState() {
     final PacketProcessor processor = myInitialString2ProcessorsMap.get(BatchSamplesProcessor.BATCH_MARKER);
     ((BatchSamplesProcessor)processor).clearProfilingState();
+    ((InternedSamplesProcessor)myInitialString2ProcessorsMap.get(InternedSamplesProcessor.SAMPLE_BLOCK_MARKER)).clearProfilingState();
   }
 
   interface Callback {
@@ -194,7 +218,7 @@ public class ProfilingConnection {
   }
 
   public void startCpuProfiling(Callback callback) throws IOException {
-    simpleCommand(callback, START_CPU_PROFILING);
+    simpleCommand(callback, ourTextCpuSamples ? START_CPU_PROFILING : START_CPU_PROFILING_INTERNED_FRAMES);
   }
 
   public void captureMemorySnapshot(Callback callback) throws IOException {
@@ -243,6 +267,13 @@ public class ProfilingConnection {
     }
 
     abstract ProcessingResult process(String output) throws IOException;
+
+    /**
+     * Processors of packets with binary content read it from {@code input}, right after the marker string
+     */
+    ProcessingResult process(String output, DataInputStream input) throws IOException {
+      return process(output);
+    }
   }
 
   class PolicyFileRequestProcessor extends PacketProcessor {
@@ -446,6 +477,51 @@ public class ProfilingConnection {
     }
   }
 
+  /**
+   * CPU samples sent by the agent in blocks when profiling is started in the interned frames mode: the marker is followed by
+   * int sample count, int block length and the block itself, see {@link SampleStore#addSamples(byte[], int, int)}
+   */
+  static class InternedSamplesProcessor extends PacketProcessor {
+    static final String SAMPLE_BLOCK_MARKER = "sb\0";
+
+    private final ProfilerDataConsumer mySampleProcessor;
+    private byte[] myBlock = new byte[64 * 1024];
+
+    InternedSamplesProcessor(ProfilerDataConsumer sampleProcessor) {
+      mySampleProcessor = sampleProcessor;
+    }
+
+    @Override
+    ProcessingResult process(String output) throws IOException {
+      throw new IOException("Sample block content expected");
+    }
+
+    @Override
+    ProcessingResult process(String output, DataInputStream input) throws IOException {
+      final int sampleCount = input.readInt();
+      final int length = input.readInt();
+      if (length > myBlock.length) myBlock = new byte[Math.max(length, myBlock.length * 2)];
+      input.readFully(myBlock, 0, length);
+
+      final SampleStore store = mySampleProcessor.getProfileData().getSampleStore();
+      final int fromSample = store.getSampleCount();
+      try {
+        store.addSamples(myBlock, length, sampleCount);
+      }
+      catch (RuntimeException e) {
+        LOG.error(e);
+      }
+      mySampleProcessor.processCpuSamples(fromSample);
+      return ProcessingResult.FINISHED;
+    }
+
+    private void clearProfilingState() {
+      final SampleStore store = mySampleProcessor.getProfileData().getSampleStore();
+      LOG.debug("Interned CPU samples: " + store.getStatistics());
+      store.clear();
+    }
+  }
+
   class FinishCommandProcessor extends PacketProcessor {
     static final String END_COMMAND_MARKER = "e\0";
 
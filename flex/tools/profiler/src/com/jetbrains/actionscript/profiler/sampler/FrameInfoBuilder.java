@@ -3,18 +3,61 @@ package com.jetbrains.actionscript.profiler.sampler;
 import com.intellij.lang.javascript.psi.JSFunction;
 import com.intellij.openapi.util.text.StringUtil;
 import gnu.trove.THashMap;
+import gnu.trove.TLongObjectHashMap;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
 /**
+ * Parses frame strings sent by the agent into {@link FrameInfo} and interns the result. Frames are looked up by a 64-bit hash of the
+ * normalized frame string (raw string is not held): for a named function the line is not a part of it - the line being executed
+ * differs from sample to sample, the least one is kept - for an anonymous function it is, so such frames are deduplicated by source
+ * location. A 64-bit hash is unlikely to collide, but a collision would attribute samples to a wrong frame, so an entry also keeps
+ * the length and an independent 32-bit hash of the normalized string, a mismatch is handled as a miss. Named frames parsed from different
+ * strings (e.g. the same method compiled from another source directory) share one instance if they are equal {@link FrameInfo}s.
+ * Least recently used frames are evicted when the estimated size of the table exceeds the memory budget; frames already
+ * referenced by samples stay valid, the next occurrence of an evicted frame is parsed again.
+ *
  * @author: Fedor.Korotkov
  */
 public class FrameInfoBuilder {
+  public static final long DEFAULT_MEMORY_BUDGET = 8 * 1024 * 1024;
+
+  private static final String ANONYMOUS_PREFIX = "Function/<anonymous>";
+  // table slot and Entry
+  private static final int ENTRY_OVERHEAD = 8 + 8 + 48;
+  // namedFrames slot and NamedFrame
+  private static final int NAMED_FRAME_OVERHEAD = 8 + 8 + 24;
+  private static final int FRAME_INFO_OVERHEAD = 48;
+  private static final int STRING_OVERHEAD = 40;
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
   private final String[] suffixes = {"$", "$cinit()"};
-  private final Map<String, FrameInfo> cache = new THashMap<>();
-  private final Map<FrameInfo, FrameInfo> cacheInstances = new THashMap<>();
   private final int UNKNOWN_LINE = -1;
 
+  private final long memoryBudget;
+  private final TLongObjectHashMap<Entry> frames = new TLongObjectHashMap<>();
+  // instances of named frames shared by entries of different frame strings
+  private final Map<FrameInfo, NamedFrame> namedFrames = new THashMap<>();
+  // most recently used first
+  private Entry head;
+  private Entry tail;
+  private long bytesHeld;
+
+  private long hits;
+  private long misses;
+  private long evicted;
+
+  public FrameInfoBuilder() {
+    this(DEFAULT_MEMORY_BUDGET);
+  }
+
+  public FrameInfoBuilder(long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+  }
+
   FrameInfo[] buildInstances(String[] frames) {
     FrameInfo[] result = new FrameInfo[frames.length];
     for (int i = 0; i < frames.length; ++i) {
@@ -24,26 +67,205 @@ public class FrameInfoBuilder {
   }
 
   public FrameInfo buildInstance(String data) {
-    FrameInfo result = cache.get(data);
-    if (result == null) {
-      result = createInstance(data);
-      FrameInfo cashedInstance = cacheInstances.get(result);
-      //do NOT put anonymous in cache
-      if (!result.isAnonymous() && cashedInstance != null) {
-        int fileLine = Math.min(cashedInstance.getFileLine(), result.getFileLine());
+    // debug info is [path;package path;file:line]
+    int lineStart = -1;
+    int lineEnd = -1;
+    final int i = data.indexOf('[');
+    final int i2 = data.indexOf(']', i);
+    if (i != -1 && i2 != -1 && !data.startsWith(ANONYMOUS_PREFIX)) {
+      final int i3 = data.indexOf(';', i);
+      final int i4 = i3 == -1 || i3 > i2 ? -1 : data.indexOf(';', i3 + 1);
+      final int colon = i4 == -1 || i4 > i2 ? -1 : data.indexOf(':', i4 + 1);
+      if (colon != -1 && colon < i2) {
+        lineStart = colon;
+        lineEnd = i2;
+      }
+    }
+
+    final long key = hash(data, lineStart, lineEnd);
+    final int length = lineStart == -1 ? data.length() : data.length() - (lineEnd - lineStart);
+    final int checkHash = lineStart == -1 ? checkHash(data, 0, data.length(), 0)
+                                          : checkHash(data, lineEnd, data.length(), checkHash(data, 0, lineStart, 0));
+    Entry entry = frames.get(key);
+    if (entry != null && entry.length == length && entry.checkHash == checkHash) {
+      ++hits;
+      if (lineStart != -1) {
+        int fileLine = Math.min(entry.frameInfo.getFileLine(), parseLine(data, lineStart + 1, lineEnd));
         if (fileLine != -1) {
-          cashedInstance.setFileLine(fileLine);
+          entry.frameInfo.setFileLine(fileLine);
         }
-        result = cashedInstance;
       }
-      else if (!result.isAnonymous()) {
-        cacheInstances.put(result, result);
+      if (entry != head) {
+        unlink(entry);
+        linkFirst(entry);
       }
-      cache.put(data, result);
+      return entry.frameInfo;
+    }
+
+    ++misses;
+    FrameInfo result = createInstance(data);
+    int size = ENTRY_OVERHEAD;
+    if (result.isAnonymous()) {
+      size += estimateSize(result);
+    }
+    else {
+      result = acquireNamedFrame(result);
+    }
+    if (entry != null) {
+      // hash collision, the frame seen more recently wins
+      unlink(entry);
+      release(entry);
+    }
+    entry = new Entry(key, length, checkHash, result, size);
+    frames.put(key, entry);
+    linkFirst(entry);
+    bytesHeld += entry.size;
+    while (bytesHeld > memoryBudget && tail != entry) {
+      final Entry eldest = tail;
+      unlink(eldest);
+      frames.remove(eldest.key);
+      release(eldest);
+      ++evicted;
     }
     return result;
   }
 
+  private FrameInfo acquireNamedFrame(FrameInfo frameInfo) {
+    NamedFrame namedFrame = namedFrames.get(frameInfo);
+    if (namedFrame == null) {
+      namedFrame = new NamedFrame(frameInfo, NAMED_FRAME_OVERHEAD + estimateSize(frameInfo));
+      namedFrames.put(frameInfo, namedFrame);
+      bytesHeld += namedFrame.size;
+    }
+    else {
+      int fileLine = Math.min(namedFrame.frameInfo.getFileLine(), frameInfo.getFileLine());
+      if (fileLine != -1) {
+        namedFrame.frameInfo.setFileLine(fileLine);
+      }
+    }
+    ++namedFrame.entries;
+    return namedFrame.frameInfo;
+  }
+
+  private void release(Entry entry) {
+    bytesHeld -= entry.size;
+    if (!entry.frameInfo.isAnonymous()) {
+      final NamedFrame namedFrame = namedFrames.get(entry.frameInfo);
+      if (--namedFrame.entries == 0) {
+        namedFrames.remove(entry.frameInfo);
+        bytesHeld -= namedFrame.size;
+      }
+    }
+  }
+
+  /**
+   * @return 64-bit FNV-1a hash of the frame string without the line, if it is given
+   */
+  long hash(String data, int lineStart, int lineEnd) {
+    return lineStart == -1 ? hash(data, 0, data.length(), FNV_OFFSET_BASIS)
+                           : hash(data, lineEnd, data.length(), hash(data, 0, lineStart, FNV_OFFSET_BASIS));
+  }
+
+  private static long hash(String s, int start, int end, long hash) {
+    for (int i = start; i < end; i++) {
+      final char c = s.charAt(i);
+      hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+      hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  private static int checkHash(String s, int start, int end, int hash) {
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + s.charAt(i);
+    }
+    return hash;
+  }
+
+  private int parseLine(String s, int start, int end) {
+    int line = 0;
+    for (int i = start; i < end; i++) {
+      final char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return UNKNOWN_LINE;
+      }
+      line = line * 10 + (c - '0');
+    }
+    return line;
+  }
+
+  private static int estimateSize(FrameInfo frameInfo) {
+    return FRAME_INFO_OVERHEAD + sizeOf(frameInfo.getFileDirectory()) + sizeOf(frameInfo.getFileName()) +
+           sizeOf(frameInfo.getPackageName()) + sizeOf(frameInfo.getQName()) + sizeOf(frameInfo.getMethodName()) +
+           sizeOf(frameInfo.getNamespace());
+  }
+
+  private static int sizeOf(@Nullable String s) {
+    return s == null ? 0 : STRING_OVERHEAD + s.length() * 2;
+  }
+
+  private void linkFirst(Entry entry) {
+    entry.previous = null;
+    entry.next = head;
+    if (head == null) {
+      tail = entry;
+    }
+    else {
+      head.previous = entry;
+    }
+    head = entry;
+  }
+
+  private void unlink(Entry entry) {
+    if (entry.previous == null) {
+      head = entry.next;
+    }
+    else {
+      entry.previous.next = entry.next;
+    }
+    if (entry.next == null) {
+      tail = entry.previous;
+    }
+    else {
+      entry.next.previous = entry.previous;
+    }
+    entry.previous = null;
+    entry.next = null;
+  }
+
+  public int getDistinctFrames() {
+    return frames.size();
+  }
+
+  public long getBytesHeld() {
+    return bytesHeld;
+  }
+
+  public long getEvictedFrames() {
+    return evicted;
+  }
+
+  public double getHitRate() {
+    final long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double)hits / lookups;
+  }
+
+  public String getStatistics() {
+    return "distinct frames: " + getDistinctFrames() + ", hit rate: " + String.format("%.3f", getHitRate()) +
+           ", bytes held: " + bytesHeld + " of " + memoryBudget + ", evicted: " + evicted;
+  }
+
+  public static FrameInfo createInstance(@Nullable String fileDirectory,
+                                         @Nullable String fileName,
+                                         int fileLine,
+                                         @Nullable String packageName,
+                                         String qName,
+                                         @Nullable String methodName,
+                                         @Nullable JSFunction.FunctionKind kind,
+                                         @Nullable String namespace) {
+    return new FrameInfo(fileDirectory, fileName, fileLine, packageName, qName, methodName, kind, namespace);
+  }
+
   public FrameInfo createInstance(final String data) {
     int line = UNKNOWN_LINE;
     String dir = null;
@@ -140,4 +362,36 @@ public class FrameInfoBuilder {
     }
     return new FrameInfo(dir, filename, line, packageName, qName, methodName, kind, namespace);
   }
+
+  private static final class NamedFrame {
+    final FrameInfo frameInfo;
+    final int size;
+    // entries of frame strings that map to this frame
+    int entries;
+
+    NamedFrame(FrameInfo frameInfo, int size) {
+      this.frameInfo = frameInfo;
+      this.size = size;
+    }
+  }
+
+  private static final class Entry {
+    final long key;
+    // normalized frame string length and hash, to detect collisions of the key
+    final int length;
+    final int checkHash;
+    final FrameInfo frameInfo;
+    final int size;
+
+    Entry previous;
+    Entry next;
+
+    Entry(long key, int length, int checkHash, FrameInfo frameInfo, int size) {
+      this.key = key;
+      this.length = length;
+      this.checkHash = checkHash;
+      this.frameInfo = frameInfo;
+      this.size = size;
+    }
+  }
 }
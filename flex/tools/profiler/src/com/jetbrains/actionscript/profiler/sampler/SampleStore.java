@@ -0,0 +1,185 @@
+package com.jetbrains.actionscript.profiler.sampler;
+
+import com.intellij.openapi.vfs.CharsetToolkit;
+
+import java.util.Arrays;
+
+/**
+ * CPU samples received from the agent in the interned frames mode. Stacks of all samples are kept as frame ids in one int array,
+ * innermost frame first, and timestamps in a long array; frame string is parsed into {@link FrameInfo} once, when the agent
+ * defines its id. Filled and read on the profiling connection thread.
+ */
+public class SampleStore {
+  private final FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
+  private FrameInfo[] frameInfos = new FrameInfo[1024];
+
+  private int sampleCount;
+  private int[] stackOffsets = new int[1024 + 1];
+  private long[] timestamps = new long[1024];
+  private int[] stackFrames = new int[16 * 1024];
+  private long time;
+
+  private long ingestedSamples;
+  private long ingestedFrames;
+  private long ingestedBytes;
+  private long ingestionNanos;
+  private int definedFrames;
+
+  /**
+   * Appends samples of a block sent by the agent. Each sample in the block is
+   * <pre>
+   * int duration, int frame count, int count of outer frames shared with the previous sample,
+   * int id for each frame not shared with the previous sample, innermost first
+   * </pre>
+   * Negative id is a first use of the frame, the frame string written as UTF follows it.
+   */
+  public void addSamples(final byte[] block, final int length, final int count) {
+    final long start = System.nanoTime();
+    ensureSampleCapacity(sampleCount + count);
+
+    int offset = 0;
+    for (int n = 0; n < count; ++n) {
+      final int duration = readInt(block, offset);
+      final int frameCount = readInt(block, offset + 4);
+      final int matchedCount = readInt(block, offset + 8);
+      offset += 12;
+
+      final int stackStart = stackOffsets[sampleCount];
+      final int previousDepth = sampleCount > 0 ? stackStart - stackOffsets[sampleCount - 1] : 0;
+      if (frameCount < matchedCount || matchedCount > previousDepth) {
+        throw new IllegalArgumentException("Unexpected sample: " + frameCount + " frames, " + matchedCount + " of them shared");
+      }
+      ensureStackCapacity(stackStart + frameCount);
+
+      int stackEnd = stackStart;
+      for (int i = matchedCount; i < frameCount; ++i) {
+        int id = readInt(block, offset);
+        offset += 4;
+        if (id < 0) {
+          id = -id;
+          final int utfLength = ((block[offset] & 0xFF) << 8) | (block[offset + 1] & 0xFF);
+          defineFrame(id, new String(block, offset + 2, utfLength, CharsetToolkit.UTF8_CHARSET));
+          offset += 2 + utfLength;
+        }
+        stackFrames[stackEnd++] = id;
+      }
+      System.arraycopy(stackFrames, stackStart - matchedCount, stackFrames, stackEnd, matchedCount);
+      stackEnd += matchedCount;
+
+      time += duration;
+      timestamps[sampleCount] = time;
+      stackOffsets[++sampleCount] = stackEnd;
+      ingestedFrames += frameCount;
+    }
+
+    if (offset != length) {
+      throw new IllegalArgumentException("Unexpected sample block length: " + length + ", read " + offset);
+    }
+    ingestedSamples += count;
+    ingestedBytes += length;
+    ingestionNanos += System.nanoTime() - start;
+  }
+
+  private void defineFrame(final int id, final String frame) {
+    if (id >= frameInfos.length) {
+      frameInfos = Arrays.copyOf(frameInfos, Math.max(id + 1, frameInfos.length * 2));
+    }
+    frameInfos[id] = frameInfoBuilder.buildInstance(frame);
+    ++definedFrames;
+  }
+
+  private void ensureSampleCapacity(final int capacity) {
+    if (capacity > timestamps.length) {
+      final int newLength = Math.max(capacity, timestamps.length * 2);
+      timestamps = Arrays.copyOf(timestamps, newLength);
+      stackOffsets = Arrays.copyOf(stackOffsets, newLength + 1);
+    }
+  }
+
+  private void ensureStackCapacity(final int capacity) {
+    if (capacity > stackFrames.length) {
+      stackFrames = Arrays.copyOf(stackFrames, Math.max(capacity, stackFrames.length * 2));
+    }
+  }
+
+  private static int readInt(final byte[] bytes, final int offset) {
+    return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+  }
+
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * @return time of the sample since the start of profiling, in microseconds
+   */
+  public long getTimestamp(final int sample) {
+    return timestamps[sample];
+  }
+
+  public long getDuration(final int sample) {
+    return sample > 0 ? timestamps[sample] - timestamps[sample - 1] : timestamps[sample];
+  }
+
+  public int getStackDepth(final int sample) {
+    return stackOffsets[sample + 1] - stackOffsets[sample];
+  }
+
+  /**
+   * @param depth 0 for the innermost frame
+   */
+  public int getFrameId(final int sample, final int depth) {
+    return stackFrames[stackOffsets[sample] + depth];
+  }
+
+  public FrameInfo getFrameInfo(final int sample, final int depth) {
+    return frameInfos[getFrameId(sample, depth)];
+  }
+
+  public FrameInfo getFrameInfoById(final int id) {
+    return frameInfos[id];
+  }
+
+  public FrameInfo[] getFrames(final int sample) {
+    final int depth = getStackDepth(sample);
+    if (depth == 0) return FrameInfo.EMPTY_FRAME_INFO_ARRAY;
+    final FrameInfo[] frames = new FrameInfo[depth];
+    for (int i = 0; i < depth; ++i) {
+      frames[i] = getFrameInfo(sample, i);
+    }
+    return frames;
+  }
+
+  /**
+   * Drops received samples, frame ids stay valid for the rest of the profiling session. Agent doesn't share frames between
+   * samples sent before and after profiling is restarted, so this is done when the start of profiling is confirmed.
+   */
+  public void clearSamples() {
+    sampleCount = 0;
+    time = 0;
+  }
+
+  public void clear() {
+    Arrays.fill(frameInfos, null);
+    clearSamples();
+    ingestedSamples = 0;
+    ingestedFrames = 0;
+    ingestedBytes = 0;
+    ingestionNanos = 0;
+    definedFrames = 0;
+  }
+
+  public String getStatistics() {
+    final long samplesPerSecond = ingestionNanos > 0 ? ingestedSamples * 1000000000L / ingestionNanos : 0;
+    return "samples: " + ingestedSamples + ", frames: " + ingestedFrames + " (" + definedFrames + " distinct)" +
+           ", bytes: " + ingestedBytes + ", samples/s: " + samplesPerSecond + "; " + frameInfoBuilder.getStatistics();
+  }
+
+  public long getIngestedSamples() {
+    return ingestedSamples;
+  }
+
+  public int getDefinedFrames() {
+    return definedFrames;
+  }
+}
@@ -5,8 +5,11 @@ import com.intellij.notification.NotificationType;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.ui.ColoredTreeCellRenderer;
 import com.intellij.ui.PopupHandler;
 import com.intellij.util.Alarm;
@@ -14,6 +17,9 @@ import com.intellij.util.EditSourceOnDoubleClickHandler;
 import com.jetbrains.actionscript.profiler.ProfilerBundle;
 import com.jetbrains.actionscript.profiler.base.NavigatableTree;
 import com.jetbrains.actionscript.profiler.base.ProfilerActionGroup;
+import com.jetbrains.actionscript.profiler.calltree.CallTree;
+import com.jetbrains.actionscript.profiler.calltree.CpuSnapshotFormat;
+import com.jetbrains.actionscript.profiler.file.CpuSnapshotFileType;
 import com.jetbrains.actionscript.profiler.livetable.LiveModelController;
 import com.jetbrains.actionscript.profiler.model.ActionScriptProfileSettings;
 import com.jetbrains.actionscript.profiler.model.ProfilerDataConsumer;
@@ -27,6 +33,7 @@ import javax.swing.*;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.MutableTreeNode;
+import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 
@@ -45,7 +52,9 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
   private final String runConfigurationName;
 
   private final Alarm myAlarm = new Alarm();
+  private static final Logger LOG = Logger.getInstance(ActionScriptProfileControlPanel.class.getName());
   private static final int MINUTE = 60 * 1000;
+  private static final String SNAPSHOTS_DIR = "actionscript-profiler";
 
   public ActionScriptProfileControlPanel(String runConfigurationName, final Module module) {
     this.runConfigurationName = runConfigurationName;
@@ -98,14 +107,28 @@ public class ActionScriptProfileControlPanel implements ProfilerActionGroup, Dis
   }
 
   private void doCPUSnapshot() {
-    final CPUSnapshotNode newNode =
-      new CPUSnapshotNode(runConfigurationName, module, new Date(), profilerDataConsumer.getProfileData().getCallTree());
+    final CallTree callTree = profilerDataConsumer.getProfileData().getCallTree();
+    final CPUSnapshotNode newNode = new CPUSnapshotNode(runConfigurationName, module, new Date(), writeCPUSnapshot(callTree), callTree);
     ApplicationManager.getApplication().invokeLater(() -> {
       final MutableTreeNode root = (MutableTreeNode)treeModel.getRoot();
       treeModel.insertNodeInto(newNode, root, root.getChildCount());
     });
   }
 
+  @Nullable
+  private static File writeCPUSnapshot(CallTree callTree) {
+    try {
+      final File dir = new File(PathManager.getSystemPath(), SNAPSHOTS_DIR);
+      final File file = FileUtil.createTempFile(dir, "cpu", "." + CpuSnapshotFileType.DEFAULT_EXTENSION, true, true);
+      CpuSnapshotFormat.write(callTree, file);
+      return file;
+    }
+    catch (IOException e) {
+      LOG.warn("CPU snapshot is kept in memory", e);
+      return null;
+    }
+  }
+
   public void startProfiling() {
     if (profilingManager != null) {
       profilingManager.dispose();
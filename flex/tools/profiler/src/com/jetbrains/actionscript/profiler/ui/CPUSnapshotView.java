@@ -4,8 +4,10 @@ import com.intellij.ide.util.scopeChooser.ScopeChooserCombo;
 import com.intellij.ide.util.scopeChooser.ScopeDescriptor;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.ActionPlaces;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.SearchScope;
@@ -18,6 +20,7 @@ import com.intellij.util.Function;
 import com.intellij.util.ui.tree.TreeUtil;
 import com.jetbrains.actionscript.profiler.calltree.CallTree;
 import com.jetbrains.actionscript.profiler.calltree.CallTreeUtil;
+import com.jetbrains.actionscript.profiler.calltree.CpuSnapshotFormat;
 import com.jetbrains.actionscript.profiler.calltreetable.CallTreeTable;
 import com.jetbrains.actionscript.profiler.calltreetable.MergedCallNode;
 import com.jetbrains.actionscript.profiler.model.ProfileData;
@@ -43,6 +46,8 @@ import javax.swing.tree.MutableTreeNode;
 import javax.swing.tree.TreeNode;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +56,7 @@ import java.util.Map;
  * @author: Fedor.Korotkov
  */
 public class CPUSnapshotView extends ProfileView implements Disposable {
+  private static final Logger LOG = Logger.getInstance(CPUSnapshotView.class.getName());
   private static final int MS_COLUMN_WIDTH = 140;
 
   private JCheckBox myFilterSystemStuff;
@@ -78,11 +84,28 @@ public class CPUSnapshotView extends ProfileView implements Disposable {
   public CPUSnapshotView(VirtualFile file, Project project) {
     super(file, project);
     projectScope = GlobalSearchScope.projectScope(project);
-    rawCallTree = file.getUserData(ProfileData.CALL_TREE_KEY);
+    final CallTree callTree = file.getUserData(ProfileData.CALL_TREE_KEY);
+    if (callTree != null) {
+      rawCallTree = callTree;
+    }
+    else {
+      final File snapshotFile = file.getUserData(ProfileData.CPU_SNAPSHOT_FILE_KEY);
+      rawCallTree = loadCallTree(snapshotFile != null ? snapshotFile : VfsUtilCore.virtualToIoFile(file));
+    }
     setupUI();
     buildPerformanceSamples(myHotSpotsTreeTable.getSortableTreeTableModel());
   }
 
+  private static CallTree loadCallTree(File file) {
+    try {
+      return CpuSnapshotFormat.read(file);
+    }
+    catch (IOException e) {
+      LOG.warn("Can't read CPU snapshot " + file.getPath(), e);
+      return new CallTree();
+    }
+  }
+
   @Nullable
   private GlobalSearchScope getCurrentScope() {
     final SearchScope _selectedScope = filterScope.getSelectedScope();
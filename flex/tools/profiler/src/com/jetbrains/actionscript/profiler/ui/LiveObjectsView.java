@@ -77,13 +77,18 @@ public class LiveObjectsView extends ProfileView implements Disposable {
         if (!liveUpdatesCheckBox.isSelected() || DumbServiceImpl.getInstance(getProject()).isDumb()) {
           return;
         }
-        final List<TreePath> paths = TreeUtil.collectExpandedPaths(liveObjectsTreeTable.getTree());
-        final TreePath selectionPath = liveObjectsTreeTable.getTree().getSelectionPath();
         controller.updateScope(getCurrentScope());
-        controller.apply(liveObjectsTreeTable.getSortableTreeTableModel());
-        liveObjectsTreeTable.reload();
-        TreeUtil.restoreExpandedPaths(liveObjectsTreeTable.getTree(), paths);
-        liveObjectsTreeTable.getTree().setSelectionPath(selectionPath);
+        if (controller.apply(liveObjectsTreeTable.getSortableTreeTableModel())) {
+          final List<TreePath> paths = TreeUtil.collectExpandedPaths(liveObjectsTreeTable.getTree());
+          final TreePath selectionPath = liveObjectsTreeTable.getTree().getSelectionPath();
+          liveObjectsTreeTable.reload();
+          TreeUtil.restoreExpandedPaths(liveObjectsTreeTable.getTree(), paths);
+          liveObjectsTreeTable.getTree().setSelectionPath(selectionPath);
+        }
+        else {
+          // only sizes and counts changed, visible rows are painted with the new values
+          liveObjectsTreeTable.repaint();
+        }
 
         myAllocatedMemory.setText(ProfilerBundle.message("allocated.memory.size", controller.getAllocatedMemorySize()));
       }
@@ -10,8 +10,10 @@ import com.jetbrains.actionscript.profiler.calltree.CallTree;
 import com.jetbrains.actionscript.profiler.file.CpuSnapshotFileType;
 import com.jetbrains.actionscript.profiler.model.ProfileData;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.tree.DefaultMutableTreeNode;
+import java.io.File;
 import java.text.DateFormat;
 import java.util.Date;
 
@@ -22,16 +24,22 @@ public class CPUSnapshotNode extends DefaultMutableTreeNode implements Navigatab
   private final String runConfigurationName;
   private final Module module;
   private final Date date;
-  private final CallTree callTree;
+  @Nullable private final File snapshotFile;
+  @Nullable private final CallTree callTree;
 
   private Navigatable navigatableCache;
 
 
-  public CPUSnapshotNode(String name, Module module, Date date, CallTree tree) {
+  /**
+   * @param snapshotFile file written by {@link com.jetbrains.actionscript.profiler.calltree.CpuSnapshotFormat}, the call tree is kept in
+   *                     memory only if it couldn't be written
+   */
+  public CPUSnapshotNode(String name, Module module, Date date, @Nullable File snapshotFile, @Nullable CallTree tree) {
     this.runConfigurationName = name;
     this.module = module;
     this.date = date;
-    this.callTree = tree;
+    this.snapshotFile = snapshotFile;
+    this.callTree = snapshotFile == null ? tree : null;
     setUserObject(getTitle());
   }
 
@@ -51,7 +59,12 @@ public class CPUSnapshotNode extends DefaultMutableTreeNode implements Navigatab
           return getName();
         }
       };
-      virtualFile.putUserData(ProfileData.CALL_TREE_KEY, callTree);
+      if (snapshotFile != null) {
+        virtualFile.putUserData(ProfileData.CPU_SNAPSHOT_FILE_KEY, snapshotFile);
+      }
+      else {
+        virtualFile.putUserData(ProfileData.CALL_TREE_KEY, callTree);
+      }
       navigatableCache = new OpenFileDescriptor(module.getProject(), virtualFile);
     }
     return navigatableCache;
@@ -0,0 +1,112 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class CallTreeIndexTest extends TestCase {
+  private static final int FRAME_COUNT = 300;
+  private static final int SAMPLE_COUNT = 100000;
+  private static final int MAX_DEPTH = 300;
+  private static final int QUERY_COUNT = 200;
+
+  private static FrameInfo[] createFrames() {
+    final String[] names = new String[FRAME_COUNT];
+    for (int i = 0; i < FRAME_COUNT; i++) {
+      names[i] = "com.example.pkg" + i % 10 + "::Class" + i / 10 + "/method" + i + "()";
+    }
+    return FrameUtil.getInstances(names);
+  }
+
+  /**
+   * Samples of a random walk over the stack: every sample pops and pushes a few frames, so the tree is deep, recursive and wide
+   */
+  private static CallTree createDeepCallTree(final FrameInfo[] frames, final Random random) {
+    final CallTree callTree = new CallTree();
+    final List<FrameInfo> stack = new ArrayList<>();
+    long totalTime = 0;
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      for (int pop = random.nextInt(4); pop > 0 && stack.size() > 1; pop--) {
+        stack.remove(stack.size() - 1);
+      }
+      for (int push = stack.size() < MAX_DEPTH ? random.nextInt(4) + 1 : 0; push > 0; push--) {
+        stack.add(frames[random.nextInt(frames.length)]);
+      }
+      final FrameInfo[] sample = new FrameInfo[stack.size()];
+      for (int j = 0; j < sample.length; j++) {
+        sample[j] = stack.get(stack.size() - 1 - j);
+      }
+      final int duration = random.nextInt(100) + 1;
+      callTree.addFrames(sample, duration);
+      totalTime += duration;
+    }
+    assertEquals(totalTime, sum(callTree.getTimeMaps().second));
+    return callTree;
+  }
+
+  private static long sum(final Map<FrameInfo, Long> map) {
+    long result = 0;
+    for (Long value : map.values()) {
+      result += value;
+    }
+    return result;
+  }
+
+  public void testRecursion() {
+    final FrameInfo[] frames = FrameUtil.getInstances(new String[]{"foo", "bar", "baz"});
+    final FrameInfo foo = frames[0];
+    final FrameInfo bar = frames[1];
+    final FrameInfo baz = frames[2];
+    final CallTree callTree = new CallTree();
+    callTree.addFrames(new FrameInfo[]{baz, bar, foo}, 3);
+    callTree.addFrames(new FrameInfo[]{baz, foo, bar, foo}, 5);
+    callTree.addFrames(new FrameInfo[]{bar, foo}, 7);
+
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = callTree.getTimeMaps();
+    assertEquals(Long.valueOf(15), timeMaps.first.get(foo));
+    assertEquals(Long.valueOf(15), timeMaps.first.get(bar));
+    assertEquals(Long.valueOf(0), timeMaps.second.get(foo));
+    assertEquals(Long.valueOf(7), timeMaps.second.get(bar));
+    assertEquals(Long.valueOf(8), timeMaps.second.get(baz));
+
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> callers = callTree.getCallersTimeMaps(new FrameInfo[]{baz});
+    assertEquals(2, callers.first.size());
+    assertEquals(Long.valueOf(15), callers.first.get(bar));
+    assertEquals(Long.valueOf(5), callers.first.get(foo));
+
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> callees = callTree.getCalleesTimeMaps(new FrameInfo[]{foo, bar});
+    assertEquals(1, callees.first.size());
+    assertEquals(Long.valueOf(5), callees.first.get(baz));
+    assertEquals(Long.valueOf(5), callees.second.get(baz));
+  }
+
+  public void testDeepCallTreePerformance() {
+    final FrameInfo[] frames = createFrames();
+    final Random random = new Random(42);
+    final CallTree callTree = createDeepCallTree(frames, random);
+    final int nodeCount = callTree.getIndex().getNodeCount();
+    assertTrue(String.valueOf(nodeCount), nodeCount > 100000);
+
+    final FrameInfo[][] queries = new FrameInfo[QUERY_COUNT][];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      queries[i] = new FrameInfo[i % 3 + 1];
+      for (int j = 0; j < queries[i].length; j++) {
+        queries[i][j] = frames[random.nextInt(frames.length)];
+      }
+    }
+
+    PlatformTestUtil.startPerformanceTest("Callers and callees of frames in a deep call tree", 3000, () -> {
+      for (FrameInfo[] query : queries) {
+        callTree.getCallersTimeMaps(query);
+        callTree.getCalleesTimeMaps(query);
+      }
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,202 @@
+package com.jetbrains.actionscript.profiler.calltree;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import gnu.trove.TIntArrayList;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class CpuSnapshotFormatTest extends TestCase {
+  private static final int FRAME_COUNT = 300;
+  private static final int SAMPLE_COUNT = 10000000;
+  private static final int NODE_COUNT = 500000;
+  private static final int MAX_DEPTH = 200;
+  private static final int OPEN_COUNT = 10;
+
+  private File myFile;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myFile = FileUtil.createTempFile("cpu", ".cpu.snapshot", true);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myFile);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  /**
+   * Every tenth frame is a system one, like <code>[enterFrameEvent]()</code>
+   */
+  private static FrameInfo[] createFrames() {
+    final String[] names = new String[FRAME_COUNT];
+    for (int i = 0; i < FRAME_COUNT; i++) {
+      names[i] = i % 10 == 0 ? "[system" + i + "]()" : "com.example.pkg" + i % 7 + "::Class" + i / 10 + "/method" + i + "()";
+    }
+    return FrameUtil.getInstances(names);
+  }
+
+  private static CallTree createCallTree(final FrameInfo[] frames, final Random random, final int sampleCount) {
+    final CallTree callTree = new CallTree();
+    final List<FrameInfo> stack = new ArrayList<>();
+    for (int i = 0; i < sampleCount; i++) {
+      for (int pop = random.nextInt(4); pop > 0 && stack.size() > 1; pop--) {
+        stack.remove(stack.size() - 1);
+      }
+      for (int push = stack.size() < 50 ? random.nextInt(4) + 1 : 0; push > 0; push--) {
+        stack.add(frames[random.nextInt(frames.length)]);
+      }
+      final FrameInfo[] sample = new FrameInfo[stack.size()];
+      for (int j = 0; j < sample.length; j++) {
+        sample[j] = stack.get(stack.size() - 1 - j);
+      }
+      callTree.addFrames(sample, random.nextInt(100) + 1);
+    }
+    return callTree;
+  }
+
+  /**
+   * Depth-first walk over a tree of {@link #NODE_COUNT} nodes with {@link #SAMPLE_COUNT} samples in total, each sample is a microsecond
+   */
+  private static CallTree createLargeCallTree(final FrameInfo[] frames, final Random random) {
+    final int[] frameIdOfNode = new int[NODE_COUNT];
+    final int[] parents = new int[NODE_COUNT];
+    final long[] cumulativeTimes = new long[NODE_COUNT];
+    final TIntArrayList path = new TIntArrayList();
+    frameIdOfNode[0] = -1;
+    parents[0] = -1;
+    path.add(0);
+    long samples = 0;
+    for (int i = 1; i < NODE_COUNT; i++) {
+      for (int pop = random.nextInt(3); pop > 0 && path.size() > 1; pop--) {
+        path.remove(path.size() - 1);
+      }
+      parents[i] = path.get(path.size() - 1);
+      frameIdOfNode[i] = random.nextInt(frames.length);
+      cumulativeTimes[i] = i < NODE_COUNT - 1 ? random.nextInt(2 * SAMPLE_COUNT / NODE_COUNT) : SAMPLE_COUNT - samples;
+      samples += cumulativeTimes[i];
+      if (path.size() < MAX_DEPTH) path.add(i);
+    }
+    for (int i = NODE_COUNT - 1; i > 1; i--) {
+      if (parents[i] > 0) cumulativeTimes[parents[i]] += cumulativeTimes[i];
+    }
+    return new CallTree(new CallTreeIndex(frames, frameIdOfNode, parents, cumulativeTimes), null);
+  }
+
+  private static void assertSameTimes(final CallTree expected, final CallTree actual, final FrameInfo[][] queries) {
+    assertEquals(expected.getTimeMaps(), actual.getTimeMaps());
+    for (FrameInfo[] query : queries) {
+      assertEquals(expected.getCallersTimeMaps(query), actual.getCallersTimeMaps(query));
+      assertEquals(expected.getCalleesTimeMaps(query), actual.getCalleesTimeMaps(query));
+    }
+  }
+
+  private static FrameInfo[][] createQueries(final FrameInfo[] frames, final Random random, final int count) {
+    final FrameInfo[][] queries = new FrameInfo[count][];
+    for (int i = 0; i < count; i++) {
+      queries[i] = new FrameInfo[i % 3 + 1];
+      for (int j = 0; j < queries[i].length; j++) {
+        queries[i][j] = frames[random.nextInt(frames.length)];
+      }
+    }
+    return queries;
+  }
+
+  private static long sum(final Map<FrameInfo, Long> map) {
+    long result = 0;
+    for (Long value : map.values()) {
+      result += value;
+    }
+    return result;
+  }
+
+  public void testSystemFramesFilter() {
+    final FrameInfo[] frames = FrameUtil.getInstances(new String[]{"foo", "bar", "[enterFrameEvent]()", "[mark]()"});
+    final FrameInfo foo = frames[0];
+    final FrameInfo bar = frames[1];
+    final FrameInfo enterFrame = frames[2];
+    final FrameInfo mark = frames[3];
+    assertTrue(enterFrame.isSystem());
+    final CallTree callTree = new CallTree();
+    callTree.addFrames(new FrameInfo[]{bar, foo, enterFrame}, 3);
+    callTree.addFrames(new FrameInfo[]{bar, mark, foo, enterFrame}, 5);
+    callTree.addFrames(new FrameInfo[]{foo, mark, enterFrame}, 7);
+    callTree.addFrames(new FrameInfo[]{mark}, 11);
+
+    final CallTree filtered = CallTreeUtil.filterSystemStuff(callTree);
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> timeMaps = filtered.getTimeMaps();
+    assertEquals(2, timeMaps.first.size());
+    assertEquals(Long.valueOf(15), timeMaps.first.get(foo));
+    assertEquals(Long.valueOf(8), timeMaps.first.get(bar));
+    assertEquals(Long.valueOf(7), timeMaps.second.get(foo));
+    assertEquals(Long.valueOf(8), timeMaps.second.get(bar));
+    assertEquals(Long.valueOf(8), filtered.getCalleesTimeMaps(new FrameInfo[]{foo}).first.get(bar));
+    assertSame(filtered, CallTreeUtil.filterSystemStuff(callTree));
+  }
+
+  public void testRoundTrip() throws Exception {
+    final FrameInfo[] frames = createFrames();
+    final Random random = new Random(42);
+    final CallTree callTree = createCallTree(frames, random, 20000);
+    final FrameInfo[][] queries = createQueries(frames, random, 100);
+
+    CpuSnapshotFormat.write(callTree, myFile);
+    final CallTree loaded = CpuSnapshotFormat.read(myFile);
+    assertEquals(callTree.getIndex().getNodeCount(), loaded.getIndex().getNodeCount());
+    assertSameTimes(callTree, loaded, queries);
+    assertSameTimes(CallTreeUtil.filterSystemStuff(callTree), CallTreeUtil.filterSystemStuff(loaded), queries);
+
+    final FrameInfo[] sample = {frames[1], frames[2], frames[3]};
+    callTree.addFrames(sample, 1000);
+    loaded.addFrames(sample, 1000);
+    assertSameTimes(callTree, loaded, queries);
+    assertSameTimes(CallTreeUtil.filterSystemStuff(callTree), CallTreeUtil.filterSystemStuff(loaded), queries);
+  }
+
+  public void testFileIsNotKeptOpen() throws Exception {
+    final FrameInfo[] frames = createFrames();
+    final CallTree callTree = createCallTree(frames, new Random(42), 1000);
+    CpuSnapshotFormat.write(callTree, myFile);
+
+    final CallTree loaded = CpuSnapshotFormat.read(myFile);
+    assertTrue(FileUtil.delete(myFile));
+    assertEquals(callTree.getTimeMaps(), loaded.getTimeMaps());
+    assertEquals(CallTreeUtil.filterSystemStuff(callTree).getTimeMaps(), CallTreeUtil.filterSystemStuff(loaded).getTimeMaps());
+  }
+
+  public void testOpenLargeSnapshotPerformance() throws Exception {
+    final FrameInfo[] frames = createFrames();
+    final Random random = new Random(42);
+    final CallTree callTree = createLargeCallTree(frames, random);
+    assertEquals(SAMPLE_COUNT, sum(callTree.getTimeMaps().second));
+    CpuSnapshotFormat.write(callTree, myFile);
+
+    final FrameInfo[][] queries = createQueries(frames, random, 3);
+    final CallTree loaded = CpuSnapshotFormat.read(myFile);
+    assertEquals(SAMPLE_COUNT, sum(loaded.getTimeMaps().second));
+    assertEquals(callTree.getSystemStuffFiltered().getTimeMaps(), CallTreeUtil.filterSystemStuff(loaded).getTimeMaps());
+    for (FrameInfo[] query : queries) {
+      assertEquals(callTree.getCallersTimeMaps(query), loaded.getCallersTimeMaps(query));
+    }
+
+    PlatformTestUtil.startPerformanceTest("Open of a CPU snapshot with 10M samples", 2000, () -> {
+      for (int i = 0; i < OPEN_COUNT; i++) {
+        CallTreeUtil.filterSystemStuff(CpuSnapshotFormat.read(myFile)).getTimeMaps();
+      }
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,144 @@
+package com.jetbrains.actionscript.profiler.livetable;
+
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.ui.ColumnInfo;
+import com.jetbrains.actionscript.profiler.base.SortableListTreeTableModel;
+import com.jetbrains.actionscript.profiler.sampler.CreateObjectSample;
+import com.jetbrains.actionscript.profiler.sampler.DeleteObjectSample;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.FrameUtil;
+import com.jetbrains.actionscript.profiler.sampler.Sample;
+import junit.framework.TestCase;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.util.*;
+
+public class LiveModelControllerTest extends TestCase {
+  private static final int CLASS_COUNT = 2000;
+  private static final int FRAME_COUNT = 500;
+  private static final int SAMPLE_COUNT = 100000;
+  private static final int STACK_COUNT = 4000;
+  private static final int BATCH_SIZE = 5000;
+
+  private static SortableListTreeTableModel createModel() {
+    return new SortableListTreeTableModel(new DefaultMutableTreeNode(), new ColumnInfo[0]);
+  }
+
+  private static SizeInfoNode findChild(TreeNode node, String name) {
+    for (int i = 0; i < node.getChildCount(); ++i) {
+      final SizeInfoNode child = (SizeInfoNode)node.getChildAt(i);
+      if (name.equals(child.getMatchName())) return child;
+    }
+    return null;
+  }
+
+  public void testApply() {
+    final FrameInfo[] frames = FrameUtil.getInstances(new String[]{"com.a::A/a()", "com.b::B/b()", "com.c::C/c()"});
+    final FrameInfo a = frames[0];
+    final FrameInfo b = frames[1];
+    final FrameInfo c = frames[2];
+    final SortableListTreeTableModel model = createModel();
+    final TreeNode root = (TreeNode)model.getRoot();
+    final LiveModelController controller = new LiveModelController();
+
+    controller.processCreateSample(new CreateObjectSample(0, new FrameInfo[]{a, b}, 1, "com.Foo", 10));
+    controller.processCreateSample(new CreateObjectSample(0, new FrameInfo[]{a, c}, 2, "com.Foo", 20));
+    controller.processCreateSample(new CreateObjectSample(0, new FrameInfo[]{a}, 3, "com.Bar", 30));
+    assertTrue(controller.apply(model));
+    assertEquals(2, root.getChildCount());
+    final SizeInfoNode foo = findChild(root, "com.Foo");
+    assertEquals(2, foo.getCount());
+    assertEquals(30, foo.getSize());
+    final SizeInfoNode fooA = findChild(foo, "com.a.A");
+    assertEquals(2, fooA.getChildCount());
+    assertSame(fooA, foo.findChild("com.a.A"));
+
+    controller.processDeleteSample(new DeleteObjectSample(0, new FrameInfo[]{a, c}, 2, "com.Foo", 20));
+    assertTrue(controller.apply(model));
+    assertEquals(1, foo.getCount());
+    assertEquals(1, fooA.getChildCount());
+    assertNull(fooA.findChild("com.c.C"));
+
+    controller.processCreateSample(new CreateObjectSample(0, new FrameInfo[]{a, b}, 4, "com.Foo", 10));
+    assertFalse(controller.apply(model));
+    assertEquals(2, findChild(fooA, "com.b.B").getCount());
+
+    controller.processDeleteSample(new DeleteObjectSample(0, new FrameInfo[]{a}, 3, "com.Bar", 30));
+    controller.processDeleteSample(new DeleteObjectSample(0, new FrameInfo[]{c}, 5, "com.Baz", 30));
+    assertTrue(controller.apply(model));
+    assertEquals(1, root.getChildCount());
+    assertNull(findChild(root, "com.Bar"));
+
+    // delete of an object which creation isn't applied yet waits for it
+    controller.processCreateSample(new CreateObjectSample(0, new FrameInfo[]{c}, 5, "com.Baz", 30));
+    assertTrue(controller.apply(model));
+    assertEquals(1, findChild(root, "com.Baz").getCount());
+    assertTrue(controller.apply(model));
+    assertNull(findChild(root, "com.Baz"));
+  }
+
+  /**
+   * Samples of an application allocating objects of many classes from deep stacks and releasing most of them
+   */
+  private static List<Sample> createAllocationSamples(final Random random, final Set<String> liveClasses) {
+    final String[] frameNames = new String[FRAME_COUNT];
+    for (int i = 0; i < FRAME_COUNT; i++) {
+      frameNames[i] = "com.example.pkg" + i % 10 + "::Class" + i + "/method()";
+    }
+    final FrameInfo[] frames = FrameUtil.getInstances(frameNames);
+    final FrameInfo[][] stacks = new FrameInfo[STACK_COUNT][];
+    for (int i = 0; i < stacks.length; i++) {
+      stacks[i] = new FrameInfo[10 + random.nextInt(20)];
+      for (int j = 0; j < stacks[i].length; j++) {
+        stacks[i][j] = frames[random.nextInt(frames.length)];
+      }
+    }
+
+    final List<Sample> samples = new ArrayList<>(SAMPLE_COUNT);
+    final List<CreateObjectSample> liveObjects = new ArrayList<>();
+    for (int id = 0; samples.size() < SAMPLE_COUNT; id++) {
+      if (!liveObjects.isEmpty() && random.nextInt(100) < 45) {
+        final CreateObjectSample created = liveObjects.remove(random.nextInt(liveObjects.size()));
+        samples.add(new DeleteObjectSample(0, created.frames, created.id, created.className, created.size));
+      }
+      else {
+        final int stack = random.nextInt(stacks.length);
+        final CreateObjectSample sample =
+          new CreateObjectSample(0, stacks[stack], id, "com.example.Class" + stack % CLASS_COUNT, 16 + random.nextInt(100));
+        liveObjects.add(sample);
+        samples.add(sample);
+      }
+    }
+    for (CreateObjectSample sample : liveObjects) {
+      liveClasses.add(sample.className);
+    }
+    return samples;
+  }
+
+  /**
+   * Budget is about 33000 samples per second, samples are applied in batches like the live objects view does on timer
+   */
+  public void testAllocationReplayPerformance() {
+    final Set<String> liveClasses = new HashSet<>();
+    final List<Sample> samples = createAllocationSamples(new Random(42), liveClasses);
+    PlatformTestUtil.startPerformanceTest("Replay of " + SAMPLE_COUNT + " allocation samples", 3000, () -> {
+      final SortableListTreeTableModel model = createModel();
+      final LiveModelController controller = new LiveModelController();
+      for (int i = 0; i < samples.size(); i++) {
+        final Sample sample = samples.get(i);
+        if (sample instanceof CreateObjectSample) {
+          controller.processCreateSample((CreateObjectSample)sample);
+        }
+        else {
+          controller.processDeleteSample((DeleteObjectSample)sample);
+        }
+        if ((i + 1) % BATCH_SIZE == 0) {
+          controller.apply(model);
+        }
+      }
+      controller.apply(model);
+      assertEquals(liveClasses.size(), ((TreeNode)model.getRoot()).getChildCount());
+    }).cpuBound().assertTiming();
+  }
+}
@@ -0,0 +1,77 @@
+package com.jetbrains.actionscript.profiler.model;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.jetbrains.actionscript.profiler.sampler.FrameInfo;
+import com.jetbrains.actionscript.profiler.sampler.SampleStore;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Replays socket captures of the same CPU sampling session (5000 samples, 265 distinct frames) sent by the agent in the text
+ * and in the interned frames mode
+ */
+public class CpuSamplesReplayTest extends TestCase {
+  private static final int SAMPLE_COUNT = 5000;
+  private static final int REPLAY_COUNT = 20;
+
+  private static byte[] loadCapture(String name) throws IOException {
+    return FileUtil.loadFileBytes(new File(PathManager.getHomePath() + "/contrib/flex/tools/profiler/testdata/capture/" + name));
+  }
+
+  private static ProfilerDataConsumer replay(byte[] capture) throws IOException {
+    final ProfilerDataConsumer consumer = new ProfilerDataConsumer(null);
+    final ProfilingConnection connection = new ProfilingConnection(0, consumer, (data, ex) -> {});
+    try {
+      connection.readPackets(new DataInputStream(new ByteArrayInputStream(capture)));
+      fail("Capture should be read till the end");
+    }
+    catch (EOFException ignored) {
+    }
+    return consumer;
+  }
+
+  public void testInternedFramesMatchText() throws Exception {
+    final ProfileData textData = replay(loadCapture("cpuSamplesText.bin")).getProfileData();
+    final ProfileData internedData = replay(loadCapture("cpuSamplesInterned.bin")).getProfileData();
+
+    final SampleStore store = internedData.getSampleStore();
+    assertEquals(SAMPLE_COUNT, store.getSampleCount());
+    assertEquals(SAMPLE_COUNT, store.getIngestedSamples());
+    assertEquals(265, store.getDefinedFrames());
+    assertEquals(4992577, store.getTimestamp(SAMPLE_COUNT - 1));
+    assertEquals("enterFrameEvent", store.getFrameInfo(0, store.getStackDepth(0) - 1).getMethodName());
+
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> textMaps = textData.getCallTree().getTimeMaps();
+    final Pair<Map<FrameInfo, Long>, Map<FrameInfo, Long>> internedMaps = internedData.getCallTree().getTimeMaps();
+    assertFalse(internedMaps.first.isEmpty());
+    assertEquals(textMaps.first, internedMaps.first);
+    assertEquals(textMaps.second, internedMaps.second);
+  }
+
+  public void testInternedFramesReplayPerformance() throws Exception {
+    final byte[] capture = loadCapture("cpuSamplesInterned.bin");
+    PlatformTestUtil.startPerformanceTest("Replay of CPU samples with interned frames", 1500, () -> {
+      for (int i = 0; i < REPLAY_COUNT; i++) {
+        replay(capture);
+      }
+    }).cpuBound().assertTiming();
+  }
+
+  public void testTextReplayPerformance() throws Exception {
+    final byte[] capture = loadCapture("cpuSamplesText.bin");
+    PlatformTestUtil.startPerformanceTest("Replay of CPU samples in text packets", 3000, () -> {
+      for (int i = 0; i < REPLAY_COUNT; i++) {
+        replay(capture);
+      }
+    }).cpuBound().assertTiming();
+  }
+}
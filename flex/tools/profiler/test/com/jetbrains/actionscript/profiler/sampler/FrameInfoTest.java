@@ -120,4 +120,84 @@ public class FrameInfoTest extends TestCase {
           null,
           "http://adobe.com/AS3/2006/builtin");
   }
+
+  public void testInternNamedFrameAcrossLines() {
+    FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
+    FrameInfo first = frameInfoBuilder.buildInstance("com.test::Foo/bar()[C:\\src;com\\test;Foo.as:90]");
+    FrameInfo second = frameInfoBuilder.buildInstance("com.test::Foo/bar()[C:\\src;com\\test;Foo.as:85]");
+    assertSame(first, second);
+    assertEquals(85, first.getFileLine());
+    assertSame(first, frameInfoBuilder.buildInstance("com.test::Foo/bar()[C:\\src;com\\test;Foo.as:95]"));
+    assertEquals(85, first.getFileLine());
+    assertNotSame(first, frameInfoBuilder.buildInstance("com.test::Foo/baz()[C:\\src;com\\test;Foo.as:90]"));
+    assertEquals(2, frameInfoBuilder.getDistinctFrames());
+    assertEquals(0.5, frameInfoBuilder.getHitRate(), 0.0001);
+  }
+
+  public void testInternEqualNamedFrames() {
+    FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
+    FrameInfo first = frameInfoBuilder.buildInstance("com.test::Foo/bar()[C:\\src;com\\test;Foo.as:90]");
+    // same method compiled from another source directory
+    assertSame(first, frameInfoBuilder.buildInstance("com.test::Foo/bar()[D:\\lib\\src;com\\test;Foo.as:70]"));
+    assertEquals(70, first.getFileLine());
+    assertSame(first, frameInfoBuilder.buildInstance("com.test::Foo$/bar()[C:\\src;com\\test;Foo.as:95]"));
+    assertEquals(70, first.getFileLine());
+    assertNotSame(first, frameInfoBuilder.buildInstance("com.test::Foo/get bar()[C:\\src;com\\test;Foo.as:90]"));
+    assertEquals(4, frameInfoBuilder.getDistinctFrames());
+  }
+
+  public void testInternAnonymousBySourceLocation() {
+    FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder();
+    FrameInfo anonymous = frameInfoBuilder.buildInstance("Function/<anonymous>()[C:\\src;com\\test;Foo.as:12]");
+    assertTrue(anonymous.isAnonymous());
+    assertSame(anonymous, frameInfoBuilder.buildInstance("Function/<anonymous>()[C:\\src;com\\test;Foo.as:12]"));
+    FrameInfo other = frameInfoBuilder.buildInstance("Function/<anonymous>()[C:\\src;com\\test;Foo.as:14]");
+    assertNotSame(anonymous, other);
+    assertEquals(12, anonymous.getFileLine());
+    assertEquals(14, other.getFileLine());
+    assertEquals(2, frameInfoBuilder.getDistinctFrames());
+  }
+
+  public void testHashCollision() {
+    // every frame gets the same key
+    FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder() {
+      @Override
+      long hash(String data, int lineStart, int lineEnd) {
+        return 42;
+      }
+    };
+    FrameInfo foo = frameInfoBuilder.buildInstance("com.test::Foo/foo()[C:\\src;com\\test;Foo.as:10]");
+    assertSame(foo, frameInfoBuilder.buildInstance("com.test::Foo/foo()[C:\\src;com\\test;Foo.as:12]"));
+    // same length
+    FrameInfo bar = frameInfoBuilder.buildInstance("com.test::Foo/bar()[C:\\src;com\\test;Foo.as:10]");
+    assertNotSame(foo, bar);
+    assertEquals("bar", bar.getMethodName());
+    FrameInfo longer = frameInfoBuilder.buildInstance("com.test::Foo/longer()[C:\\src;com\\test;Foo.as:10]");
+    assertEquals("longer", longer.getMethodName());
+    assertNotSame(foo, frameInfoBuilder.buildInstance("com.test::Foo/foo()[C:\\src;com\\test;Foo.as:10]"));
+
+    assertEquals(1, frameInfoBuilder.getDistinctFrames());
+    assertEquals(0.2, frameInfoBuilder.getHitRate(), 0.0001);
+    FrameInfoBuilder single = new FrameInfoBuilder();
+    single.buildInstance("com.test::Foo/foo()[C:\\src;com\\test;Foo.as:10]");
+    assertEquals(single.getBytesHeld(), frameInfoBuilder.getBytesHeld());
+  }
+
+  public void testEvictionByMemoryBudget() {
+    final int budget = 16 * 1024;
+    FrameInfoBuilder frameInfoBuilder = new FrameInfoBuilder(budget);
+    FrameInfo recent = frameInfoBuilder.buildInstance("com.test::Foo/recent()[C:\\src;com\\test;Foo.as:1]");
+    for (int i = 0; i < 1000; i++) {
+      frameInfoBuilder.buildInstance("Function/<anonymous>()[C:\\src;com\\test;Closures.as:" + i + "]");
+      assertSame(recent, frameInfoBuilder.buildInstance("com.test::Foo/recent()[C:\\src;com\\test;Foo.as:" + i + "]"));
+      assertTrue(frameInfoBuilder.getBytesHeld() <= budget);
+    }
+    assertTrue(frameInfoBuilder.getEvictedFrames() > 0);
+    assertTrue(frameInfoBuilder.getDistinctFrames() < 1000);
+
+    // evicted frame is parsed again
+    FrameInfo evicted = frameInfoBuilder.buildInstance("Function/<anonymous>()[C:\\src;com\\test;Closures.as:0]");
+    assertEquals(0, evicted.getFileLine());
+    assertTrue(evicted.isAnonymous());
+  }
 }
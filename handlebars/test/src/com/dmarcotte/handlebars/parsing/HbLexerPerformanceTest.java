@@ -0,0 +1,19 @@
+package com.dmarcotte.handlebars.parsing;
+
+import com.dmarcotte.handlebars.util.HbTestUtils;
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+
+/**
+ * Throughput of _HbLexer over the parser test data, so that runs before and after a grammar regeneration can be compared.
+ */
+public class HbLexerPerformanceTest extends UsefulTestCase {
+  private static final int CORPUS_SIZE = 2 * 1024 * 1024;
+
+  public void testLexer() throws Exception {
+    final String text = ThroughputTestUtil.loadCorpus(new File(HbTestUtils.BASE_TEST_DATA_PATH, "parser"), ".hbs", "\n", CORPUS_SIZE);
+    ThroughputTestUtil.assertLexerTiming("Handlebars lexer", new HbLexer(), text, 1000);
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2000-2016 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.plugins.markdown.parser;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.testFramework.ParsingTestCase;
+import org.intellij.plugins.markdown.MarkdownTestingUtil;
+import org.intellij.plugins.markdown.lang.lexer.MarkdownLexerAdapter;
+import org.intellij.plugins.markdown.lang.parser.MarkdownParserDefinition;
+
+import java.io.File;
+import java.io.IOException;
+
+public class MarkdownParsingPerformanceTest extends ParsingTestCase {
+  private static final int CORPUS_SIZE = 1024 * 1024;
+
+  public MarkdownParsingPerformanceTest() {
+    super("parser", "md", true, new MarkdownParserDefinition());
+  }
+
+  @Override
+  protected String getTestDataPath() {
+    return MarkdownTestingUtil.TEST_DATA_PATH;
+  }
+
+  public void testLexer() throws IOException {
+    ThroughputTestUtil.assertLexerTiming("Markdown lexer", new MarkdownLexerAdapter(), loadCorpus(), 1500);
+  }
+
+  public void testParser() throws IOException {
+    ThroughputTestUtil.assertParserTiming("Markdown parser", loadCorpus(), 5000, text -> createPsiFile("corpus", text).getNode());
+  }
+
+  private String loadCorpus() throws IOException {
+    return ThroughputTestUtil.loadCorpus(new File(getTestDataPath(), "parser"), ".md", "\n\n", CORPUS_SIZE);
+  }
+}
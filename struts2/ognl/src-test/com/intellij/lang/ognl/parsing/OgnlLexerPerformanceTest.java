@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 The authors
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.intellij.lang.ognl.parsing;
+
+import com.intellij.contrib.testFramework.ThroughputTestUtil;
+import com.intellij.lang.ognl.OgnlTestUtils;
+import com.intellij.lang.ognl.lexer.OgnlLexer;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Throughput of _OgnlLexer over the PSI test data and over generated expressions.
+ */
+public class OgnlLexerPerformanceTest extends UsefulTestCase {
+
+  private static final int CORPUS_SIZE = 2 * 1024 * 1024;
+
+  public void testCheckedInCorpus() throws IOException {
+    doTest(ThroughputTestUtil.loadCorpus(FileUtil.findFilesByMask(Pattern.compile(".*\\.ognl"),
+                                                                  new File(PathManager.getHomePath() + "/contrib/struts2/ognl/testData/psi")),
+                                         "\n", CORPUS_SIZE));
+  }
+
+  public void testGeneratedCorpus() {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; builder.length() < CORPUS_SIZE; i++) {
+      builder.append(OgnlTestUtils.createExpression(
+        "#var" + i + " = {1, 2, 3}.{? #this > " + i + "}, new java.util.HashMap() != null ? @java.lang.Math@max(" + i + ", 2L) : 'a'"))
+        .append(' ');
+    }
+    doTest(builder.toString());
+  }
+
+  private void doTest(final String text) {
+    ThroughputTestUtil.assertLexerTiming(getTestName(false), new OgnlLexer(), text, 1000);
+  }
+}
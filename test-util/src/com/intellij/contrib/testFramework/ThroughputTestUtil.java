@@ -0,0 +1,186 @@
+package com.intellij.contrib.testFramework;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.Function;
+import com.intellij.util.ThrowableRunnable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Throughput tests of lexers, parsers and decoders. Time is checked by {@link PlatformTestUtil}, bytes allocated by the calling thread
+ * are checked against the input length. The amount of work (tokens, nodes, input bytes) and the rate measured before the performance
+ * test are a part of its message.
+ */
+public final class ThroughputTestUtil {
+  private static final int MEASURED_RUNS = 3;
+  // lexers allocate tokens only if the adapter collects them, a PSI tree takes a few hundred bytes per node
+  private static final double MAX_ALLOCATED_PER_LEXED_CHAR = 64;
+  private static final double MAX_ALLOCATED_PER_PARSED_CHAR = 2048;
+
+  private ThroughputTestUtil() {
+  }
+
+  /**
+   * @return content of the files with the given extension from the given directory, repeated until it is at least {@code size} chars long
+   */
+  @NotNull
+  public static String loadCorpus(@NotNull File dir, @NotNull final String extension, @NotNull String separator, int size)
+    throws IOException {
+    final File[] files = dir.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return file.getName().endsWith(extension);
+      }
+    });
+    Assert.assertNotNull(dir.getPath(), files);
+    return loadCorpus(Arrays.asList(files), separator, size);
+  }
+
+  @NotNull
+  public static String loadCorpus(@NotNull Collection<File> files, @NotNull String separator, int size) throws IOException {
+    Assert.assertFalse("no corpus files", files.isEmpty());
+    final StringBuilder builder = new StringBuilder();
+    while (builder.length() < size) {
+      for (File file : files) {
+        builder.append(FileUtil.loadFile(file)).append(separator);
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return number of tokens
+   */
+  public static int lex(@NotNull Lexer lexer, @NotNull CharSequence text) {
+    int tokens = 0;
+    lexer.start(text);
+    while (lexer.getTokenType() != null) {
+      tokens++;
+      lexer.advance();
+    }
+    return tokens;
+  }
+
+  private static int countNodes(@NotNull ASTNode node) {
+    int count = 1;
+    for (ASTNode child = node.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+      count += countNodes(child);
+    }
+    return count;
+  }
+
+  /**
+   * Checks lexing time and bytes allocated per char. Token count, tokens per second and allocation are a part of the message.
+   */
+  public static void assertLexerTiming(@NotNull String name, @NotNull final Lexer lexer, @NotNull final CharSequence text, int expectedMs) {
+    final int tokens = lex(lexer, text);
+    final ThrowableRunnable<RuntimeException> task = new ThrowableRunnable<RuntimeException>() {
+      @Override
+      public void run() {
+        lex(lexer, text);
+      }
+    };
+    final Measurement measurement = measure(task);
+    final double allocatedPerChar = measurement.allocatedPer(text.length());
+    final String message = name + ": " + tokens + " tokens in " + text.length() + " chars, " + measurement.perSecond(tokens) +
+                           " tokens/s, " + format(allocatedPerChar) + " bytes allocated per char";
+    assertAllocation(message, allocatedPerChar, MAX_ALLOCATED_PER_LEXED_CHAR);
+    PlatformTestUtil.startPerformanceTest(message, expectedMs, task).cpuBound().assertTiming();
+  }
+
+  /**
+   * Checks parsing time and bytes allocated per char. Node count, nodes per second and allocation are a part of the message.
+   */
+  public static void assertParserTiming(@NotNull String name,
+                                        @NotNull final String text,
+                                        int expectedMs,
+                                        @NotNull final Function<String, ASTNode> parser) {
+    final int nodes = countNodes(parser.fun(text));
+    final ThrowableRunnable<RuntimeException> task = new ThrowableRunnable<RuntimeException>() {
+      @Override
+      public void run() {
+        parser.fun(text);
+      }
+    };
+    final Measurement measurement = measure(task);
+    final double allocatedPerChar = measurement.allocatedPer(text.length());
+    final String message = name + ": " + nodes + " nodes in " + text.length() + " chars, " + measurement.perSecond(nodes) + " nodes/s, " +
+                           format(allocatedPerChar) + " bytes allocated per char";
+    assertAllocation(message, allocatedPerChar, MAX_ALLOCATED_PER_PARSED_CHAR);
+    PlatformTestUtil.startPerformanceTest(message, expectedMs, task).cpuBound().assertTiming();
+  }
+
+  /**
+   * Runs the task once to warm up, checks bytes allocated by the calling thread per input byte, then checks time.
+   */
+  public static <E extends Throwable> void assertThroughput(@NotNull String name,
+                                                           long inputLength,
+                                                           int expectedMs,
+                                                           double maxAllocatedPerInputByte,
+                                                           @NotNull ThrowableRunnable<E> task) throws E {
+    task.run();
+    final Measurement measurement = measure(task);
+    final double allocatedPerInputByte = measurement.allocatedPer(inputLength);
+    final String message = name + ": " + inputLength + " input bytes, " + measurement.perSecond(inputLength / 1024) + " KB/s, " +
+                           format(allocatedPerInputByte) + " bytes allocated per input byte";
+    assertAllocation(message, allocatedPerInputByte, maxAllocatedPerInputByte);
+    PlatformTestUtil.startPerformanceTest(message, expectedMs, task).cpuBound().assertTiming();
+  }
+
+  private static void assertAllocation(@NotNull String message, double allocatedPerInputUnit, double maxAllocatedPerInputUnit) {
+    Assert.assertTrue(message + ", expected at most " + format(maxAllocatedPerInputUnit),
+                      allocatedPerInputUnit <= maxAllocatedPerInputUnit);
+  }
+
+  @NotNull
+  private static String format(double value) {
+    return String.format("%.1f", value);
+  }
+
+  /**
+   * Time and bytes allocated by the calling thread per run, averaged over {@link #MEASURED_RUNS} runs.
+   */
+  private static <E extends Throwable> Measurement measure(@NotNull ThrowableRunnable<E> task) throws E {
+    final long allocatedBefore = getAllocatedBytes();
+    final long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      task.run();
+    }
+    return new Measurement((System.nanoTime() - start) / MEASURED_RUNS, (getAllocatedBytes() - allocatedBefore) / MEASURED_RUNS);
+  }
+
+  /**
+   * @return bytes allocated by the calling thread so far
+   */
+  private static long getAllocatedBytes() {
+    return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static class Measurement {
+    private final long myNanosPerRun;
+    private final long myAllocatedPerRun;
+
+    private Measurement(long nanosPerRun, long allocatedPerRun) {
+      myNanosPerRun = nanosPerRun;
+      myAllocatedPerRun = allocatedPerRun;
+    }
+
+    private long perSecond(long count) {
+      return myNanosPerRun == 0 ? count : count * 1000000000L / myNanosPerRun;
+    }
+
+    private double allocatedPer(long inputLength) {
+      return (double)myAllocatedPerRun / inputLength;
+    }
+  }
+}